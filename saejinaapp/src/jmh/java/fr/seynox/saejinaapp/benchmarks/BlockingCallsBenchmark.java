@@ -0,0 +1,73 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.utils.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the thread-pool mode with the virtual threads mode (saejina.threads.virtual) on blocking Discord calls.
+ * Each call is simulated by sleeping for the REST latency, like a complete() waiting for Discord.
+ * The platform pool has the size of Tomcat's default worker pool.
+ * The virtual mode requires JDK 21+ : run with
+ * <pre>mvn -P benchmark test-compile exec:exec</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BlockingCallsBenchmark {
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"200", "2000"})
+    private int concurrentCalls;
+
+    @Param({"50"})
+    private long latencyMillis;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        executor = mode.equals("virtual")
+                ? VirtualThreads.newThreadPerTaskExecutor("benchmark-")
+                : Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run all the calls at the same time and wait for the last one
+     */
+    @Benchmark
+    public void blockingCalls() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(concurrentCalls);
+
+        for(int call = 0; call < concurrentCalls; call++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+    }
+
+}
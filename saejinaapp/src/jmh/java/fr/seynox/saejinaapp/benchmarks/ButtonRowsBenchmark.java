@@ -0,0 +1,70 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.caches.LastMessageCache;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.utils.ButtonUtils;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.ItemComponent;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of appending a button to a message of the bot : the existing rows are flattened, and partitioned again with the new button.
+ * The message edit is stubbed, and goes through the outbound queue
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ButtonRowsBenchmark {
+
+    /** Buttons already on the message. A message holds 25 buttons at most */
+    @Param({"0", "12", "24"})
+    private int existingButtons;
+
+    private ButtonUtils buttonUtils;
+    private Message message;
+    private Button button;
+
+    @Setup
+    public void setup() {
+        buttonUtils = new ButtonUtils(new OutboundQueue(), new LastMessageCache());
+
+        List<ItemComponent> buttons = new ArrayList<>(existingButtons);
+        for(int index = 0; index < existingButtons; index++) {
+            buttons.add(Button.secondary("role-assign#" + (200_000 + index), "Role " + index));
+        }
+        List<ActionRow> rows = existingButtons == 0 ? List.of() : ActionRow.partitionOf(buttons);
+
+        MessageAction action = FakeEntity.of(MessageAction.class)
+                .with("submit", CompletableFuture.completedFuture(null))
+                .build();
+        TextChannel channel = FakeEntity.of(TextChannel.class)
+                .with("getIdLong", 100_000L)
+                .build();
+        message = FakeEntity.of(Message.class)
+                .with("getIdLong", 400_000L)
+                .with("getChannel", channel)
+                .with("getActionRows", rows)
+                .with("editMessageComponents", action)
+                .build();
+
+        button = Button.secondary("role-assign#300000", "New role");
+    }
+
+    @Benchmark
+    public CompletableFuture<Message> appendButton() {
+        return buttonUtils.appendButtonToMessage(button, message);
+    }
+
+}
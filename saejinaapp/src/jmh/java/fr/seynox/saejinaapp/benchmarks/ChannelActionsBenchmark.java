@@ -0,0 +1,44 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.models.TextChannelAction;
+import fr.seynox.saejinaapp.services.DiscordService;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of filtering the {@link TextChannelAction} allowed to a member in a channel, shown on each channel page
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelActionsBenchmark {
+
+    /** Member 0 can manage channels, member 1 cannot */
+    @Param({"0", "1"})
+    private int memberIndex;
+
+    private DiscordService service;
+    private Member member;
+    private TextChannel channel;
+
+    @Setup
+    public void setup() {
+        service = new DiscordService(null, null, null, null, null);
+        FakeGuild guild = new FakeGuild(2, 1, 2);
+        member = guild.getMembers().get(memberIndex);
+        channel = guild.getChannels().get(0);
+    }
+
+    @Benchmark
+    public List<TextChannelAction> possibleActions() {
+        return service.getPossibleActionsForChannel(member, channel);
+    }
+
+}
@@ -0,0 +1,64 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.listeners.ComponentRouter;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static fr.seynox.saejinaapp.services.RoleService.ROLE_ASSIGNMENT_PREFIX;
+import static fr.seynox.saejinaapp.services.TicketService.*;
+
+/**
+ * Cost of matching a button id to its handler and parsing its numeric suffix, in the {@link ComponentRouter}.
+ * The router holds the application's prefixes, and the handlers only consume their argument
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComponentIdBenchmark {
+
+    @Param({"role-assign#984562318759264287", "ticket-close-confirm", "unknown-button#12"})
+    private String buttonId;
+
+    private ComponentRouter router;
+    private ButtonInteractionEvent event;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        router = new ComponentRouter();
+        for(String prefix : new String[] {ROLE_ASSIGNMENT_PREFIX, TICKET_CREATION_ID, TICKET_CLOSE_ID, TICKET_CLOSE_CONFIRM_ID, TICKET_CLOSE_CANCEL_ID, TICKET_INVITE_PREFIX}) {
+            router.register(prefix, (buttonEvent, argument) -> blackhole.consume(argument));
+        }
+
+        event = new FakeButtonEvent(buttonId);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        router.onButtonPress(event);
+    }
+
+    /**
+     * A button press only holding its id
+     */
+    private static class FakeButtonEvent extends ButtonInteractionEvent {
+
+        private final String componentId;
+
+        private FakeButtonEvent(String componentId) {
+            super(null, 0L, null);
+            this.componentId = componentId;
+        }
+
+        @Override
+        public String getComponentId() {
+            return componentId;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.utils.TypedEventManager;
+import net.dv8tion.jda.api.events.Event;
+import net.dv8tion.jda.api.hooks.AnnotatedEventManager;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-event overhead of JDA's AnnotatedEventManager with the {@link TypedEventManager}.
+ * The listeners mimic the application ones : several listeners, each subscribed to a few event types.
+ * "unhandled" is an event no listener subscribed to (like the presence updates), "handled" has one subscriber. Run with
+ * <pre>mvn -P benchmark test-compile exec:exec -Djmh.args=EventDispatch</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    private static final int LISTENER_COUNT = 8;
+
+    @Param({"annotated", "typed"})
+    private String manager;
+
+    private IEventManager eventManager;
+    private HandledEvent handledEvent;
+    private UnhandledEvent unhandledEvent;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        eventManager = manager.equals("typed") ? new TypedEventManager() : new AnnotatedEventManager();
+
+        for(int i = 0; i < LISTENER_COUNT - 1; i++) {
+            eventManager.register(new OtherListener(blackhole));
+        }
+        eventManager.register(new HandlingListener(blackhole));
+
+        handledEvent = new HandledEvent();
+        unhandledEvent = new UnhandledEvent();
+    }
+
+    @Benchmark
+    public void unhandled() {
+        eventManager.handle(unhandledEvent);
+    }
+
+    @Benchmark
+    public void handled() {
+        eventManager.handle(handledEvent);
+    }
+
+    public static class HandledEvent extends Event {
+        public HandledEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class UnhandledEvent extends Event {
+        public UnhandledEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class FirstOtherEvent extends Event {
+        public FirstOtherEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class SecondOtherEvent extends Event {
+        public SecondOtherEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class HandlingListener {
+
+        private final Blackhole blackhole;
+
+        public HandlingListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @SubscribeEvent
+        public void onHandled(HandledEvent event) {
+            blackhole.consume(event);
+        }
+    }
+
+    public static class OtherListener {
+
+        private final Blackhole blackhole;
+
+        public OtherListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @SubscribeEvent
+        public void onFirst(FirstOtherEvent event) {
+            blackhole.consume(event);
+        }
+
+        @SubscribeEvent
+        public void onSecond(SecondOtherEvent event) {
+            blackhole.consume(event);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Builds fake JDA entities from interface proxies, answering each method by its name.
+ * Unlike mocks, a call only costs a proxy dispatch and a map lookup, so the benchmarks measure the application code.
+ * Methods without a value return null, false or 0
+ */
+public class FakeEntity<T> {
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = Map.of(boolean.class, false, int.class, 0, long.class, 0L);
+
+    private final Class<T> type;
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+    private final Set<String> selfReturningMethods = new HashSet<>();
+
+    private FakeEntity(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> FakeEntity<T> of(Class<T> type) {
+        return new FakeEntity<>(type);
+    }
+
+    /**
+     * Return the value for every call of the method, whatever the arguments
+     */
+    public FakeEntity<T> with(String methodName, Object value) {
+        answers.put(methodName, arguments -> value);
+        return this;
+    }
+
+    /**
+     * Compute the value of the method from its arguments
+     */
+    public FakeEntity<T> answer(String methodName, Function<Object[], Object> answer) {
+        answers.put(methodName, answer);
+        return this;
+    }
+
+    /**
+     * Return the entity itself, like the builder methods of the RestActions
+     */
+    public FakeEntity<T> returnsSelf(String... methodNames) {
+        selfReturningMethods.addAll(List.of(methodNames));
+        return this;
+    }
+
+    public T build() {
+        Map<String, Function<Object[], Object>> entityAnswers = Map.copyOf(answers);
+        Set<String> entitySelfReturningMethods = Set.copyOf(selfReturningMethods);
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, arguments) -> {
+            Function<Object[], Object> answer = entityAnswers.get(method.getName());
+            if(answer != null) {
+                return answer.apply(arguments);
+            }
+            if(entitySelfReturningMethods.contains(method.getName())) {
+                return self;
+            }
+
+            return switch(method.getName()) {
+                case "equals" -> self == arguments[0];
+                case "hashCode" -> System.identityHashCode(self);
+                case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(self));
+                default -> defaultValue(method);
+            };
+        });
+
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Method method) {
+        return PRIMITIVE_DEFAULTS.get(method.getReturnType());
+    }
+
+}
@@ -0,0 +1,177 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.PermissionOverride;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.TextChannel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A server with generated members, text channels and roles, built from {@link FakeEntity}.
+ * The generation is seeded, so every run of a benchmark works on the same server
+ */
+public class FakeGuild {
+
+    private static final long VIEW_CHANNEL = Permission.VIEW_CHANNEL.getRawValue();
+    private static final long GUILD_ID = 100_000L;
+    private static final long FIRST_ROLE_ID = 200_000L;
+    private static final long FIRST_CHANNEL_ID = 300_000L;
+    private static final long FIRST_MEMBER_ID = 400_000L;
+    private static final int MAX_ROLES_PER_MEMBER = 3;
+
+    private final Guild guild;
+    private final List<Member> members;
+    private final List<TextChannel> channels;
+    private final List<Role> roles;
+
+    /**
+     * @param memberCount The number of members, the first one being the owner
+     * @param channelCount The number of text channels
+     * @param roleCount The number of roles, the last one being the public role
+     */
+    public FakeGuild(int memberCount, int channelCount, int roleCount) {
+        Random random = new Random(42L);
+        Guild[] guildReference = new Guild[1];
+
+        // Roles, sorted by position (highest first)
+        this.roles = new ArrayList<>(roleCount);
+        Map<Long, Role> rolesById = new HashMap<>();
+        for(int index = 0; index < roleCount; index++) {
+            boolean isPublicRole = index == roleCount - 1;
+            long roleId = isPublicRole ? GUILD_ID : FIRST_ROLE_ID + index;
+
+            Role role = FakeEntity.of(Role.class)
+                    .with("getIdLong", roleId)
+                    .with("getName", isPublicRole ? "@everyone" : "role-" + index)
+                    .with("getAsMention", isPublicRole ? "@everyone" : "<@&%s>".formatted(roleId))
+                    .with("isPublicRole", isPublicRole)
+                    .with("isMentionable", index % 2 == 0)
+                    .with("getPosition", roleCount - index - 1)
+                    .with("getPermissionsRaw", index % 4 == 0 ? VIEW_CHANNEL : 0L)
+                    .answer("getGuild", arguments -> guildReference[0])
+                    .build();
+
+            roles.add(role);
+            rolesById.put(roleId, role);
+        }
+        Role publicRole = roles.get(roleCount - 1);
+
+        // Channels hidden from the public role, and visible to a single role
+        PermissionOverride hidingOverride = FakeEntity.of(PermissionOverride.class)
+                .with("getDeniedRaw", VIEW_CHANNEL)
+                .build();
+        PermissionOverride showingOverride = FakeEntity.of(PermissionOverride.class)
+                .with("getAllowedRaw", VIEW_CHANNEL)
+                .build();
+
+        this.channels = new ArrayList<>(channelCount);
+        for(int index = 0; index < channelCount; index++) {
+            Map<Role, PermissionOverride> overrides = new HashMap<>();
+            if(index % 3 == 0) {
+                overrides.put(publicRole, hidingOverride);
+                overrides.put(roles.get(random.nextInt(roleCount)), showingOverride);
+            }
+
+            TextChannel channel = FakeEntity.of(TextChannel.class)
+                    .with("getIdLong", FIRST_CHANNEL_ID + index)
+                    .with("getName", "channel-" + index)
+                    .with("getMemberPermissionOverrides", List.of())
+                    .with("canTalk", true)
+                    .answer("getPermissionOverride", arguments -> overrides.get((Role) arguments[0]))
+                    .answer("getGuild", arguments -> guildReference[0])
+                    .build();
+
+            channels.add(channel);
+        }
+
+        // Members, with a few random roles each
+        this.members = new ArrayList<>(memberCount);
+        for(int index = 0; index < memberCount; index++) {
+            List<Role> memberRoles = new ArrayList<>();
+            int memberRoleCount = roleCount > 1 ? random.nextInt(Math.min(MAX_ROLES_PER_MEMBER, roleCount - 1) + 1) : 0;
+            for(int roleIndex = 0; roleIndex < memberRoleCount; roleIndex++) {
+                Role role = roles.get(random.nextInt(roleCount - 1));
+                if(!memberRoles.contains(role)) {
+                    memberRoles.add(role);
+                }
+            }
+            memberRoles.sort(Comparator.comparingInt(Role::getPosition).reversed());
+
+            Set<Permission> permissions = index % 2 == 0
+                    ? Set.of(Permission.MANAGE_CHANNEL, Permission.MESSAGE_MENTION_EVERYONE)
+                    : Set.of(Permission.MESSAGE_MENTION_EVERYONE);
+
+            Member member = FakeEntity.of(Member.class)
+                    .with("getIdLong", FIRST_MEMBER_ID + index)
+                    .with("getEffectiveName", "user-%08x".formatted(random.nextInt()))
+                    .with("getAsMention", "<@%s>".formatted(FIRST_MEMBER_ID + index))
+                    .with("getRoles", List.copyOf(memberRoles))
+                    .with("isOwner", index == 0)
+                    .answer("hasPermission", arguments -> hasPermissions(permissions, arguments))
+                    .answer("getGuild", arguments -> guildReference[0])
+                    .build();
+
+            members.add(member);
+        }
+
+        List<Role> guildRoles = List.copyOf(roles);
+        List<TextChannel> guildChannels = List.copyOf(channels);
+        List<Member> guildMembers = List.copyOf(members);
+        this.guild = FakeEntity.of(Guild.class)
+                .with("getIdLong", GUILD_ID)
+                .with("getRoles", guildRoles)
+                .with("getPublicRole", publicRole)
+                .with("getTextChannels", guildChannels)
+                .with("getMembers", guildMembers)
+                .with("getOwner", members.get(0))
+                .answer("getRoleById", arguments -> rolesById.get((Long) arguments[0]))
+                .build();
+        guildReference[0] = guild;
+    }
+
+    public Guild getGuild() {
+        return guild;
+    }
+
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    public List<TextChannel> getChannels() {
+        return channels;
+    }
+
+    public List<Role> getRoles() {
+        return roles;
+    }
+
+    public Member getOwner() {
+        return members.get(0);
+    }
+
+    /**
+     * Answer Member#hasPermission(Permission...) and its overloads taking a channel first
+     */
+    private static boolean hasPermissions(Set<Permission> permissions, Object[] arguments) {
+        Object requested = arguments[arguments.length - 1];
+        if(requested instanceof Permission[] requestedPermissions) {
+            return permissions.containsAll(Arrays.asList(requestedPermissions));
+        }
+        if(requested instanceof Permission permission) {
+            return permissions.contains(permission);
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,91 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.caches.ChannelVisibilityIndex;
+import fr.seynox.saejinaapp.caches.MemberNameIndex;
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectablePage;
+import net.dv8tion.jda.api.entities.Member;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the lists shown in the panel (roles, members and channels mapped to Selectable), on a {@link FakeGuild}.
+ * "cold" benchmarks start from an empty cache, like the first request after a change in the server.
+ * "warm" benchmarks reuse the cache, like the following requests
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuildListsBenchmark {
+
+    @Param({"100", "10000"})
+    private int memberCount;
+
+    @Param({"20", "500"})
+    private int channelCount;
+
+    @Param({"10", "250"})
+    private int roleCount;
+
+    private FakeGuild guild;
+    private Member member;
+
+    private RoleListCache warmRoleCache;
+    private MemberNameIndex warmNameIndex;
+    private ChannelVisibilityIndex warmVisibilityIndex;
+
+    @Setup
+    public void setup() {
+        guild = new FakeGuild(memberCount, channelCount, roleCount);
+        member = guild.getMembers().get(memberCount / 2);
+
+        warmRoleCache = new RoleListCache();
+        warmRoleCache.getAssignableRoles(guild.getOwner());
+        warmNameIndex = new MemberNameIndex(null);
+        warmNameIndex.search(guild.getGuild(), "", 0);
+        warmVisibilityIndex = new ChannelVisibilityIndex();
+        warmVisibilityIndex.getVisibleChannels(member);
+    }
+
+    @Benchmark
+    public List<Selectable> assignableRolesCold() {
+        return new RoleListCache().getAssignableRoles(guild.getOwner());
+    }
+
+    @Benchmark
+    public List<Selectable> mentionableRolesCold() {
+        return new RoleListCache().getMentionableRoles(guild.getGuild());
+    }
+
+    @Benchmark
+    public List<Selectable> assignableRolesWarm() {
+        return warmRoleCache.getAssignableRoles(guild.getOwner());
+    }
+
+    @Benchmark
+    public SelectablePage memberSearchCold() {
+        return new MemberNameIndex(null).search(guild.getGuild(), "user-a", 0);
+    }
+
+    @Benchmark
+    public SelectablePage memberSearchWarm() {
+        return warmNameIndex.search(guild.getGuild(), "user-a", 0);
+    }
+
+    @Benchmark
+    public List<Selectable> visibleChannelsCold() {
+        return new ChannelVisibilityIndex().getVisibleChannels(member);
+    }
+
+    @Benchmark
+    public List<Selectable> visibleChannelsWarm() {
+        return warmVisibilityIndex.getVisibleChannels(member);
+    }
+
+}
@@ -0,0 +1,85 @@
+package fr.seynox.saejinaapp.benchmarks;
+
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import fr.seynox.saejinaapp.services.DiscordService;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the checks done before sending a message : the mention scan of the content, and the allowed mentions.
+ * The Discord request is stubbed, and goes through the outbound queue
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBenchmark {
+
+    @Param({"64", "2000"})
+    private int contentLength;
+
+    /** Where the @everyone mention is in the content : nowhere, at the start or at the end */
+    @Param({"none", "start", "end"})
+    private String mention;
+
+    private DiscordService service;
+    private Member member;
+    private TextChannel channel;
+    private String content;
+
+    @Setup
+    public void setup() {
+        service = new DiscordService(null, null, null, null, new OutboundQueue());
+        FakeGuild guild = new FakeGuild(2, 1, 2);
+        member = guild.getMembers().get(1);
+
+        MessageAction action = FakeEntity.of(MessageAction.class)
+                .returnsSelf("allowedMentions", "mentionUsers", "mentionRoles")
+                .with("submit", CompletableFuture.completedFuture(null))
+                .build();
+        channel = FakeEntity.of(TextChannel.class)
+                .with("canTalk", true)
+                .with("getIdLong", 100_000L)
+                .with("getGuild", guild.getGuild())
+                .with("sendMessage", action)
+                .build();
+
+        content = buildContent();
+    }
+
+    @Benchmark
+    public OutboundRequest<Message> sendMessage() {
+        return service.sendMessageInChannel(member, channel, content);
+    }
+
+    private String buildContent() {
+        String mentionText = "@everyone";
+        StringBuilder builder = new StringBuilder(contentLength);
+        if(mention.equals("start")) {
+            builder.append(mentionText).append(' ');
+        }
+
+        String filler = "Hello <@400001> and <@&200000>, the tournament starts at 20:00 ! ";
+        int fillerLength = contentLength - builder.length() - (mention.equals("end") ? mentionText.length() : 0);
+        while(fillerLength > 0) {
+            builder.append(filler, 0, Math.min(filler.length(), fillerLength));
+            fillerLength -= filler.length();
+        }
+
+        if(mention.equals("end")) {
+            builder.append(mentionText);
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,306 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.GenericChannelEvent;
+import net.dv8tion.jda.api.events.channel.update.GenericChannelUpdateEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the text channels visible to each combination of roles, per server.
+ * Visibility is stored as a {@link BitSet} over the server's text channel list,
+ * and is updated when channels, permission overrides or roles change
+ */
+@Component
+public class ChannelVisibilityIndex {
+
+    private static final long ADMINISTRATOR = Permission.ADMINISTRATOR.getRawValue();
+    private static final long VIEW_CHANNEL = Permission.VIEW_CHANNEL.getRawValue();
+
+    private final ConcurrentMap<Long, GuildChannels> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * Get all server text channels that are visible to the given member
+     * @param member The member getting the channels
+     * @return A list of text channels visible to the member, in the server order
+     */
+    public List<Selectable> getVisibleChannels(Member member) {
+        Guild guild = member.getGuild();
+        GuildChannels snapshot = guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildChannels(guild));
+
+        if(member.isOwner()) {
+            return snapshot.selectables;
+        }
+
+        // Member overrides are specific to a single member, so they can't be shared between role combinations
+        if(snapshot.membersWithOverrides.contains(member.getIdLong())) {
+            return snapshot.channels.stream()
+                    .filter(member::hasAccess)
+                    .map(channel -> (Selectable) new SelectableImpl(channel.getIdLong(), channel.getName()))
+                    .toList();
+        }
+
+        RoleCombination roles = RoleCombination.of(member.getRoles());
+        BitSet visibleChannels = snapshot.getVisibility(guild, roles);
+
+        List<Selectable> result = new ArrayList<>(visibleChannels.cardinality());
+        for(int index = visibleChannels.nextSetBit(0); index >= 0; index = visibleChannels.nextSetBit(index + 1)) {
+            result.add(snapshot.selectables.get(index));
+        }
+
+        return result;
+    }
+
+    /**
+     * Triggered when a channel is created in a server
+     */
+    @SubscribeEvent
+    public void onChannelCreate(ChannelCreateEvent event) {
+        invalidateChannels(event);
+    }
+
+    /**
+     * Triggered when a channel is deleted from a server
+     */
+    @SubscribeEvent
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        invalidateChannels(event);
+    }
+
+    /**
+     * Triggered when a channel is updated (name, position, category...)
+     */
+    @SubscribeEvent
+    public void onChannelUpdate(GenericChannelUpdateEvent<?> event) {
+        invalidateChannels(event);
+    }
+
+    /**
+     * Triggered when a permission override is created, updated or deleted.
+     * Only recomputes the visibility of the affected channel
+     */
+    @SubscribeEvent
+    public void onPermissionOverride(GenericPermissionOverrideEvent event) {
+        Guild guild = event.getGuild();
+        GuildChannels snapshot = guilds.get(guild.getIdLong());
+        if(snapshot == null) {
+            return;
+        }
+
+        if(event.isMemberOverride()) {
+            // Member overrides can be added to, or removed from, any channel
+            guilds.remove(guild.getIdLong(), snapshot);
+            return;
+        }
+
+        long channelId = event.getChannel().getIdLong();
+        int channelIndex = snapshot.indexByChannel.get(channelId);
+        if(channelIndex == snapshot.indexByChannel.getNoEntryValue()) {
+            return;
+        }
+
+        TextChannel channel = snapshot.channels.get(channelIndex);
+        synchronized(snapshot) {
+            snapshot.visibilityByRoles.replaceAll((roles, visibility) -> {
+                BitSet updated = (BitSet) visibility.clone();
+                updated.set(channelIndex, canView(guild, roles, channel));
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Triggered when the permissions of a role are updated
+     */
+    @SubscribeEvent
+    public void onRolePermissionsUpdate(RoleUpdatePermissionsEvent event) {
+        invalidateRole(event.getGuild(), event.getRole());
+    }
+
+    /**
+     * Triggered when a role is deleted
+     */
+    @SubscribeEvent
+    public void onRoleDelete(RoleDeleteEvent event) {
+        invalidateRole(event.getGuild(), event.getRole());
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    private void invalidateChannels(GenericChannelEvent event) {
+        ChannelType type = event.getChannelType();
+        if(event.isFromGuild() && (type == ChannelType.TEXT || type == ChannelType.CATEGORY)) {
+            guilds.remove(event.getGuild().getIdLong());
+        }
+    }
+
+    private void invalidateRole(Guild guild, Role role) {
+        GuildChannels snapshot = guilds.get(guild.getIdLong());
+        if(snapshot == null) {
+            return;
+        }
+
+        synchronized(snapshot) {
+            if(role.isPublicRole()) {
+                snapshot.visibilityByRoles.clear();
+            } else {
+                long roleId = role.getIdLong();
+                snapshot.visibilityByRoles.keySet().removeIf(roles -> roles.contains(roleId));
+            }
+        }
+    }
+
+    private static BitSet computeVisibility(Guild guild, RoleCombination roles, List<TextChannel> channels) {
+        BitSet visibility = new BitSet(channels.size());
+        for(int index = 0; index < channels.size(); index++) {
+            visibility.set(index, canView(guild, roles, channels.get(index)));
+        }
+
+        return visibility;
+    }
+
+    /**
+     * Check if a member with the given roles can see the channel.
+     * Follows Discord's permission algorithm, without member overrides
+     */
+    private static boolean canView(Guild guild, RoleCombination roles, TextChannel channel) {
+        Role publicRole = guild.getPublicRole();
+        long permissions = publicRole.getPermissionsRaw();
+
+        List<Role> memberRoles = new ArrayList<>(roles.roleIds.length);
+        for(long roleId : roles.roleIds) {
+            Role role = guild.getRoleById(roleId);
+            if(role != null) {
+                memberRoles.add(role);
+                permissions |= role.getPermissionsRaw();
+            }
+        }
+
+        if((permissions & ADMINISTRATOR) != 0) {
+            return true;
+        }
+
+        PermissionOverride publicOverride = channel.getPermissionOverride(publicRole);
+        if(publicOverride != null) {
+            permissions = (permissions & ~publicOverride.getDeniedRaw()) | publicOverride.getAllowedRaw();
+        }
+
+        long allowed = 0;
+        long denied = 0;
+        for(Role role : memberRoles) {
+            PermissionOverride override = channel.getPermissionOverride(role);
+            if(override != null) {
+                allowed |= override.getAllowedRaw();
+                denied |= override.getDeniedRaw();
+            }
+        }
+        permissions = (permissions & ~denied) | allowed;
+
+        return (permissions & VIEW_CHANNEL) != 0;
+    }
+
+    /**
+     * Snapshot of the text channels of a server, with the cached visibility of each role combination.
+     * Visibilities are computed and updated under the snapshot's lock : a visibility computed from the old overrides
+     * can't be added after the update of these overrides
+     */
+    private static class GuildChannels {
+
+        private final List<TextChannel> channels;
+        private final List<Selectable> selectables;
+        private final TLongIntMap indexByChannel;
+        private final TLongSet membersWithOverrides;
+        private final ConcurrentMap<RoleCombination, BitSet> visibilityByRoles = new ConcurrentHashMap<>();
+
+        private GuildChannels(Guild guild) {
+            this.channels = List.copyOf(guild.getTextChannels());
+            this.indexByChannel = new TLongIntHashMap(channels.size(), 0.5f, 0, -1);
+            this.membersWithOverrides = new TLongHashSet();
+
+            List<Selectable> channelSelectables = new ArrayList<>(channels.size());
+            for(int index = 0; index < channels.size(); index++) {
+                TextChannel channel = channels.get(index);
+                channelSelectables.add(new SelectableImpl(channel.getIdLong(), channel.getName()));
+                indexByChannel.put(channel.getIdLong(), index);
+
+                for(PermissionOverride override : channel.getMemberPermissionOverrides()) {
+                    membersWithOverrides.add(override.getIdLong());
+                }
+            }
+            this.selectables = List.copyOf(channelSelectables);
+        }
+
+        private BitSet getVisibility(Guild guild, RoleCombination roles) {
+            BitSet visibility = visibilityByRoles.get(roles);
+            if(visibility != null) {
+                return visibility;
+            }
+
+            synchronized(this) {
+                return visibilityByRoles.computeIfAbsent(roles, combination -> computeVisibility(guild, combination, channels));
+            }
+        }
+    }
+
+    /**
+     * A sorted set of role ids, used as a map key
+     */
+    private static final class RoleCombination {
+
+        private final long[] roleIds;
+        private final int hash;
+
+        private RoleCombination(long[] roleIds) {
+            this.roleIds = roleIds;
+            this.hash = Arrays.hashCode(roleIds);
+        }
+
+        private static RoleCombination of(List<Role> roles) {
+            long[] roleIds = new long[roles.size()];
+            for(int index = 0; index < roleIds.length; index++) {
+                roleIds[index] = roles.get(index).getIdLong();
+            }
+            Arrays.sort(roleIds);
+
+            return new RoleCombination(roleIds);
+        }
+
+        private boolean contains(long roleId) {
+            return Arrays.binarySearch(roleIds, roleId) >= 0;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RoleCombination combination && Arrays.equals(roleIds, combination.roleIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
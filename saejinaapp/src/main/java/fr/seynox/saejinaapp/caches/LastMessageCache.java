@@ -0,0 +1,133 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the latest message of each server text channel, used to append buttons to the bot's messages without fetching them.
+ * Only the messages sent by the bot are kept, the other ones are reduced to their id.
+ * The cache is updated from the message events, and entries are dropped when their message is deleted
+ */
+@Component
+public class LastMessageCache {
+
+    private final ConcurrentMap<Long, LastMessage> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Get the latest message of the channel, if it is cached and still the latest one
+     * @param channelId The channel of the message
+     * @param latestMessageId The id of the latest message of the channel, as known by JDA
+     * @return The cached latest message, or null on a cache miss
+     */
+    public LastMessage get(long channelId, long latestMessageId) {
+        LastMessage lastMessage = channels.get(channelId);
+        if(lastMessage == null || lastMessage.messageId() != latestMessageId) {
+            return null;
+        }
+
+        return lastMessage;
+    }
+
+    /**
+     * Remember a message as the latest one of its channel, unless a newer message is already cached
+     * @param message A message sent in a server text channel
+     * @param selfId The id of the bot
+     */
+    public void put(Message message, long selfId) {
+        long messageId = message.getIdLong();
+        boolean isFromSelf = message.getAuthor().getIdLong() == selfId;
+        LastMessage lastMessage = new LastMessage(messageId, isFromSelf ? message : null);
+
+        // Message ids grow with time, events and REST answers may arrive out of order
+        channels.merge(message.getChannel().getIdLong(), lastMessage,
+                (cached, received) -> cached.messageId() > received.messageId() ? cached : received);
+    }
+
+    /**
+     * Replace the cached message by its edited version, if it is still the latest one of its channel
+     * @param message An edited message
+     */
+    public void update(Message message) {
+        channels.computeIfPresent(message.getChannel().getIdLong(), (channelId, cached) -> {
+            boolean isSameMessage = cached.messageId() == message.getIdLong();
+            return isSameMessage && cached.selfMessage() != null ? new LastMessage(cached.messageId(), message) : cached;
+        });
+    }
+
+    /**
+     * Triggered when a message is sent, including the messages of the bot
+     */
+    @SubscribeEvent
+    public void onMessageReceived(MessageReceivedEvent event) {
+        if(event.isFromType(ChannelType.TEXT)) {
+            put(event.getMessage(), event.getJDA().getSelfUser().getIdLong());
+        }
+    }
+
+    /**
+     * Triggered when a message is edited (content, buttons...)
+     */
+    @SubscribeEvent
+    public void onMessageUpdate(MessageUpdateEvent event) {
+        if(event.isFromType(ChannelType.TEXT)) {
+            update(event.getMessage());
+        }
+    }
+
+    /**
+     * Triggered when a message is deleted. The previous message is unknown, so the channel is dropped
+     */
+    @SubscribeEvent
+    public void onMessageDelete(MessageDeleteEvent event) {
+        long messageId = event.getMessageIdLong();
+        channels.computeIfPresent(event.getChannel().getIdLong(),
+                (channelId, cached) -> cached.messageId() == messageId ? null : cached);
+    }
+
+    /**
+     * Triggered when several messages are deleted at once
+     */
+    @SubscribeEvent
+    public void onMessageBulkDelete(MessageBulkDeleteEvent event) {
+        channels.computeIfPresent(event.getChannel().getIdLong(),
+                (channelId, cached) -> event.getMessageIds().contains(Long.toString(cached.messageId())) ? null : cached);
+    }
+
+    /**
+     * Triggered when a channel is deleted from a server
+     */
+    @SubscribeEvent
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        channels.remove(event.getChannel().getIdLong());
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        for(TextChannel channel : event.getGuild().getTextChannels()) {
+            channels.remove(channel.getIdLong());
+        }
+    }
+
+    /**
+     * The latest message of a channel
+     * @param messageId The id of the message
+     * @param selfMessage The message, if it was sent by the bot. Null otherwise
+     */
+    public record LastMessage(long messageId, Message selfMessage) {}
+
+}
@@ -0,0 +1,157 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberUpdateEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the members resolved by the panel.
+ * Least recently used members are evicted first, and entries are invalidated when the member is updated
+ */
+@Component
+public class MemberCache {
+
+    private final Map<MemberKey, Member> members;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberCache(@Value("${saejina.cache.members.size:10000}") int maxSize) {
+        this.members = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberKey, Member> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a cached member
+     * @param guildId The member's server
+     * @param userId The member's user
+     * @return The cached member, or null if it is not cached
+     */
+    public Member get(long guildId, long userId) {
+        Member member;
+        synchronized(members) {
+            member = members.get(new MemberKey(guildId, userId));
+        }
+
+        if(member == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return member;
+    }
+
+    /**
+     * Cache the given member
+     * @param guildId The member's server
+     * @param userId The member's user
+     * @param member The member to cache
+     */
+    public void put(long guildId, long userId, Member member) {
+        synchronized(members) {
+            members.put(new MemberKey(guildId, userId), member);
+        }
+    }
+
+    /**
+     * Remove a member from the cache
+     * @param guildId The member's server
+     * @param userId The member's user
+     */
+    public void invalidate(long guildId, long userId) {
+        synchronized(members) {
+            members.remove(new MemberKey(guildId, userId));
+        }
+    }
+
+    /**
+     * Remove all the members of the given server from the cache
+     * @param guildId The server to remove
+     */
+    public void invalidateGuild(long guildId) {
+        synchronized(members) {
+            members.keySet().removeIf(key -> key.guildId() == guildId);
+        }
+    }
+
+    /**
+     * Triggered when a member is updated (nickname, avatar, pending state...)
+     */
+    @SubscribeEvent
+    public void onMemberUpdate(GuildMemberUpdateEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    /**
+     * Triggered when a member is given roles
+     */
+    @SubscribeEvent
+    public void onMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    /**
+     * Triggered when roles are removed from a member
+     */
+    @SubscribeEvent
+    public void onMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    /**
+     * Triggered when a user leaves (or is kicked/banned from) a server
+     */
+    @SubscribeEvent
+    public void onMemberRemove(GuildMemberRemoveEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        invalidateGuild(event.getGuild().getIdLong());
+    }
+
+    /**
+     * @return The number of lookups that found a cached member
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that did not find a cached member
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of cached members
+     */
+    public int size() {
+        synchronized(members) {
+            return members.size();
+        }
+    }
+
+    private record MemberKey(long guildId, long userId) {}
+
+}
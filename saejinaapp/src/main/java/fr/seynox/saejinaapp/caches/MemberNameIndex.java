@@ -0,0 +1,248 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.models.SelectablePage;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-server prefix index over the members' effective names.
+ * The index is a sorted array, built on the first search.
+ * It is then updated from the member events, by inserting or removing the member in a copy of the arrays :
+ * a join, leave or rename costs one copy of the arrays instead of sorting every member again.
+ * Searches read the current copy without locking
+ */
+@Component
+public class MemberNameIndex {
+
+    public static final int PAGE_SIZE = 25;
+
+    private final ConcurrentMap<Long, SortedNames> guilds = new ConcurrentHashMap<>();
+    private final UserGuildIndex userGuildIndex;
+
+    public MemberNameIndex(UserGuildIndex userGuildIndex) {
+        this.userGuildIndex = userGuildIndex;
+    }
+
+    /**
+     * Search the members whose effective name starts with the given query (case-insensitive)
+     * @param guild The server to search the members in
+     * @param query The start of the name. An empty query matches every member
+     * @param page The index of the page to get, starting at 0
+     * @return A page of Selectable containing the member's name and its mention as id
+     */
+    public SelectablePage search(Guild guild, String query, int page) {
+        SortedNames names = guilds.computeIfAbsent(guild.getIdLong(), id -> new SortedNames(guild.getMembers()));
+
+        String prefix = query.strip().toLowerCase(Locale.ROOT);
+        long start = names.lowerBound(prefix) + (long) Math.max(page, 0) * PAGE_SIZE;
+        if(start >= names.size()) {
+            return new SelectablePage(List.of(), Math.max(page, 0), false);
+        }
+
+        List<Selectable> results = new ArrayList<>(PAGE_SIZE);
+        int index = (int) start;
+        while(index < names.size() && results.size() < PAGE_SIZE && names.keys[index].startsWith(prefix)) {
+            results.add(new SelectableImpl("<@%s>".formatted(names.ids[index]), names.displayNames[index]));
+            index++;
+        }
+
+        boolean hasNext = index < names.size() && names.keys[index].startsWith(prefix);
+        return new SelectablePage(results, Math.max(page, 0), hasNext);
+    }
+
+    /**
+     * Triggered when a user joins a server.
+     * The member may already be indexed, if the index was built from a member cache that included them
+     */
+    @SubscribeEvent
+    public void onMemberJoin(GuildMemberJoinEvent event) {
+        Member member = event.getMember();
+        guilds.computeIfPresent(event.getGuild().getIdLong(),
+                (id, names) -> names.without(member.getIdLong()).with(member.getIdLong(), member.getEffectiveName()));
+    }
+
+    /**
+     * Triggered when a user leaves (or is kicked/banned from) a server
+     */
+    @SubscribeEvent
+    public void onMemberRemove(GuildMemberRemoveEvent event) {
+        long userId = event.getUser().getIdLong();
+        guilds.computeIfPresent(event.getGuild().getIdLong(), (id, names) -> names.without(userId));
+    }
+
+    /**
+     * Triggered when a member changes their nickname
+     */
+    @SubscribeEvent
+    public void onNicknameUpdate(GuildMemberUpdateNicknameEvent event) {
+        Member member = event.getMember();
+        guilds.computeIfPresent(event.getGuild().getIdLong(),
+                (id, names) -> names.without(member.getIdLong()).with(member.getIdLong(), member.getEffectiveName()));
+    }
+
+    /**
+     * Triggered when a user changes their name.
+     * Only the servers of this user are updated, with the member's new effective name in each of them
+     */
+    @SubscribeEvent
+    public void onUserNameUpdate(UserUpdateNameEvent event) {
+        long userId = event.getUser().getIdLong();
+        for(long guildId : userGuildIndex.getGuildIds(userId)) {
+            guilds.computeIfPresent(guildId, (id, names) -> {
+                Guild guild = event.getJDA().getGuildById(guildId);
+                Member member = guild == null ? null : guild.getMemberById(userId);
+                SortedNames updatedNames = names.without(userId);
+
+                return member == null ? updatedNames : updatedNames.with(userId, member.getEffectiveName());
+            });
+        }
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Members of a server, sorted by their lower-cased effective name.
+     * Never modified once built : updates return a new copy
+     */
+    private static class SortedNames {
+
+        private final String[] keys;
+        private final String[] displayNames;
+        private final long[] ids;
+
+        private SortedNames(List<Member> members) {
+            Member[] sorted = members.toArray(Member[]::new);
+            String[] lowerNames = new String[sorted.length];
+            Integer[] order = new Integer[sorted.length];
+            for(int index = 0; index < sorted.length; index++) {
+                lowerNames[index] = sorted[index].getEffectiveName().toLowerCase(Locale.ROOT);
+                order[index] = index;
+            }
+            Arrays.sort(order, Comparator.comparing(index -> lowerNames[index]));
+
+            this.keys = new String[sorted.length];
+            this.displayNames = new String[sorted.length];
+            this.ids = new long[sorted.length];
+            for(int position = 0; position < order.length; position++) {
+                int index = order[position];
+                keys[position] = lowerNames[index];
+                displayNames[position] = sorted[index].getEffectiveName();
+                ids[position] = sorted[index].getIdLong();
+            }
+        }
+
+        private SortedNames(String[] keys, String[] displayNames, long[] ids) {
+            this.keys = keys;
+            this.displayNames = displayNames;
+            this.ids = ids;
+        }
+
+        private int size() {
+            return keys.length;
+        }
+
+        /**
+         * @return A copy of the names including the member, at its sorted position
+         */
+        private SortedNames with(long memberId, String displayName) {
+            String key = displayName.toLowerCase(Locale.ROOT);
+            int position = lowerBound(key);
+            int length = keys.length;
+
+            String[] newKeys = new String[length + 1];
+            String[] newDisplayNames = new String[length + 1];
+            long[] newIds = new long[length + 1];
+            copyAround(keys, newKeys, length, position, 0);
+            copyAround(displayNames, newDisplayNames, length, position, 0);
+            copyAround(ids, newIds, length, position, 0);
+            newKeys[position] = key;
+            newDisplayNames[position] = displayName;
+            newIds[position] = memberId;
+
+            return new SortedNames(newKeys, newDisplayNames, newIds);
+        }
+
+        /**
+         * @return A copy of the names without the member, or the same names if the member is not indexed
+         */
+        private SortedNames without(long memberId) {
+            int position = indexOf(memberId);
+            if(position < 0) {
+                return this;
+            }
+
+            int length = keys.length;
+            String[] newKeys = new String[length - 1];
+            String[] newDisplayNames = new String[length - 1];
+            long[] newIds = new long[length - 1];
+            copyAround(keys, newKeys, length, position, 1);
+            copyAround(displayNames, newDisplayNames, length, position, 1);
+            copyAround(ids, newIds, length, position, 1);
+
+            return new SortedNames(newKeys, newDisplayNames, newIds);
+        }
+
+        /**
+         * @return The position of the member, -1 if it is not indexed. The ids are not sorted, the member's old name is unknown
+         */
+        private int indexOf(long memberId) {
+            for(int index = 0; index < ids.length; index++) {
+                if(ids[index] == memberId) {
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Copy the array of the given length into the new one, leaving a free slot at the position (removed = 0) or skipping it (removed = 1)
+         */
+        private static void copyAround(Object source, Object target, int length, int position, int removed) {
+            System.arraycopy(source, 0, target, 0, position);
+            System.arraycopy(source, position + removed, target, position + 1 - removed, length - position - removed);
+        }
+
+        /**
+         * @return The index of the first name greater than or equal to the prefix
+         */
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+
+}
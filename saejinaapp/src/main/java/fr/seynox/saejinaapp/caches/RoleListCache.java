@@ -0,0 +1,133 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.role.RoleCreateEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.GenericRoleUpdateEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-server cache of the assignable and mentionable role lists.
+ * Assignable roles only depend on the member's highest role, so members sharing it share the same list.
+ * Lists are dropped when a role is created, updated (including reorders) or deleted
+ */
+@Component
+public class RoleListCache {
+
+    private static final long OWNER_KEY = 0L;
+
+    private final ConcurrentMap<Long, GuildRoles> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * Get all the roles that the member can assign
+     * @param member The member getting the roles
+     * @return An immutable list of assignable roles
+     */
+    public List<Selectable> getAssignableRoles(Member member) {
+        Guild guild = member.getGuild();
+        GuildRoles roles = getGuildRoles(guild);
+
+        if(member.isOwner()) {
+            return roles.assignableByTopRole.computeIfAbsent(OWNER_KEY, key -> computeAssignableRoles(guild, null));
+        }
+
+        // Roles are sorted by position, the highest one first
+        List<Role> memberRoles = member.getRoles();
+        if(memberRoles.isEmpty()) {
+            return List.of();
+        }
+
+        Role topRole = memberRoles.get(0);
+        return roles.assignableByTopRole.computeIfAbsent(topRole.getIdLong(), key -> computeAssignableRoles(guild, topRole));
+    }
+
+    /**
+     * Get all mentionable roles in guild
+     * @return An immutable list of Selectable containing the role name and its mention as id
+     */
+    public List<Selectable> getMentionableRoles(Guild guild) {
+        return getGuildRoles(guild).mentionable;
+    }
+
+    /**
+     * Triggered when a role is created
+     */
+    @SubscribeEvent
+    public void onRoleCreate(RoleCreateEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Triggered when a role is deleted
+     */
+    @SubscribeEvent
+    public void onRoleDelete(RoleDeleteEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Triggered when a role is updated (name, position, mentionable...)
+     */
+    @SubscribeEvent
+    public void onRoleUpdate(GenericRoleUpdateEvent<?> event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    private GuildRoles getGuildRoles(Guild guild) {
+        return guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildRoles(guild));
+    }
+
+    /**
+     * Get the roles below the given role
+     * @param topRole The highest role of the member. Null for the server owner, who can assign every role
+     */
+    private static List<Selectable> computeAssignableRoles(Guild guild, Role topRole) {
+        List<Selectable> assignableRoles = new ArrayList<>();
+        boolean isBelowTopRole = topRole == null;
+
+        for(Role role : guild.getRoles()) {
+            if(isBelowTopRole && !role.isPublicRole()) {
+                assignableRoles.add(new SelectableImpl(role.getIdLong(), role.getName()));
+            }
+
+            if(!isBelowTopRole && role.getIdLong() == topRole.getIdLong()) {
+                isBelowTopRole = true;
+            }
+        }
+
+        return List.copyOf(assignableRoles);
+    }
+
+    private static class GuildRoles {
+
+        private final List<Selectable> mentionable;
+        private final ConcurrentMap<Long, List<Selectable>> assignableByTopRole = new ConcurrentHashMap<>();
+
+        private GuildRoles(Guild guild) {
+            this.mentionable = guild.getRoles().stream()
+                    .filter(Role::isMentionable)
+                    .map(role -> (Selectable) new SelectableImpl(role.getAsMention(), role.getName()))
+                    .toList();
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of members holding each role, per server.
+ * Counted once from the member cache when the bot is ready or joins a server,
+ * then kept up to date with the role events (including the roles toggled by the role buttons)
+ */
+@Component
+public class RoleMemberCounter {
+
+    private final ConcurrentMap<Long, ConcurrentMap<Long, LongAdder>> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * @return The number of members holding the role, 0 if the role or the server is unknown
+     */
+    public long getMemberCount(long guildId, long roleId) {
+        ConcurrentMap<Long, LongAdder> roles = guilds.get(guildId);
+        LongAdder count = roles == null ? null : roles.get(roleId);
+
+        return count == null ? 0 : Math.max(count.sum(), 0);
+    }
+
+    /**
+     * Triggered when all servers are loaded.
+     * Used to count the members of each role
+     */
+    @SubscribeEvent
+    public void onReady(ReadyEvent event) {
+        rebuild(event.getJDA().getGuilds());
+    }
+
+    /**
+     * Triggered when the bot reconnects with a new session.
+     * Used to count the members again, as events may have been missed while disconnected
+     */
+    @SubscribeEvent
+    public void onReconnect(ReconnectedEvent event) {
+        rebuild(event.getJDA().getGuilds());
+    }
+
+    /**
+     * Triggered when the bot joins a server
+     */
+    @SubscribeEvent
+    public void onGuildJoin(GuildJoinEvent event) {
+        Guild guild = event.getGuild();
+        guilds.put(guild.getIdLong(), countMembers(guild));
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Triggered when roles are given to a member
+     */
+    @SubscribeEvent
+    public void onMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        addToCounts(event.getGuild().getIdLong(), event.getRoles(), 1);
+    }
+
+    /**
+     * Triggered when roles are taken from a member
+     */
+    @SubscribeEvent
+    public void onMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        addToCounts(event.getGuild().getIdLong(), event.getRoles(), -1);
+    }
+
+    /**
+     * Triggered when a member leaves a server. Their roles are only known if they were cached
+     */
+    @SubscribeEvent
+    public void onMemberRemove(GuildMemberRemoveEvent event) {
+        Member member = event.getMember();
+        if(member != null) {
+            addToCounts(event.getGuild().getIdLong(), member.getRoles(), -1);
+        }
+    }
+
+    /**
+     * Triggered when a role is deleted
+     */
+    @SubscribeEvent
+    public void onRoleDelete(RoleDeleteEvent event) {
+        ConcurrentMap<Long, LongAdder> roles = guilds.get(event.getGuild().getIdLong());
+        if(roles != null) {
+            roles.remove(event.getRole().getIdLong());
+        }
+    }
+
+    private void rebuild(List<Guild> allGuilds) {
+        for(Guild guild : allGuilds) {
+            guilds.put(guild.getIdLong(), countMembers(guild));
+        }
+    }
+
+    private void addToCounts(long guildId, List<Role> roles, int delta) {
+        ConcurrentMap<Long, LongAdder> roleCounts = guilds.get(guildId);
+        if(roleCounts == null) {
+            // Not counted yet, its members will be counted with their current roles
+            return;
+        }
+
+        for(Role role : roles) {
+            roleCounts.computeIfAbsent(role.getIdLong(), id -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static ConcurrentMap<Long, LongAdder> countMembers(Guild guild) {
+        ConcurrentMap<Long, LongAdder> roleCounts = new ConcurrentHashMap<>();
+        for(Member member : guild.getMembers()) {
+            for(Role role : member.getRoles()) {
+                roleCounts.computeIfAbsent(role.getIdLong(), id -> new LongAdder()).increment();
+            }
+        }
+
+        return roleCounts;
+    }
+
+}
@@ -0,0 +1,121 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static fr.seynox.saejinaapp.services.TicketService.TICKETS_CATEGORY_NAME;
+
+/**
+ * Per-server cache of the ticket categories ids : the main category, and the overflow categories created once it is full.
+ * The categories are searched by name once per server, then the list is kept up to date from the channel events
+ */
+@Component
+public class TicketCategoryCache {
+
+    /** The main category, or an overflow category (main name followed by its number) */
+    private static final Pattern CATEGORY_NAME_PATTERN = Pattern.compile(Pattern.quote(TICKETS_CATEGORY_NAME) + "( \\d+)?");
+
+    private final ConcurrentMap<Long, GuildCategories> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * Get the ticket categories of the server.
+     * Each call starts the list with the category following the previous call's first one, so the tickets are spread out
+     * @param guild The server of the categories
+     * @return The ticket categories, in round-robin order. Empty if the server has none
+     */
+    public List<Category> getTicketCategories(Guild guild) {
+        GuildCategories categories = guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildCategories(guild));
+
+        List<Category> resolvedCategories = categories.ids.stream()
+                .map(guild::getCategoryById)
+                .filter(Objects::nonNull)
+                .toList();
+        if(resolvedCategories.isEmpty()) {
+            return resolvedCategories;
+        }
+
+        int start = Math.floorMod(categories.cursor.getAndIncrement(), resolvedCategories.size());
+        List<Category> rotatedCategories = new ArrayList<>(resolvedCategories.subList(start, resolvedCategories.size()));
+        rotatedCategories.addAll(resolvedCategories.subList(0, start));
+
+        return rotatedCategories;
+    }
+
+    /**
+     * Remember a ticket category created by the bot, without waiting for its creation event
+     */
+    public void addTicketCategory(Guild guild, Category category) {
+        guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildCategories(guild))
+                .ids.addIfAbsent(category.getIdLong());
+    }
+
+    /**
+     * @return True if the name is the name of a ticket category
+     */
+    public static boolean isTicketCategoryName(String name) {
+        return CATEGORY_NAME_PATTERN.matcher(name).matches();
+    }
+
+    /**
+     * Triggered when a channel is deleted from a server
+     */
+    @SubscribeEvent
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        if(!event.isFromType(ChannelType.CATEGORY)) {
+            return;
+        }
+
+        GuildCategories categories = guilds.get(event.getGuild().getIdLong());
+        if(categories != null) {
+            categories.ids.remove(event.getChannel().getIdLong());
+        }
+    }
+
+    /**
+     * Triggered when a channel is renamed. A renamed category may become, or stop being, a ticket category
+     */
+    @SubscribeEvent
+    public void onChannelRename(ChannelUpdateNameEvent event) {
+        if(event.isFromType(ChannelType.CATEGORY)) {
+            guilds.remove(event.getGuild().getIdLong());
+        }
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    private static class GuildCategories {
+
+        private final CopyOnWriteArrayList<Long> ids = new CopyOnWriteArrayList<>();
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private GuildCategories(Guild guild) {
+            for(Category category : guild.getCategories()) {
+                if(isTicketCategoryName(category.getName())) {
+                    ids.add(category.getIdLong());
+                }
+            }
+        }
+    }
+
+}
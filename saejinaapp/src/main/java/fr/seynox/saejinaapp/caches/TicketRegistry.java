@@ -0,0 +1,177 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.scheduling.DelayedActionScheduler;
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
+import static fr.seynox.saejinaapp.services.TicketService.TICKET_CHANNEL_PREFIX;
+
+/**
+ * Registry of the open tickets of each server.
+ * Tickets are added when their channel is created and completed when the ticket is sent, then removed when their channel is deleted.
+ * The tickets opened before a restart are found once in the ticket categories when the bot is ready, without their owner and subject.
+ * Their closing time comes from the pending ticket closes of the {@link DelayedActionScheduler}
+ */
+@Component
+public class TicketRegistry {
+
+    private final ConcurrentMap<Long, ConcurrentMap<Long, OpenTicket>> guilds = new ConcurrentHashMap<>();
+    private final DelayedActionScheduler scheduler;
+
+    public TicketRegistry(DelayedActionScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Register a new ticket
+     * @param channel The channel created for the ticket
+     */
+    public void open(TextChannel channel) {
+        long guildId = channel.getGuild().getIdLong();
+        OpenTicket ticket = new OpenTicket(guildId, channel.getIdLong(), channel.getName(), null, null, null, System.currentTimeMillis(), null);
+
+        getGuildTickets(guildId).put(channel.getIdLong(), ticket);
+    }
+
+    /**
+     * Set the owner and subject of a registered ticket
+     * @param channel The channel of the ticket
+     * @param owner The member who opened the ticket
+     * @param subject The subject of the ticket
+     */
+    public void setOwner(TextChannel channel, Member owner, String subject) {
+        update(channel, ticket -> ticket.withOwnerId(owner.getId())
+                .withOwnerName(owner.getEffectiveName())
+                .withSubject(subject));
+    }
+
+    /**
+     * Set when a registered ticket will be deleted
+     * @param channel The channel of the ticket
+     * @param closingAt Epoch milliseconds of the deletion. Null if the closing was cancelled
+     */
+    public void setClosingAt(TextChannel channel, Long closingAt) {
+        update(channel, ticket -> ticket.withClosingAt(closingAt));
+    }
+
+    /**
+     * @return The open tickets of the server, the oldest first
+     */
+    public List<OpenTicket> getOpenTickets(long guildId) {
+        Map<Long, OpenTicket> tickets = guilds.get(guildId);
+        if(tickets == null) {
+            return List.of();
+        }
+
+        return tickets.values().stream()
+                .sorted(Comparator.comparingLong(OpenTicket::getOpenedAt))
+                .toList();
+    }
+
+    /**
+     * Triggered when all servers are loaded.
+     * Used to find the tickets opened before the restart
+     */
+    @SubscribeEvent
+    public void onReady(ReadyEvent event) {
+        Map<Long, Long> closingTimes = getClosingTimes();
+        event.getJDA().getGuilds().forEach(guild -> registerExistingTickets(guild, closingTimes));
+    }
+
+    /**
+     * Triggered when the bot joins a server
+     */
+    @SubscribeEvent
+    public void onGuildJoin(GuildJoinEvent event) {
+        registerExistingTickets(event.getGuild(), getClosingTimes());
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Triggered when a channel is deleted from a server. Deleting a ticket channel closes the ticket
+     */
+    @SubscribeEvent
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        if(!event.isFromGuild()) {
+            return;
+        }
+
+        Map<Long, OpenTicket> tickets = guilds.get(event.getGuild().getIdLong());
+        if(tickets != null) {
+            tickets.remove(event.getChannel().getIdLong());
+        }
+    }
+
+    private ConcurrentMap<Long, OpenTicket> getGuildTickets(long guildId) {
+        return guilds.computeIfAbsent(guildId, id -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Replace the ticket, so the tickets being listed are never modified
+     */
+    private void update(TextChannel channel, UnaryOperator<OpenTicket> change) {
+        Map<Long, OpenTicket> tickets = guilds.get(channel.getGuild().getIdLong());
+        if(tickets != null) {
+            tickets.computeIfPresent(channel.getIdLong(), (channelId, ticket) -> change.apply(ticket));
+        }
+    }
+
+    /**
+     * @return The epoch milliseconds of the pending ticket closes, by channel
+     */
+    private Map<Long, Long> getClosingTimes() {
+        Map<Long, Long> closingTimes = new HashMap<>();
+        for(DelayedAction action : scheduler.getPendingActions()) {
+            if(action.getType() == TICKET_CLOSE) {
+                closingTimes.put(action.getTargetId(), action.getExecuteAt());
+            }
+        }
+
+        return closingTimes;
+    }
+
+    private void registerExistingTickets(Guild guild, Map<Long, Long> closingTimes) {
+        ConcurrentMap<Long, OpenTicket> tickets = getGuildTickets(guild.getIdLong());
+
+        for(Category category : guild.getCategories()) {
+            if(!TicketCategoryCache.isTicketCategoryName(category.getName())) {
+                continue;
+            }
+
+            for(TextChannel channel : category.getTextChannels()) {
+                if(channel.getName().startsWith(TICKET_CHANNEL_PREFIX)) {
+                    long openedAt = channel.getTimeCreated().toInstant().toEpochMilli();
+                    Long closingAt = closingTimes.get(channel.getIdLong());
+                    tickets.putIfAbsent(channel.getIdLong(), new OpenTicket(guild.getIdLong(), channel.getIdLong(), channel.getName(), null, null, null, openedAt, closingAt));
+                }
+            }
+        }
+    }
+
+}
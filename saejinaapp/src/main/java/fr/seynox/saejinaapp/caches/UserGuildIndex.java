@@ -0,0 +1,173 @@
+package fr.seynox.saejinaapp.caches;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Reverse index from a user to the servers they share with the bot.
+ * Built when the bot is ready, and kept up to date with member and server events
+ */
+@Component
+public class UserGuildIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TLongObjectMap<TLongSet> guildsByUser = new TLongObjectHashMap<>();
+
+    /**
+     * Triggered when all servers are loaded.
+     * Used to build the index
+     */
+    @SubscribeEvent
+    public void onReady(ReadyEvent event) {
+        rebuild(event.getJDA().getGuilds());
+    }
+
+    /**
+     * Triggered when the bot reconnects with a new session.
+     * Used to rebuild the index, as events may have been missed while disconnected
+     */
+    @SubscribeEvent
+    public void onReconnect(ReconnectedEvent event) {
+        rebuild(event.getJDA().getGuilds());
+    }
+
+    /**
+     * Triggered when the bot joins a server
+     */
+    @SubscribeEvent
+    public void onGuildJoin(GuildJoinEvent event) {
+        Guild guild = event.getGuild();
+        long guildId = guild.getIdLong();
+
+        lock.writeLock().lock();
+        try {
+            for(Member member : guild.getMembers()) {
+                addEntry(guildsByUser, member.getIdLong(), guildId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Triggered when the bot leaves a server
+     */
+    @SubscribeEvent
+    public void onGuildLeave(GuildLeaveEvent event) {
+        long guildId = event.getGuild().getIdLong();
+
+        lock.writeLock().lock();
+        try {
+            guildsByUser.retainEntries((userId, guildIds) -> {
+                guildIds.remove(guildId);
+                return !guildIds.isEmpty();
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Triggered when a user joins a server
+     */
+    @SubscribeEvent
+    public void onMemberJoin(GuildMemberJoinEvent event) {
+        long userId = event.getUser().getIdLong();
+        long guildId = event.getGuild().getIdLong();
+
+        lock.writeLock().lock();
+        try {
+            addEntry(guildsByUser, userId, guildId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Triggered when a user leaves (or is kicked/banned from) a server
+     */
+    @SubscribeEvent
+    public void onMemberRemove(GuildMemberRemoveEvent event) {
+        long userId = event.getUser().getIdLong();
+        long guildId = event.getGuild().getIdLong();
+
+        lock.writeLock().lock();
+        try {
+            TLongSet guildIds = guildsByUser.get(userId);
+            if(guildIds != null && guildIds.remove(guildId) && guildIds.isEmpty()) {
+                guildsByUser.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the ids of all the servers shared by the bot and the given user
+     * @param userId The user to get the servers of
+     * @return The ids sorted from the oldest server to the newest, so the server list keeps its order.
+     * An empty array if the user does not share any server with the bot
+     */
+    public long[] getGuildIds(long userId) {
+        long[] guildIds;
+        lock.readLock().lock();
+        try {
+            TLongSet userGuildIds = guildsByUser.get(userId);
+            guildIds = userGuildIds == null ? new long[0] : userGuildIds.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(guildIds);
+        return guildIds;
+    }
+
+    /**
+     * Replace the whole index with the members of the given servers
+     * @param guilds The servers to index
+     */
+    public void rebuild(List<Guild> guilds) {
+        TLongObjectMap<TLongSet> index = new TLongObjectHashMap<>();
+        for(Guild guild : guilds) {
+            long guildId = guild.getIdLong();
+            for(Member member : guild.getMembers()) {
+                addEntry(index, member.getIdLong(), guildId);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            guildsByUser = index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addEntry(TLongObjectMap<TLongSet> index, long userId, long guildId) {
+        TLongSet guildIds = index.get(userId);
+        if(guildIds == null) {
+            guildIds = new TLongHashSet(4);
+            index.put(userId, guildIds);
+        }
+
+        guildIds.add(guildId);
+    }
+
+}
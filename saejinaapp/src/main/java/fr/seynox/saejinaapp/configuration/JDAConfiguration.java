@@ -1,11 +1,26 @@
 package fr.seynox.saejinaapp.configuration;
 
+import fr.seynox.saejinaapp.caches.ChannelVisibilityIndex;
+import fr.seynox.saejinaapp.caches.LastMessageCache;
+import fr.seynox.saejinaapp.caches.MemberCache;
+import fr.seynox.saejinaapp.caches.MemberNameIndex;
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.caches.RoleMemberCounter;
+import fr.seynox.saejinaapp.caches.TicketCategoryCache;
+import fr.seynox.saejinaapp.caches.TicketRegistry;
+import fr.seynox.saejinaapp.caches.UserGuildIndex;
+import fr.seynox.saejinaapp.listeners.ComponentRouter;
 import fr.seynox.saejinaapp.listeners.RoleEventsListener;
 import fr.seynox.saejinaapp.listeners.TicketEventsListener;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.scheduling.DelayedActionScheduler;
+import fr.seynox.saejinaapp.scheduling.MessageScheduler;
+import fr.seynox.saejinaapp.utils.TypedEventManager;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
-import net.dv8tion.jda.api.hooks.AnnotatedEventManager;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,11 +34,17 @@ public class JDAConfiguration {
     private String token;
 
     @Bean
-    public JDA getJDA(TicketEventsListener ticketEventsListener, RoleEventsListener roleEventsListener) throws LoginException {
+    public JDA getJDA(ComponentRouter componentRouter, TicketEventsListener ticketEventsListener, RoleEventsListener roleEventsListener, UserGuildIndex userGuildIndex, MemberCache memberCache, ChannelVisibilityIndex visibilityIndex, MemberNameIndex nameIndex, RoleListCache roleListCache, RoleMemberCounter roleMemberCounter, TicketCategoryCache ticketCategoryCache, TicketRegistry ticketRegistry, LastMessageCache lastMessageCache, DelayedActionScheduler delayedActionScheduler, MessageScheduler messageScheduler, OutboundQueue outboundQueue) throws LoginException {
+        // Events are handled one at a time on JDA's event thread : the indexes updated from events rely on their order.
+        // The blocking work of the listeners runs in the InteractionExecutor, on virtual threads when enabled.
+        // The delayed actions are scheduled again before the ticket registry is rebuilt, so it finds the tickets being closed
         return JDABuilder.createDefault(token)
                 .enableIntents(GatewayIntent.GUILD_PRESENCES, GatewayIntent.GUILD_MEMBERS)
-                .setEventManager(new AnnotatedEventManager())
-                .addEventListeners(ticketEventsListener, roleEventsListener)
+                // Keep every member cached, so the indexes can be built without calling the Discord API
+                .setMemberCachePolicy(MemberCachePolicy.ALL)
+                .setChunkingFilter(ChunkingFilter.ALL)
+                .setEventManager(new TypedEventManager())
+                .addEventListeners(componentRouter, ticketEventsListener, roleEventsListener, userGuildIndex, memberCache, visibilityIndex, nameIndex, roleListCache, roleMemberCounter, ticketCategoryCache, delayedActionScheduler, ticketRegistry, lastMessageCache, messageScheduler, outboundQueue)
                 .build();
     }
 
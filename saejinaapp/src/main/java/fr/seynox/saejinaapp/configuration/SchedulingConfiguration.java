@@ -0,0 +1,23 @@
+package fr.seynox.saejinaapp.configuration;
+
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class SchedulingConfiguration {
+
+    private static final Duration TICK_DURATION = Duration.ofMillis(100);
+
+    /**
+     * The timer wheel shared by the schedulers, so a single thread drives every timer of the application.
+     * It is started by the schedulers once the bot is ready
+     */
+    @Bean(destroyMethod = "stop")
+    public TimerWheel timerWheel() {
+        return new TimerWheel(TICK_DURATION);
+    }
+
+}
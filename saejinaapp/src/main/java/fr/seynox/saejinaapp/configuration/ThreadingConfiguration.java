@@ -0,0 +1,24 @@
+package fr.seynox.saejinaapp.configuration;
+
+import fr.seynox.saejinaapp.utils.VirtualThreads;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opt-in virtual threads mode (saejina.threads.virtual=true, JDK 21+).
+ * Tomcat handles each request on a new virtual thread instead of its worker pool.
+ * JDA events stay on JDA's single event thread, as the indexes rely on their order (See {@link JDAConfiguration}).
+ * The listeners' blocking work runs in {@link fr.seynox.saejinaapp.utils.InteractionExecutor}, which uses virtual threads in this mode
+ */
+@Configuration
+@ConditionalOnProperty(name = "saejina.threads.virtual", havingValue = "true")
+public class ThreadingConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-handler-"));
+    }
+
+}
@@ -0,0 +1,121 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.BroadcastProgress;
+import fr.seynox.saejinaapp.models.BroadcastRequest;
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.services.BroadcastService;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import net.dv8tion.jda.api.entities.Member;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Controller
+@RequestMapping("/panel/{serverId}/broadcast")
+public class BroadcastController {
+
+    private static final String BROADCAST_TEMPLATE = "action/broadcast";
+
+    private final MemberAccessService accessService;
+    private final BroadcastService service;
+
+    public BroadcastController(MemberAccessService accessService, BroadcastService service) {
+        this.accessService = accessService;
+        this.service = service;
+    }
+
+    /**
+     * Show the form used to send a message to several channels
+     * @param serverId The server of the channels
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server is not accessible for the user/bot
+     * @return The path to the Thymeleaf template, once the member is retrieved
+     */
+    @GetMapping
+    public CompletableFuture<String> showBroadcastForm(@PathVariable Long serverId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            addFormAttributes(member, new BroadcastRequest(), model);
+            return BROADCAST_TEMPLATE;
+        });
+    }
+
+    /**
+     * Start sending a message to the selected channels. The request does not wait for the messages to be sent
+     * @param broadcast The message and its channels
+     * @param result The request validation results
+     * @param serverId The server of the channels
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server is not accessible for the user/bot
+     * @return If successful, redirect to {@link BroadcastController#showBroadcastProgress(Long, String, OAuth2User, Model)}
+     */
+    @PostMapping
+    public CompletableFuture<String> startBroadcast(@Validated @ModelAttribute("broadcast") BroadcastRequest broadcast, BindingResult result, @PathVariable Long serverId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            if(result.hasErrors()) {
+                addFormAttributes(member, broadcast, model);
+                return BROADCAST_TEMPLATE;
+            }
+
+            String broadcastId = service.startBroadcast(member, broadcast.getChannelIds(), broadcast.getContent());
+
+            return "redirect:/panel/%s/broadcast/%s/".formatted(serverId, broadcastId);
+        });
+    }
+
+    /**
+     * Show the state of each channel of a broadcast. The page refreshes itself until the broadcast is done
+     * @param serverId The server of the channels
+     * @param broadcastId The broadcast started by the user
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server or the broadcast is not accessible for the user
+     * @return The path to the Thymeleaf template, once the member is retrieved
+     */
+    @GetMapping("/{broadcastId}")
+    public CompletableFuture<String> showBroadcastProgress(@PathVariable Long serverId, @PathVariable String broadcastId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            BroadcastProgress progress = service.getProgress(member, broadcastId);
+            model.addAttribute("progress", progress);
+
+            return "action/broadcast_progress";
+        });
+    }
+
+    /**
+     * Get the state of each channel of a broadcast. Used by the progress page
+     * @param serverId The server of the channels
+     * @param broadcastId The broadcast started by the user
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server or the broadcast is not accessible for the user
+     * @return The progress of the broadcast, as JSON
+     */
+    @GetMapping("/{broadcastId}/progress")
+    @ResponseBody
+    public CompletableFuture<BroadcastProgress> getBroadcastProgress(@PathVariable Long serverId, @PathVariable String broadcastId, @AuthenticationPrincipal OAuth2User principal) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId)
+                .thenApply(member -> service.getProgress(member, broadcastId));
+    }
+
+    private void addFormAttributes(Member member, BroadcastRequest broadcast, Model model) {
+        List<Selectable> channels = accessService.getWritableServerTextChannels(member);
+
+        model.addAttribute("channels", channels);
+        model.addAttribute("broadcast", broadcast);
+    }
+
+}
@@ -2,11 +2,14 @@ package fr.seynox.saejinaapp.controllers;
 
 import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
 import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectablePage;
 import fr.seynox.saejinaapp.models.StringRequest;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import fr.seynox.saejinaapp.services.BroadcastService;
 import fr.seynox.saejinaapp.services.DiscordService;
 import fr.seynox.saejinaapp.services.MemberAccessService;
+import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -20,19 +23,23 @@ import org.springframework.web.bind.annotation.*;
 import javax.validation.groups.Default;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.seynox.saejinaapp.models.ViewTemplateConsts.CHANNEL_NAME_ATTRIBUTE;
 
+@Slf4j
 @Controller
 @RequestMapping("/panel/{serverId}/{channelId}/send_message")
 public class MessageController {
 
     private final MemberAccessService accessService;
     private final DiscordService service;
+    private final BroadcastService broadcastService;
 
-    public MessageController(MemberAccessService accessService, DiscordService service) {
+    public MessageController(MemberAccessService accessService, DiscordService service, BroadcastService broadcastService) {
         this.accessService = accessService;
         this.service = service;
+        this.broadcastService = broadcastService;
     }
 
     /**
@@ -41,24 +48,46 @@ public class MessageController {
      * @param channelId The channel to send the message to
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
-     * @return The path to the Thymeleaf template
+     * @return The path to the Thymeleaf template, once the member is retrieved
      */
     @GetMapping
-    public String showMessageForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> showMessageForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
-        Guild guild = channel.getGuild();
 
-        List<Selectable> mentionableRoles = service.getMentionableRoles(guild);
-        List<Selectable> mentionableUsers = service.getMentionableUsers(guild);
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+            Guild guild = channel.getGuild();
 
-        model.addAttribute("mentionableRoles", mentionableRoles);
-        model.addAttribute("mentionableUsers", mentionableUsers);
-        model.addAttribute("message", new StringRequest());
-        model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+            List<Selectable> mentionableRoles = service.getMentionableRoles(guild);
 
-        return "action/message";
+            model.addAttribute("mentionableRoles", mentionableRoles);
+            model.addAttribute("message", new StringRequest());
+            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+
+            return "action/message";
+        });
+    }
+
+    /**
+     * Search the members that can be mentioned in the message, by the start of their name.
+     * Used by the message form, so the page size does not depend on the number of members
+     * @param serverId The channel's server
+     * @param channelId The channel the message will be sent to
+     * @param query The start of the member's name
+     * @param page The index of the page to get, starting at 0
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
+     * @return A page of members, as JSON
+     */
+    @GetMapping("/mentions")
+    @ResponseBody
+    public CompletableFuture<SelectablePage> searchMentionableUsers(@PathVariable Long serverId, @PathVariable Long channelId, @RequestParam(defaultValue = "") String query, @RequestParam(defaultValue = "0") int page, @AuthenticationPrincipal OAuth2User principal) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+            return service.searchMentionableUsers(channel.getGuild(), query, page);
+        });
     }
 
     /**
@@ -69,24 +98,38 @@ public class MessageController {
      * @param channelId The channel to send the message to
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
-     * @return If successful, redirect to {@link MessageController#showMessageForm(Long, Long, OAuth2User, Model)} with a success parameter
+     * @return If successful, redirect to {@link MessageController#showMessageForm(Long, Long, OAuth2User, Model)} with a success parameter once the message is sent,
+     * or right away to the progress of the message if it waits behind other messages of the channel
      */
     @PostMapping
-    public String sendMessageInChannel(@Validated({Default.class, Message.class}) @ModelAttribute("message") StringRequest message, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> sendMessageInChannel(@Validated({Default.class, Message.class}) @ModelAttribute("message") StringRequest message, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
 
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
-
-        if(result.hasErrors()) {
-            model.addAttribute("message", message);
-            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
-            return "action/message";
-        }
-
-        service.sendMessageInChannel(member, channel, message.getContent());
 
-        return "redirect:?success";
+        return accessService.getServerMemberAsync(userId, serverId).thenCompose(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+
+            if(result.hasErrors()) {
+                model.addAttribute("message", message);
+                model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+                return CompletableFuture.completedFuture("action/message");
+            }
+
+            OutboundRequest<Message> request = service.sendMessageInChannel(member, channel, message.getContent());
+            request.getResult().whenComplete((sentMessage, error) -> {
+                if(error != null) {
+                    log.warn("Message of member {} could not be sent in channel {}", member.getId(), channel.getId(), error);
+                }
+            });
+
+            if(request.isQueued()) {
+                // The member follows the message on the broadcast page instead of waiting for it
+                String broadcastId = broadcastService.trackMessage(member, channel, request);
+                return CompletableFuture.completedFuture("redirect:/panel/%s/broadcast/%s/".formatted(serverId, broadcastId));
+            }
+
+            return request.getResult().thenApply(sentMessage -> "redirect:?success");
+        });
     }
 
 }
@@ -2,11 +2,10 @@ package fr.seynox.saejinaapp.controllers;
 
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
-import fr.seynox.saejinaapp.models.IdRequest;
+import fr.seynox.saejinaapp.models.RolePanelRequest;
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.services.MemberAccessService;
 import fr.seynox.saejinaapp.services.RoleService;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.TextChannel;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,7 +16,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.seynox.saejinaapp.models.ViewTemplateConsts.CHANNEL_NAME_ATTRIBUTE;
 
@@ -33,56 +35,95 @@ public class RoleController {
     }
 
     /**
-     * Show the form used to send a button assigning a role to the user clicking it
+     * Show the form used to send buttons assigning a role to the user clicking them
      * @param serverId The channel's server
-     * @param channelId The channel to send the role button to
+     * @param channelId The channel to send the role buttons to
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException If the server/channel is not accessible/writable for the user/bot
+     * @return The path to the Thymeleaf template, once the member is retrieved
      */
     @GetMapping
-    public String showRoleButtonForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> showRoleButtonForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        List<Selectable> roles = service.getAssignableRolesForMember(member);
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        model.addAttribute("roles", roles);
-        model.addAttribute("roleId", new IdRequest());
-        model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+            List<Selectable> roles = service.getAssignableRolesForMember(member);
 
-        return "action/role_button";
+            model.addAttribute("roles", roles);
+            model.addAttribute("roleCounts", service.getRoleMemberCounts(channel.getGuild(), roles));
+            model.addAttribute("rolePanel", new RolePanelRequest());
+            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+
+            return "action/role_button";
+        });
+    }
+
+    /**
+     * Get the number of members holding each role assignable by the user
+     * @param serverId The channel's server
+     * @param channelId The channel the role buttons will be sent to
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException If the server/channel is not accessible/writable for the user/bot
+     * @return The number of members by role id, as JSON
+     */
+    @GetMapping("/counts")
+    @ResponseBody
+    public CompletableFuture<Map<Long, Long>> getRoleMemberCounts(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+            List<Selectable> roles = service.getAssignableRolesForMember(member);
+
+            return service.getRoleMemberCounts(channel.getGuild(), roles);
+        });
     }
 
     /**
-     * Send a button assigning the given role to the user clicking it
-     * @param roleRequest The request containing the ID of the role to assign
+     * Send buttons assigning the given roles to the user clicking them.
+     * A single button is appended to the last message of the bot if possible,
+     * several buttons are sent as a panel of new messages, each message being sent once
+     * @param rolePanel The request containing the IDs of the roles to assign
      * @param result The request validation result
      * @param serverId The channel server
-     * @param channelId The channel to send the button to
+     * @param channelId The channel to send the buttons to
      * @param principal The logged-in user
-     * @throws ResourceNotAccessibleException If the server/channel is not accessible/writable for the user/bot, or if the role does not exist
-     * @throws PermissionException If the user does not have the permission to assign the given role to other users
-     * @return If successful, redirect to {@link RoleController#showRoleButtonForm(Long, Long, OAuth2User, Model)} with a success parameter
+     * @throws ResourceNotAccessibleException If the server/channel is not accessible/writable for the user/bot, or if a role does not exist
+     * @throws PermissionException If the user does not have the permission to assign one of the given roles to other users
+     * @return If successful, redirect to {@link RoleController#showRoleButtonForm(Long, Long, OAuth2User, Model)} with a success parameter,
+     * once the buttons are sent
      */
     @PostMapping
-    public String sendRoleButton(@Validated @ModelAttribute("roleId") IdRequest roleRequest, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> sendRoleButtons(@Validated @ModelAttribute("rolePanel") RolePanelRequest rolePanel, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        if(result.hasErrors()) {
-            model.addAttribute("roleId", roleRequest);
-            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
-            return "action/role_button";
-        }
+        return accessService.getServerMemberAsync(userId, serverId).thenCompose(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+
+            if(result.hasErrors()) {
+                List<Selectable> roles = service.getAssignableRolesForMember(member);
+                model.addAttribute("roles", roles);
+                model.addAttribute("roleCounts", service.getRoleMemberCounts(channel.getGuild(), roles));
+                model.addAttribute("rolePanel", rolePanel);
+                model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+                return CompletableFuture.completedFuture("action/role_button");
+            }
 
-        Long roleId = roleRequest.getId();
-        Role role = accessService.getAssignableServerRole(member, roleId);
+            // Checked before sending anything, so a refused role does not leave a partial panel
+            List<Role> roles = new LinkedHashSet<>(rolePanel.getRoleIds()).stream()
+                    .map(roleId -> accessService.getAssignableServerRole(member, roleId))
+                    .toList();
 
-        service.sendRoleButtonInChannel(member, channel, role);
+            if(roles.size() == 1) {
+                return service.sendRoleButtonInChannel(member, channel, roles.get(0))
+                        .thenApply(message -> "redirect:?success");
+            }
 
-        return "redirect:?success";
+            return service.sendRolePanelInChannel(member, channel, roles)
+                    .thenApply(messages -> "redirect:?success");
+        });
     }
 
 }
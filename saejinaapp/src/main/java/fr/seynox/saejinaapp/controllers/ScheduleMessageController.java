@@ -0,0 +1,151 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.ScheduleRequest;
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import fr.seynox.saejinaapp.scheduling.MessageScheduler;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static fr.seynox.saejinaapp.models.ViewTemplateConsts.CHANNEL_NAME_ATTRIBUTE;
+
+@Controller
+@RequestMapping("/panel/{serverId}/{channelId}/schedule_message")
+public class ScheduleMessageController {
+
+    private static final String SCHEDULE_TEMPLATE = "action/schedule_message";
+
+    private final MemberAccessService accessService;
+    private final MessageScheduler scheduler;
+
+    public ScheduleMessageController(MemberAccessService accessService, MessageScheduler scheduler) {
+        this.accessService = accessService;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Show the form used to schedule a message, and the messages already scheduled in the channel
+     * @param serverId The channel's server
+     * @param channelId The channel to send the message to
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
+     * @return The path to the Thymeleaf template, once the member is retrieved
+     */
+    @GetMapping
+    public CompletableFuture<String> showScheduleForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+            addFormAttributes(channel, new ScheduleRequest(), model);
+
+            return SCHEDULE_TEMPLATE;
+        });
+    }
+
+    /**
+     * Schedule a message in the given channel, sent once at the given time or repeatedly following the cron expression
+     * @param schedule The message to schedule
+     * @param result The request validation results
+     * @param serverId The channel's server
+     * @param channelId The channel to send the message to
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
+     * @throws PermissionException When the user is not allowed to send this message
+     * @return If successful, redirect to {@link ScheduleMessageController#showScheduleForm(Long, Long, OAuth2User, Model)} with a success parameter
+     */
+    @PostMapping
+    public CompletableFuture<String> scheduleMessage(@Validated @ModelAttribute("schedule") ScheduleRequest schedule, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+
+            boolean hasCron = schedule.getCron() != null && !schedule.getCron().isBlank();
+            if(hasCron == (schedule.getSendAt() != null)) {
+                result.reject("schedule", "Choose either a send time or a cron expression");
+            }
+
+            if(!result.hasErrors()) {
+                scheduleMessage(member, channel, schedule, hasCron, result);
+            }
+
+            if(result.hasErrors()) {
+                addFormAttributes(channel, schedule, model);
+                return SCHEDULE_TEMPLATE;
+            }
+
+            return "redirect:?success";
+        });
+    }
+
+    /**
+     * Cancel a message scheduled in the given channel
+     * @param serverId The channel's server
+     * @param channelId The channel of the message
+     * @param messageId The scheduled message to cancel
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server/channel/message is not accessible for the user/bot.
+     * @throws PermissionException When the user is neither the author of the message nor allowed to manage the channel's messages
+     * @return If successful, redirect to {@link ScheduleMessageController#showScheduleForm(Long, Long, OAuth2User, Model)} with a cancelled parameter
+     */
+    @PostMapping("/{messageId}/cancel")
+    public CompletableFuture<String> cancelScheduledMessage(@PathVariable Long serverId, @PathVariable Long channelId, @PathVariable String messageId, @AuthenticationPrincipal OAuth2User principal) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+            scheduler.cancel(member, channel, messageId);
+
+            return "redirect:/panel/%s/%s/schedule_message/?cancelled".formatted(serverId, channelId);
+        });
+    }
+
+    private void scheduleMessage(Member member, TextChannel channel, ScheduleRequest schedule, boolean hasCron, BindingResult result) {
+        try {
+            if(hasCron) {
+                scheduler.scheduleRecurring(member, channel, schedule.getContent(), schedule.getCron().trim());
+            } else {
+                Instant sendAt = schedule.getSendAt().atZone(ZoneId.systemDefault()).toInstant();
+                scheduler.schedule(member, channel, schedule.getContent(), sendAt);
+            }
+        } catch(IllegalArgumentException exception) {
+            result.rejectValue(hasCron ? "cron" : "sendAt", "invalid", exception.getMessage());
+        }
+    }
+
+    private void addFormAttributes(TextChannel channel, ScheduleRequest schedule, Model model) {
+        List<ScheduledMessage> messages = scheduler.getChannelMessages(channel.getIdLong());
+
+        Map<String, LocalDateTime> nextSends = new HashMap<>();
+        for(ScheduledMessage message : messages) {
+            Instant nextSend = scheduler.getNextSend(message.getId());
+            if(nextSend != null) {
+                nextSends.put(message.getId(), LocalDateTime.ofInstant(nextSend, ZoneId.systemDefault()));
+            }
+        }
+
+        model.addAttribute("schedule", schedule);
+        model.addAttribute("scheduledMessages", messages);
+        model.addAttribute("nextSends", nextSends);
+        model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+    }
+
+}
@@ -5,7 +5,7 @@ import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.TextChannelAction;
 import fr.seynox.saejinaapp.services.MemberAccessService;
 import fr.seynox.saejinaapp.services.DiscordService;
-import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.TextChannel;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.user.OAuth2User;
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequestMapping("/panel")
@@ -60,20 +61,23 @@ public class SelectionController {
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the resource is not accessible by the user/bot.
      * Handled by {@link ExceptionController#showSaejinaAppException(Exception, Model)}
-     * @return The path to the Thymeleaf template
+     * @return The path to the Thymeleaf template, once the member is retrieved
      */
     @GetMapping("/{serverId}")
-    public String showChannelSelection(Model model, @PathVariable Long serverId, @AuthenticationPrincipal OAuth2User principal) {
+    public CompletableFuture<String> showChannelSelection(Model model, @PathVariable Long serverId, @AuthenticationPrincipal OAuth2User principal) {
         String userId = principal.getName();
 
-        Member member = accessService.getServerMember(userId, serverId);
-        List<Selectable> discordTextChannels = accessService.getServerTextChannels(member);
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            List<Selectable> discordTextChannels = accessService.getServerTextChannels(member);
 
-        model.addAttribute(SELECTABLE_LIST_ATTRIBUTE, discordTextChannels);
-        model.addAttribute(PAGE_TITLE_ATTRIBUTE, "Channel Selection");
-        model.addAttribute(MAIN_TITLE_ATTRIBUTE, "Select a channel :");
+            model.addAttribute(SELECTABLE_LIST_ATTRIBUTE, discordTextChannels);
+            model.addAttribute(PAGE_TITLE_ATTRIBUTE, "Channel Selection");
+            model.addAttribute(MAIN_TITLE_ATTRIBUTE, "Select a channel :");
+            model.addAttribute("broadcastAvailable", true);
+            model.addAttribute("ticketsAvailable", member.hasPermission(Permission.MANAGE_CHANNEL));
 
-        return "selection/select_list";
+            return "selection/select_list";
+        });
     }
 
     /**
@@ -84,22 +88,23 @@ public class SelectionController {
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the resource is not accessible by the user/bot.
      * Handled by {@link ExceptionController#showSaejinaAppException(Exception, Model)}}
-     * @return The path to the Thymeleaf template
+     * @return The path to the Thymeleaf template, once the member is retrieved
      */
     @GetMapping("/{serverId}/{channelId}")
-    public String showActionSelection(Model model, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal) {
+    public CompletableFuture<String> showActionSelection(Model model, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal) {
         String userId = principal.getName();
 
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getServerTextChannel(member, channelId);
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getServerTextChannel(member, channelId);
 
-        List<TextChannelAction> actions = service.getPossibleActionsForChannel(member, channel);
+            List<TextChannelAction> actions = service.getPossibleActionsForChannel(member, channel);
 
-        model.addAttribute(SELECTABLE_LIST_ATTRIBUTE, actions);
-        model.addAttribute(PAGE_TITLE_ATTRIBUTE, "Action Selection");
-        model.addAttribute(MAIN_TITLE_ATTRIBUTE, "Select an action :");
+            model.addAttribute(SELECTABLE_LIST_ATTRIBUTE, actions);
+            model.addAttribute(PAGE_TITLE_ATTRIBUTE, "Action Selection");
+            model.addAttribute(MAIN_TITLE_ATTRIBUTE, "Select an action :");
 
-        return SELECTION_TEMPLATE;
+            return SELECTION_TEMPLATE;
+        });
     }
 
 }
@@ -0,0 +1,44 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.models.InteractionStats;
+import fr.seynox.saejinaapp.models.OutboundStats;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.utils.InteractionExecutor;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+@RequestMapping("/status")
+public class StatusController {
+
+    private final OutboundQueue outboundQueue;
+    private final InteractionExecutor interactionExecutor;
+
+    public StatusController(OutboundQueue outboundQueue, InteractionExecutor interactionExecutor) {
+        this.outboundQueue = outboundQueue;
+        this.interactionExecutor = interactionExecutor;
+    }
+
+    /**
+     * Get the state of the outbound Discord requests : pending requests, wait times and rate limits
+     * @return The outbound queue statistics, as JSON
+     */
+    @GetMapping("/outbound")
+    @ResponseBody
+    public OutboundStats getOutboundStats() {
+        return outboundQueue.getStats();
+    }
+
+    /**
+     * Get the state of the interaction executor : queued and running tasks, and rejections
+     * @return The interaction executor statistics, as JSON
+     */
+    @GetMapping("/interactions")
+    @ResponseBody
+    public InteractionStats getInteractionStats() {
+        return interactionExecutor.getStats();
+    }
+
+}
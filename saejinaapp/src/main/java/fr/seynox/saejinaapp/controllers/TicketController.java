@@ -5,7 +5,6 @@ import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
 import fr.seynox.saejinaapp.models.StringRequest;
 import fr.seynox.saejinaapp.services.MemberAccessService;
 import fr.seynox.saejinaapp.services.TicketService;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,6 +17,8 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.groups.Default;
 
+import java.util.concurrent.CompletableFuture;
+
 import static fr.seynox.saejinaapp.models.ViewTemplateConsts.CHANNEL_NAME_ATTRIBUTE;
 
 @Controller
@@ -39,18 +40,20 @@ public class TicketController {
      * @param channelId The channel to send the button to
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
-     * @return The path to the Thymeleaf template
+     * @return The path to the Thymeleaf template, once the member is retrieved
      */
     @GetMapping
-    public String showTicketButtonForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> showTicketButtonForm(@PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        model.addAttribute("buttonLabel", new StringRequest());
-        model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+
+            model.addAttribute("buttonLabel", new StringRequest());
+            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
 
-        return "action/ticket_button";
+            return "action/ticket_button";
+        });
     }
 
     /**
@@ -62,23 +65,25 @@ public class TicketController {
      * @param principal The logged-in user
      * @throws ResourceNotAccessibleException When the server/channel is not accessible/writable for the user/bot.
      * @throws PermissionException If the member is not allowed to send ticket buttons on the server.
-     * @return If successful, redirect to {@link TicketController#showTicketButtonForm(Long, Long, OAuth2User, Model)} with a success parameter
+     * @return If successful, redirect to {@link TicketController#showTicketButtonForm(Long, Long, OAuth2User, Model)} with a success parameter,
+     * once the button is sent
      */
     @PostMapping
-    public String sendTicketButton(@Validated({Default.class, Button.class}) @ModelAttribute("buttonLabel") StringRequest buttonLabel, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+    public CompletableFuture<String> sendTicketButton(@Validated({Default.class, Button.class}) @ModelAttribute("buttonLabel") StringRequest buttonLabel, BindingResult result, @PathVariable Long serverId, @PathVariable Long channelId, @AuthenticationPrincipal OAuth2User principal, Model model) {
         String userId = principal.getName();
-        Member member = accessService.getServerMember(userId, serverId);
-        TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        if(result.hasErrors()) {
-            model.addAttribute("buttonLabel", buttonLabel);
-            model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
-            return "action/ticket_button";
-        }
+        return accessService.getServerMemberAsync(userId, serverId).thenCompose(member -> {
+            TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
 
-        service.sendTicketButtonInChannel(member, channel, buttonLabel.getContent());
+            if(result.hasErrors()) {
+                model.addAttribute("buttonLabel", buttonLabel);
+                model.addAttribute(CHANNEL_NAME_ATTRIBUTE, channel.getName());
+                return CompletableFuture.completedFuture("action/ticket_button");
+            }
 
-        return "redirect:?success";
+            return service.sendTicketButtonInChannel(member, channel, buttonLabel.getContent())
+                    .thenApply(message -> "redirect:?success");
+        });
     }
 
 
@@ -0,0 +1,83 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import fr.seynox.saejinaapp.services.TicketService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Controller
+@RequestMapping("/panel/{serverId}/tickets")
+public class TicketDashboardController {
+
+    private final TicketService service;
+    private final MemberAccessService accessService;
+
+    public TicketDashboardController(TicketService service, MemberAccessService accessService) {
+        this.service = service;
+        this.accessService = accessService;
+    }
+
+    /**
+     * Show the open tickets of the server, with their owner and age
+     * @param serverId The server of the tickets
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server is not accessible for the user/bot
+     * @throws PermissionException When the user is not allowed to list tickets
+     * @return The path to the Thymeleaf template, once the member is retrieved
+     */
+    @GetMapping
+    public CompletableFuture<String> showOpenTickets(@PathVariable Long serverId, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            List<OpenTicket> tickets = service.getOpenTickets(member);
+
+            Instant now = Instant.now();
+            Map<Long, LocalDateTime> openDates = new HashMap<>();
+            Map<Long, String> ages = new HashMap<>();
+            for(OpenTicket ticket : tickets) {
+                Instant openedAt = Instant.ofEpochMilli(ticket.getOpenedAt());
+                openDates.put(ticket.getChannelId(), LocalDateTime.ofInstant(openedAt, ZoneId.systemDefault()));
+                ages.put(ticket.getChannelId(), formatAge(Duration.between(openedAt, now)));
+            }
+
+            model.addAttribute("tickets", tickets);
+            model.addAttribute("openDates", openDates);
+            model.addAttribute("ages", ages);
+
+            return "action/open_tickets";
+        });
+    }
+
+    /**
+     * @return The age, in its two largest units (3d 4h, 2h 15min, 12min)
+     */
+    static String formatAge(Duration age) {
+        if(age.toDays() > 0) {
+            return "%sd %sh".formatted(age.toDays(), age.toHoursPart());
+        }
+        if(age.toHours() > 0) {
+            return "%sh %smin".formatted(age.toHours(), age.toMinutesPart());
+        }
+
+        return "%smin".formatted(Math.max(age.toMinutes(), 0));
+    }
+
+}
@@ -0,0 +1,68 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import fr.seynox.saejinaapp.services.TicketService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Controller
+@RequestMapping("/panel/{serverId}/ticket_search")
+public class TicketSearchController {
+
+    private final TicketService service;
+    private final MemberAccessService accessService;
+
+    public TicketSearchController(TicketService service, MemberAccessService accessService) {
+        this.service = service;
+        this.accessService = accessService;
+    }
+
+    /**
+     * Show the archived tickets of the server matching the query
+     * @param serverId The server of the tickets
+     * @param query The words to search (member name or id, subject, keywords...). Every ticket is listed if empty
+     * @param page The page of results, starting at 0
+     * @param principal The logged-in user
+     * @throws ResourceNotAccessibleException When the server is not accessible for the user/bot
+     * @throws PermissionException When the user is not allowed to search tickets
+     * @return The path to the Thymeleaf template, once the member is retrieved
+     */
+    @GetMapping
+    public CompletableFuture<String> searchTickets(@PathVariable Long serverId, @RequestParam(defaultValue = "") String query, @RequestParam(defaultValue = "0") int page, @AuthenticationPrincipal OAuth2User principal, Model model) {
+        String userId = principal.getName();
+
+        return accessService.getServerMemberAsync(userId, serverId).thenApply(member -> {
+            TicketTranscriptPage results = service.searchTranscripts(member, query, page);
+
+            Map<Long, LocalDateTime> closeDates = new HashMap<>();
+            for(TicketTranscript transcript : results.getContent()) {
+                Instant closedAt = Instant.ofEpochMilli(transcript.getClosedAt());
+                closeDates.put(transcript.getChannelId(), LocalDateTime.ofInstant(closedAt, ZoneId.systemDefault()));
+            }
+
+            model.addAttribute("query", query);
+            model.addAttribute("results", results);
+            model.addAttribute("closeDates", closeDates);
+
+            return "action/ticket_search";
+        });
+    }
+
+}
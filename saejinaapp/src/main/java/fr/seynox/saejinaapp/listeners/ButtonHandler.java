@@ -0,0 +1,17 @@
+package fr.seynox.saejinaapp.listeners;
+
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+
+/**
+ * Handles the buttons whose id starts with the prefix it is registered with in the {@link ComponentRouter}
+ */
+@FunctionalInterface
+public interface ButtonHandler {
+
+    /**
+     * @param event The button press
+     * @param argument The numeric suffix of the button id ("prefix#123"), or {@link ComponentRouter#NO_ARGUMENT} if the id has none
+     */
+    void onButtonPress(ButtonInteractionEvent event, long argument);
+
+}
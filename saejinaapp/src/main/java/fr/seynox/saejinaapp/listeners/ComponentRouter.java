@@ -0,0 +1,158 @@
+package fr.seynox.saejinaapp.listeners;
+
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single entry point for the button presses, dispatching each one to the handler registered for its id prefix.
+ * Button ids are either "prefix" or "prefix#number" (like "role-assign#1234").
+ * The prefix is looked up in an open addressing table without extracting it from the id,
+ * and the number is parsed in place, so a button press does not allocate before reaching its handler
+ */
+@Component
+public class ComponentRouter {
+
+    public static final long NO_ARGUMENT = -1L;
+    public static final char ARGUMENT_SEPARATOR = '#';
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Replaced on each registration, so lookups never need a lock */
+    private volatile HandlerTable table = new HandlerTable(INITIAL_CAPACITY);
+
+    /**
+     * Triggered when a user presses a button.
+     * Buttons that do not match any handler are ignored
+     */
+    @SubscribeEvent
+    public void onButtonPress(ButtonInteractionEvent event) {
+        String buttonId = event.getComponentId();
+
+        int separatorIndex = buttonId.indexOf(ARGUMENT_SEPARATOR);
+        int prefixLength = separatorIndex == -1 ? buttonId.length() : separatorIndex;
+
+        ButtonHandler handler = table.find(buttonId, prefixLength);
+        if(handler == null) {
+            return;
+        }
+
+        long argument = NO_ARGUMENT;
+        if(separatorIndex != -1) {
+            argument = parseArgument(buttonId, separatorIndex + 1);
+            if(argument == NO_ARGUMENT) {
+                // Malformed id
+                return;
+            }
+        }
+
+        handler.onButtonPress(event, argument);
+    }
+
+    /**
+     * Register the handler of the buttons with the given id prefix
+     * @param prefix The part of the button ids before {@link #ARGUMENT_SEPARATOR}
+     * @param handler The handler called for these buttons
+     * @throws IllegalArgumentException If the prefix contains the separator, or already has a handler
+     */
+    public synchronized void register(String prefix, ButtonHandler handler) {
+        if(prefix.indexOf(ARGUMENT_SEPARATOR) != -1) {
+            throw new IllegalArgumentException("The prefix %s cannot contain '%s'".formatted(prefix, ARGUMENT_SEPARATOR));
+        }
+        if(table.find(prefix, prefix.length()) != null) {
+            throw new IllegalArgumentException("A handler is already registered for the prefix %s".formatted(prefix));
+        }
+
+        HandlerTable currentTable = table;
+        // Keep the table at most half full, so the probe sequences stay short
+        int capacity = currentTable.keys.length;
+        if((currentTable.size + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+
+        HandlerTable newTable = new HandlerTable(capacity);
+        for(int index = 0; index < currentTable.keys.length; index++) {
+            if(currentTable.keys[index] != null) {
+                newTable.put(currentTable.keys[index], currentTable.handlers[index]);
+            }
+        }
+        newTable.put(prefix, handler);
+
+        table = newTable;
+    }
+
+    /**
+     * Parse the decimal number at the end of the id
+     * @param id The component id
+     * @param start The index of the first digit
+     * @return The parsed number, or {@link #NO_ARGUMENT} if the suffix is empty, is not a number, or overflows a long
+     */
+    static long parseArgument(String id, int start) {
+        int length = id.length();
+        if(start >= length) {
+            return NO_ARGUMENT;
+        }
+
+        long value = 0;
+        for(int index = start; index < length; index++) {
+            int digit = id.charAt(index) - '0';
+            if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return NO_ARGUMENT;
+            }
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    /**
+     * Same as {@link String#hashCode()} on the first characters of the id, without creating the substring
+     */
+    private static int hash(String id, int length) {
+        int hash = 0;
+        for(int index = 0; index < length; index++) {
+            hash = 31 * hash + id.charAt(index);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class HandlerTable {
+
+        private final String[] keys;
+        private final ButtonHandler[] handlers;
+        private int size;
+
+        private HandlerTable(int capacity) {
+            this.keys = new String[capacity];
+            this.handlers = new ButtonHandler[capacity];
+        }
+
+        private ButtonHandler find(String id, int prefixLength) {
+            int mask = keys.length - 1;
+            int index = hash(id, prefixLength) & mask;
+
+            String key;
+            while((key = keys[index]) != null) {
+                if(key.length() == prefixLength && id.regionMatches(0, key, 0, prefixLength)) {
+                    return handlers[index];
+                }
+                index = (index + 1) & mask;
+            }
+
+            return null;
+        }
+
+        private void put(String prefix, ButtonHandler handler) {
+            int mask = keys.length - 1;
+            int index = hash(prefix, prefix.length()) & mask;
+            while(keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = prefix;
+            handlers[index] = handler;
+            size++;
+        }
+    }
+
+}
@@ -3,39 +3,23 @@ package fr.seynox.saejinaapp.listeners;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
 import fr.seynox.saejinaapp.services.RoleService;
 import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
-import net.dv8tion.jda.api.hooks.SubscribeEvent;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 import org.springframework.stereotype.Component;
 
-import java.util.regex.Pattern;
+import static fr.seynox.saejinaapp.services.RoleService.ROLE_ASSIGNMENT_PREFIX;
 
 @Component
 public class RoleEventsListener {
 
-    private static final Pattern assignPattern = Pattern.compile("role-assign#\\d*");
-
     private final RoleService service;
 
-    public RoleEventsListener(RoleService service) {
-        this.service = service;
-    }
-
     /**
-     * Triggered when a user presses a button.
-     * Used to handle role assignment button
+     * Registers the role assignment button ("role-assign#roleId") in the router
      */
-    @SubscribeEvent
-    public void onButtonPress(ButtonInteractionEvent event) {
-        String buttonId = event.getComponentId();
-
-        if(assignPattern.matcher(buttonId).matches()) {
-            String roleIdText = buttonId.split("#")[1];
-            Long roleId = Long.parseLong(roleIdText);
-
-            toggleRole(roleId, event);
-        }
+    public RoleEventsListener(RoleService service, ComponentRouter router) {
+        this.service = service;
 
+        router.register(ROLE_ASSIGNMENT_PREFIX, (event, roleId) -> toggleRole(roleId, event));
     }
 
     /**
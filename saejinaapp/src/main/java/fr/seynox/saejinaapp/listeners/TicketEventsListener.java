@@ -1,7 +1,12 @@
 package fr.seynox.saejinaapp.listeners;
 
+import fr.seynox.saejinaapp.caches.TicketRegistry;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.scheduling.DelayedActionScheduler;
 import fr.seynox.saejinaapp.services.TicketService;
+import fr.seynox.saejinaapp.utils.InteractionExecutor;
+import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -14,69 +19,56 @@ import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
 import static fr.seynox.saejinaapp.services.TicketService.*;
 
+@Slf4j
 @Component
 public class TicketEventsListener {
 
-    private static final Pattern invitePattern = Pattern.compile("ticket-invite#\\d*");
-
     private final TicketService service;
-
-    public TicketEventsListener(TicketService service) {
-        this.service = service;
-    }
+    private final InteractionExecutor executor;
+    private final DelayedActionScheduler scheduler;
+    private final TicketRegistry ticketRegistry;
 
     /**
-     *  Triggered when a user presses a button.
-     *  Used to handle tickets buttons (Create, Close, Invite)
+     * Registers the tickets buttons (Create, Close, Cancel close, Invite) in the router
      */
-    @SubscribeEvent
-    public void onButtonPress(ButtonInteractionEvent event) {
-
-        String buttonId = event.getComponentId();
-        switch(buttonId) {
-            // Create ticket
-            case TICKET_CREATION_ID -> showTicketCreationForm(event);
-
-            // Ask close ticket confirmation
-            case TICKET_CLOSE_ID -> {
-                Button confirmationButton = Button.of(ButtonStyle.DANGER, TICKET_CLOSE_CONFIRM_ID, "Are you sure ?");
-                event.editButton(confirmationButton).queue();
-            }
-
-            // Close ticket
-            case TICKET_CLOSE_CONFIRM_ID -> {
-                event.reply("Closing the ticket ! Deleting channel in 30sec...").queue();
-                CompletableFuture.delayedExecutor(30L, TimeUnit.SECONDS)
-                        .execute(() -> event.getTextChannel().delete().queue());
-            }
-
-            default -> {
-                // Invite user to ticket channel
-                if(invitePattern.matcher(buttonId).matches()) {
-                    String userId = buttonId.split("#")[1];
-                    inviteMemberToChannel(userId, event);
-                }
-            }
-
-        }
+    public TicketEventsListener(TicketService service, InteractionExecutor executor, DelayedActionScheduler scheduler, TicketRegistry ticketRegistry, ComponentRouter router) {
+        this.service = service;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.ticketRegistry = ticketRegistry;
+
+        router.register(TICKET_CREATION_ID, (event, argument) -> showTicketCreationForm(event));
+        router.register(TICKET_CLOSE_ID, (event, argument) -> askCloseConfirmation(event));
+        router.register(TICKET_CLOSE_CONFIRM_ID, (event, argument) -> closeTicketChannel(event));
+        router.register(TICKET_CLOSE_CANCEL_ID, (event, argument) -> cancelTicketClose(event));
+        router.register(TICKET_INVITE_PREFIX, (event, userId) -> inviteMemberToChannel(Long.toString(userId), event));
     }
 
     /**
      * Triggered when a user submits a modal (form).
-     * Used to handle ticket submission
+     * Used to handle ticket submission.
+     * The interaction is acknowledged right away, as the ticket may wait in the executor's queue longer than Discord's acknowledgement deadline.
+     * If too many tickets are being submitted, the user is asked to try again
      */
     @SubscribeEvent
     public void onModalSubmit(ModalInteractionEvent event) {
 
         String modalId = event.getModalId();
         if(modalId.equals(TICKET_CREATION_ID)) {
-            CompletableFuture.runAsync(() -> submitTicketToServer(event));
+            event.deferReply(true).queue();
+            try {
+                executor.runAsync(() -> submitTicketToServer(event));
+            } catch(RejectedExecutionException exception) {
+                event.getHook()
+                        .editOriginal("I am busy creating other tickets ! Please try again in a few seconds")
+                        .queue();
+            }
         }
 
     }
@@ -98,6 +90,48 @@ public class TicketEventsListener {
         }
     }
 
+    /**
+     * Replace the close button with a confirmation button
+     */
+    public void askCloseConfirmation(ButtonInteractionEvent event) {
+        Button confirmationButton = Button.of(ButtonStyle.DANGER, TICKET_CLOSE_CONFIRM_ID, "Are you sure ?");
+        event.editButton(confirmationButton).queue();
+    }
+
+    /**
+     * Schedule the deletion of the button's channel, after {@link TicketService#TICKET_CLOSE_DELAY}.
+     * The deletion is persisted, and can be cancelled with the button sent in the reply
+     */
+    public void closeTicketChannel(ButtonInteractionEvent event) {
+        TextChannel channel = event.getTextChannel();
+        DelayedAction action = scheduler.schedule(TICKET_CLOSE, channel.getIdLong(), TICKET_CLOSE_DELAY);
+        ticketRegistry.setClosingAt(channel, action.getExecuteAt());
+
+        Button cancelButton = Button.of(ButtonStyle.SECONDARY, TICKET_CLOSE_CANCEL_ID, "Cancel");
+        event.reply("Closing the ticket ! Deleting channel in 30sec...")
+                .addActionRow(cancelButton)
+                .queue();
+    }
+
+    /**
+     * Cancel the deletion of the button's channel, if it was not deleted yet
+     */
+    public void cancelTicketClose(ButtonInteractionEvent event) {
+        TextChannel channel = event.getTextChannel();
+
+        boolean isCancelled = scheduler.cancel(TICKET_CLOSE, channel.getIdLong());
+        if(isCancelled) {
+            ticketRegistry.setClosingAt(channel, null);
+            event.editMessage("Ticket closing cancelled !")
+                    .setActionRows()
+                    .queue();
+        } else {
+            event.reply("Error ! The ticket is not being closed")
+                    .setEphemeral(true)
+                    .queue();
+        }
+    }
+
     /**
      * Allow the given user to access the button's channel
      * @param userId The user to invite
@@ -106,33 +140,41 @@ public class TicketEventsListener {
         Button button = event.getButton();
         TextChannel channel = event.getTextChannel();
 
-        try {
-            service.inviteUserToTicketChannel(userId, channel);
-            String message = "The ticket owner (%s) has been invited to the channel !"
-                    .formatted("<@" + userId + '>');
-            event.reply(message).queue();
+        service.inviteUserToTicketChannel(userId, channel).whenComplete((result, error) -> {
+            if(error == null) {
+                String message = "The ticket owner (%s) has been invited to the channel !"
+                        .formatted("<@" + userId + '>');
+                event.reply(message).queue();
+
+                // Disable button
+                event.editButton(button.asDisabled()).queue();
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            String errorMessage;
+            if(cause instanceof DiscordInteractionException) {
+                errorMessage = cause.getMessage();
+            } else {
+                log.error("User {} could not be invited to ticket {}", userId, channel.getId(), cause);
+                errorMessage = "Error ! The user could not be invited. Please try again later";
+            }
 
-        } catch(DiscordInteractionException exception) {
-            String errorMessage = exception.getMessage();
             event.reply(errorMessage)
                     .setEphemeral(true)
                     .queue();
-
-            return;
-        }
-
-        // Disable button
-        event.editButton(button.asDisabled()).queue();
+        });
     }
 
     /**
-     *  Submits a ticket to the server via a modal (form)
+     *  Submits a ticket to the server via a modal (form).
+     *  The interaction must already be acknowledged, the answer replaces its ephemeral deferred reply
      */
     public void submitTicketToServer(ModalInteractionEvent event) {
         Member member = event.getMember();
         if(member == null) {
-            event.reply("Error ! Tickets can only be submitted in servers")
-                    .setEphemeral(true)
+            event.getHook()
+                    .editOriginal("Error ! Tickets can only be submitted in servers")
                     .queue();
 
             return;
@@ -149,10 +191,14 @@ public class TicketEventsListener {
             message = "Error ! I do not have the permissions required to create channels. Please contact a server administrator";
         } catch(NullPointerException exception) {
             message = "Error ! The ticket you submitted is invalid";
+        } catch(RuntimeException exception) {
+            // The deferred reply must always be answered, or it stays "thinking" until it expires
+            log.error("Ticket of member {} could not be created in server {}", member.getId(), guild.getId(), exception);
+            message = "Error ! Your ticket could not be created. Please try again later";
         }
 
-        event.reply(message)
-                .setEphemeral(true)
+        event.getHook()
+                .editOriginal(message)
                 .queue();
     }
 
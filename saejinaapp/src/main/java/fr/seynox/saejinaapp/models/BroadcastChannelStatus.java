@@ -0,0 +1,19 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BroadcastChannelStatus {
+
+    /** As a string, so the id is not rounded by JavaScript */
+    private String channelId;
+    private String channelName;
+    private BroadcastState state;
+    /** The reason of the failure, null if the message was not refused */
+    private String error;
+
+}
@@ -0,0 +1,25 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A snapshot of a broadcast, with the state of each of its channels
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BroadcastProgress {
+
+    private String id;
+    private int total;
+    private int sent;
+    private int failed;
+    /** True once every channel is either sent or failed */
+    private boolean done;
+    private List<BroadcastChannelStatus> channels;
+
+}
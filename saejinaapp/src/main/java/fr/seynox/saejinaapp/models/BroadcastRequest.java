@@ -0,0 +1,30 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.dv8tion.jda.api.entities.Message;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastRequest {
+
+    /** A server holds 500 channels at most */
+    public static final int MAX_CHANNELS = 500;
+
+    @NotBlank(message = "The content cannot be blank")
+    @Size(min = 1, max = Message.MAX_CONTENT_LENGTH, message = "The message must be between 1 and 2000 characters")
+    private String content;
+
+    @NotEmpty(message = "Select at least one channel")
+    @Size(max = MAX_CHANNELS, message = "A message cannot be broadcast to more than 500 channels")
+    private List<Long> channelIds = new ArrayList<>();
+
+}
@@ -0,0 +1,15 @@
+package fr.seynox.saejinaapp.models;
+
+/**
+ * The state of a broadcast message, for one of its channels
+ */
+public enum BroadcastState {
+
+    /** Waiting for a free slot, or for Discord's answer */
+    PENDING,
+    /** Waiting behind other messages of the channel */
+    QUEUED,
+    SENT,
+    FAILED
+
+}
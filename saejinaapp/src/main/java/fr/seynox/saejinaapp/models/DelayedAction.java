@@ -0,0 +1,22 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An action that will be executed later, and that survives restarts
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DelayedAction {
+
+    private String id;
+    private DelayedActionType type;
+    /** The Discord entity affected by the action (e.g. the channel to delete) */
+    private long targetId;
+    /** Epoch milliseconds */
+    private long executeAt;
+
+}
@@ -0,0 +1,8 @@
+package fr.seynox.saejinaapp.models;
+
+public enum DelayedActionType {
+
+    /** Delete the ticket text channel */
+    TICKET_CLOSE
+
+}
@@ -0,0 +1,27 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A snapshot of the interaction executor
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InteractionStats {
+
+    /** Tasks waiting for a thread */
+    private int queued;
+    /** Threads currently running a task */
+    private int active;
+    /** The maximum number of tasks that can wait for a thread */
+    private int queueCapacity;
+    /** Tasks completed since startup */
+    private long completed;
+    /** Tasks rejected since startup, because the executor was saturated */
+    private long rejected;
+    private boolean virtualThreads;
+
+}
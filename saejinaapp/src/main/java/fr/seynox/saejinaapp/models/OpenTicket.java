@@ -0,0 +1,29 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.With;
+
+/**
+ * A ticket whose channel was not deleted yet, as listed by the ticket dashboard
+ */
+@Data
+@With
+@AllArgsConstructor
+@NoArgsConstructor
+public class OpenTicket {
+
+    private long guildId;
+    private long channelId;
+    private String channelName;
+    /** The subject given by the member who opened the ticket. Null until the ticket is sent, or if it was opened before a restart */
+    private String subject;
+    private String ownerId;
+    private String ownerName;
+    /** Epoch milliseconds of the channel creation */
+    private long openedAt;
+    /** Epoch milliseconds of the scheduled channel deletion. Null if the ticket is not being closed */
+    private Long closingAt;
+
+}
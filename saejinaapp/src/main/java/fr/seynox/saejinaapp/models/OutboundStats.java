@@ -0,0 +1,30 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * A snapshot of the outbound Discord requests
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboundStats {
+
+    /** Requests waiting in a bucket, not sent yet */
+    private int pending;
+    /** Requests sent since startup */
+    private long sent;
+    /** Edits merged into a pending edit of the same message, instead of being sent */
+    private long coalesced;
+    /** 429 responses received from Discord since startup, for every request of the bot */
+    private long rateLimited;
+    private double averageWaitMillis;
+    private double maxWaitMillis;
+    /** The number of pending requests of the busiest buckets */
+    private Map<String, Integer> pendingByBucket;
+
+}
@@ -0,0 +1,24 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolePanelRequest {
+
+    /** A server holds 250 roles at most */
+    public static final int MAX_ROLES = 250;
+
+    @NotEmpty(message = "Select at least one role")
+    @Size(max = MAX_ROLES, message = "A panel cannot hold more than 250 roles")
+    private List<Long> roleIds = new ArrayList<>();
+
+}
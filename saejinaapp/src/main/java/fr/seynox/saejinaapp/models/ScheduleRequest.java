@@ -0,0 +1,29 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import net.dv8tion.jda.api.entities.Message;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleRequest {
+
+    @NotBlank(message = "The content cannot be blank")
+    @Size(min = 1, max = Message.MAX_CONTENT_LENGTH, message = "The message must be between 1 and 2000 characters")
+    private String content;
+
+    /** When to send a message sent once, in the application's time zone */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime sendAt;
+
+    /** When to send a recurring message, as a cron expression */
+    private String cron;
+
+}
@@ -0,0 +1,34 @@
+package fr.seynox.saejinaapp.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A message sent later in a channel, once or repeatedly. It survives restarts
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduledMessage {
+
+    private String id;
+    private long guildId;
+    private long channelId;
+    /** The member who scheduled the message. Their permissions are checked again on each send */
+    private long authorId;
+    private String content;
+    /** Epoch milliseconds of the send, for a message sent once. Null for a recurring message */
+    private Long sendAt;
+    /** Cron expression (second minute hour day month weekday) of a recurring message. Null for a message sent once */
+    private String cron;
+    /** The time zone of the cron expression */
+    private String zoneId;
+
+    @JsonIgnore
+    public boolean isRecurring() {
+        return cron != null;
+    }
+
+}
@@ -4,14 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import javax.validation.constraints.NotNull;
+import java.util.List;
 
 @Data
-@NoArgsConstructor
 @AllArgsConstructor
-public class IdRequest {
+@NoArgsConstructor
+public class SelectablePage {
 
-    @NotNull(message = "The id cannot be null")
-    private Long id;
+    private List<Selectable> content;
+    private int page;
+    private boolean hasNext;
 
 }
@@ -9,6 +9,7 @@ public enum TextChannelAction implements Selectable {
 
     SEND_TICKET_BUTTON("Send ticket creation button", (member, channel) -> channel.canTalk(member) && member.hasPermission(MANAGE_CHANNEL)),
     SEND_MESSAGE("Send message", (member, channel) -> channel.canTalk(member)),
+    SCHEDULE_MESSAGE("Schedule message", (member, channel) -> channel.canTalk(member)),
     SEND_ROLE_BUTTON("Send role assignment button", (member, channel) -> channel.canTalk(member) && member.hasPermission(MANAGE_CHANNEL));
 
     private final String name;
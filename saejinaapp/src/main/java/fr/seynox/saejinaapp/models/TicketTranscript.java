@@ -0,0 +1,27 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The archived transcript of a closed ticket, as listed by the ticket search
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketTranscript {
+
+    private long guildId;
+    private long channelId;
+    private String channelName;
+    /** The subject given by the member who opened the ticket. Null if the ticket message was deleted */
+    private String subject;
+    /** The member who opened the ticket. Null if the ticket message was deleted */
+    private String authorId;
+    private String authorName;
+    private long messageCount;
+    /** Epoch milliseconds of the archival */
+    private long closedAt;
+
+}
@@ -0,0 +1,18 @@
+package fr.seynox.saejinaapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketTranscriptPage {
+
+    private List<TicketTranscript> content;
+    private int page;
+    private boolean hasNext;
+
+}
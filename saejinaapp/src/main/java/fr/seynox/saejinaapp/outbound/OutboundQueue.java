@@ -0,0 +1,282 @@
+package fr.seynox.saejinaapp.outbound;
+
+import fr.seynox.saejinaapp.models.OutboundStats;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends the bot's Discord requests one at a time per rate-limit bucket (a channel for messages, a server for member updates).
+ * A burst on one channel waits here, where it can be measured, instead of piling up inside JDA.
+ * Pending edits of the same message are merged : only the latest one is sent, and every caller gets its response.
+ * Requests are built when they are sent, so a merged edit is built from the latest state.
+ * JDA's own rate limiter still applies to each request once it is sent.
+ * A request that gets no response within saejina.outbound.timeout fails, so it does not hold its bucket forever
+ */
+@Component
+public class OutboundQueue {
+
+    private static final int STATS_BUCKET_COUNT = 10;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    private final Duration timeout;
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder rateLimitedCount = new LongAdder();
+    private final LongAdder dispatchedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public OutboundQueue() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    @Autowired
+    public OutboundQueue(@Value("${saejina.outbound.timeout:30s}") Duration timeout) {
+        this(System::nanoTime, timeout);
+    }
+
+    OutboundQueue(LongSupplier nanoClock) {
+        this(nanoClock, DEFAULT_TIMEOUT);
+    }
+
+    OutboundQueue(LongSupplier nanoClock, Duration timeout) {
+        this.nanoClock = nanoClock;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The bucket of the requests sending or editing messages in the channel
+     */
+    public static String channelBucket(long channelId) {
+        return "channel:" + channelId;
+    }
+
+    /**
+     * @return The bucket of the requests updating the members of the server
+     */
+    public static String guildBucket(long guildId) {
+        return "guild:" + guildId;
+    }
+
+    /**
+     * Send the request once the previous requests of its bucket are answered
+     * @param bucket The rate-limit bucket of the request
+     * @param request Builds the request, when it is sent
+     * @return The submitted request
+     */
+    public <T> OutboundRequest<T> submit(String bucket, Supplier<? extends RestAction<T>> request) {
+        return enqueue(bucket, null, request);
+    }
+
+    /**
+     * Send an edit of the message once the previous requests of its bucket are answered.
+     * If an edit of the same message is still waiting, it is replaced by this one.
+     * The edits of a message must all have the same response type
+     * @param bucket The rate-limit bucket of the message's channel
+     * @param messageId The edited message
+     * @param edit Builds the edit, when it is sent
+     * @return The submitted request, completed with the response of the edit that was actually sent
+     */
+    public <T> OutboundRequest<T> submitEdit(String bucket, long messageId, Supplier<? extends RestAction<T>> edit) {
+        return enqueue(bucket, messageId, edit);
+    }
+
+    /**
+     * Triggered on every response of the Discord API. Counts the 429 responses
+     */
+    @SubscribeEvent
+    public void onHttpRequest(HttpRequestEvent event) {
+        if(event.isRateLimit()) {
+            rateLimitedCount.increment();
+        }
+    }
+
+    /**
+     * @return The current state of the queue, and its counters since startup
+     */
+    public OutboundStats getStats() {
+        Map<String, Integer> pendingByBucket = new LinkedHashMap<>();
+        buckets.values().stream()
+                .map(bucket -> Map.entry(bucket.key, bucket.size()))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(STATS_BUCKET_COUNT)
+                .forEach(entry -> pendingByBucket.put(entry.getKey(), entry.getValue()));
+
+        long dispatched = dispatchedCount.sum();
+        double averageWaitMillis = dispatched == 0 ? 0 : toMillis(totalWaitNanos.sum()) / dispatched;
+
+        return new OutboundStats(pendingCount.get(), sentCount.sum(), coalescedCount.sum(), rateLimitedCount.sum(),
+                averageWaitMillis, toMillis(maxWaitNanos.get()), pendingByBucket);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> OutboundRequest<T> enqueue(String bucketKey, Long messageId, Supplier<? extends RestAction<T>> request) {
+        while(true) {
+            Bucket bucket = buckets.computeIfAbsent(bucketKey, Bucket::new);
+            boolean queued;
+            CompletableFuture<Object> result;
+
+            synchronized(bucket) {
+                if(bucket.closed) {
+                    // Removed while idle, between the lookup and the lock
+                    continue;
+                }
+
+                PendingRequest existingEdit = messageId == null ? null : bucket.pendingEdits.get(messageId);
+                if(existingEdit != null) {
+                    existingEdit.request = request;
+                    coalescedCount.increment();
+                    return new OutboundRequest<>((CompletableFuture<T>) (CompletableFuture<?>) existingEdit.result, true);
+                }
+
+                PendingRequest pending = new PendingRequest(messageId, request, nanoClock.getAsLong());
+                bucket.requests.add(pending);
+                if(messageId != null) {
+                    bucket.pendingEdits.put(messageId, pending);
+                }
+
+                pendingCount.incrementAndGet();
+                queued = bucket.inFlight;
+                result = pending.result;
+            }
+
+            dispatch(bucket);
+            return new OutboundRequest<>((CompletableFuture<T>) (CompletableFuture<?>) result, queued);
+        }
+    }
+
+    /**
+     * Send the next request of the bucket, unless one is already waiting for its response.
+     * Responses that are already available are handled in the loop, so a burst of failures does not recurse
+     */
+    private void dispatch(Bucket bucket) {
+        while(true) {
+            PendingRequest next;
+            synchronized(bucket) {
+                if(bucket.inFlight) {
+                    return;
+                }
+
+                next = bucket.requests.poll();
+                if(next == null) {
+                    buckets.remove(bucket.key, bucket);
+                    bucket.closed = true;
+                    return;
+                }
+
+                if(next.messageId != null) {
+                    bucket.pendingEdits.remove(next.messageId);
+                }
+                bucket.inFlight = true;
+            }
+
+            pendingCount.decrementAndGet();
+            recordWait(nanoClock.getAsLong() - next.enqueuedAt);
+
+            CompletableFuture<?> response = send(next);
+            if(!response.isDone()) {
+                response.whenComplete((result, error) -> {
+                    complete(bucket, next, result, error);
+                    dispatch(bucket);
+                });
+                return;
+            }
+
+            response.whenComplete((result, error) -> complete(bucket, next, result, error));
+        }
+    }
+
+    private CompletableFuture<?> send(PendingRequest pending) {
+        try {
+            // The timeout is set on a copy : the request itself keeps going, only the bucket stops waiting for it
+            return pending.request.get().submit()
+                    .copy()
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch(RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private void complete(Bucket bucket, PendingRequest pending, Object result, Throwable error) {
+        synchronized(bucket) {
+            bucket.inFlight = false;
+        }
+
+        if(error == null) {
+            sentCount.increment();
+            pending.result.complete(result);
+        } else {
+            pending.result.completeExceptionally(error);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        dispatchedCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class PendingRequest {
+
+        private final Long messageId;
+        private final long enqueuedAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        /** Replaced when a newer edit of the same message is merged into this one */
+        private Supplier<? extends RestAction<?>> request;
+
+        private PendingRequest(Long messageId, Supplier<? extends RestAction<?>> request, long enqueuedAt) {
+            this.messageId = messageId;
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static class Bucket {
+
+        private final String key;
+        private final Queue<PendingRequest> requests = new ArrayDeque<>();
+        private final Map<Long, PendingRequest> pendingEdits = new HashMap<>();
+        private boolean inFlight;
+        /** Set once the bucket is removed from the map, new requests must use a new bucket */
+        private boolean closed;
+
+        private Bucket(String key) {
+            this.key = key;
+        }
+
+        private synchronized int size() {
+            return requests.size();
+        }
+    }
+
+}
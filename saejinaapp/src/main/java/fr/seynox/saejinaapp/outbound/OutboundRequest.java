@@ -0,0 +1,33 @@
+package fr.seynox.saejinaapp.outbound;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request submitted to the {@link OutboundQueue}
+ * @param <T> The type of the Discord response
+ */
+public class OutboundRequest<T> {
+
+    private final CompletableFuture<T> result;
+    private final boolean queued;
+
+    OutboundRequest(CompletableFuture<T> result, boolean queued) {
+        this.result = result;
+        this.queued = queued;
+    }
+
+    /**
+     * @return A future completed with the Discord response, once the request is sent
+     */
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+
+    /**
+     * @return True if the request had to wait behind other requests of its bucket, false if it was sent right away
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
+}
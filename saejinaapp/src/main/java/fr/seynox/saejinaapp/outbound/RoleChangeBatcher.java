@@ -0,0 +1,174 @@
+package fr.seynox.saejinaapp.outbound;
+
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Merges the role toggles of a member into a single role update.
+ * The first toggle opens a window, and the toggles received until it closes are sent as one request with the final roles.
+ * Toggling a role twice in the same window cancels out, and sends nothing.
+ * A sent update is kept until Discord answers it, so the toggles of the next window start from the roles it gives
+ */
+@Slf4j
+@Component
+public class RoleChangeBatcher {
+
+    private final OutboundQueue outboundQueue;
+    private final TimerWheel wheel;
+    private final Duration window;
+    private final Map<MemberKey, RoleChange> pending = new HashMap<>();
+    /** The updates sent and not answered yet, oldest first */
+    private final Map<MemberKey, List<RoleChange>> inFlight = new HashMap<>();
+
+    public RoleChangeBatcher(OutboundQueue outboundQueue, TimerWheel wheel, @Value("${saejina.roles.window:1500ms}") Duration window) {
+        this.outboundQueue = outboundQueue;
+        this.wheel = wheel;
+        this.window = window;
+    }
+
+    /**
+     * Add the role to the member, or remove it if the member has it.
+     * The toggles waiting to be sent or answered are taken into account, so a member toggling the same role twice gets it back
+     * @param member The member affected
+     * @param role The role to toggle
+     * @return True if the role will be added, false if it will be removed
+     */
+    public synchronized boolean toggleRole(Member member, Role role) {
+        MemberKey key = new MemberKey(member.getGuild().getIdLong(), member.getIdLong());
+
+        RoleChange change = pending.get(key);
+        if(change == null) {
+            change = new RoleChange(member);
+            pending.put(key, change);
+            wheel.schedule(() -> send(key), window);
+        }
+
+        long roleId = role.getIdLong();
+        return change.toggle(roleId, hasRole(key, member, roleId));
+    }
+
+    /**
+     * @return True if the member has the role once the updates in flight are answered
+     */
+    private boolean hasRole(MemberKey key, Member member, long roleId) {
+        List<RoleChange> sentChanges = inFlight.getOrDefault(key, List.of());
+        for(int index = sentChanges.size() - 1; index >= 0; index--) {
+            RoleChange sentChange = sentChanges.get(index);
+            if(sentChange.added.contains(roleId)) {
+                return true;
+            }
+            if(sentChange.removed.contains(roleId)) {
+                return false;
+            }
+        }
+
+        return member.getRoles().stream()
+                .anyMatch(memberRole -> memberRole.getIdLong() == roleId);
+    }
+
+    /**
+     * Runs on the timer wheel thread : the request is queued, not awaited
+     */
+    void send(MemberKey key) {
+        RoleChange change;
+        synchronized(this) {
+            change = pending.remove(key);
+            if(change == null || change.isEmpty()) {
+                return;
+            }
+
+            inFlight.computeIfAbsent(key, memberKey -> new ArrayList<>()).add(change);
+        }
+
+        Member member = change.member;
+        Guild guild = member.getGuild();
+        String bucket = OutboundQueue.guildBucket(guild.getIdLong());
+
+        outboundQueue.submit(bucket, () -> {
+            // Roles deleted during the window are ignored
+            List<Role> rolesToAdd = getRoles(guild, change.added);
+            List<Role> rolesToRemove = getRoles(guild, change.removed);
+            return guild.modifyMemberRoles(member, rolesToAdd, rolesToRemove);
+        }).getResult().whenComplete((result, error) -> {
+            if(error != null) {
+                log.warn("Roles of member {} could not be updated in server {}", member.getId(), guild.getId(), error);
+            }
+            answered(key, change);
+        });
+    }
+
+    private synchronized void answered(MemberKey key, RoleChange change) {
+        List<RoleChange> sentChanges = inFlight.get(key);
+        if(sentChanges == null) {
+            return;
+        }
+
+        sentChanges.remove(change);
+        if(sentChanges.isEmpty()) {
+            inFlight.remove(key);
+        }
+    }
+
+    private static List<Role> getRoles(Guild guild, Set<Long> roleIds) {
+        return roleIds.stream()
+                .map(guild::getRoleById)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    record MemberKey(long guildId, long memberId) {}
+
+    /**
+     * The roles toggled by a member since the window opened
+     */
+    private static class RoleChange {
+
+        private final Member member;
+        private final Set<Long> added = new LinkedHashSet<>();
+        private final Set<Long> removed = new LinkedHashSet<>();
+
+        private RoleChange(Member member) {
+            this.member = member;
+        }
+
+        /**
+         * @param hasRole True if the member has the role before this change
+         * @return True if the role is now added, false if it is now removed
+         */
+        private boolean toggle(long roleId, boolean hasRole) {
+            if(added.remove(roleId)) {
+                return false;
+            }
+            if(removed.remove(roleId)) {
+                return true;
+            }
+
+            if(hasRole) {
+                removed.add(roleId);
+            } else {
+                added.add(roleId);
+            }
+
+            return !hasRole;
+        }
+
+        private boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+}
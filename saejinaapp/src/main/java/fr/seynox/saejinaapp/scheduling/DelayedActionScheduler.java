@@ -0,0 +1,157 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.models.DelayedActionType;
+import fr.seynox.saejinaapp.services.TicketTranscriptArchiver;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runs delayed actions (like closing a ticket) on the application's {@link TimerWheel}.
+ * Every action is persisted in the {@link DelayedActionStore} until it is executed or cancelled,
+ * so the actions pending during a restart are scheduled again once the bot is ready
+ */
+@Slf4j
+@Component
+public class DelayedActionScheduler {
+
+    private final DelayedActionStore store;
+    private final TimerWheel wheel;
+    private final TicketTranscriptArchiver transcriptArchiver;
+    /** One pending action at most per type and target */
+    private final ConcurrentMap<ActionKey, PendingAction> pending = new ConcurrentHashMap<>();
+
+    private volatile JDA jda;
+
+    public DelayedActionScheduler(DelayedActionStore store, TimerWheel wheel, TicketTranscriptArchiver transcriptArchiver) {
+        this.store = store;
+        this.wheel = wheel;
+        this.transcriptArchiver = transcriptArchiver;
+    }
+
+    /**
+     * Triggered when the bot is connected and its cache is loaded.
+     * Schedules the actions that were still pending when the application stopped. Overdue actions are executed right away
+     */
+    @SubscribeEvent
+    public synchronized void onReady(ReadyEvent event) {
+        this.jda = event.getJDA();
+
+        for(DelayedAction action : store.getPendingActions()) {
+            PendingAction existingAction = pending.get(ActionKey.of(action));
+            if(existingAction == null) {
+                arm(action);
+            } else if(!existingAction.action().getId().equals(action.getId())) {
+                // Duplicate action for the same target
+                store.remove(action.getId());
+            }
+        }
+
+        wheel.start();
+    }
+
+    /**
+     * Schedule an action. If the same action is already pending for the target, it is kept instead
+     * @param type The action to execute
+     * @param targetId The entity affected by the action
+     * @param delay The time to wait before executing the action
+     * @return The pending action
+     */
+    public synchronized DelayedAction schedule(DelayedActionType type, long targetId, Duration delay) {
+        PendingAction existingAction = pending.get(new ActionKey(type, targetId));
+        if(existingAction != null) {
+            return existingAction.action();
+        }
+
+        long executeAt = System.currentTimeMillis() + delay.toMillis();
+        DelayedAction action = new DelayedAction(UUID.randomUUID().toString(), type, targetId, executeAt);
+
+        store.add(action);
+        arm(action);
+
+        return action;
+    }
+
+    /**
+     * Cancel the pending action of the given type for the target
+     * @return True if an action was cancelled, false if none was pending
+     */
+    public synchronized boolean cancel(DelayedActionType type, long targetId) {
+        ActionKey key = new ActionKey(type, targetId);
+        PendingAction pendingAction = pending.get(key);
+        if(pendingAction == null || !wheel.cancel(pendingAction.timeout())) {
+            // Nothing pending, or already running
+            return false;
+        }
+
+        pending.remove(key);
+        store.remove(pendingAction.action().getId());
+        return true;
+    }
+
+    /**
+     * @return The actions waiting to be executed
+     */
+    public List<DelayedAction> getPendingActions() {
+        return pending.values().stream()
+                .map(PendingAction::action)
+                .toList();
+    }
+
+    private void arm(DelayedAction action) {
+        Duration delay = Duration.ofMillis(action.getExecuteAt() - System.currentTimeMillis());
+        TimerWheel.Timeout timeout = wheel.schedule(() -> execute(action), delay);
+        pending.put(ActionKey.of(action), new PendingAction(action, timeout));
+    }
+
+    /**
+     * Runs on the timer wheel thread : the Discord requests are queued, not awaited
+     */
+    void execute(DelayedAction action) {
+        pending.remove(ActionKey.of(action));
+
+        switch(action.getType()) {
+            case TICKET_CLOSE -> {
+                TextChannel channel = jda.getTextChannelById(action.getTargetId());
+                if(channel == null) {
+                    // Already deleted
+                    store.remove(action.getId());
+                    return;
+                }
+
+                // The transcript is written before the delete. A ticket whose history could not be archived is closed anyway
+                transcriptArchiver.archive(channel).whenComplete((transcript, archiveError) -> {
+                    if(archiveError != null) {
+                        log.warn("Transcript of ticket channel {} could not be written", channel.getId(), archiveError);
+                    }
+
+                    // Only forget the action once Discord answered, so a restart in between executes it again
+                    channel.delete().queue(
+                            success -> store.remove(action.getId()),
+                            error -> store.remove(action.getId())
+                    );
+                });
+            }
+        }
+    }
+
+    private record PendingAction(DelayedAction action, TimerWheel.Timeout timeout) {}
+
+    private record ActionKey(DelayedActionType type, long targetId) {
+
+        private static ActionKey of(DelayedAction action) {
+            return new ActionKey(action.getType(), action.getTargetId());
+        }
+    }
+
+}
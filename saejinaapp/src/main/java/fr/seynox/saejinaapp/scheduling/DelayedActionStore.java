@@ -0,0 +1,52 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Append-only log of the pending delayed actions, stored as JSON lines in the data directory.
+ * Scheduling an action appends a SCHEDULE entry, executing or cancelling it appends a DONE entry (See {@link JsonLinesStore})
+ */
+@Component
+public class DelayedActionStore extends JsonLinesStore<DelayedAction> {
+
+    static final String FILE_NAME = "delayed-actions.jsonl";
+
+    public DelayedActionStore(@Value("${saejina.data.directory:data}") String directory) throws IOException {
+        super(directory, FILE_NAME, DelayedAction.class, "action");
+    }
+
+    /**
+     * @return The actions that were neither executed nor cancelled, in scheduling order
+     */
+    public List<DelayedAction> getPendingActions() {
+        return getAll();
+    }
+
+    /**
+     * Persist a new pending action
+     * @throws UncheckedIOException If the action could not be written
+     */
+    public void add(DelayedAction action) {
+        save(action);
+    }
+
+    /**
+     * Mark the action as done (executed or cancelled), so it is not recovered on the next startup
+     * @throws UncheckedIOException If the entry could not be written
+     */
+    public void remove(String actionId) {
+        delete(actionId);
+    }
+
+    @Override
+    protected String getId(DelayedAction action) {
+        return action.getId();
+    }
+
+}
@@ -0,0 +1,172 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of entities, stored as JSON lines in the data directory.
+ * Saving an entity appends a SCHEDULE entry, removing it appends a DONE entry.
+ * The log is replayed on startup, and rewritten with only the saved entities once it holds too many obsolete entries
+ * @param <T> The type of the stored entities
+ */
+abstract class JsonLinesStore<T> {
+
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final Class<T> type;
+    /** The name of the JSON field holding the entity in SCHEDULE entries */
+    private final String valueField;
+    private final Map<String, T> entities = new LinkedHashMap<>();
+    private int obsoleteEntries;
+    private BufferedWriter writer;
+
+    protected JsonLinesStore(String directory, String fileName, Class<T> type, String valueField) throws IOException {
+        Path directoryPath = Path.of(directory);
+        Files.createDirectories(directoryPath);
+        this.file = directoryPath.resolve(fileName);
+        this.type = type;
+        this.valueField = valueField;
+
+        if(Files.exists(file)) {
+            replay();
+        }
+        compact();
+    }
+
+    /**
+     * @return The id of the entity, unique in the store
+     */
+    protected abstract String getId(T entity);
+
+    /**
+     * @return The saved entities, in saving order
+     */
+    protected synchronized List<T> getAll() {
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Persist the entity, replacing the saved entity with the same id
+     * @throws UncheckedIOException If the entity could not be written
+     */
+    protected synchronized void save(T entity) {
+        String id = getId(entity);
+        write(Operation.SCHEDULE, id, entity);
+
+        if(entities.put(id, entity) != null) {
+            obsoleteEntries++;
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Remove the entity, so it is not recovered on the next startup
+     * @throws UncheckedIOException If the entry could not be written
+     */
+    protected synchronized void delete(String id) {
+        if(entities.remove(id) == null) {
+            return;
+        }
+
+        write(Operation.DONE, id, null);
+        obsoleteEntries += 2;
+        compactIfNeeded();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if(writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void replay() throws IOException {
+        for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            try {
+                JsonNode entry = MAPPER.readTree(line);
+                String id = entry.get("id").asText();
+
+                switch(Operation.valueOf(entry.get("op").asText())) {
+                    case SCHEDULE -> entities.put(id, MAPPER.treeToValue(entry.get(valueField), type));
+                    case DONE -> entities.remove(id);
+                }
+            } catch(JsonProcessingException | RuntimeException exception) {
+                // Partially written line, when the application stopped during a write
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        if(obsoleteEntries > COMPACTION_THRESHOLD && obsoleteEntries > entities.size()) {
+            try {
+                compact();
+            } catch(IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the log with only the saved entities. The file is replaced atomically
+     */
+    private void compact() throws IOException {
+        close();
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try(BufferedWriter temporaryWriter = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for(Map.Entry<String, T> entity : entities.entrySet()) {
+                temporaryWriter.write(toLine(Operation.SCHEDULE, entity.getKey(), entity.getValue()));
+                temporaryWriter.newLine();
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        obsoleteEntries = 0;
+    }
+
+    private void write(Operation operation, String id, T entity) {
+        try {
+            writer.write(toLine(operation, id, entity));
+            writer.newLine();
+            writer.flush();
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private String toLine(Operation operation, String id, T entity) throws JsonProcessingException {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.put("op", operation.name());
+        entry.put("id", id);
+        if(entity != null) {
+            entry.set(valueField, MAPPER.valueToTree(entity));
+        }
+
+        return MAPPER.writeValueAsString(entry);
+    }
+
+    enum Operation {
+        SCHEDULE, DONE
+    }
+
+}
@@ -0,0 +1,342 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.exceptions.SaejinaAppException;
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import fr.seynox.saejinaapp.services.DiscordService;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sends the scheduled messages, once or repeatedly, on the application's {@link TimerWheel}.
+ * Every message is persisted in the {@link ScheduledMessageStore}, and armed again once the bot is ready after a restart.
+ * Each send is delayed by a jitter that is stable per message, so the messages scheduled at the same time are spread out
+ */
+@Slf4j
+@Component
+public class MessageScheduler {
+
+    public static final int MAX_MESSAGES_PER_CHANNEL = 25;
+    /** The shortest interval allowed between two sends of a recurring message */
+    public static final Duration MIN_INTERVAL = Duration.ofMinutes(1);
+    /** The Discord errors cancelling a scheduled message. The other errors only skip one send */
+    private static final Set<ErrorResponse> REFUSALS = EnumSet.of(ErrorResponse.UNKNOWN_MEMBER, ErrorResponse.UNKNOWN_USER,
+            ErrorResponse.UNKNOWN_CHANNEL, ErrorResponse.UNKNOWN_GUILD, ErrorResponse.MISSING_ACCESS, ErrorResponse.MISSING_PERMISSIONS);
+
+    private final ScheduledMessageStore store;
+    private final TimerWheel wheel;
+    private final MemberAccessService accessService;
+    private final DiscordService discordService;
+    private final long maxJitterMillis;
+    private final Clock clock;
+    private final ConcurrentMap<String, ArmedMessage> armed = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * The services are lazy : they depend on JDA, which depends on this listener
+     */
+    @Autowired
+    public MessageScheduler(ScheduledMessageStore store, TimerWheel wheel, @Lazy MemberAccessService accessService, @Lazy DiscordService discordService, @Value("${saejina.schedules.jitter:60s}") Duration maxJitter) {
+        this(store, wheel, accessService, discordService, maxJitter, Clock.systemDefaultZone());
+    }
+
+    MessageScheduler(ScheduledMessageStore store, TimerWheel wheel, MemberAccessService accessService, DiscordService discordService, Duration maxJitter, Clock clock) {
+        this.store = store;
+        this.wheel = wheel;
+        this.accessService = accessService;
+        this.discordService = discordService;
+        this.maxJitterMillis = maxJitter.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Triggered when the bot is connected and its cache is loaded.
+     * Arms the messages scheduled before the restart. Overdue messages sent once are sent right away,
+     * the runs of recurring messages missed while the application was stopped are skipped
+     */
+    @SubscribeEvent
+    public synchronized void onReady(ReadyEvent event) {
+        for(ScheduledMessage message : store.getScheduledMessages()) {
+            if(!armed.containsKey(message.getId())) {
+                arm(message, clock.instant());
+            }
+        }
+
+        ready = true;
+        wheel.start();
+    }
+
+    /**
+     * Schedule a message sent once
+     * @param member The member scheduling the message. Their permissions are checked now, and again when the message is sent
+     * @param channel The channel to send the message to
+     * @param content The content of the message
+     * @param sendAt When to send the message
+     * @throws IllegalArgumentException If the send time is in the past
+     * @throws PermissionException If the member is not allowed to send this message
+     * @throws SaejinaAppException If the channel already has too many scheduled messages
+     * @return The scheduled message
+     */
+    public synchronized ScheduledMessage schedule(Member member, TextChannel channel, String content, Instant sendAt) {
+        if(sendAt.isBefore(clock.instant())) {
+            throw new IllegalArgumentException("The send time is in the past");
+        }
+
+        ScheduledMessage message = newMessage(member, channel, content);
+        message.setSendAt(sendAt.toEpochMilli());
+
+        return add(member, message);
+    }
+
+    /**
+     * Schedule a message sent repeatedly
+     * @param member The member scheduling the message. Their permissions are checked now, and again on each send
+     * @param channel The channel to send the message to
+     * @param content The content of the message
+     * @param cron When to send the message, as a cron expression (second minute hour day month weekday) in the application's time zone
+     * @throws IllegalArgumentException If the cron expression is invalid, never matches or matches more than once per {@link #MIN_INTERVAL}
+     * @throws PermissionException If the member is not allowed to send this message
+     * @throws SaejinaAppException If the channel already has too many scheduled messages
+     * @return The scheduled message
+     */
+    public synchronized ScheduledMessage scheduleRecurring(Member member, TextChannel channel, String content, String cron) {
+        ZoneId zone = clock.getZone();
+        CronExpression expression = CronExpression.parse(cron);
+
+        ZonedDateTime firstSend = expression.next(ZonedDateTime.now(clock));
+        ZonedDateTime secondSend = firstSend == null ? null : expression.next(firstSend);
+        if(secondSend == null) {
+            throw new IllegalArgumentException("The cron expression never matches more than once");
+        }
+        if(Duration.between(firstSend, secondSend).compareTo(MIN_INTERVAL) < 0) {
+            throw new IllegalArgumentException("A recurring message cannot be sent more than once per minute");
+        }
+
+        ScheduledMessage message = newMessage(member, channel, content);
+        message.setCron(cron);
+        message.setZoneId(zone.getId());
+
+        return add(member, message);
+    }
+
+    /**
+     * @return The messages scheduled in the channel, in scheduling order
+     */
+    public List<ScheduledMessage> getChannelMessages(long channelId) {
+        return store.getScheduledMessages().stream()
+                .filter(message -> message.getChannelId() == channelId)
+                .toList();
+    }
+
+    /**
+     * @return The next time the message will be sent, jitter included. Null if it is not armed (the bot is not ready, or it is being sent)
+     */
+    public Instant getNextSend(String messageId) {
+        ArmedMessage armedMessage = armed.get(messageId);
+        return armedMessage == null ? null : armedMessage.fireAt();
+    }
+
+    /**
+     * Cancel a scheduled message. Only its author, or a member allowed to manage the channel's messages, can cancel it
+     * @param member The member cancelling the message
+     * @param channel The channel of the message
+     * @param messageId The scheduled message to cancel
+     * @throws ResourceNotAccessibleException If the message is not scheduled in this channel
+     * @throws PermissionException If the member is not allowed to cancel the message
+     */
+    public synchronized void cancel(Member member, TextChannel channel, String messageId) {
+        ScheduledMessage message = getChannelMessages(channel.getIdLong()).stream()
+                .filter(scheduledMessage -> scheduledMessage.getId().equals(messageId))
+                .findFirst()
+                .orElseThrow(ResourceNotAccessibleException::new);
+
+        boolean isAuthor = message.getAuthorId() == member.getIdLong();
+        if(!isAuthor && !member.hasPermission(channel, Permission.MESSAGE_MANAGE)) {
+            throw new PermissionException("You do not have the permission to cancel this message");
+        }
+
+        remove(messageId);
+    }
+
+    private ScheduledMessage newMessage(Member member, TextChannel channel, String content) {
+        ScheduledMessage message = new ScheduledMessage();
+        message.setId(UUID.randomUUID().toString());
+        message.setGuildId(channel.getGuild().getIdLong());
+        message.setChannelId(channel.getIdLong());
+        message.setAuthorId(member.getIdLong());
+        message.setContent(content);
+
+        return message;
+    }
+
+    private ScheduledMessage add(Member member, ScheduledMessage message) {
+        discordService.checkMessagePermissions(member, message.getContent());
+
+        if(getChannelMessages(message.getChannelId()).size() >= MAX_MESSAGES_PER_CHANNEL) {
+            throw new SaejinaAppException("This channel already has %s scheduled messages".formatted(MAX_MESSAGES_PER_CHANNEL));
+        }
+
+        store.add(message);
+        if(ready) {
+            arm(message, clock.instant());
+        }
+
+        return message;
+    }
+
+    private synchronized void remove(String messageId) {
+        ArmedMessage armedMessage = armed.remove(messageId);
+        if(armedMessage != null) {
+            wheel.cancel(armedMessage.timeout());
+        }
+
+        store.remove(messageId);
+    }
+
+    /**
+     * Arm the message for its next send after the given time
+     */
+    private void arm(ScheduledMessage message, Instant after) {
+        Instant sendAt = getNextSend(message, after);
+        if(sendAt == null) {
+            // The cron expression does not match anymore
+            store.remove(message.getId());
+            return;
+        }
+
+        arm(message, sendAt, sendAt.plusMillis(getJitter(message)));
+    }
+
+    private void arm(ScheduledMessage message, Instant sendAt, Instant fireAt) {
+        Duration delay = Duration.between(clock.instant(), fireAt);
+        TimerWheel.Timeout timeout = wheel.schedule(() -> fire(message.getId()), delay);
+        armed.put(message.getId(), new ArmedMessage(message, timeout, sendAt, fireAt));
+    }
+
+    private static Instant getNextSend(ScheduledMessage message, Instant after) {
+        if(!message.isRecurring()) {
+            return Instant.ofEpochMilli(message.getSendAt());
+        }
+
+        ZonedDateTime zonedAfter = after.atZone(ZoneId.of(message.getZoneId()));
+        ZonedDateTime next = CronExpression.parse(message.getCron()).next(zonedAfter);
+
+        return next == null ? null : next.toInstant();
+    }
+
+    /**
+     * @return A delay in [0, max jitter), always the same for a given message
+     */
+    private long getJitter(ScheduledMessage message) {
+        if(maxJitterMillis <= 0) {
+            return 0;
+        }
+
+        return Math.floorMod(message.getId().hashCode(), maxJitterMillis);
+    }
+
+    /**
+     * Runs on the timer wheel thread : the Discord requests are queued, not awaited
+     */
+    void fire(String messageId) {
+        ScheduledMessage message;
+        synchronized(this) {
+            ArmedMessage armedMessage = armed.remove(messageId);
+            if(armedMessage == null) {
+                // Cancelled while the wheel was running it
+                return;
+            }
+
+            message = armedMessage.message();
+            Instant now = clock.instant();
+            if(now.isBefore(armedMessage.fireAt())) {
+                // The wheel counts elapsed time, the wall clock was set back since the message was armed
+                arm(message, armedMessage.sendAt(), armedMessage.fireAt());
+                return;
+            }
+
+            if(message.isRecurring()) {
+                Instant after = now.isAfter(armedMessage.sendAt()) ? now : armedMessage.sendAt();
+                arm(message, after);
+            } else {
+                // Forgotten before sending : a restart during the send must not send the message twice
+                store.remove(messageId);
+            }
+        }
+
+        send(message);
+    }
+
+    /**
+     * Send the message as its author, so the channel access and mention permissions are checked again
+     */
+    private void send(ScheduledMessage message) {
+        String authorId = Long.toString(message.getAuthorId());
+
+        accessService.getServerMemberAsync(authorId, message.getGuildId())
+                .thenCompose(author -> {
+                    TextChannel channel = accessService.getWritableServerTextChannel(author, message.getChannelId());
+                    return discordService.sendMessageInChannel(author, channel, message.getContent()).getResult();
+                })
+                .whenComplete((sentMessage, error) -> {
+                    if(error != null) {
+                        onSendFailure(message, error);
+                    }
+                });
+    }
+
+    private void onSendFailure(ScheduledMessage message, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+
+        if(isRefusal(cause)) {
+            // The author left, or lost access to the channel : the next sends would fail too
+            log.warn("Scheduled message {} was cancelled : {}", message.getId(), cause.getMessage());
+            remove(message.getId());
+        } else {
+            // Discord may be unavailable for a while : the message is kept for its next send
+            log.warn("Scheduled message {} could not be sent", message.getId(), cause);
+        }
+    }
+
+    /**
+     * @return True if the error is a definitive refusal : unknown author, channel or server, or missing access or permission
+     */
+    private static boolean isRefusal(Throwable error) {
+        if(error instanceof SaejinaAppException || error instanceof net.dv8tion.jda.api.exceptions.PermissionException) {
+            return true;
+        }
+
+        return error instanceof ErrorResponseException responseException
+                && REFUSALS.contains(responseException.getErrorResponse());
+    }
+
+    private record ArmedMessage(ScheduledMessage message, TimerWheel.Timeout timeout, Instant sendAt, Instant fireAt) {}
+
+}
@@ -0,0 +1,51 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Append-only log of the scheduled messages, stored as JSON lines in the data directory (See {@link JsonLinesStore})
+ */
+@Component
+public class ScheduledMessageStore extends JsonLinesStore<ScheduledMessage> {
+
+    static final String FILE_NAME = "scheduled-messages.jsonl";
+
+    public ScheduledMessageStore(@Value("${saejina.data.directory:data}") String directory) throws IOException {
+        super(directory, FILE_NAME, ScheduledMessage.class, "message");
+    }
+
+    /**
+     * @return The messages that are still scheduled, in scheduling order
+     */
+    public List<ScheduledMessage> getScheduledMessages() {
+        return getAll();
+    }
+
+    /**
+     * Persist a new scheduled message
+     * @throws UncheckedIOException If the message could not be written
+     */
+    public void add(ScheduledMessage message) {
+        save(message);
+    }
+
+    /**
+     * Forget the scheduled message (sent once, or cancelled), so it is not recovered on the next startup
+     * @throws UncheckedIOException If the entry could not be written
+     */
+    public void remove(String messageId) {
+        delete(messageId);
+    }
+
+    @Override
+    protected String getId(ScheduledMessage message) {
+        return message.getId();
+    }
+
+}
@@ -0,0 +1,285 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Hierarchical timer wheel. Scheduling and cancelling a timer are O(1), and a single thread drives every timer.
+ * Four levels of 64 slots are used : a timer is placed in the level matching its distance,
+ * and moved down one level ("cascaded") each time the lower level completes a turn.
+ * With a 100ms tick, the levels cover 6.4s, 6.8min, 7.3h and 19.4 days. Further timers are parked in the last level until they get closer.
+ * Tasks run on the wheel thread, so they must not block
+ */
+@Slf4j
+public class TimerWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+
+    /** The next tick to process */
+    private long currentTick;
+    private int size;
+    private ScheduledExecutorService ticker;
+
+    public TimerWheel(Duration tickDuration) {
+        this(tickDuration, System::nanoTime);
+    }
+
+    TimerWheel(Duration tickDuration, LongSupplier nanoClock) {
+        this.tickNanos = tickDuration.toNanos();
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+
+        for(Bucket[] wheel : wheels) {
+            for(int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheel[slot] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Start the thread running the expired timers. Timers can be scheduled before the wheel is started
+     */
+    public synchronized void start() {
+        if(ticker != null) {
+            return;
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timer-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop the wheel thread. Pending timers are kept, but will not run
+     */
+    public synchronized void stop() {
+        if(ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Run the task once the delay is elapsed. The delay is rounded up to the next tick
+     * @param task The task to run. It runs on the wheel thread, so it must not block
+     * @param delay The time to wait before running the task. Negative delays run the task on the next tick
+     * @return The timeout, used to cancel the task
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        long deadline = nanoClock.getAsLong() + Math.max(delay.toNanos(), 0L) - startNanos;
+        long expiryTick = (deadline + tickNanos - 1) / tickNanos;
+
+        Timeout timeout = new Timeout(task, expiryTick);
+        synchronized(this) {
+            add(timeout);
+            size++;
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Cancel the timeout, if it did not run yet
+     * @return True if the timeout was cancelled, false if it already ran or was already cancelled
+     */
+    public synchronized boolean cancel(Timeout timeout) {
+        if(timeout.bucket == null) {
+            return false;
+        }
+
+        timeout.bucket.remove(timeout);
+        timeout.cancelled = true;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return The number of timers waiting to run
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Process all the ticks elapsed since the last call, and run the expired tasks
+     */
+    void advance() {
+        List<Timeout> expired = new ArrayList<>();
+
+        synchronized(this) {
+            long elapsedTick = (nanoClock.getAsLong() - startNanos) / tickNanos;
+            while(currentTick <= elapsedTick) {
+                processTick(expired);
+            }
+            size -= expired.size();
+        }
+
+        for(Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch(RuntimeException exception) {
+                // A failing task must not stop the other timers
+                log.error("A scheduled task failed", exception);
+            }
+        }
+    }
+
+    private void processTick(List<Timeout> expired) {
+        int slot = (int) (currentTick & WHEEL_MASK);
+
+        // When the first level completes a turn, the timers of the next slot of the upper level are moved down
+        if(slot == 0) {
+            for(int level = 1; level < LEVELS; level++) {
+                int levelSlot = (int) ((currentTick >> (level * WHEEL_BITS)) & WHEEL_MASK);
+                cascade(level, levelSlot);
+                if(levelSlot != 0) {
+                    break;
+                }
+            }
+        }
+
+        long processedTick = currentTick;
+        currentTick++;
+
+        Timeout timeout = wheels[0][slot].clear();
+        while(timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.previous = null;
+
+            if(timeout.expiryTick <= processedTick) {
+                expired.add(timeout);
+            } else {
+                add(timeout);
+            }
+
+            timeout = next;
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout timeout = wheels[level][slot].clear();
+        while(timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.previous = null;
+            add(timeout);
+            timeout = next;
+        }
+    }
+
+    private void add(Timeout timeout) {
+        long expiryTick = timeout.expiryTick;
+        long distance = expiryTick - currentTick;
+
+        Bucket bucket;
+        if(distance < 0) {
+            bucket = wheels[0][(int) (currentTick & WHEEL_MASK)];
+        } else if(distance < WHEEL_SIZE) {
+            bucket = wheels[0][(int) (expiryTick & WHEEL_MASK)];
+        } else {
+            if(distance > MAX_TICKS) {
+                // Parked in the last level, and placed again once cascaded
+                expiryTick = currentTick + MAX_TICKS;
+                distance = MAX_TICKS;
+            }
+
+            int level = (63 - Long.numberOfLeadingZeros(distance)) / WHEEL_BITS;
+            bucket = wheels[level][(int) ((expiryTick >> (level * WHEEL_BITS)) & WHEEL_MASK)];
+        }
+
+        bucket.add(timeout);
+    }
+
+    /**
+     * A task scheduled in the wheel
+     */
+    public static class Timeout {
+
+        private final Runnable task;
+        private final long expiryTick;
+
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long expiryTick) {
+            this.task = task;
+            this.expiryTick = expiryTick;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, so a timeout can be removed without searching it
+     */
+    private static class Bucket {
+
+        private Timeout head;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.next = head;
+            if(head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if(timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if(timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empty the bucket
+         * @return The first timeout of the removed list
+         */
+        private Timeout clear() {
+            Timeout first = head;
+            head = null;
+
+            Timeout timeout = first;
+            while(timeout != null) {
+                timeout.bucket = null;
+                timeout = timeout.next;
+            }
+
+            return first;
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package fr.seynox.saejinaapp.services;
+
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.exceptions.SaejinaAppException;
+import fr.seynox.saejinaapp.models.BroadcastChannelStatus;
+import fr.seynox.saejinaapp.models.BroadcastProgress;
+import fr.seynox.saejinaapp.models.BroadcastState;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a message to several channels of a server.
+ * At most saejina.broadcast.concurrency messages are waiting for Discord at the same time : each answer starts the next send,
+ * so no thread is blocked, whatever the number of channels. The sends go through the outbound queue, like single messages.
+ * The progress of the latest broadcasts is kept in memory
+ */
+@Service
+public class BroadcastService {
+
+    private static final int MAX_KEPT_BROADCASTS = 100;
+
+    private final MemberAccessService accessService;
+    private final DiscordService discordService;
+    private final int concurrency;
+
+    private final Map<String, Broadcast> broadcasts = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Broadcast> eldest) {
+            return size() > MAX_KEPT_BROADCASTS;
+        }
+    });
+
+    public BroadcastService(MemberAccessService accessService, DiscordService discordService,
+                            @Value("${saejina.broadcast.concurrency:5}") int concurrency) {
+        this.accessService = accessService;
+        this.discordService = discordService;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Start sending the message to the channels, without waiting for the sends.
+     * Each channel is checked like a single message : the channels that are not writable for the member/bot are reported as failed
+     * @param member The member sending the message
+     * @param channelIds The channels to send the message to. Duplicates are ignored
+     * @param content The content of the message
+     * @return The id of the broadcast, used to get its progress
+     */
+    public String startBroadcast(Member member, List<Long> channelIds, String content) {
+        String id = UUID.randomUUID().toString();
+        Set<Long> uniqueChannelIds = new LinkedHashSet<>(channelIds);
+        Broadcast broadcast = new Broadcast(id, member, content, uniqueChannelIds.size());
+
+        for(Long channelId : uniqueChannelIds) {
+            try {
+                TextChannel channel = accessService.getWritableServerTextChannel(member, channelId);
+                broadcast.addTarget(channel);
+            } catch(SaejinaAppException exception) {
+                broadcast.addRejected(channelId, exception.getMessage());
+            }
+        }
+
+        broadcasts.put(id, broadcast);
+
+        int workers = Math.min(concurrency, broadcast.targets.size());
+        for(int worker = 0; worker < workers; worker++) {
+            sendNext(broadcast);
+        }
+
+        return id;
+    }
+
+    /**
+     * Follow a message that is already submitted, like a broadcast to a single channel.
+     * Used when the message waits behind other messages, so its outcome can still be shown to the member
+     * @param member The member sending the message
+     * @param channel The channel the message is sent to
+     * @param request The submitted message
+     * @return The id of the broadcast, used to get its progress
+     */
+    public String trackMessage(Member member, TextChannel channel, OutboundRequest<Message> request) {
+        String id = UUID.randomUUID().toString();
+        Broadcast broadcast = new Broadcast(id, member, null, 1);
+        broadcast.addTarget(channel);
+        if(request.isQueued()) {
+            broadcast.markQueued(0);
+        }
+
+        broadcasts.put(id, broadcast);
+        request.getResult().whenComplete((message, error) -> broadcast.complete(0, error));
+
+        return id;
+    }
+
+    /**
+     * Get the progress of a broadcast started by the member
+     * @param member The member who started the broadcast
+     * @param broadcastId The broadcast
+     * @throws ResourceNotAccessibleException If the broadcast does not exist anymore, or was started by someone else
+     * @return A snapshot of the broadcast
+     */
+    public BroadcastProgress getProgress(Member member, String broadcastId) {
+        Broadcast broadcast = broadcasts.get(broadcastId);
+        boolean isAccessible = broadcast != null
+                && broadcast.member.getIdLong() == member.getIdLong()
+                && broadcast.member.getGuild().getIdLong() == member.getGuild().getIdLong();
+        if(!isAccessible) {
+            throw new ResourceNotAccessibleException("The broadcast does not exist, or is not accessible to the user");
+        }
+
+        return broadcast.getProgress();
+    }
+
+    /**
+     * Send the message to the next channel of the broadcast, until the broadcast is done.
+     * Sends that fail right away are handled in the loop, so a broadcast to hundreds of channels does not recurse
+     */
+    private void sendNext(Broadcast broadcast) {
+        while(true) {
+            int targetIndex = broadcast.nextTarget.getAndIncrement();
+            if(targetIndex >= broadcast.targets.size()) {
+                return;
+            }
+
+            Target target = broadcast.targets.get(targetIndex);
+            CompletableFuture<Message> sent;
+            try {
+                OutboundRequest<Message> request = discordService.sendMessageInChannel(broadcast.member, target.channel(), broadcast.content);
+                if(request.isQueued()) {
+                    broadcast.markQueued(target.statusIndex());
+                }
+                sent = request.getResult();
+            } catch(RuntimeException exception) {
+                sent = CompletableFuture.failedFuture(exception);
+            }
+
+            if(!sent.isDone()) {
+                sent.whenComplete((message, error) -> {
+                    broadcast.complete(target.statusIndex(), error);
+                    sendNext(broadcast);
+                });
+                return;
+            }
+
+            sent.whenComplete((message, error) -> broadcast.complete(target.statusIndex(), error));
+        }
+    }
+
+    private record Target(int statusIndex, TextChannel channel) {}
+
+    private static class Broadcast {
+
+        private final String id;
+        private final Member member;
+        private final String content;
+        private final List<Target> targets = new ArrayList<>();
+        private final AtomicInteger nextTarget = new AtomicInteger();
+
+        /** Guarded by this */
+        private final List<BroadcastChannelStatus> statuses;
+        private int sent;
+        private int failed;
+
+        private Broadcast(String id, Member member, String content, int channelCount) {
+            this.id = id;
+            this.member = member;
+            this.content = content;
+            this.statuses = new ArrayList<>(channelCount);
+        }
+
+        private synchronized void addTarget(TextChannel channel) {
+            targets.add(new Target(statuses.size(), channel));
+            statuses.add(new BroadcastChannelStatus(channel.getId(), channel.getName(), BroadcastState.PENDING, null));
+        }
+
+        private synchronized void addRejected(long channelId, String reason) {
+            statuses.add(new BroadcastChannelStatus(Long.toUnsignedString(channelId), null, BroadcastState.FAILED, reason));
+            failed++;
+        }
+
+        private synchronized void markQueued(int statusIndex) {
+            BroadcastChannelStatus status = statuses.get(statusIndex);
+            // The answer may already be there
+            if(status.getState() == BroadcastState.PENDING) {
+                status.setState(BroadcastState.QUEUED);
+            }
+        }
+
+        private synchronized void update(int statusIndex, BroadcastState state, String error) {
+            BroadcastChannelStatus status = statuses.get(statusIndex);
+            status.setState(state);
+            status.setError(error);
+        }
+
+        private synchronized void complete(int statusIndex, Throwable error) {
+            if(error == null) {
+                update(statusIndex, BroadcastState.SENT, null);
+                sent++;
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            update(statusIndex, BroadcastState.FAILED, cause.getMessage());
+            failed++;
+        }
+
+        private synchronized BroadcastProgress getProgress() {
+            List<BroadcastChannelStatus> channels = statuses.stream()
+                    .map(status -> new BroadcastChannelStatus(status.getChannelId(), status.getChannelName(), status.getState(), status.getError()))
+                    .toList();
+
+            return new BroadcastProgress(id, statuses.size(), sent, failed, sent + failed == statuses.size(), channels);
+        }
+    }
+
+}
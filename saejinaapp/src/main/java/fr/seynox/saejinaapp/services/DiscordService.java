@@ -1,16 +1,27 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.MemberNameIndex;
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.caches.UserGuildIndex;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.models.SelectablePage;
 import fr.seynox.saejinaapp.models.TextChannelAction;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import fr.seynox.saejinaapp.utils.MentionScanner;
+import fr.seynox.saejinaapp.utils.MentionScanner.Mentions;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.utils.MiscUtil;
 import org.springframework.stereotype.Service;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
 
 import static net.dv8tion.jda.api.entities.Message.MentionType.EVERYONE;
 import static net.dv8tion.jda.api.entities.Message.MentionType.HERE;
@@ -19,22 +30,30 @@ import static net.dv8tion.jda.api.entities.Message.MentionType.HERE;
 public class DiscordService {
 
     private final JDA jda;
+    private final UserGuildIndex guildIndex;
+    private final MemberNameIndex nameIndex;
+    private final RoleListCache roleListCache;
+    private final OutboundQueue outboundQueue;
 
-    public DiscordService(JDA jda) {
+    public DiscordService(JDA jda, UserGuildIndex guildIndex, MemberNameIndex nameIndex, RoleListCache roleListCache, OutboundQueue outboundQueue) {
         this.jda = jda;
+        this.guildIndex = guildIndex;
+        this.nameIndex = nameIndex;
+        this.roleListCache = roleListCache;
+        this.outboundQueue = outboundQueue;
     }
 
     /**
-     * Get all mutual servers for the given user
-     * @return An empty list if the user is null
+     * Get all mutual servers for the given user.
+     * Uses {@link UserGuildIndex}, so this never calls the Discord API
+     * @return An empty list if the user does not share any server with the bot
      */
     public List<Selectable> getUserServers(String userId) {
-        User user = jda.retrieveUserById(userId).complete();
-        if(user == null) {
-            return List.of();
-        }
+        long[] guildIds = guildIndex.getGuildIds(MiscUtil.parseSnowflake(userId));
 
-        return user.getMutualGuilds().stream()
+        return Arrays.stream(guildIds)
+                .mapToObj(jda::getGuildById)
+                .filter(Objects::nonNull)
                 .map(guild -> (Selectable) new SelectableImpl(guild.getIdLong(),guild.getIconUrl(), guild.getName()))
                 .toList();
     }
@@ -53,30 +72,83 @@ public class DiscordService {
 
     /**
      * Send a message in the given channel.
+     * Only the mentions written in the message can ping : @everyone/@here and non-mentionable roles need the member to have the permission to mention everyone.
+     * Non-mentionable roles mentioned without that permission are displayed without pinging.
      * WARNING ! This method does not check if the channel is writable for the bot/user, nor the length of the message
      * @param member The member sending the message
      * @param channel The channel to send the message to
      * @param content The content of the message
      * @throws PermissionException If the member is trying to send an @everyone without the required permission
+     * @return The request sending the message, queued behind the other messages of the channel
      */
-    public void sendMessageInChannel(Member member, TextChannel channel, String content) {
+    public OutboundRequest<Message> sendMessageInChannel(Member member, TextChannel channel, String content) {
+        Mentions mentions = MentionScanner.scan(content);
+        checkEveryoneMentionPermission(member, mentions);
+
+        EnumSet<Message.MentionType> allowedTypes = EnumSet.noneOf(Message.MentionType.class);
+        if(mentions.mentionsEveryone()) {
+            allowedTypes.add(EVERYONE);
+        }
+        if(mentions.mentionsHere()) {
+            allowedTypes.add(HERE);
+        }
+
+        long[] allowedRoleIds = getAllowedRoleMentions(member, channel.getGuild(), mentions.getRoleIds());
 
-        boolean mentionsEveryone = EVERYONE.getPattern()
-                .matcher(content)
-                .find();
+        String bucket = OutboundQueue.channelBucket(channel.getIdLong());
+        return outboundQueue.submit(bucket, () -> channel.sendMessage(content)
+                .allowedMentions(allowedTypes)
+                .mentionUsers(mentions.getUserIds())
+                .mentionRoles(allowedRoleIds));
+    }
 
-        boolean mentionsHere = HERE.getPattern()
-                .matcher(content)
-                .find();
+    /**
+     * Check that the member is allowed to send the message, without sending it (e.g. before scheduling it)
+     * @param member The member who will send the message
+     * @param content The content of the message
+     * @throws PermissionException If the member is trying to send an @everyone without the required permission
+     */
+    public void checkMessagePermissions(Member member, String content) {
+        checkEveryoneMentionPermission(member, MentionScanner.scan(content));
+    }
 
-        if(mentionsEveryone || mentionsHere) {
+    private static void checkEveryoneMentionPermission(Member member, Mentions mentions) {
+        if(mentions.mentionsEveryone() || mentions.mentionsHere()) {
             boolean canMentionEveryone = member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
             if(!canMentionEveryone)  {
                 throw new PermissionException("You do not have the permission to mention everyone");
             }
         }
+    }
+
+    /**
+     * Filter the role mentions the member is allowed to ping
+     * @param roleIds The roles mentioned in the message
+     * @return The mentionable roles, and the other ones if the member can mention everyone
+     */
+    private static long[] getAllowedRoleMentions(Member member, Guild guild, long[] roleIds) {
+        if(roleIds.length == 0) {
+            return roleIds;
+        }
+
+        Boolean canMentionEveryone = null;
+        long[] allowedRoleIds = new long[roleIds.length];
+        int allowedCount = 0;
+        for(long roleId : roleIds) {
+            Role role = guild.getRoleById(roleId);
+            if(role == null) {
+                continue;
+            }
+
+            if(!role.isMentionable() && canMentionEveryone == null) {
+                canMentionEveryone = member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
+            }
+            if(role.isMentionable() || canMentionEveryone) {
+                allowedRoleIds[allowedCount++] = roleId;
+            }
+        }
 
-        channel.sendMessage(content).queue();
+        return Arrays.copyOf(allowedRoleIds, allowedCount);
     }
 
     /**
@@ -84,18 +156,15 @@ public class DiscordService {
      * @return A list of Selectable containing the role name and its mention as id
      */
     public List<Selectable> getMentionableRoles(Guild guild) {
-        return guild.getRoles().stream()
-                .filter(Role::isMentionable)
-                .map(role -> (Selectable) new SelectableImpl(role.getAsMention(), role.getName()))
-                .toList();
+        return roleListCache.getMentionableRoles(guild);
     }
     /**
-     * Get all mentionable members in guild
-     * @return A list of Selectable containing the username and its mention as id
+     * Search the mentionable members in guild, by the start of their name
+     * @param query The start of the member's name
+     * @param page The index of the page to get, starting at 0
+     * @return A page of Selectable containing the username and its mention as id
      */
-    public List<Selectable> getMentionableUsers(Guild guild) {
-        return guild.getMembers().stream()
-                .map(user -> (Selectable) new SelectableImpl(user.getAsMention(), user.getEffectiveName()))
-                .toList();
+    public SelectablePage searchMentionableUsers(Guild guild, String query, int page) {
+        return nameIndex.search(guild, query, page);
     }
 }
@@ -1,45 +1,74 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.ChannelVisibilityIndex;
+import fr.seynox.saejinaapp.caches.MemberCache;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
-import fr.seynox.saejinaapp.models.SelectableImpl;
 import fr.seynox.saejinaapp.models.Selectable;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.utils.MiscUtil;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class MemberAccessService {
 
     private final JDA jda;
+    private final MemberCache memberCache;
+    private final ChannelVisibilityIndex visibilityIndex;
 
-    public MemberAccessService(JDA jda) {
+    public MemberAccessService(JDA jda, MemberCache memberCache, ChannelVisibilityIndex visibilityIndex) {
         this.jda = jda;
+        this.memberCache = memberCache;
+        this.visibilityIndex = visibilityIndex;
     }
 
     /**
-     * Get the user as member of the given server
+     * Get the user as member of the given server, without blocking the calling thread.
+     * The member is only retrieved from Discord if it is not in the {@link MemberCache}.
+     * The returned future is already completed when the member is cached
      * @param userId The user to get as a member
-     * @throws ResourceNotAccessibleException If the bot/user does not have access to the server
+     * @return A future completed with the member, or completed exceptionally with a {@link ResourceNotAccessibleException}
+     * if the bot/user does not have access to the server. Other Discord errors (server errors, outages) are passed as they are
      */
-    public Member getServerMember(String userId, Long serverId) {
+    public CompletableFuture<Member> getServerMemberAsync(String userId, Long serverId) {
 
         Guild server = jda.getGuildById(serverId);
-        if(server != null) {
+        if(server == null && jda.isUnavailable(serverId)) {
+            // Discord outage : the server will come back
+            return CompletableFuture.failedFuture(new IllegalStateException("The server %s is temporarily unavailable".formatted(serverId)));
+        } else if(server == null) {
+            return CompletableFuture.failedFuture(new ResourceNotAccessibleException());
+        }
 
-            Member member = server.retrieveMemberById(userId).complete();
-            if(member != null) {
-                return member;
-            }
+        long userIdLong = MiscUtil.parseSnowflake(userId);
+        Member cachedMember = memberCache.get(serverId, userIdLong);
+        if(cachedMember != null) {
+            return CompletableFuture.completedFuture(cachedMember);
         }
 
-        throw new ResourceNotAccessibleException();
+        return server.retrieveMemberById(userId).submit().handle((member, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if(isUnknownMember(cause) || (cause == null && member == null)) {
+                throw new ResourceNotAccessibleException();
+            }
+            if(cause != null) {
+                throw new CompletionException(cause);
+            }
+
+            memberCache.put(serverId, userIdLong, member);
+            return member;
+        });
     }
 
     /**
@@ -63,15 +92,27 @@ public class MemberAccessService {
     }
 
     /**
-     * Get all server text channels that are accessible to the given user
+     * Get all server text channels that are accessible to the given user.
+     * Uses the {@link ChannelVisibilityIndex}, so permissions are only resolved once per role combination
      * @return A list of text channels visible to the user
      */
     public List<Selectable> getServerTextChannels(@NonNull Member member) {
-        Guild server = member.getGuild();
+        return visibilityIndex.getVisibleChannels(member);
+    }
 
-        return server.getTextChannels().stream()
-                .filter(member::hasAccess)
-                .map(channel -> (Selectable) new SelectableImpl(channel.getIdLong(), channel.getName()))
+    /**
+     * Get all server text channels that are writable to both the given user and the bot.
+     * Only the channels visible to the user (See {@link ChannelVisibilityIndex}) are checked
+     * @return A list of text channels the user can send messages to, in the server order
+     */
+    public List<Selectable> getWritableServerTextChannels(@NonNull Member member) {
+        Guild guild = member.getGuild();
+
+        return visibilityIndex.getVisibleChannels(member).stream()
+                .filter(selectable -> {
+                    TextChannel channel = guild.getTextChannelById(((Number) selectable.getId()).longValue());
+                    return channel != null && channel.canTalk(member) && channel.canTalk();
+                })
                 .toList();
     }
 
@@ -120,4 +161,10 @@ public class MemberAccessService {
 
         return role;
     }
+
+    private static boolean isUnknownMember(Throwable error) {
+        return error instanceof ErrorResponseException responseException
+                && (responseException.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER || responseException.getErrorResponse() == ErrorResponse.UNKNOWN_USER);
+    }
+
 }
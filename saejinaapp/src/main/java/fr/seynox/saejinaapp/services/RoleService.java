@@ -1,47 +1,72 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.caches.RoleMemberCounter;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.models.Selectable;
-import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.outbound.RoleChangeBatcher;
 import fr.seynox.saejinaapp.utils.ButtonUtils;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.seynox.saejinaapp.models.TextChannelAction.SEND_ROLE_BUTTON;
 
 @Service
 public class RoleService {
 
-    public static final String ROLE_ASSIGNMENT_TEMPLATE = "role-assign#%s";
+    public static final String ROLE_ASSIGNMENT_PREFIX = "role-assign";
+    public static final String ROLE_ASSIGNMENT_TEMPLATE = ROLE_ASSIGNMENT_PREFIX + "#%s";
 
     private final ButtonUtils buttonUtils;
+    private final RoleListCache roleListCache;
+    private final RoleMemberCounter roleMemberCounter;
+    private final RoleChangeBatcher roleChangeBatcher;
 
-    public RoleService(ButtonUtils buttonUtils) {
+    public RoleService(ButtonUtils buttonUtils, RoleListCache roleListCache, RoleMemberCounter roleMemberCounter, RoleChangeBatcher roleChangeBatcher) {
         this.buttonUtils = buttonUtils;
+        this.roleListCache = roleListCache;
+        this.roleMemberCounter = roleMemberCounter;
+        this.roleChangeBatcher = roleChangeBatcher;
     }
 
     /**
-     * Get all the roles that the member can assign
+     * Get all the roles that the member can assign.
+     * The list is shared with the members having the same highest role (See {@link RoleListCache})
      * @param member The member getting the roles
      * @return A list of assignable roles
      */
     public List<Selectable> getAssignableRolesForMember(Member member) {
-        Guild guild = member.getGuild();
+        return roleListCache.getAssignableRoles(member);
+    }
 
-        return guild.getRoles().stream()
-                .filter(member::canInteract)
-                .filter(role -> !role.isPublicRole())
-                .map(role -> new SelectableImpl(role.getIdLong(), role.getName()))
-                .map(Selectable.class::cast)
-                .toList();
+    /**
+     * Get the number of members holding each role, from the live counters (See {@link RoleMemberCounter})
+     * @param guild The server of the roles
+     * @param roles The roles to count, as listed by {@link RoleService#getAssignableRolesForMember(Member)}
+     * @return The number of members by role id, in the order of the roles
+     */
+    public Map<Long, Long> getRoleMemberCounts(Guild guild, List<Selectable> roles) {
+        long guildId = guild.getIdLong();
+
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for(Selectable role : roles) {
+            Long roleId = (Long) role.getId();
+            counts.put(roleId, roleMemberCounter.getMemberCount(guildId, roleId));
+        }
+
+        return counts;
     }
 
     /**
@@ -51,8 +76,9 @@ public class RoleService {
      * @param channel The channel to send the button to
      * @param role The role that the button should assign
      * @throws PermissionException If the member does not have the permission to send role buttons
+     * @return A future completed once the button is sent
      */
-    public void sendRoleButtonInChannel(Member member, TextChannel channel, Role role) {
+    public CompletableFuture<Message> sendRoleButtonInChannel(Member member, TextChannel channel, Role role) {
         boolean isAllowed = SEND_ROLE_BUTTON.isAllowed(member, channel);
         if(!isAllowed) {
             throw new PermissionException("You do not have the permission to send role buttons");
@@ -63,15 +89,39 @@ public class RoleService {
         String roleName = role.getName();
         Button roleButton = Button.of(ButtonStyle.SECONDARY, roleButtonId, roleName);
 
-        buttonUtils.sendOrAppendButton(channel, roleButton);
+        return buttonUtils.sendOrAppendButton(channel, roleButton);
     }
 
     /**
-     * Adds the given role to the member. Removes it if the member already have it
+     * Send a panel of buttons, each giving its role to the member that clicked it.
+     * The buttons are sent in as few new messages as possible, each message being sent once.
+     * WARNING ! This does not check if the member has the permission to assign the given roles
+     * @param member The member sending the buttons
+     * @param channel The channel to send the buttons to
+     * @param roles The roles that the buttons should assign, in the order of the buttons
+     * @throws PermissionException If the member does not have the permission to send role buttons
+     * @return A future completed with the messages holding the buttons, once they are all sent
+     */
+    public CompletableFuture<List<Message>> sendRolePanelInChannel(Member member, TextChannel channel, List<Role> roles) {
+        boolean isAllowed = SEND_ROLE_BUTTON.isAllowed(member, channel);
+        if(!isAllowed) {
+            throw new PermissionException("You do not have the permission to send role buttons");
+        }
+
+        List<Button> roleButtons = roles.stream()
+                .map(role -> Button.of(ButtonStyle.SECONDARY, ROLE_ASSIGNMENT_TEMPLATE.formatted(role.getIdLong()), role.getName()))
+                .toList();
+
+        return buttonUtils.sendButtons(channel, roleButtons);
+    }
+
+    /**
+     * Adds the given role to the member. Removes it if the member already have it.
+     * The role update is sent after a short delay, merged with the other toggles of the member (See {@link RoleChangeBatcher})
      * @param member The member affected
      * @param roleId The role to toggle
      * @throws DiscordInteractionException If the member or role is null
-     * @return True if the role was added, false if it was removed
+     * @return True if the role will be added, false if it will be removed
      */
     public boolean toggleRoleForMember(Member member, Long roleId) throws DiscordInteractionException {
         if(member == null) {
@@ -84,16 +134,7 @@ public class RoleService {
             throw new DiscordInteractionException("Error ! The role you're trying to assign does not exist anymore");
         }
 
-        boolean alreadyHasRole = member.getRoles().stream()
-                .anyMatch(memberRole -> memberRole.getIdLong() == roleId);
-
-        if(alreadyHasRole) {
-            guild.removeRoleFromMember(member, role).queue();
-        } else {
-            guild.addRoleToMember(member, role).queue();
-        }
-
-        return !alreadyHasRole;
+        return roleChangeBatcher.toggleRole(member, role);
     }
 
 }
@@ -0,0 +1,128 @@
+package fr.seynox.saejinaapp.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numbers the tickets of each server, without ever giving the same number twice.
+ * The counters are kept in memory and saved in the data directory, at most once per flush delay.
+ * A server's counter starts after its highest ticket channel, so the numbers lost in a crash before a save are not reused
+ */
+@Slf4j
+@Component
+public class TicketCounter {
+
+    static final String FILE_NAME = "ticket-counters.json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final TimerWheel wheel;
+    private final Duration flushDelay;
+    /** The counters read from the file, for the servers without a ticket since the startup */
+    private final Map<Long, Long> savedCounters;
+    private final ConcurrentMap<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public TicketCounter(@Value("${saejina.data.directory:data}") String directory, TimerWheel wheel, @Value("${saejina.tickets.flush:5s}") Duration flushDelay) throws IOException {
+        Path directoryPath = Path.of(directory);
+        Files.createDirectories(directoryPath);
+        this.file = directoryPath.resolve(FILE_NAME);
+        this.wheel = wheel;
+        this.flushDelay = flushDelay;
+        this.savedCounters = Files.exists(file) ? read() : new HashMap<>();
+    }
+
+    /**
+     * Get the number of the next ticket of the server
+     * @param guildId The server of the ticket
+     * @param ticketsCategories The categories holding the server's tickets. Only read the first time the server gets a ticket
+     * @return A number greater than every number given before for this server
+     */
+    public long nextTicketNumber(long guildId, List<Category> ticketsCategories) {
+        long number = counters.computeIfAbsent(guildId, id -> {
+            long saved = savedCounters.getOrDefault(id, 0L);
+            return new AtomicLong(Math.max(saved, getHighestTicketNumber(ticketsCategories)));
+        }).incrementAndGet();
+
+        if(flushScheduled.compareAndSet(false, true)) {
+            wheel.schedule(this::flush, flushDelay);
+        }
+
+        return number;
+    }
+
+    /**
+     * Save every counter. Runs on the timer wheel thread, and when the application stops
+     * @throws UncheckedIOException If the counters could not be written
+     */
+    @PreDestroy
+    public synchronized void flush() {
+        // Cleared first : the numbers given during the write are saved by the next flush
+        flushScheduled.set(false);
+
+        Map<Long, Long> snapshot = new HashMap<>(savedCounters);
+        counters.forEach((guildId, counter) -> snapshot.put(guildId, counter.get()));
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            MAPPER.writeValue(temporaryFile.toFile(), snapshot);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private Map<Long, Long> read() {
+        try {
+            return MAPPER.readValue(file.toFile(), new TypeReference<HashMap<Long, Long>>() {});
+        } catch(IOException exception) {
+            // The file is replaced atomically, so it is only unreadable if edited by hand
+            log.warn("Ticket counters could not be read, they will start after the existing ticket channels", exception);
+            return new HashMap<>();
+        }
+    }
+
+    private static long getHighestTicketNumber(List<Category> ticketsCategories) {
+        long highest = 0;
+        List<TextChannel> channels = ticketsCategories.stream()
+                .flatMap(category -> category.getTextChannels().stream())
+                .toList();
+
+        for(TextChannel channel : channels) {
+            String name = channel.getName();
+            if(!name.startsWith(TicketService.TICKET_CHANNEL_PREFIX)) {
+                continue;
+            }
+
+            try {
+                highest = Math.max(highest, Long.parseLong(name.substring(TicketService.TICKET_CHANNEL_PREFIX.length())));
+            } catch(NumberFormatException exception) {
+                // Renamed by a moderator
+            }
+        }
+
+        return highest;
+    }
+
+}
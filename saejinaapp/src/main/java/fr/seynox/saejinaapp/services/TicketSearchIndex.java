@@ -0,0 +1,229 @@
+package fr.seynox.saejinaapp.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Inverted index of the archived ticket transcripts, used to find past tickets by member, subject or keyword.
+ * Every word of a transcript (messages, ticket subject and body, authors names and ids) points to the transcripts containing it,
+ * so a search only reads the lists of its words instead of the transcripts.
+ * Transcripts are added as they are archived, and the index is rebuilt on startup from its log in the transcripts directory
+ */
+@Component
+public class TicketSearchIndex {
+
+    static final String FILE_NAME = "index.jsonl";
+    public static final int PAGE_SIZE = 25;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final ConcurrentMap<Long, GuildIndex> guilds = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    public TicketSearchIndex(@Value("${saejina.data.directory:data}") String dataDirectory) throws IOException {
+        Path directory = Path.of(dataDirectory, TicketTranscriptArchiver.DIRECTORY_NAME);
+        Files.createDirectories(directory);
+        this.file = directory.resolve(FILE_NAME);
+
+        if(Files.exists(file)) {
+            replay();
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Add an archived transcript to the index. A transcript archived again replaces the previous one
+     * @param transcript The transcript to add
+     * @param terms The words of the transcript (See {@link #addTerms(String, Set)})
+     * @throws UncheckedIOException If the transcript could not be written to the index log
+     */
+    public synchronized void add(TicketTranscript transcript, Collection<String> terms) {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.set("transcript", MAPPER.valueToTree(transcript));
+        ArrayNode termsNode = entry.putArray("terms");
+        terms.forEach(termsNode::add);
+
+        try {
+            writer.write(MAPPER.writeValueAsString(entry));
+            writer.newLine();
+            writer.flush();
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        index(transcript, terms);
+    }
+
+    /**
+     * Search the transcripts of a server containing every word of the query
+     * @param guildId The server of the transcripts
+     * @param query The words to search. An empty query matches every transcript
+     * @param page The page of results, starting at 0
+     * @return The matching transcripts, the latest archived first
+     */
+    public TicketTranscriptPage search(long guildId, String query, int page) {
+        GuildIndex guildIndex = guilds.get(guildId);
+        if(guildIndex == null || page < 0) {
+            return new TicketTranscriptPage(List.of(), Math.max(page, 0), false);
+        }
+
+        Set<String> terms = new LinkedHashSet<>();
+        addTerms(query, terms);
+
+        return guildIndex.search(terms, page);
+    }
+
+    /**
+     * Split the text into lower-case words, and add them to the terms
+     * @param text The text to split. Ignored if null
+     * @param terms The terms to complete
+     */
+    public static void addTerms(String text, Set<String> terms) {
+        if(text == null) {
+            return;
+        }
+
+        for(String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if(word.length() >= MIN_TERM_LENGTH && word.length() <= MAX_TERM_LENGTH) {
+                terms.add(word);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if(writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void index(TicketTranscript transcript, Collection<String> terms) {
+        guilds.computeIfAbsent(transcript.getGuildId(), id -> new GuildIndex())
+                .add(transcript, terms);
+    }
+
+    private void replay() throws IOException {
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                try {
+                    JsonNode entry = MAPPER.readTree(line);
+                    TicketTranscript transcript = MAPPER.treeToValue(entry.get("transcript"), TicketTranscript.class);
+
+                    List<String> terms = new ArrayList<>();
+                    entry.get("terms").forEach(term -> terms.add(term.asText()));
+
+                    index(transcript, terms);
+                } catch(JsonProcessingException | RuntimeException exception) {
+                    // Partially written line, when the application stopped during a write
+                }
+            }
+        }
+    }
+
+    /**
+     * The index of a server. Transcripts are numbered in archival order, so every list of transcripts is sorted
+     */
+    private static class GuildIndex {
+
+        private final List<TicketTranscript> transcripts = new ArrayList<>();
+        private final Map<String, TIntArrayList> postings = new HashMap<>();
+        /** The number of the latest transcript of each ticket channel. The previous ones are skipped */
+        private final TLongIntMap latestByChannel = new TLongIntHashMap();
+
+        private synchronized void add(TicketTranscript transcript, Collection<String> terms) {
+            int number = transcripts.size();
+            transcripts.add(transcript);
+            latestByChannel.put(transcript.getChannelId(), number);
+
+            for(String term : terms) {
+                postings.computeIfAbsent(term, key -> new TIntArrayList()).add(number);
+            }
+        }
+
+        private synchronized TicketTranscriptPage search(Set<String> terms, int page) {
+            // Walk the shortest list, and look the transcripts up in the other ones
+            TIntArrayList[] lists = new TIntArrayList[terms.size()];
+            int index = 0;
+            for(String term : terms) {
+                TIntArrayList list = postings.get(term);
+                if(list == null) {
+                    return new TicketTranscriptPage(List.of(), page, false);
+                }
+                lists[index++] = list;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(TIntArrayList::size));
+
+            int skip = page * PAGE_SIZE;
+            List<TicketTranscript> results = new ArrayList<>();
+            int candidates = lists.length == 0 ? transcripts.size() : lists[0].size();
+
+            for(int position = candidates - 1; position >= 0; position--) {
+                int number = lists.length == 0 ? position : lists[0].get(position);
+                if(!isLatest(number) || !isInEveryList(lists, number)) {
+                    continue;
+                }
+
+                if(skip > 0) {
+                    skip--;
+                } else if(results.size() == PAGE_SIZE) {
+                    return new TicketTranscriptPage(results, page, true);
+                } else {
+                    results.add(transcripts.get(number));
+                }
+            }
+
+            return new TicketTranscriptPage(results, page, false);
+        }
+
+        private boolean isLatest(int number) {
+            return latestByChannel.get(transcripts.get(number).getChannelId()) == number;
+        }
+
+        private static boolean isInEveryList(TIntArrayList[] lists, int number) {
+            for(int index = 1; index < lists.length; index++) {
+                if(lists[index].binarySearch(number) < 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+}
@@ -1,11 +1,17 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.TicketCategoryCache;
+import fr.seynox.saejinaapp.caches.TicketRegistry;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
 import fr.seynox.saejinaapp.utils.ButtonUtils;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.interactions.ModalInteraction;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.Modal;
@@ -13,11 +19,17 @@ import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
 import net.dv8tion.jda.api.interactions.components.text.TextInputStyle;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.springframework.stereotype.Service;
 
 import java.awt.*;
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static fr.seynox.saejinaapp.models.TextChannelAction.SEND_TICKET_BUTTON;
 
@@ -25,15 +37,33 @@ import static fr.seynox.saejinaapp.models.TextChannelAction.SEND_TICKET_BUTTON;
 public class TicketService {
 
     public static final String TICKET_CREATION_ID = "ticket-creation";
-    public static final String TICKET_INVITE_ID_TEMPLATE =  "ticket-invite#%s";
+    public static final String TICKET_INVITE_PREFIX =  "ticket-invite";
+    public static final String TICKET_INVITE_ID_TEMPLATE =  TICKET_INVITE_PREFIX + "#%s";
     public static final String TICKET_CLOSE_ID =  "ticket-close";
     public static final String TICKET_CLOSE_CONFIRM_ID =  "ticket-close-confirm";
+    public static final String TICKET_CLOSE_CANCEL_ID =  "ticket-close-cancel";
+    public static final Duration TICKET_CLOSE_DELAY = Duration.ofSeconds(30);
     public static final String TICKETS_CATEGORY_NAME = "\uD83C\uDFAB | Tickets";
+    public static final String TICKET_CHANNEL_PREFIX = "ticket-";
+    /** Discord refuses new channels in a category holding this many channels */
+    public static final int MAX_CHANNELS_PER_CATEGORY = 50;
 
     private final ButtonUtils buttonUtils;
+    private final OutboundQueue outboundQueue;
+    private final TicketCounter ticketCounter;
+    private final TicketCategoryCache categoryCache;
+    private final TicketSearchIndex searchIndex;
+    private final TicketRegistry ticketRegistry;
+    /** Locked while creating a ticket in the server */
+    private final ConcurrentMap<Long, Object> guildLocks = new ConcurrentHashMap<>();
 
-    public TicketService(ButtonUtils buttonUtils) {
+    public TicketService(ButtonUtils buttonUtils, OutboundQueue outboundQueue, TicketCounter ticketCounter, TicketCategoryCache categoryCache, TicketSearchIndex searchIndex, TicketRegistry ticketRegistry) {
         this.buttonUtils = buttonUtils;
+        this.outboundQueue = outboundQueue;
+        this.ticketCounter = ticketCounter;
+        this.categoryCache = categoryCache;
+        this.searchIndex = searchIndex;
+        this.ticketRegistry = ticketRegistry;
     }
 
     /**
@@ -43,8 +73,9 @@ public class TicketService {
      * @param channel The channel to send the button to
      * @param label The button's label
      * @throws PermissionException If the member is not allowed to send ticket buttons on the server
+     * @return A future completed once the button is sent
      */
-    public void sendTicketButtonInChannel(Member member, TextChannel channel, String label) {
+    public CompletableFuture<Message> sendTicketButtonInChannel(Member member, TextChannel channel, String label) {
 
         boolean isAllowed = SEND_TICKET_BUTTON.isAllowed(member, channel);
         if(!isAllowed) {
@@ -54,7 +85,7 @@ public class TicketService {
         Emoji ticketEmoji = Emoji.fromUnicode("U+1F39F");
         Button ticketButton = Button.of(ButtonStyle.SECONDARY, TICKET_CREATION_ID, label, ticketEmoji);
 
-        buttonUtils.sendOrAppendButton(channel, ticketButton);
+        return buttonUtils.sendOrAppendButton(channel, ticketButton);
     }
 
     /**
@@ -87,27 +118,70 @@ public class TicketService {
 
     /**
      * Create a new ticket channel.
-     * Will create a new channel category if it doesn't exist
+     * Tickets are spread over the ticket categories, and a new overflow category is created when they are all full.
+     * Tickets are numbered by the {@link TicketCounter}, so the numbers are never reused.
+     * The tickets of a server are created one at a time, so two tickets can not both take the last place of a category
      * @param guild The guild in which the ticket channel needs to be created
      * @return The created text channel
      */
     public TextChannel createTicketChannel(Guild guild) {
-        // Get or create tickets category
+        synchronized(guildLocks.computeIfAbsent(guild.getIdLong(), id -> new Object())) {
+            List<Category> ticketsCategories = categoryCache.getTicketCategories(guild);
+
+            // Get ticket channel name
+            long ticketNumber = ticketCounter.nextTicketNumber(guild.getIdLong(), ticketsCategories);
+            String ticketName = TICKET_CHANNEL_PREFIX + ticketNumber;
+
+            // Create channel
+            TextChannel ticketChannel = createTicketChannel(guild, ticketsCategories, ticketName);
+            ticketRegistry.open(ticketChannel);
+
+            return ticketChannel;
+        }
+    }
+
+    /**
+     * Create the channel in the first ticket category with room for it, or in a new overflow category if they are all full.
+     * A category that Discord reports as full is skipped, even if the cached channels say otherwise
+     */
+    private TextChannel createTicketChannel(Guild guild, List<Category> ticketsCategories, String ticketName) {
+        for(Category category : ticketsCategories) {
+            if(!hasRoomForTicket(category)) {
+                continue;
+            }
+
+            try {
+                return category.createTextChannel(ticketName).complete();
+            } catch(ErrorResponseException exception) {
+                if(exception.getErrorResponse() != ErrorResponse.MAX_CHANNELS) {
+                    throw exception;
+                }
+            }
+        }
+
+        return createTicketsCategory(guild, ticketsCategories.size())
+                .createTextChannel(ticketName)
+                .complete();
+    }
+
+    /**
+     * Create a ticket category, hidden from everyone
+     * @param categoryCount The number of existing ticket categories, used to number the overflow categories
+     */
+    private Category createTicketsCategory(Guild guild, int categoryCount) {
+        String categoryName = categoryCount == 0 ? TICKETS_CATEGORY_NAME : "%s %s".formatted(TICKETS_CATEGORY_NAME, categoryCount + 1);
         Role everyoneRole = guild.getPublicRole();
 
-        Category ticketsCategory = guild.getCategoriesByName(TICKETS_CATEGORY_NAME, false).stream()
-                .findFirst()
-                .orElseGet(() -> guild.createCategory(TICKETS_CATEGORY_NAME)
-                        .addPermissionOverride(everyoneRole, List.of(), List.of(Permission.VIEW_CHANNEL))
-                        .complete());
+        Category category = guild.createCategory(categoryName)
+                .addPermissionOverride(everyoneRole, List.of(), List.of(Permission.VIEW_CHANNEL))
+                .complete();
+        categoryCache.addTicketCategory(guild, category);
 
-        // Get ticket channel name
-        int channelsInCategory = ticketsCategory.getTextChannels().size();
-        int ticketNumber = channelsInCategory + 1;
-        String ticketName = "ticket-" + ticketNumber;
+        return category;
+    }
 
-        // Create channel
-        return ticketsCategory.createTextChannel(ticketName).complete();
+    private static boolean hasRoomForTicket(Category category) {
+        return category.getChannels().size() < MAX_CHANNELS_PER_CATEGORY;
     }
 
     /**
@@ -122,6 +196,7 @@ public class TicketService {
         String senderAvatar = member.getEffectiveAvatarUrl();
         String subject = Objects.requireNonNull(interaction.getValue("subject")).getAsString();
         String body = Objects.requireNonNull(interaction.getValue("body")).getAsString();
+        ticketRegistry.setOwner(ticketChannel, member, subject);
 
         MessageEmbed ticketEmbed = new EmbedBuilder()
                 .setTitle(subject)
@@ -135,29 +210,69 @@ public class TicketService {
         Button closeTicket = Button.of(ButtonStyle.DANGER, TICKET_CLOSE_ID, "Close this ticket");
 
         // Send ticket embed and buttons
-        ticketChannel.sendMessageEmbeds(ticketEmbed)
-                .setActionRows(ActionRow.of(userInvite, closeTicket))
-                .queue();
+        String bucket = OutboundQueue.channelBucket(ticketChannel.getIdLong());
+        outboundQueue.submit(bucket, () -> ticketChannel.sendMessageEmbeds(ticketEmbed)
+                .setActionRows(ActionRow.of(userInvite, closeTicket)));
     }
 
     /**
-     * Allow a user to see the ticket channel
+     * Allow a user to see the ticket channel, without blocking the calling thread.
+     * The member is only retrieved from Discord if it is not cached
      * @param userId The user to invite
      * @param channel The ticket channel the user is invited to
-     * @throws DiscordInteractionException If the user could not be found in the server
+     * @return A future completed once the permission is sent, or completed exceptionally with a {@link DiscordInteractionException}
+     * if the user could not be found in the server
      */
-    public void inviteUserToTicketChannel(String userId, TextChannel channel) throws DiscordInteractionException {
+    public CompletableFuture<Void> inviteUserToTicketChannel(String userId, TextChannel channel) {
         // Check user
         Guild guild = channel.getGuild();
-        Member member = guild.retrieveMemberById(userId).complete();
-        if(member == null) {
-            throw new DiscordInteractionException("Error ! The user could not be found in the server");
+        return guild.retrieveMemberById(userId).submit().handle((member, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            boolean isUnknown = cause instanceof ErrorResponseException responseException
+                    && (responseException.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER || responseException.getErrorResponse() == ErrorResponse.UNKNOWN_USER);
+            if(isUnknown || (cause == null && member == null)) {
+                throw new CompletionException(new DiscordInteractionException("Error ! The user could not be found in the server"));
+            }
+            if(cause != null) {
+                throw new CompletionException(cause);
+            }
+
+            // Add user to channel
+            channel.getManager()
+                    .putMemberPermissionOverride(member.getIdLong(), List.of(Permission.VIEW_CHANNEL), List.of())
+                    .queue();
+            return null;
+        });
+    }
+
+    /**
+     * Search the archived tickets of the member's server
+     * @param member The member searching the tickets
+     * @param query The words the tickets must contain (member name or id, subject, keywords...)
+     * @param page The page of results, starting at 0
+     * @throws PermissionException If the member is not allowed to manage the server's channels
+     * @return The matching tickets, the latest closed first
+     */
+    public TicketTranscriptPage searchTranscripts(Member member, String query, int page) {
+        if(!member.hasPermission(Permission.MANAGE_CHANNEL)) {
+            throw new PermissionException("You do not have the permission to search tickets.");
+        }
+
+        return searchIndex.search(member.getGuild().getIdLong(), query, page);
+    }
+
+    /**
+     * Get the open tickets of the member's server
+     * @param member The member listing the tickets
+     * @throws PermissionException If the member is not allowed to manage the server's channels
+     * @return The open tickets, the oldest first
+     */
+    public List<OpenTicket> getOpenTickets(Member member) {
+        if(!member.hasPermission(Permission.MANAGE_CHANNEL)) {
+            throw new PermissionException("You do not have the permission to list tickets.");
         }
 
-        // Add user to channel
-        channel.getManager()
-                .putMemberPermissionOverride(member.getIdLong(), List.of(Permission.VIEW_CHANNEL), List.of())
-                .queue();
+        return ticketRegistry.getOpenTickets(member.getGuild().getIdLong());
     }
 
 }
@@ -0,0 +1,192 @@
+package fr.seynox.saejinaapp.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.entities.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives the history of ticket channels before they are deleted.
+ * Transcripts are gzip-compressed JSON lines (one message per line, newest first) stored in the data directory,
+ * under transcripts/{server id}/{channel name}-{channel id}.jsonl.gz.
+ * Each archived transcript is added to the {@link TicketSearchIndex}
+ */
+@Component
+public class TicketTranscriptArchiver {
+
+    static final String DIRECTORY_NAME = "transcripts";
+    /** Messages fetched per request, the most Discord allows */
+    private static final int PAGE_SIZE = 100;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** The author of the ticket embed, as set by {@link TicketService#sendTicketToChannel} : "name (@id)" */
+    private static final Pattern TICKET_AUTHOR_PATTERN = Pattern.compile("(.*) \\(@(\\d+)\\)");
+
+    private final Path directory;
+    private final TicketSearchIndex searchIndex;
+
+    public TicketTranscriptArchiver(@Value("${saejina.data.directory:data}") String dataDirectory, TicketSearchIndex searchIndex) throws IOException {
+        this.directory = Path.of(dataDirectory, DIRECTORY_NAME);
+        this.searchIndex = searchIndex;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Write the history of the channel to its transcript.
+     * Messages are written as their pages arrive and are not kept, so the memory used does not grow with the length of the history.
+     * The transcript is written to a temporary file first, and only replaces a previous transcript once complete
+     * @param channel The ticket channel to archive
+     * @return A future completed with the transcript once every message is written, or completed exceptionally if the history could not be read or written
+     */
+    public CompletableFuture<Path> archive(TextChannel channel) {
+        Path guildDirectory = directory.resolve(channel.getGuild().getId());
+        Path file = guildDirectory.resolve("%s-%s.jsonl.gz".formatted(channel.getName(), channel.getId()));
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        TranscriptWriter writer;
+        try {
+            Files.createDirectories(guildDirectory);
+            writer = new TranscriptWriter(temporaryFile);
+        } catch(IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        return channel.getIterableHistory()
+                .cache(false)
+                .limit(PAGE_SIZE)
+                .forEachAsync(writer::write)
+                .handle((ignored, error) -> {
+                    writer.close();
+
+                    Throwable failure = error == null ? writer.error : error;
+                    try {
+                        if(failure != null) {
+                            Files.deleteIfExists(temporaryFile);
+                            throw new CompletionException(failure);
+                        }
+
+                        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        searchIndex.add(writer.toTranscript(channel), writer.terms);
+                        return file;
+                    } catch(IOException exception) {
+                        throw new CompletionException(exception);
+                    }
+                });
+    }
+
+    /**
+     * Writes the messages to a compressed file, and collects their words for the search index.
+     * Pages are received one after the other, never concurrently
+     */
+    private static class TranscriptWriter {
+
+        private final BufferedWriter writer;
+        private final Set<String> terms = new HashSet<>();
+        private long messageCount;
+        private String subject;
+        private String authorId;
+        private String authorName;
+        private IOException error;
+
+        private TranscriptWriter(Path file) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @return True to receive the next message, false to stop reading the history after a write error
+         */
+        private boolean write(Message message) {
+            User author = message.getAuthor();
+
+            ObjectNode line = MAPPER.createObjectNode();
+            line.put("id", message.getId());
+            line.put("authorId", author.getId());
+            line.put("author", author.getAsTag());
+            line.put("timestamp", message.getTimeCreated().toString());
+            line.put("content", message.getContentRaw());
+
+            ArrayNode attachments = line.putArray("attachments");
+            message.getAttachments().forEach(attachment -> attachments.add(attachment.getUrl()));
+
+            ArrayNode embeds = line.putArray("embeds");
+            for(MessageEmbed embed : message.getEmbeds()) {
+                ObjectNode embedNode = embeds.addObject();
+                embedNode.put("title", embed.getTitle());
+                embedNode.put("description", embed.getDescription());
+                readEmbed(embed);
+            }
+
+            messageCount++;
+            terms.add(author.getId());
+            TicketSearchIndex.addTerms(author.getAsTag(), terms);
+            TicketSearchIndex.addTerms(message.getContentRaw(), terms);
+
+            try {
+                writer.write(MAPPER.writeValueAsString(line));
+                writer.newLine();
+                return true;
+            } catch(IOException exception) {
+                error = exception;
+                return false;
+            }
+        }
+
+        /**
+         * Index the embed. The history is read from the newest message, so the ticket embed found last is the one opening the ticket
+         */
+        private void readEmbed(MessageEmbed embed) {
+            TicketSearchIndex.addTerms(embed.getTitle(), terms);
+            TicketSearchIndex.addTerms(embed.getDescription(), terms);
+
+            MessageEmbed.AuthorInfo embedAuthor = embed.getAuthor();
+            if(embedAuthor == null || embedAuthor.getName() == null) {
+                return;
+            }
+
+            Matcher matcher = TICKET_AUTHOR_PATTERN.matcher(embedAuthor.getName());
+            if(matcher.matches()) {
+                subject = embed.getTitle();
+                authorName = matcher.group(1);
+                authorId = matcher.group(2);
+                terms.add(authorId);
+                TicketSearchIndex.addTerms(authorName, terms);
+            }
+        }
+
+        private TicketTranscript toTranscript(TextChannel channel) {
+            return new TicketTranscript(channel.getGuild().getIdLong(), channel.getIdLong(), channel.getName(),
+                    subject, authorId, authorName, messageCount, System.currentTimeMillis());
+        }
+
+        private void close() {
+            try {
+                writer.close();
+            } catch(IOException exception) {
+                if(error == null) {
+                    error = exception;
+                }
+            }
+        }
+    }
+
+}
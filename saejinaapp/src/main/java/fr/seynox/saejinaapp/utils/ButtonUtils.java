@@ -1,5 +1,7 @@
 package fr.seynox.saejinaapp.utils;
 
+import fr.seynox.saejinaapp.caches.LastMessageCache;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
@@ -11,54 +13,192 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
 public class ButtonUtils {
 
+    /** The action rows a message can hold, each holding up to 5 buttons */
+    public static final int MAX_ACTION_ROWS = 5;
+
+    private final OutboundQueue outboundQueue;
+    private final LastMessageCache lastMessageCache;
+    /** Edits of the messages, by message id */
+    private final ConcurrentMap<Long, MessageEdits> messageEdits = new ConcurrentHashMap<>();
+
+    public ButtonUtils(OutboundQueue outboundQueue, LastMessageCache lastMessageCache) {
+        this.outboundQueue = outboundQueue;
+        this.lastMessageCache = lastMessageCache;
+    }
 
     /**
      * Append the given button to the last message if it was sent by the bot.
      * Otherwise, sends a new message with the button attached to it.
-     * This does not check if the channel is writable for the bot
+     * The last message is only fetched when it is not in the {@link LastMessageCache}.
+     * This does not check if the channel is writable for the bot, and does not block the calling thread
      * @param channel The channel to send the button to
      * @param button The button to send/append
+     * @return A future completed with the message holding the button, once it is sent/edited
      */
-    public void sendOrAppendButton(TextChannel channel, Button button) {
+    public CompletableFuture<Message> sendOrAppendButton(TextChannel channel, Button button) {
         long lastMessageId = channel.getLatestMessageIdLong();
-        Message lastMessage = channel.retrieveMessageById(lastMessageId).complete();
+        long botId = channel.getJDA().getSelfUser().getIdLong();
+
+        LastMessageCache.LastMessage cachedMessage = lastMessageCache.get(channel.getIdLong(), lastMessageId);
+        if(cachedMessage != null) {
+            return sendOrAppendButton(channel, button, cachedMessage.selfMessage(), botId);
+        }
+
+        return channel.retrieveMessageById(lastMessageId).submit().thenCompose(lastMessage -> {
+            lastMessageCache.put(lastMessage, botId);
 
-        Long lastMessageAuthorId = lastMessage.getAuthor().getIdLong();
-        Long botId = channel.getJDA().getSelfUser().getIdLong();
-        boolean isLastMessageFromSelf = Objects.equals(botId, lastMessageAuthorId);
+            Long lastMessageAuthorId = lastMessage.getAuthor().getIdLong();
+            boolean isLastMessageFromSelf = Objects.equals(botId, lastMessageAuthorId);
 
+            return sendOrAppendButton(channel, button, isLastMessageFromSelf ? lastMessage : null, botId);
+        });
+    }
+
+    /**
+     * @param selfMessage The last message of the channel if it was sent by the bot, null otherwise
+     */
+    private CompletableFuture<Message> sendOrAppendButton(TextChannel channel, Button button, Message selfMessage, long botId) {
         String buttonId = Optional.ofNullable(button.getId()).orElse("");
-        boolean alreadyHasButton = lastMessage.getButtonById(buttonId) != null;
-
-        if(isLastMessageFromSelf && !alreadyHasButton) {
-            appendButtonToMessage(button, lastMessage);
-        } else {
-            channel.sendMessage("** **")
-                    .setActionRows(ActionRow.of(button))
-                    .queue();
+
+        if(selfMessage != null && selfMessage.getButtonById(buttonId) == null) {
+            return appendButtonToMessage(button, selfMessage);
         }
+
+        String bucket = OutboundQueue.channelBucket(channel.getIdLong());
+        CompletableFuture<Message> sentMessage = outboundQueue.submit(bucket, () -> channel.sendMessage("** **").setActionRows(ActionRow.of(button)))
+                .getResult();
+        sentMessage.thenAccept(message -> lastMessageCache.put(message, botId));
+
+        return sentMessage;
+    }
+
+    /**
+     * Send the buttons in new messages, each message holding up to {@link #MAX_ACTION_ROWS} rows of buttons.
+     * Each message is sent once with all its buttons, in the order of the buttons.
+     * This does not check if the channel is writable for the bot, and does not block the calling thread
+     * @param channel The channel to send the buttons to
+     * @param buttons The buttons to send
+     * @return A future completed with the messages holding the buttons, once they are all sent
+     */
+    public CompletableFuture<List<Message>> sendButtons(TextChannel channel, List<Button> buttons) {
+        List<ActionRow> rows = ActionRow.partitionOf(buttons);
+        String bucket = OutboundQueue.channelBucket(channel.getIdLong());
+
+        List<CompletableFuture<Message>> messages = new ArrayList<>();
+        for(int start = 0; start < rows.size(); start += MAX_ACTION_ROWS) {
+            List<ActionRow> messageRows = rows.subList(start, Math.min(start + MAX_ACTION_ROWS, rows.size()));
+            messages.add(outboundQueue.submit(bucket, () -> channel.sendMessage("** **").setActionRows(messageRows))
+                    .getResult());
+        }
+
+        return CompletableFuture.allOf(messages.toArray(CompletableFuture[]::new))
+                .thenApply(allSent -> messages.stream()
+                        .map(CompletableFuture::join)
+                        .toList());
     }
 
     /**
      * Adds the button to the given message.
+     * Buttons appended to the same message before its edit is sent are added by a single edit.
+     * Each edit starts from the latest known version of the message (the answer of its previous edit, or the {@link LastMessageCache}),
+     * not from the given message, so the buttons added by an edit that was already sent are kept.
      * This does not check if the message already has a button with the same id
      * @param button The button to append to the message
      * @param message A message sent by the bot
+     * @return A future completed with the edited message
      */
-    public void appendButtonToMessage(Button button, Message message) {
-        List<ItemComponent> messageActionRows = message.getActionRows().stream()
-                .flatMap(row -> row.getComponents().stream())
-                .toList();
+    public CompletableFuture<Message> appendButtonToMessage(Button button, Message message) {
+        long messageId = message.getIdLong();
+        long channelId = message.getChannel().getIdLong();
+        messageEdits.compute(messageId, (id, edits) -> {
+            MessageEdits updatedEdits = edits == null ? new MessageEdits(getLatestVersion(channelId, message)) : edits;
+            updatedEdits.append(button);
+            return updatedEdits;
+        });
+
+        String bucket = OutboundQueue.channelBucket(channelId);
+        CompletableFuture<Message> editedMessage = outboundQueue.submitEdit(bucket, messageId, () -> {
+            // Still present, this append is not answered yet
+            MessageEdits edits = messageEdits.get(messageId);
+            Message latestMessage = edits.getLatestMessage();
+            // The buttons appended since the last edit, including the ones of the merged edits
+            List<Button> buttons = edits.takePendingButtons();
+
+            List<ItemComponent> messageActionRows = latestMessage.getActionRows().stream()
+                    .flatMap(row -> row.getComponents().stream())
+                    .toList();
 
-        List<ItemComponent> updatedActionRows = new ArrayList<>(messageActionRows);
-        updatedActionRows.add(button);
+            List<ItemComponent> updatedActionRows = new ArrayList<>(messageActionRows);
+            updatedActionRows.addAll(buttons);
 
-        List<ActionRow> partitionedActionRows = ActionRow.partitionOf(updatedActionRows);
-        message.editMessageComponents(partitionedActionRows).queue();
+            List<ActionRow> partitionedActionRows = ActionRow.partitionOf(updatedActionRows);
+            return latestMessage.editMessageComponents(partitionedActionRows);
+        }).getResult();
+
+        // Runs before the next edit of the message is built, as the queue only sends it once this one is answered
+        editedMessage.whenComplete((edited, error) ->
+                messageEdits.computeIfPresent(messageId, (id, edits) -> edits.answered(edited) ? null : edits));
+        // The next appends must start from the edited buttons, even if the update event was not received yet
+        editedMessage.thenAccept(lastMessageCache::update);
+
+        return editedMessage;
+    }
+
+    /**
+     * @return The cached version of the message if it is the latest message of its channel, the given message otherwise
+     */
+    private Message getLatestVersion(long channelId, Message message) {
+        LastMessageCache.LastMessage cachedMessage = lastMessageCache.get(channelId, message.getIdLong());
+        return cachedMessage == null || cachedMessage.selfMessage() == null ? message : cachedMessage.selfMessage();
+    }
+
+    /**
+     * The appends of a message that are waiting to be sent or answered
+     */
+    private static class MessageEdits {
+
+        private final List<Button> pendingButtons = new ArrayList<>();
+        /** The message as returned by its latest successful edit */
+        private Message latestMessage;
+        private int unansweredCount;
+
+        private MessageEdits(Message message) {
+            this.latestMessage = message;
+        }
+
+        private synchronized void append(Button button) {
+            pendingButtons.add(button);
+            unansweredCount++;
+        }
+
+        private synchronized Message getLatestMessage() {
+            return latestMessage;
+        }
+
+        private synchronized List<Button> takePendingButtons() {
+            List<Button> buttons = new ArrayList<>(pendingButtons);
+            pendingButtons.clear();
+            return buttons;
+        }
+
+        /**
+         * @param editedMessage The answer of the edit, null if it failed
+         * @return True if every append is answered, and the message can be forgotten
+         */
+        private synchronized boolean answered(Message editedMessage) {
+            if(editedMessage != null) {
+                latestMessage = editedMessage;
+            }
+            unansweredCount--;
+            return unansweredCount == 0;
+        }
     }
 
 }
@@ -0,0 +1,121 @@
+package fr.seynox.saejinaapp.utils;
+
+import fr.seynox.saejinaapp.models.InteractionStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the Discord interaction work that should not block the JDA event thread (ticket creation...).
+ * The pool and its queue are bounded : when both are full, tasks are rejected right away,
+ * so the user can be asked to try again later.
+ * Interactions must be acknowledged before their task is submitted, as a queued task may start after Discord's acknowledgement deadline.
+ * Threads are named "interaction-N", and are virtual threads when saejina.threads.virtual is enabled
+ */
+@Component
+public class InteractionExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "interaction-";
+
+    private final ThreadPoolExecutor executor;
+    private final boolean virtualThreads;
+    private final int queueCapacity;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public InteractionExecutor(@Value("${saejina.threads.virtual:false}") boolean virtualThreads,
+                               @Value("${saejina.interactions.threads:4}") int poolSize,
+                               @Value("${saejina.interactions.queue:50}") int queueCapacity) {
+        this.virtualThreads = virtualThreads;
+        this.queueCapacity = queueCapacity;
+
+        ThreadFactory threadFactory = virtualThreads ? VirtualThreads.newThreadFactory(THREAD_NAME_PREFIX) : new NamedThreadFactory(THREAD_NAME_PREFIX);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, this::reject);
+    }
+
+    /**
+     * Run the task in the background
+     * @param task The task to run
+     * @throws RejectedExecutionException If the executor is saturated. The caller should tell the user to try again later
+     * @return A future completed once the task is done
+     */
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    /**
+     * @return The current state of the executor, and its counters since startup
+     */
+    public InteractionStats getStats() {
+        return new InteractionStats(getQueueDepth(), getActiveCount(), queueCapacity,
+                getCompletedCount(), getRejectedCount(), virtualThreads);
+    }
+
+    /**
+     * @return The number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of threads currently running a task
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return The number of tasks that were completed since startup
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return The number of tasks that were rejected since startup, because the executor was saturated
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return True if the tasks run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtualThreads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor rejectingExecutor) {
+        rejectedCount.increment();
+        throw new RejectedExecutionException("The interaction executor is saturated (%s tasks queued)"
+                .formatted(rejectingExecutor.getQueue().size()));
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private NamedThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
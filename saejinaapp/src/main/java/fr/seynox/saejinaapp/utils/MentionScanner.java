@@ -0,0 +1,175 @@
+package fr.seynox.saejinaapp.utils;
+
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Finds every mention of a message in a single pass : @everyone, @here, users (&lt;@id&gt; and &lt;@!id&gt;), roles (&lt;@&amp;id&gt;) and channels (&lt;#id&gt;).
+ * Nothing is allocated for the kinds of mention the message does not contain
+ */
+public final class MentionScanner {
+
+    private static final String EVERYONE = "everyone";
+    private static final String HERE = "here";
+    /** Snowflakes are positive longs, so 19 digits at most */
+    private static final int MAX_ID_LENGTH = 19;
+
+    private MentionScanner() {}
+
+    /**
+     * Find the mentions in the content
+     * @param content The message content
+     * @return The mentions found. Each id appears once, in the order of the message
+     */
+    public static Mentions scan(String content) {
+        boolean mentionsEveryone = false;
+        boolean mentionsHere = false;
+        TLongList users = null;
+        TLongList roles = null;
+        TLongList channels = null;
+
+        int length = content.length();
+        int index = 0;
+        while(index < length) {
+            char character = content.charAt(index);
+
+            if(character == '@') {
+                if(content.startsWith(EVERYONE, index + 1)) {
+                    mentionsEveryone = true;
+                    index += EVERYONE.length() + 1;
+                    continue;
+                }
+                if(content.startsWith(HERE, index + 1)) {
+                    mentionsHere = true;
+                    index += HERE.length() + 1;
+                    continue;
+                }
+            } else if(character == '<' && index + 2 < length) {
+                // <@id>, <@!id>, <@&id> or <#id>
+                char type = content.charAt(index + 1);
+                int idStart = index + 2;
+                boolean isRole = false;
+                if(type == '@') {
+                    char modifier = content.charAt(idStart);
+                    if(modifier == '!') {
+                        idStart++;
+                    } else if(modifier == '&') {
+                        isRole = true;
+                        idStart++;
+                    }
+                }
+
+                int idEnd = findIdEnd(content, idStart);
+                if((type == '@' || type == '#') && idEnd != -1) {
+                    long id = parseId(content, idStart, idEnd);
+                    if(id != -1) {
+                        if(type == '#') {
+                            channels = add(channels, id);
+                        } else if(isRole) {
+                            roles = add(roles, id);
+                        } else {
+                            users = add(users, id);
+                        }
+
+                        index = idEnd + 1;
+                        continue;
+                    }
+                }
+            }
+
+            index++;
+        }
+
+        return new Mentions(mentionsEveryone, mentionsHere, toArray(users), toArray(roles), toArray(channels));
+    }
+
+    /**
+     * @return The index of the closing '&gt;' after the digits, or -1 if the id is not followed by one
+     */
+    private static int findIdEnd(String content, int start) {
+        int maxEnd = Math.min(content.length(), start + MAX_ID_LENGTH + 1);
+        for(int index = start; index < maxEnd; index++) {
+            char character = content.charAt(index);
+            if(character == '>') {
+                return index > start ? index : -1;
+            }
+            if(character < '0' || character > '9') {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return The id, or -1 if it overflows a long
+     */
+    private static long parseId(String content, int start, int end) {
+        long id = 0;
+        for(int index = start; index < end; index++) {
+            int digit = content.charAt(index) - '0';
+            if(id > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+
+        return id;
+    }
+
+    private static TLongList add(TLongList ids, long id) {
+        TLongList list = ids == null ? new TLongArrayList() : ids;
+        // A message holds a few mentions, a linear search is enough
+        if(!list.contains(id)) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static long[] toArray(TLongList ids) {
+        return ids == null ? Mentions.NO_IDS : ids.toArray();
+    }
+
+    /**
+     * The mentions of a message
+     */
+    public static final class Mentions {
+
+        private static final long[] NO_IDS = new long[0];
+
+        private final boolean everyone;
+        private final boolean here;
+        private final long[] userIds;
+        private final long[] roleIds;
+        private final long[] channelIds;
+
+        private Mentions(boolean everyone, boolean here, long[] userIds, long[] roleIds, long[] channelIds) {
+            this.everyone = everyone;
+            this.here = here;
+            this.userIds = userIds;
+            this.roleIds = roleIds;
+            this.channelIds = channelIds;
+        }
+
+        public boolean mentionsEveryone() {
+            return everyone;
+        }
+
+        public boolean mentionsHere() {
+            return here;
+        }
+
+        public long[] getUserIds() {
+            return userIds;
+        }
+
+        public long[] getRoleIds() {
+            return roleIds;
+        }
+
+        public long[] getChannelIds() {
+            return channelIds;
+        }
+    }
+
+}
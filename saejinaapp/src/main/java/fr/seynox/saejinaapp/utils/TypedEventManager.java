@@ -0,0 +1,145 @@
+package fr.seynox.saejinaapp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event manager for listeners using {@link SubscribeEvent} methods, like JDA's AnnotatedEventManager, without reflection on each event.
+ * When a listener is registered, each of its methods is bound to a generated handler class (the same way lambdas are).
+ * The handlers of each event class are resolved once, on its first event, so events without handlers only cost a map lookup.
+ * Listener methods must be public, in a public class, and take a single event parameter
+ */
+@Slf4j
+public class TypedEventManager implements IEventManager {
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class, GenericEvent.class);
+
+    /** Replaced on each registration, so the events never wait for a lock */
+    private volatile Registry registry = new Registry(List.of());
+
+    /**
+     * Bind the {@link SubscribeEvent} methods of the listener
+     * @param listener The listener
+     * @throws IllegalArgumentException If a listener method is not public or does not take a single event
+     */
+    @Override
+    public synchronized void register(Object listener) {
+        List<Subscription> subscriptions = new ArrayList<>(registry.subscriptions);
+        for(Method method : listener.getClass().getDeclaredMethods()) {
+            if(method.isAnnotationPresent(SubscribeEvent.class)) {
+                subscriptions.add(bind(listener, method));
+            }
+        }
+
+        registry = new Registry(subscriptions);
+    }
+
+    @Override
+    public synchronized void unregister(Object listener) {
+        List<Subscription> subscriptions = registry.subscriptions.stream()
+                .filter(subscription -> subscription.listener() != listener)
+                .toList();
+
+        registry = new Registry(subscriptions);
+    }
+
+    @Override
+    public void handle(GenericEvent event) {
+        Registry currentRegistry = registry;
+        Subscription[] subscriptions = currentRegistry.dispatchTable.get(event.getClass());
+        if(subscriptions == null) {
+            subscriptions = currentRegistry.resolve(event.getClass());
+        }
+
+        for(Subscription subscription : subscriptions) {
+            try {
+                subscription.handler().handle(subscription.listener(), event);
+            } catch(Error error) {
+                throw error;
+            } catch(Throwable throwable) {
+                log.error("One of the EventListeners had an uncaught exception", throwable);
+            }
+        }
+    }
+
+    @Override
+    public List<Object> getRegisteredListeners() {
+        return registry.subscriptions.stream()
+                .map(Subscription::listener)
+                .distinct()
+                .toList();
+    }
+
+    private static Subscription bind(Object listener, Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if(parameterTypes.length != 1 || !GenericEvent.class.isAssignableFrom(parameterTypes[0])) {
+            throw new IllegalArgumentException("The listener method %s must take a single event".formatted(method));
+        }
+        if(!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            throw new IllegalArgumentException("The listener method %s must be public, in a public class".formatted(method));
+        }
+        if(Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("The listener method %s cannot be static".formatted(method));
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "handle", MethodType.methodType(EventHandler.class),
+                    HANDLER_TYPE, target, MethodType.methodType(void.class, method.getDeclaringClass(), parameterTypes[0]));
+
+            EventHandler handler = (EventHandler) callSite.getTarget().invokeExact();
+            return new Subscription(listener, parameterTypes[0], handler);
+        } catch(Throwable throwable) {
+            throw new IllegalArgumentException("Could not bind the listener method %s".formatted(method), throwable);
+        }
+    }
+
+    /**
+     * Calls a listener method, without reflection
+     */
+    @FunctionalInterface
+    private interface EventHandler {
+        void handle(Object listener, GenericEvent event);
+    }
+
+    private record Subscription(Object listener, Class<?> eventType, EventHandler handler) {}
+
+    private static class Registry {
+
+        private final List<Subscription> subscriptions;
+        private final Map<Class<?>, Subscription[]> dispatchTable = new ConcurrentHashMap<>();
+
+        private Registry(List<Subscription> subscriptions) {
+            this.subscriptions = subscriptions;
+        }
+
+        /**
+         * Find the subscriptions accepting the event class, including the ones taking one of its parents
+         */
+        private Subscription[] resolve(Class<?> eventClass) {
+            return dispatchTable.computeIfAbsent(eventClass, key -> {
+                Subscription[] matching = subscriptions.stream()
+                        .filter(subscription -> subscription.eventType().isAssignableFrom(key))
+                        .toArray(Subscription[]::new);
+                return matching.length == 0 ? NO_SUBSCRIPTIONS : matching;
+            });
+        }
+    }
+
+}
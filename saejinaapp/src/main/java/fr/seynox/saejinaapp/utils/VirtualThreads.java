@@ -0,0 +1,87 @@
+package fr.seynox.saejinaapp.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (JDK 21+) while the application is still compiled for Java 17.
+ * The JDK methods are looked up by reflection, so the same jar runs on both JDKs
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = findMethod(findClass("java.lang.Thread$Builder"), "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = findMethod(findClass("java.lang.Thread$Builder"), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {}
+
+    /**
+     * @return True if the running JDK supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create a factory of virtual threads named with the given prefix and an incrementing counter
+     * @param namePrefix The start of the threads name
+     * @throws IllegalStateException If the running JDK does not support virtual threads
+     * @return The virtual thread factory
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        checkSupported();
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch(ReflectiveOperationException exception) {
+            throw new IllegalStateException("Could not create a virtual thread factory", exception);
+        }
+    }
+
+    /**
+     * Create an executor starting a new virtual thread for each task
+     * @param namePrefix The start of the threads name
+     * @throws IllegalStateException If the running JDK does not support virtual threads
+     * @return The executor. It must be shut down when not used anymore
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory factory = newThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch(ReflectiveOperationException exception) {
+            throw new IllegalStateException("Could not create a virtual thread executor", exception);
+        }
+    }
+
+    private static void checkSupported() {
+        if(!isSupported()) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or newer (running %s). Set saejina.threads.virtual=false"
+                    .formatted(Runtime.version()));
+        }
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch(ClassNotFoundException exception) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        if(type == null) {
+            return null;
+        }
+
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch(NoSuchMethodException exception) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
+import net.dv8tion.jda.api.events.guild.override.PermissionOverrideUpdateEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ChannelVisibilityIndexTests {
+
+    private ChannelVisibilityIndex index;
+
+    private Guild guild;
+    private Role publicRole;
+    private Role staffRole;
+    private TextChannel publicChannel;
+    private TextChannel staffChannel;
+    private PermissionOverride publicOverride;
+
+    @BeforeEach
+    void initTest() {
+        index = new ChannelVisibilityIndex();
+
+        guild = Mockito.mock(Guild.class);
+        publicRole = Mockito.mock(Role.class);
+        staffRole = Mockito.mock(Role.class);
+        publicChannel = mockChannel(1L, "general");
+        staffChannel = mockChannel(2L, "staff");
+
+        publicOverride = Mockito.mock(PermissionOverride.class);
+        PermissionOverride staffOverride = Mockito.mock(PermissionOverride.class);
+
+        when(guild.getIdLong()).thenReturn(100L);
+        when(guild.getPublicRole()).thenReturn(publicRole);
+        when(guild.getRoleById(10L)).thenReturn(staffRole);
+        when(guild.getTextChannels()).thenReturn(List.of(publicChannel, staffChannel));
+
+        when(publicRole.getPermissionsRaw()).thenReturn(Permission.VIEW_CHANNEL.getRawValue());
+        when(staffRole.getIdLong()).thenReturn(10L);
+
+        when(publicOverride.getDeniedRaw()).thenReturn(Permission.VIEW_CHANNEL.getRawValue());
+        when(staffOverride.getAllowedRaw()).thenReturn(Permission.VIEW_CHANNEL.getRawValue());
+        when(staffChannel.getPermissionOverride(publicRole)).thenReturn(publicOverride);
+        when(staffChannel.getPermissionOverride(staffRole)).thenReturn(staffOverride);
+    }
+
+    @Test
+    void getVisibleChannelsTest() {
+        // GIVEN
+        Member staffMember = mockMember(List.of(staffRole));
+        Member regularMember = mockMember(List.of());
+
+        List<Selectable> staffResult;
+        List<Selectable> regularResult;
+
+        // WHEN
+        staffResult = index.getVisibleChannels(staffMember);
+        regularResult = index.getVisibleChannels(regularMember);
+
+        // THEN
+        assertThat(staffResult).containsExactly(
+                new SelectableImpl(1L, "general"),
+                new SelectableImpl(2L, "staff")
+        );
+        assertThat(regularResult).containsExactly(new SelectableImpl(1L, "general"));
+        verify(staffMember, never()).hasAccess(any());
+        verify(regularMember, never()).hasAccess(any());
+    }
+
+    @Test
+    void shareVisibilityBetweenMembersWithSameRolesTest() {
+        // GIVEN
+        Member firstMember = mockMember(List.of(staffRole));
+        Member secondMember = mockMember(List.of(staffRole));
+
+        List<Selectable> result;
+
+        // WHEN
+        index.getVisibleChannels(firstMember);
+        result = index.getVisibleChannels(secondMember);
+
+        // THEN
+        verify(staffChannel, times(1)).getPermissionOverride(staffRole);
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void getAllChannelsForAdministratorTest() {
+        // GIVEN
+        Role adminRole = Mockito.mock(Role.class);
+        Member admin = mockMember(List.of(adminRole));
+
+        List<Selectable> result;
+
+        when(adminRole.getIdLong()).thenReturn(20L);
+        when(adminRole.getPermissionsRaw()).thenReturn(Permission.ADMINISTRATOR.getRawValue());
+        when(guild.getRoleById(20L)).thenReturn(adminRole);
+        // WHEN
+        result = index.getVisibleChannels(admin);
+
+        // THEN
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void getAllChannelsForOwnerTest() {
+        // GIVEN
+        Member owner = mockMember(List.of());
+
+        List<Selectable> result;
+
+        when(owner.isOwner()).thenReturn(true);
+        // WHEN
+        result = index.getVisibleChannels(owner);
+
+        // THEN
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void resolveMemberWithOverrideIndividuallyTest() {
+        // GIVEN
+        Member member = mockMember(List.of());
+        PermissionOverride memberOverride = Mockito.mock(PermissionOverride.class);
+
+        List<Selectable> result;
+
+        when(member.getIdLong()).thenReturn(123L);
+        when(memberOverride.getIdLong()).thenReturn(123L);
+        when(staffChannel.getMemberPermissionOverrides()).thenReturn(List.of(memberOverride));
+        when(member.hasAccess(publicChannel)).thenReturn(false);
+        when(member.hasAccess(staffChannel)).thenReturn(true);
+        // WHEN
+        result = index.getVisibleChannels(member);
+
+        // THEN
+        verify(member, times(2)).hasAccess(any());
+        assertThat(result).containsExactly(new SelectableImpl(2L, "staff"));
+    }
+
+    @Test
+    void updateChannelOnOverrideEventTest() {
+        // GIVEN
+        Member member = mockMember(List.of());
+        PermissionOverrideUpdateEvent event = Mockito.mock(PermissionOverrideUpdateEvent.class);
+
+        List<Selectable> result;
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getChannel()).thenReturn(staffChannel);
+        when(event.isMemberOverride()).thenReturn(false);
+        index.getVisibleChannels(member);
+        when(publicOverride.getDeniedRaw()).thenReturn(0L);
+        // WHEN
+        index.onPermissionOverride(event);
+        result = index.getVisibleChannels(member);
+
+        // THEN
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void keepOverrideUpdateDuringVisibilityComputationTest() throws InterruptedException {
+        // GIVEN
+        Member staffMember = mockMember(List.of(staffRole));
+        Member regularMember = mockMember(List.of());
+        PermissionOverrideUpdateEvent event = Mockito.mock(PermissionOverrideUpdateEvent.class);
+
+        AtomicLong deniedPermissions = new AtomicLong(Permission.VIEW_CHANNEL.getRawValue());
+        AtomicBoolean firstRead = new AtomicBoolean(true);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getChannel()).thenReturn(staffChannel);
+        when(event.isMemberOverride()).thenReturn(false);
+        index.getVisibleChannels(staffMember);
+        // The regular member's visibility reads the override, then waits for the override update
+        when(publicOverride.getDeniedRaw()).thenAnswer(invocation -> {
+            long denied = deniedPermissions.get();
+            if(firstRead.getAndSet(false)) {
+                reading.countDown();
+                updated.await();
+            }
+            return denied;
+        });
+
+        // WHEN
+        Thread reader = new Thread(() -> index.getVisibleChannels(regularMember));
+        reader.start();
+        reading.await();
+
+        deniedPermissions.set(0L);
+        Thread eventThread = new Thread(() -> index.onPermissionOverride(event));
+        eventThread.start();
+        while(eventThread.isAlive() && eventThread.getState() != Thread.State.BLOCKED) {
+            Thread.onSpinWait();
+        }
+        updated.countDown();
+        reader.join();
+        eventThread.join();
+        List<Selectable> result = index.getVisibleChannels(regularMember);
+
+        // THEN
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void invalidateRoleOnPermissionsUpdateTest() {
+        // GIVEN
+        Member member = mockMember(List.of());
+        RoleUpdatePermissionsEvent event = Mockito.mock(RoleUpdatePermissionsEvent.class);
+
+        List<Selectable> result;
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getRole()).thenReturn(publicRole);
+        when(publicRole.isPublicRole()).thenReturn(true);
+        index.getVisibleChannels(member);
+        when(publicRole.getPermissionsRaw()).thenReturn(0L);
+        // WHEN
+        index.onRolePermissionsUpdate(event);
+        result = index.getVisibleChannels(member);
+
+        // THEN
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void rebuildOnChannelCreateTest() {
+        // GIVEN
+        Member member = mockMember(List.of());
+        TextChannel newChannel = mockChannel(3L, "new-channel");
+        ChannelCreateEvent event = Mockito.mock(ChannelCreateEvent.class);
+
+        List<Selectable> result;
+
+        when(event.isFromGuild()).thenReturn(true);
+        when(event.getChannelType()).thenReturn(ChannelType.TEXT);
+        when(event.getGuild()).thenReturn(guild);
+        index.getVisibleChannels(member);
+        when(guild.getTextChannels()).thenReturn(List.of(publicChannel, staffChannel, newChannel));
+        // WHEN
+        index.onChannelCreate(event);
+        result = index.getVisibleChannels(member);
+
+        // THEN
+        assertThat(result).containsExactly(
+                new SelectableImpl(1L, "general"),
+                new SelectableImpl(3L, "new-channel")
+        );
+    }
+
+    private Member mockMember(List<Role> roles) {
+        Member member = Mockito.mock(Member.class);
+        when(member.getGuild()).thenReturn(guild);
+        when(member.getRoles()).thenReturn(roles);
+        return member;
+    }
+
+    private static TextChannel mockChannel(long id, String name) {
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        when(channel.getIdLong()).thenReturn(id);
+        when(channel.getName()).thenReturn(name);
+        return channel;
+    }
+
+}
@@ -0,0 +1,141 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LastMessageCacheTests {
+
+    private static final long CHANNEL_ID = 1234L;
+    private static final long SELF_ID = 42L;
+
+    private LastMessageCache cache;
+
+    private MessageChannel channel;
+
+    @BeforeEach
+    void initTest() {
+        cache = new LastMessageCache();
+
+        channel = Mockito.mock(MessageChannel.class);
+        when(channel.getIdLong()).thenReturn(CHANNEL_ID);
+    }
+
+    @Test
+    void getSelfMessageTest() {
+        // GIVEN
+        Message message = mockMessage(100L, SELF_ID);
+
+        // WHEN
+        cache.put(message, SELF_ID);
+        LastMessageCache.LastMessage result = cache.get(CHANNEL_ID, 100L);
+
+        // THEN
+        assertThat(result.messageId()).isEqualTo(100L);
+        assertThat(result.selfMessage()).isSameAs(message);
+    }
+
+    @Test
+    void onlyKeepIdOfOtherUsersMessagesTest() {
+        // GIVEN
+        Message message = mockMessage(100L, 43L);
+
+        // WHEN
+        cache.put(message, SELF_ID);
+        LastMessageCache.LastMessage result = cache.get(CHANNEL_ID, 100L);
+
+        // THEN
+        assertThat(result.messageId()).isEqualTo(100L);
+        assertThat(result.selfMessage()).isNull();
+    }
+
+    @Test
+    void missWhenNewerMessageWasSentTest() {
+        // GIVEN
+        cache.put(mockMessage(100L, SELF_ID), SELF_ID);
+
+        // WHEN
+        LastMessageCache.LastMessage result = cache.get(CHANNEL_ID, 101L);
+
+        // THEN
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void keepNewestMessageTest() {
+        // GIVEN
+        Message newerMessage = mockMessage(101L, 43L);
+        Message olderMessage = mockMessage(100L, SELF_ID);
+
+        // WHEN
+        cache.put(newerMessage, SELF_ID);
+        cache.put(olderMessage, SELF_ID);
+
+        // THEN
+        assertThat(cache.get(CHANNEL_ID, 101L)).isNotNull();
+        assertThat(cache.get(CHANNEL_ID, 100L)).isNull();
+    }
+
+    @Test
+    void replaceEditedSelfMessageTest() {
+        // GIVEN
+        Message message = mockMessage(100L, SELF_ID);
+        Message editedMessage = mockMessage(100L, SELF_ID);
+        cache.put(message, SELF_ID);
+
+        // WHEN
+        cache.update(editedMessage);
+
+        // THEN
+        assertThat(cache.get(CHANNEL_ID, 100L).selfMessage()).isSameAs(editedMessage);
+    }
+
+    @Test
+    void ignoreEditOfOlderMessageTest() {
+        // GIVEN
+        Message latestMessage = mockMessage(101L, SELF_ID);
+        cache.put(latestMessage, SELF_ID);
+
+        // WHEN
+        cache.update(mockMessage(100L, SELF_ID));
+
+        // THEN
+        assertThat(cache.get(CHANNEL_ID, 101L).selfMessage()).isSameAs(latestMessage);
+    }
+
+    @Test
+    void dropDeletedMessageTest() {
+        // GIVEN
+        cache.put(mockMessage(100L, SELF_ID), SELF_ID);
+
+        MessageDeleteEvent event = Mockito.mock(MessageDeleteEvent.class);
+        when(event.getChannel()).thenReturn(channel);
+        when(event.getMessageIdLong()).thenReturn(100L);
+
+        // WHEN
+        cache.onMessageDelete(event);
+
+        // THEN
+        assertThat(cache.get(CHANNEL_ID, 100L)).isNull();
+    }
+
+    private Message mockMessage(long messageId, long authorId) {
+        Message message = Mockito.mock(Message.class);
+        User author = Mockito.mock(User.class);
+
+        when(message.getIdLong()).thenReturn(messageId);
+        when(message.getChannel()).thenReturn(channel);
+        when(message.getAuthor()).thenReturn(author);
+        when(author.getIdLong()).thenReturn(authorId);
+
+        return message;
+    }
+
+}
@@ -0,0 +1,130 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberUpdateEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class MemberCacheTests {
+
+    private MemberCache cache;
+
+    private Member member;
+    private Guild guild;
+    private User user;
+
+    @BeforeEach
+    void initTest() {
+        cache = new MemberCache(2);
+
+        member = Mockito.mock(Member.class);
+        guild = Mockito.mock(Guild.class);
+        user = Mockito.mock(User.class);
+
+        when(guild.getIdLong()).thenReturn(1L);
+        when(user.getIdLong()).thenReturn(123L);
+    }
+
+    @Test
+    void countHitsAndMissesTest() {
+        // GIVEN
+        cache.put(1L, 123L, member);
+
+        // WHEN
+        Member cached = cache.get(1L, 123L);
+        Member missing = cache.get(1L, 456L);
+
+        // THEN
+        assertThat(cached).isEqualTo(member);
+        assertThat(missing).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictLeastRecentlyUsedMemberTest() {
+        // GIVEN
+        cache.put(1L, 1L, member);
+        cache.put(1L, 2L, member);
+        cache.get(1L, 1L);
+
+        // WHEN
+        cache.put(1L, 3L, member);
+
+        // THEN
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(1L, 1L)).isNotNull();
+        assertThat(cache.get(1L, 2L)).isNull();
+    }
+
+    @Test
+    void invalidateOnMemberUpdateTest() {
+        // GIVEN
+        GuildMemberUpdateEvent event = Mockito.mock(GuildMemberUpdateEvent.class);
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getUser()).thenReturn(user);
+        cache.put(1L, 123L, member);
+        // WHEN
+        cache.onMemberUpdate(event);
+
+        // THEN
+        assertThat(cache.get(1L, 123L)).isNull();
+    }
+
+    @Test
+    void invalidateOnRoleAddTest() {
+        // GIVEN
+        GuildMemberRoleAddEvent event = Mockito.mock(GuildMemberRoleAddEvent.class);
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getUser()).thenReturn(user);
+        cache.put(1L, 123L, member);
+        // WHEN
+        cache.onMemberRoleAdd(event);
+
+        // THEN
+        assertThat(cache.get(1L, 123L)).isNull();
+    }
+
+    @Test
+    void invalidateOnMemberRemoveTest() {
+        // GIVEN
+        GuildMemberRemoveEvent event = Mockito.mock(GuildMemberRemoveEvent.class);
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getUser()).thenReturn(user);
+        cache.put(1L, 123L, member);
+        // WHEN
+        cache.onMemberRemove(event);
+
+        // THEN
+        assertThat(cache.get(1L, 123L)).isNull();
+    }
+
+    @Test
+    void invalidateGuildOnLeaveTest() {
+        // GIVEN
+        GuildLeaveEvent event = Mockito.mock(GuildLeaveEvent.class);
+
+        when(event.getGuild()).thenReturn(guild);
+        cache.put(1L, 123L, member);
+        cache.put(2L, 123L, member);
+        // WHEN
+        cache.onGuildLeave(event);
+
+        // THEN
+        assertThat(cache.get(1L, 123L)).isNull();
+        assertThat(cache.get(2L, 123L)).isNotNull();
+    }
+
+}
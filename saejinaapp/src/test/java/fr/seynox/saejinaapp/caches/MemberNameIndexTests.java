@@ -0,0 +1,252 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.models.SelectablePage;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class MemberNameIndexTests {
+
+    private MemberNameIndex index;
+    private UserGuildIndex userGuildIndex;
+
+    private Guild guild;
+
+    @BeforeEach
+    void initTest() {
+        userGuildIndex = Mockito.mock(UserGuildIndex.class);
+        index = new MemberNameIndex(userGuildIndex);
+
+        guild = Mockito.mock(Guild.class);
+        when(guild.getIdLong()).thenReturn(1L);
+    }
+
+    @Test
+    void searchByPrefixTest() {
+        // GIVEN
+        List<Member> members = List.of(
+                mockMember(1L, "Charlie"),
+                mockMember(2L, "bob"),
+                mockMember(3L, "Bobby"),
+                mockMember(4L, "Alice")
+        );
+
+        SelectablePage result;
+
+        when(guild.getMembers()).thenReturn(members);
+        // WHEN
+        result = index.search(guild, "BO", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(
+                new SelectableImpl("<@2>", "bob"),
+                new SelectableImpl("<@3>", "Bobby")
+        );
+        assertThat(result.isHasNext()).isFalse();
+    }
+
+    @Test
+    void searchWithEmptyQueryTest() {
+        // GIVEN
+        List<Member> members = List.of(mockMember(1L, "Charlie"), mockMember(2L, "Alice"));
+
+        SelectablePage result;
+
+        when(guild.getMembers()).thenReturn(members);
+        // WHEN
+        result = index.search(guild, "", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(
+                new SelectableImpl("<@2>", "Alice"),
+                new SelectableImpl("<@1>", "Charlie")
+        );
+    }
+
+    @Test
+    void paginateResultsTest() {
+        // GIVEN
+        List<Member> members = new ArrayList<>();
+        for(int number = 0; number < MemberNameIndex.PAGE_SIZE + 5; number++) {
+            members.add(mockMember(number, "user%03d".formatted(number)));
+        }
+        members.add(mockMember(999L, "zed"));
+
+        SelectablePage firstPage;
+        SelectablePage secondPage;
+
+        when(guild.getMembers()).thenReturn(members);
+        // WHEN
+        firstPage = index.search(guild, "user", 0);
+        secondPage = index.search(guild, "user", 1);
+
+        // THEN
+        assertThat(firstPage.getContent()).hasSize(MemberNameIndex.PAGE_SIZE);
+        assertThat(firstPage.isHasNext()).isTrue();
+        assertThat(secondPage.getContent()).hasSize(5);
+        assertThat(secondPage.getPage()).isEqualTo(1);
+        assertThat(secondPage.isHasNext()).isFalse();
+    }
+
+    @Test
+    void buildIndexOnceTest() {
+        // GIVEN
+        List<Member> members = List.of(mockMember(1L, "Alice"));
+
+        when(guild.getMembers()).thenReturn(members);
+        // WHEN
+        index.search(guild, "a", 0);
+        index.search(guild, "b", 0);
+
+        // THEN
+        verify(guild, times(1)).getMembers();
+    }
+
+    @Test
+    void returnEmptyPageAfterLastResultTest() {
+        // GIVEN
+        List<Member> members = List.of(mockMember(1L, "Alice"), mockMember(2L, "Bob"));
+
+        SelectablePage result;
+
+        when(guild.getMembers()).thenReturn(members);
+        // WHEN
+        result = index.search(guild, "", 100_000_000);
+
+        // THEN
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getPage()).isEqualTo(100_000_000);
+        assertThat(result.isHasNext()).isFalse();
+    }
+
+    @Test
+    void insertJoiningMemberTest() {
+        // GIVEN
+        GuildMemberJoinEvent event = Mockito.mock(GuildMemberJoinEvent.class);
+        Member alice = mockMember(1L, "Alice");
+        Member charlie = mockMember(3L, "Charlie");
+        Member bob = mockMember(2L, "Bob");
+
+        SelectablePage result;
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getMember()).thenReturn(bob);
+        when(guild.getMembers()).thenReturn(List.of(alice, charlie));
+        index.search(guild, "", 0);
+        // WHEN
+        index.onMemberJoin(event);
+        index.onMemberJoin(event);
+        result = index.search(guild, "", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(
+                new SelectableImpl("<@1>", "Alice"),
+                new SelectableImpl("<@2>", "Bob"),
+                new SelectableImpl("<@3>", "Charlie")
+        );
+        verify(guild, times(1)).getMembers();
+    }
+
+    @Test
+    void removeLeavingMemberTest() {
+        // GIVEN
+        GuildMemberRemoveEvent event = Mockito.mock(GuildMemberRemoveEvent.class);
+        User user = Mockito.mock(User.class);
+        List<Member> members = List.of(mockMember(1L, "Alice"), mockMember(2L, "Bob"), mockMember(3L, "Charlie"));
+
+        SelectablePage result;
+
+        when(user.getIdLong()).thenReturn(2L);
+        when(event.getUser()).thenReturn(user);
+        when(event.getGuild()).thenReturn(guild);
+        when(guild.getMembers()).thenReturn(members);
+        index.search(guild, "", 0);
+        // WHEN
+        index.onMemberRemove(event);
+        result = index.search(guild, "", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(
+                new SelectableImpl("<@1>", "Alice"),
+                new SelectableImpl("<@3>", "Charlie")
+        );
+        verify(guild, times(1)).getMembers();
+    }
+
+    @Test
+    void moveRenamedMemberTest() {
+        // GIVEN
+        GuildMemberUpdateNicknameEvent event = Mockito.mock(GuildMemberUpdateNicknameEvent.class);
+        Member alice = mockMember(1L, "Alice");
+        Member bob = mockMember(2L, "Bob");
+
+        SelectablePage result;
+
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getMember()).thenReturn(alice);
+        when(guild.getMembers()).thenReturn(List.of(alice, bob));
+        index.search(guild, "", 0);
+        when(alice.getEffectiveName()).thenReturn("Zoe");
+        // WHEN
+        index.onNicknameUpdate(event);
+        result = index.search(guild, "", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(
+                new SelectableImpl("<@2>", "Bob"),
+                new SelectableImpl("<@1>", "Zoe")
+        );
+        verify(guild, times(1)).getMembers();
+    }
+
+    @Test
+    void updateUserGuildsOnNameUpdateTest() {
+        // GIVEN
+        UserUpdateNameEvent event = Mockito.mock(UserUpdateNameEvent.class);
+        User user = Mockito.mock(User.class);
+        JDA jda = Mockito.mock(JDA.class);
+        Member alice = mockMember(1L, "Alice");
+
+        SelectablePage result;
+
+        when(user.getIdLong()).thenReturn(1L);
+        when(event.getUser()).thenReturn(user);
+        when(event.getJDA()).thenReturn(jda);
+        when(jda.getGuildById(1L)).thenReturn(guild);
+        when(guild.getMemberById(1L)).thenReturn(alice);
+        when(userGuildIndex.getGuildIds(1L)).thenReturn(new long[] {1L});
+        when(guild.getMembers()).thenReturn(List.of(alice));
+        index.search(guild, "", 0);
+        when(alice.getEffectiveName()).thenReturn("Alicia");
+        // WHEN
+        index.onUserNameUpdate(event);
+        result = index.search(guild, "alicia", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(new SelectableImpl("<@1>", "Alicia"));
+        verify(guild, times(1)).getMembers();
+    }
+
+    private static Member mockMember(long id, String name) {
+        Member member = Mockito.mock(Member.class);
+        when(member.getIdLong()).thenReturn(id);
+        when(member.getEffectiveName()).thenReturn(name);
+        return member;
+    }
+
+}
@@ -0,0 +1,182 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.role.RoleCreateEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePositionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RoleListCacheTests {
+
+    private RoleListCache cache;
+
+    private Guild guild;
+    private Role adminRole;
+    private Role staffRole;
+    private Role playerRole;
+    private Role publicRole;
+
+    @BeforeEach
+    void initTest() {
+        cache = new RoleListCache();
+
+        guild = Mockito.mock(Guild.class);
+        adminRole = mockRole(1L, "Admin");
+        staffRole = mockRole(2L, "Staff");
+        playerRole = mockRole(3L, "Player");
+        publicRole = mockRole(4L, "@everyone");
+
+        when(guild.getIdLong()).thenReturn(100L);
+        when(publicRole.isPublicRole()).thenReturn(true);
+        when(guild.getRoles()).thenReturn(List.of(adminRole, staffRole, playerRole, publicRole));
+    }
+
+    @Test
+    void getRolesBelowTopRoleTest() {
+        // GIVEN
+        Member member = mockMember(List.of(staffRole, playerRole));
+
+        List<Selectable> result;
+
+        // WHEN
+        result = cache.getAssignableRoles(member);
+
+        // THEN
+        assertThat(result).containsExactly(new SelectableImpl(3L, "Player"));
+        verify(member, never()).canInteract(any(Role.class));
+    }
+
+    @Test
+    void getAllRolesForOwnerTest() {
+        // GIVEN
+        Member owner = mockMember(List.of());
+
+        List<Selectable> result;
+
+        when(owner.isOwner()).thenReturn(true);
+        // WHEN
+        result = cache.getAssignableRoles(owner);
+
+        // THEN
+        assertThat(result).containsExactly(
+                new SelectableImpl(1L, "Admin"),
+                new SelectableImpl(2L, "Staff"),
+                new SelectableImpl(3L, "Player")
+        );
+    }
+
+    @Test
+    void getNoRoleForMemberWithoutRolesTest() {
+        // GIVEN
+        Member member = mockMember(List.of());
+
+        List<Selectable> result;
+
+        // WHEN
+        result = cache.getAssignableRoles(member);
+
+        // THEN
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shareListBetweenMembersWithSameTopRoleTest() {
+        // GIVEN
+        Member firstMember = mockMember(List.of(staffRole));
+        Member secondMember = mockMember(List.of(staffRole, playerRole));
+
+        List<Selectable> firstResult;
+        List<Selectable> secondResult;
+
+        // WHEN
+        firstResult = cache.getAssignableRoles(firstMember);
+        secondResult = cache.getAssignableRoles(secondMember);
+
+        // THEN
+        assertThat(secondResult).isSameAs(firstResult);
+    }
+
+    @Test
+    void getMentionableRolesTest() {
+        // GIVEN
+        List<Selectable> result;
+
+        when(staffRole.isMentionable()).thenReturn(true);
+        when(staffRole.getAsMention()).thenReturn("<@&2>");
+        // WHEN
+        result = cache.getMentionableRoles(guild);
+
+        // THEN
+        assertThat(result).containsExactly(new SelectableImpl("<@&2>", "Staff"));
+    }
+
+    @Test
+    void invalidateOnRoleCreateTest() {
+        // GIVEN
+        Member member = mockMember(List.of(staffRole));
+        Role newRole = mockRole(5L, "New role");
+        RoleCreateEvent event = Mockito.mock(RoleCreateEvent.class);
+
+        List<Selectable> result;
+
+        when(event.getGuild()).thenReturn(guild);
+        cache.getAssignableRoles(member);
+        when(guild.getRoles()).thenReturn(List.of(adminRole, staffRole, playerRole, newRole, publicRole));
+        // WHEN
+        cache.onRoleCreate(event);
+        result = cache.getAssignableRoles(member);
+
+        // THEN
+        assertThat(result).containsExactly(
+                new SelectableImpl(3L, "Player"),
+                new SelectableImpl(5L, "New role")
+        );
+    }
+
+    @Test
+    void invalidateOnRoleReorderTest() {
+        // GIVEN
+        Member member = mockMember(List.of(staffRole));
+        RoleUpdatePositionEvent event = Mockito.mock(RoleUpdatePositionEvent.class);
+
+        List<Selectable> result;
+
+        when(event.getGuild()).thenReturn(guild);
+        cache.getAssignableRoles(member);
+        when(guild.getRoles()).thenReturn(List.of(staffRole, adminRole, playerRole, publicRole));
+        // WHEN
+        cache.onRoleUpdate(event);
+        result = cache.getAssignableRoles(member);
+
+        // THEN
+        assertThat(result).containsExactly(
+                new SelectableImpl(1L, "Admin"),
+                new SelectableImpl(3L, "Player")
+        );
+    }
+
+    private Member mockMember(List<Role> roles) {
+        Member member = Mockito.mock(Member.class);
+        when(member.getGuild()).thenReturn(guild);
+        when(member.getRoles()).thenReturn(roles);
+        return member;
+    }
+
+    private static Role mockRole(long id, String name) {
+        Role role = Mockito.mock(Role.class);
+        when(role.getIdLong()).thenReturn(id);
+        when(role.getName()).thenReturn(name);
+        return role;
+    }
+
+}
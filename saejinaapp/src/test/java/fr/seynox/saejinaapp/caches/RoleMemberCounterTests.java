@@ -0,0 +1,182 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RoleMemberCounterTests {
+
+    private static final long GUILD_ID = 42L;
+
+    private RoleMemberCounter counter;
+
+    private Guild guild;
+    private Role firstRole;
+    private Role secondRole;
+
+    @BeforeEach
+    void initTest() {
+        counter = new RoleMemberCounter();
+
+        guild = Mockito.mock(Guild.class);
+        when(guild.getIdLong()).thenReturn(GUILD_ID);
+
+        firstRole = mockRole(1L);
+        secondRole = mockRole(2L);
+    }
+
+    @Test
+    void countMembersOnReadyTest() {
+        // GIVEN
+        Member firstMember = mockMember(firstRole, secondRole);
+        Member secondMember = mockMember(firstRole);
+
+        // WHEN
+        ready(firstMember, secondMember);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isEqualTo(2);
+        assertThat(counter.getMemberCount(GUILD_ID, 2L)).isEqualTo(1);
+    }
+
+    @Test
+    void countUnknownRoleAndServerAsZeroTest() {
+        // GIVEN
+        ready(mockMember(firstRole));
+
+        // WHEN
+        long unknownRole = counter.getMemberCount(GUILD_ID, 3L);
+        long unknownServer = counter.getMemberCount(43L, 1L);
+
+        // THEN
+        assertThat(unknownRole).isZero();
+        assertThat(unknownServer).isZero();
+    }
+
+    @Test
+    void updateCountOnRoleEventsTest() {
+        // GIVEN
+        ready(mockMember(firstRole));
+
+        GuildMemberRoleAddEvent addEvent = Mockito.mock(GuildMemberRoleAddEvent.class);
+        when(addEvent.getGuild()).thenReturn(guild);
+        when(addEvent.getRoles()).thenReturn(List.of(firstRole, secondRole));
+
+        GuildMemberRoleRemoveEvent removeEvent = Mockito.mock(GuildMemberRoleRemoveEvent.class);
+        when(removeEvent.getGuild()).thenReturn(guild);
+        when(removeEvent.getRoles()).thenReturn(List.of(firstRole));
+
+        // WHEN
+        counter.onMemberRoleAdd(addEvent);
+        counter.onMemberRoleAdd(addEvent);
+        counter.onMemberRoleRemove(removeEvent);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isEqualTo(2);
+        assertThat(counter.getMemberCount(GUILD_ID, 2L)).isEqualTo(2);
+    }
+
+    @Test
+    void removeRolesOfLeavingMemberTest() {
+        // GIVEN
+        Member member = mockMember(firstRole, secondRole);
+        ready(member, mockMember(firstRole));
+
+        GuildMemberRemoveEvent event = Mockito.mock(GuildMemberRemoveEvent.class);
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getMember()).thenReturn(member);
+
+        // WHEN
+        counter.onMemberRemove(event);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isEqualTo(1);
+        assertThat(counter.getMemberCount(GUILD_ID, 2L)).isZero();
+    }
+
+    @Test
+    void forgetDeletedRoleTest() {
+        // GIVEN
+        ready(mockMember(firstRole, secondRole));
+
+        RoleDeleteEvent event = Mockito.mock(RoleDeleteEvent.class);
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getRole()).thenReturn(firstRole);
+
+        // WHEN
+        counter.onRoleDelete(event);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isZero();
+        assertThat(counter.getMemberCount(GUILD_ID, 2L)).isEqualTo(1);
+    }
+
+    @Test
+    void forgetServerOnLeaveTest() {
+        // GIVEN
+        ready(mockMember(firstRole));
+
+        GuildLeaveEvent event = Mockito.mock(GuildLeaveEvent.class);
+        when(event.getGuild()).thenReturn(guild);
+
+        // WHEN
+        counter.onGuildLeave(event);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isZero();
+    }
+
+    @Test
+    void ignoreRoleEventsBeforeServerIsCountedTest() {
+        // GIVEN
+        GuildMemberRoleAddEvent event = Mockito.mock(GuildMemberRoleAddEvent.class);
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getRoles()).thenReturn(List.of(firstRole));
+
+        // WHEN
+        counter.onMemberRoleAdd(event);
+
+        // THEN
+        assertThat(counter.getMemberCount(GUILD_ID, 1L)).isZero();
+    }
+
+    private void ready(Member... members) {
+        JDA jda = Mockito.mock(JDA.class);
+        ReadyEvent event = Mockito.mock(ReadyEvent.class);
+        when(event.getJDA()).thenReturn(jda);
+        when(jda.getGuilds()).thenReturn(List.of(guild));
+        when(guild.getMembers()).thenReturn(List.of(members));
+
+        counter.onReady(event);
+    }
+
+    private static Role mockRole(long roleId) {
+        Role role = Mockito.mock(Role.class);
+        when(role.getIdLong()).thenReturn(roleId);
+
+        return role;
+    }
+
+    private static Member mockMember(Role... roles) {
+        Member member = Mockito.mock(Member.class);
+        when(member.getRoles()).thenReturn(List.of(roles));
+
+        return member;
+    }
+
+}
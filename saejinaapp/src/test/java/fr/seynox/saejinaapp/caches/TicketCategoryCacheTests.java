@@ -0,0 +1,145 @@
+package fr.seynox.saejinaapp.caches;
+
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static fr.seynox.saejinaapp.services.TicketService.TICKETS_CATEGORY_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TicketCategoryCacheTests {
+
+    private TicketCategoryCache cache;
+
+    private Guild guild;
+    private Category mainCategory;
+    private Category overflowCategory;
+
+    @BeforeEach
+    void initTest() {
+        cache = new TicketCategoryCache();
+
+        guild = Mockito.mock(Guild.class);
+        when(guild.getIdLong()).thenReturn(42L);
+
+        mainCategory = mockCategory(1L, TICKETS_CATEGORY_NAME);
+        overflowCategory = mockCategory(2L, TICKETS_CATEGORY_NAME + " 2");
+        Category otherCategory = mockCategory(3L, "General");
+        when(guild.getCategories()).thenReturn(List.of(mainCategory, otherCategory, overflowCategory));
+    }
+
+    @Test
+    void searchCategoriesOnceTest() {
+        // GIVEN
+
+        // WHEN
+        List<Category> first = cache.getTicketCategories(guild);
+        List<Category> second = cache.getTicketCategories(guild);
+
+        // THEN
+        assertThat(first).containsExactlyInAnyOrder(mainCategory, overflowCategory);
+        assertThat(second).containsExactlyInAnyOrder(mainCategory, overflowCategory);
+        verify(guild, times(1)).getCategories();
+    }
+
+    @Test
+    void rotateCategoriesTest() {
+        // GIVEN
+
+        // WHEN
+        List<Category> first = cache.getTicketCategories(guild);
+        List<Category> second = cache.getTicketCategories(guild);
+        List<Category> third = cache.getTicketCategories(guild);
+
+        // THEN
+        assertThat(first).containsExactly(mainCategory, overflowCategory);
+        assertThat(second).containsExactly(overflowCategory, mainCategory);
+        assertThat(third).containsExactly(mainCategory, overflowCategory);
+    }
+
+    @Test
+    void addCreatedCategoryTest() {
+        // GIVEN
+        Category createdCategory = mockCategory(4L, TICKETS_CATEGORY_NAME + " 3");
+        cache.getTicketCategories(guild);
+
+        // WHEN
+        cache.addTicketCategory(guild, createdCategory);
+        cache.addTicketCategory(guild, createdCategory);
+        List<Category> result = cache.getTicketCategories(guild);
+
+        // THEN
+        assertThat(result).hasSize(3).contains(createdCategory);
+    }
+
+    @Test
+    void forgetDeletedCategoryTest() {
+        // GIVEN
+        cache.getTicketCategories(guild);
+
+        ChannelDeleteEvent event = Mockito.mock(ChannelDeleteEvent.class);
+        when(event.isFromType(ChannelType.CATEGORY)).thenReturn(true);
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getChannel()).thenReturn(overflowCategory);
+
+        // WHEN
+        cache.onChannelDelete(event);
+        List<Category> result = cache.getTicketCategories(guild);
+
+        // THEN
+        assertThat(result).containsExactly(mainCategory);
+        verify(guild, times(1)).getCategories();
+    }
+
+    @Test
+    void searchAgainAfterCategoryRenameTest() {
+        // GIVEN
+        cache.getTicketCategories(guild);
+
+        ChannelUpdateNameEvent event = Mockito.mock(ChannelUpdateNameEvent.class);
+        when(event.isFromType(ChannelType.CATEGORY)).thenReturn(true);
+        when(event.getGuild()).thenReturn(guild);
+
+        when(overflowCategory.getName()).thenReturn("Archives");
+        // WHEN
+        cache.onChannelRename(event);
+        List<Category> result = cache.getTicketCategories(guild);
+
+        // THEN
+        assertThat(result).containsExactly(mainCategory);
+        verify(guild, times(2)).getCategories();
+    }
+
+    @Test
+    void matchTicketCategoryNamesTest() {
+        // GIVEN
+
+        // WHEN
+        boolean main = TicketCategoryCache.isTicketCategoryName(TICKETS_CATEGORY_NAME);
+        boolean overflow = TicketCategoryCache.isTicketCategoryName(TICKETS_CATEGORY_NAME + " 12");
+        boolean other = TicketCategoryCache.isTicketCategoryName(TICKETS_CATEGORY_NAME + " archive");
+
+        // THEN
+        assertThat(main).isTrue();
+        assertThat(overflow).isTrue();
+        assertThat(other).isFalse();
+    }
+
+    private Category mockCategory(long categoryId, String name) {
+        Category category = Mockito.mock(Category.class);
+        when(category.getIdLong()).thenReturn(categoryId);
+        when(category.getName()).thenReturn(name);
+        when(guild.getCategoryById(categoryId)).thenReturn(category);
+
+        return category;
+    }
+
+}
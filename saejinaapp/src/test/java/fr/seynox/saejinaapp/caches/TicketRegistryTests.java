@@ -0,0 +1,220 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.scheduling.DelayedActionScheduler;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
+import static fr.seynox.saejinaapp.services.TicketService.TICKETS_CATEGORY_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TicketRegistryTests {
+
+    private DelayedActionScheduler scheduler;
+    private TicketRegistry registry;
+
+    private Guild guild;
+
+    @BeforeEach
+    void initTest() {
+        scheduler = Mockito.mock(DelayedActionScheduler.class);
+        registry = new TicketRegistry(scheduler);
+
+        guild = Mockito.mock(Guild.class);
+        when(guild.getIdLong()).thenReturn(42L);
+    }
+
+    @Test
+    void openTicketTest() {
+        // GIVEN
+        TextChannel channel = mockChannel(1L, "ticket-1");
+
+        // WHEN
+        registry.open(channel);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).hasSize(1);
+        OpenTicket ticket = result.get(0);
+        assertThat(ticket.getGuildId()).isEqualTo(42L);
+        assertThat(ticket.getChannelId()).isEqualTo(1L);
+        assertThat(ticket.getChannelName()).isEqualTo("ticket-1");
+        assertThat(ticket.getOwnerId()).isNull();
+        assertThat(ticket.getClosingAt()).isNull();
+    }
+
+    @Test
+    void setTicketOwnerTest() {
+        // GIVEN
+        TextChannel channel = mockChannel(1L, "ticket-1");
+        Member member = Mockito.mock(Member.class);
+        when(member.getId()).thenReturn("123456789");
+        when(member.getEffectiveName()).thenReturn("Bob");
+
+        registry.open(channel);
+        OpenTicket openedTicket = registry.getOpenTickets(42L).get(0);
+        // WHEN
+        registry.setOwner(channel, member, "Refund request");
+        OpenTicket result = registry.getOpenTickets(42L).get(0);
+
+        // THEN
+        assertThat(result.getOwnerId()).isEqualTo("123456789");
+        assertThat(result.getOwnerName()).isEqualTo("Bob");
+        assertThat(result.getSubject()).isEqualTo("Refund request");
+        assertThat(openedTicket.getOwnerId()).isNull();
+    }
+
+    @Test
+    void setAndCancelTicketClosingTest() {
+        // GIVEN
+        TextChannel channel = mockChannel(1L, "ticket-1");
+        registry.open(channel);
+
+        // WHEN
+        registry.setClosingAt(channel, 5678L);
+        Long closingAt = registry.getOpenTickets(42L).get(0).getClosingAt();
+        registry.setClosingAt(channel, null);
+        Long cancelledClosingAt = registry.getOpenTickets(42L).get(0).getClosingAt();
+
+        // THEN
+        assertThat(closingAt).isEqualTo(5678L);
+        assertThat(cancelledClosingAt).isNull();
+    }
+
+    @Test
+    void ignoreUnknownTicketTest() {
+        // GIVEN
+        TextChannel channel = mockChannel(1L, "general");
+
+        // WHEN
+        registry.setClosingAt(channel, 5678L);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void removeDeletedTicketTest() {
+        // GIVEN
+        TextChannel channel = mockChannel(1L, "ticket-1");
+        TextChannel otherChannel = mockChannel(2L, "ticket-2");
+        registry.open(channel);
+        registry.open(otherChannel);
+
+        ChannelDeleteEvent event = Mockito.mock(ChannelDeleteEvent.class);
+        when(event.isFromGuild()).thenReturn(true);
+        when(event.getGuild()).thenReturn(guild);
+        when(event.getChannel()).thenReturn(channel);
+        // WHEN
+        registry.onChannelDelete(event);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).extracting(OpenTicket::getChannelId).containsExactly(2L);
+    }
+
+    @Test
+    void registerExistingTicketsOnReadyTest() {
+        // GIVEN
+        TextChannel oldTicket = mockChannel(1L, "ticket-1");
+        TextChannel recentTicket = mockChannel(2L, "ticket-2");
+        TextChannel otherChannel = mockChannel(3L, "rules");
+        TextChannel outsideTicket = mockChannel(4L, "ticket-3");
+        when(oldTicket.getTimeCreated()).thenReturn(OffsetDateTime.of(2022, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC));
+        when(recentTicket.getTimeCreated()).thenReturn(OffsetDateTime.of(2022, 6, 2, 12, 0, 0, 0, ZoneOffset.UTC));
+
+        Category ticketCategory = Mockito.mock(Category.class);
+        Category otherCategory = Mockito.mock(Category.class);
+        when(ticketCategory.getName()).thenReturn(TICKETS_CATEGORY_NAME);
+        when(ticketCategory.getTextChannels()).thenReturn(List.of(recentTicket, otherChannel, oldTicket));
+        when(otherCategory.getName()).thenReturn("General");
+        when(otherCategory.getTextChannels()).thenReturn(List.of(outsideTicket));
+        when(guild.getCategories()).thenReturn(List.of(ticketCategory, otherCategory));
+
+        ReadyEvent event = Mockito.mock(ReadyEvent.class);
+        JDA jda = Mockito.mock(JDA.class);
+        when(event.getJDA()).thenReturn(jda);
+        when(jda.getGuilds()).thenReturn(List.of(guild));
+        // WHEN
+        registry.onReady(event);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).extracting(OpenTicket::getChannelId).containsExactly(1L, 2L);
+        assertThat(result.get(0).getOpenedAt()).isEqualTo(oldTicket.getTimeCreated().toInstant().toEpochMilli());
+        assertThat(result).extracting(OpenTicket::getClosingAt).containsOnlyNulls();
+    }
+
+    @Test
+    void registerClosingTicketsOnReadyTest() {
+        // GIVEN
+        TextChannel closingTicket = mockChannel(1L, "ticket-1");
+        TextChannel openTicket = mockChannel(2L, "ticket-2");
+        OffsetDateTime createdAt = OffsetDateTime.of(2022, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        when(closingTicket.getTimeCreated()).thenReturn(createdAt);
+        when(openTicket.getTimeCreated()).thenReturn(createdAt.plusDays(1));
+
+        Category ticketCategory = Mockito.mock(Category.class);
+        when(ticketCategory.getName()).thenReturn(TICKETS_CATEGORY_NAME);
+        when(ticketCategory.getTextChannels()).thenReturn(List.of(closingTicket, openTicket));
+        when(guild.getCategories()).thenReturn(List.of(ticketCategory));
+
+        when(scheduler.getPendingActions()).thenReturn(List.of(
+                new DelayedAction("close", TICKET_CLOSE, 1L, 5678L),
+                new DelayedAction("deleted", TICKET_CLOSE, 3L, 9999L)
+        ));
+
+        ReadyEvent event = Mockito.mock(ReadyEvent.class);
+        JDA jda = Mockito.mock(JDA.class);
+        when(event.getJDA()).thenReturn(jda);
+        when(jda.getGuilds()).thenReturn(List.of(guild));
+        // WHEN
+        registry.onReady(event);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).extracting(OpenTicket::getClosingAt).containsExactly(5678L, null);
+    }
+
+    @Test
+    void forgetLeftServerTest() {
+        // GIVEN
+        registry.open(mockChannel(1L, "ticket-1"));
+
+        GuildLeaveEvent event = Mockito.mock(GuildLeaveEvent.class);
+        when(event.getGuild()).thenReturn(guild);
+        // WHEN
+        registry.onGuildLeave(event);
+        List<OpenTicket> result = registry.getOpenTickets(42L);
+
+        // THEN
+        assertThat(result).isEmpty();
+    }
+
+    private TextChannel mockChannel(long channelId, String name) {
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        when(channel.getIdLong()).thenReturn(channelId);
+        when(channel.getName()).thenReturn(name);
+        when(channel.getGuild()).thenReturn(guild);
+
+        return channel;
+    }
+
+}
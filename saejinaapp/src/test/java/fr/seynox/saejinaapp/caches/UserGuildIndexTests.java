@@ -0,0 +1,179 @@
+package fr.seynox.saejinaapp.caches;
+
+import fr.seynox.saejinaapp.utils.TypedEventManager;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class UserGuildIndexTests {
+
+    private UserGuildIndex index;
+
+    private JDA jda;
+    private Guild guildOne;
+    private Guild guildTwo;
+    private User user;
+
+    @BeforeEach
+    void initTest() {
+        index = new UserGuildIndex();
+
+        jda = Mockito.mock(JDA.class);
+        guildOne = mockGuild(1L);
+        guildTwo = mockGuild(2L);
+        user = Mockito.mock(User.class);
+
+        when(user.getIdLong()).thenReturn(123L);
+    }
+
+    @Test
+    void buildIndexOnReadyTest() {
+        // GIVEN
+        Member memberOne = mockMember(123L);
+        Member memberTwo = mockMember(123L);
+        Member otherMember = mockMember(456L);
+
+        ReadyEvent event = Mockito.mock(ReadyEvent.class);
+
+        when(guildOne.getMembers()).thenReturn(List.of(memberOne, otherMember));
+        when(guildTwo.getMembers()).thenReturn(List.of(memberTwo));
+        when(jda.getGuilds()).thenReturn(List.of(guildOne, guildTwo));
+        when(event.getJDA()).thenReturn(jda);
+        // WHEN
+        index.onReady(event);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.getGuildIds(456L)).containsExactly(1L);
+        assertThat(index.getGuildIds(789L)).isEmpty();
+    }
+
+    @Test
+    void sortGuildIdsTest() {
+        // GIVEN
+        List<Guild> guilds = List.of(mockGuild(3000L), mockGuild(20L), mockGuild(100L), mockGuild(1L));
+        for(Guild guild : guilds) {
+            Member member = mockMember(123L);
+            when(guild.getMembers()).thenReturn(List.of(member));
+        }
+
+        // WHEN
+        index.rebuild(guilds);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).containsExactly(1L, 20L, 100L, 3000L);
+    }
+
+    @Test
+    void addMemberOnJoinTest() {
+        // GIVEN
+        GuildMemberJoinEvent event = Mockito.mock(GuildMemberJoinEvent.class);
+
+        when(event.getUser()).thenReturn(user);
+        when(event.getGuild()).thenReturn(guildOne);
+        // WHEN
+        index.onMemberJoin(event);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).containsExactly(1L);
+    }
+
+    @Test
+    void removeMemberOnLeaveTest() {
+        // GIVEN
+        GuildMemberJoinEvent joinEvent = Mockito.mock(GuildMemberJoinEvent.class);
+        GuildMemberRemoveEvent removeEvent = Mockito.mock(GuildMemberRemoveEvent.class);
+
+        when(joinEvent.getUser()).thenReturn(user);
+        when(joinEvent.getGuild()).thenReturn(guildOne);
+        when(removeEvent.getUser()).thenReturn(user);
+        when(removeEvent.getGuild()).thenReturn(guildOne);
+        // WHEN
+        index.onMemberJoin(joinEvent);
+        index.onMemberRemove(removeEvent);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).isEmpty();
+    }
+
+    @Test
+    void applyEventsInOrderThroughEventManagerTest() {
+        // GIVEN
+        TypedEventManager manager = new TypedEventManager();
+        manager.register(index);
+
+        GuildMemberJoinEvent joinEvent = Mockito.mock(GuildMemberJoinEvent.class);
+        GuildMemberRemoveEvent removeEvent = Mockito.mock(GuildMemberRemoveEvent.class);
+
+        when(joinEvent.getUser()).thenReturn(user);
+        when(joinEvent.getGuild()).thenReturn(guildOne);
+        when(removeEvent.getUser()).thenReturn(user);
+        when(removeEvent.getGuild()).thenReturn(guildOne);
+        // WHEN
+        manager.handle(joinEvent);
+        manager.handle(removeEvent);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).isEmpty();
+    }
+
+    @Test
+    void indexGuildOnJoinTest() {
+        // GIVEN
+        Member member = mockMember(123L);
+        GuildJoinEvent event = Mockito.mock(GuildJoinEvent.class);
+
+        when(guildTwo.getMembers()).thenReturn(List.of(member));
+        when(event.getGuild()).thenReturn(guildTwo);
+        // WHEN
+        index.onGuildJoin(event);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).containsExactly(2L);
+    }
+
+    @Test
+    void removeGuildOnLeaveTest() {
+        // GIVEN
+        Member memberOne = mockMember(123L);
+        Member memberTwo = mockMember(123L);
+        GuildLeaveEvent event = Mockito.mock(GuildLeaveEvent.class);
+
+        when(guildOne.getMembers()).thenReturn(List.of(memberOne));
+        when(guildTwo.getMembers()).thenReturn(List.of(memberTwo));
+        when(event.getGuild()).thenReturn(guildOne);
+        index.rebuild(List.of(guildOne, guildTwo));
+        // WHEN
+        index.onGuildLeave(event);
+
+        // THEN
+        assertThat(index.getGuildIds(123L)).containsExactly(2L);
+    }
+
+    private static Guild mockGuild(long id) {
+        Guild guild = Mockito.mock(Guild.class);
+        when(guild.getIdLong()).thenReturn(id);
+        return guild;
+    }
+
+    private static Member mockMember(long id) {
+        Member member = Mockito.mock(Member.class);
+        when(member.getIdLong()).thenReturn(id);
+        return member;
+    }
+
+}
@@ -0,0 +1,224 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.BroadcastChannelStatus;
+import fr.seynox.saejinaapp.models.BroadcastProgress;
+import fr.seynox.saejinaapp.models.BroadcastState;
+import fr.seynox.saejinaapp.models.Selectable;
+import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.services.BroadcastService;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BroadcastController.class)
+class BroadcastControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BroadcastService service;
+
+    @MockBean
+    private MemberAccessService accessService;
+
+    private String userId;
+    private long serverId;
+
+    private Member member;
+
+    @BeforeEach
+    void initTest() {
+        userId = "456123";
+        serverId = 123456;
+
+        member = Mockito.mock(Member.class);
+    }
+
+    @Test
+    void showBroadcastFormTest() throws Exception {
+        // GIVEN
+        List<Selectable> channels = List.of(new SelectableImpl(1L, "team-one"), new SelectableImpl(2L, "team-two"));
+
+        String requestUri = "/panel/%s/broadcast".formatted(serverId);
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannels(member)).thenReturn(channels);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("broadcast"))
+                .andExpect(model().attribute("channels", channels));
+
+        // THEN
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(accessService).getWritableServerTextChannels(member);
+    }
+
+    @Test
+    void startBroadcastTest() throws Exception {
+        // GIVEN
+        String content = "The match starts in 10 minutes !";
+        String broadcastId = "my-broadcast";
+
+        String requestUri = "/panel/%s/broadcast".formatted(serverId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .param("channelIds", "1", "2")
+                .with(csrf());
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.startBroadcast(member, List.of(1L, 2L), content)).thenReturn(broadcastId);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/panel/%s/broadcast/%s/".formatted(serverId, broadcastId)));
+
+        // THEN
+        verify(service).startBroadcast(member, List.of(1L, 2L), content);
+    }
+
+    @Test
+    void refuseBroadcastWithoutChannelsTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/broadcast".formatted(serverId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", "Hello world !")
+                .with(csrf());
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attributeHasFieldErrors("broadcast", "channelIds"));
+
+        // THEN
+        verify(service, never()).startBroadcast(any(), any(), any());
+    }
+
+    @Test
+    void refuseBroadcastUnauthenticatedTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/broadcast".formatted(serverId);
+        RequestBuilder request = post(requestUri)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", "Hello world !")
+                .param("channelIds", "1")
+                .with(csrf());
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(accessService, never()).getServerMemberAsync(any(), any());
+        verify(service, never()).startBroadcast(any(), any(), any());
+    }
+
+    @Test
+    void getBroadcastProgressTest() throws Exception {
+        // GIVEN
+        String broadcastId = "my-broadcast";
+        BroadcastProgress progress = new BroadcastProgress(broadcastId, 2, 1, 0, false, List.of(
+                new BroadcastChannelStatus("1", "team-one", BroadcastState.SENT, null),
+                new BroadcastChannelStatus("2", "team-two", BroadcastState.QUEUED, null)
+        ));
+
+        String requestUri = "/panel/%s/broadcast/%s/progress".formatted(serverId, broadcastId);
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getProgress(member, broadcastId)).thenReturn(progress);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sent").value(1))
+                .andExpect(jsonPath("$.done").value(false))
+                .andExpect(jsonPath("$.channels[1].state").value("QUEUED"));
+
+        // THEN
+        verify(service).getProgress(member, broadcastId);
+    }
+
+    @Test
+    void showBroadcastProgressTest() throws Exception {
+        // GIVEN
+        String broadcastId = "my-broadcast";
+        BroadcastProgress progress = new BroadcastProgress(broadcastId, 1, 0, 1, true, List.of(
+                new BroadcastChannelStatus("1", "team-one", BroadcastState.FAILED, "Missing permission")
+        ));
+
+        String requestUri = "/panel/%s/broadcast/%s".formatted(serverId, broadcastId);
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getProgress(member, broadcastId)).thenReturn(progress);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("progress", progress));
+
+        // THEN
+        verify(service).getProgress(member, broadcastId);
+    }
+
+    @Test
+    void refuseUnknownBroadcastProgressTest() throws Exception {
+        // GIVEN
+        String broadcastId = "unknown";
+
+        String requestUri = "/panel/%s/broadcast/%s".formatted(serverId, broadcastId);
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getProgress(member, broadcastId)).thenThrow(new ResourceNotAccessibleException());
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isInternalServerError())
+                .andExpect(model().attributeExists("message"));
+
+        // THEN
+        verify(service).getProgress(member, broadcastId);
+    }
+
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
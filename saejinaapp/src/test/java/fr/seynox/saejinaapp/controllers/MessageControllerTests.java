@@ -2,10 +2,14 @@ package fr.seynox.saejinaapp.controllers;
 
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.models.SelectablePage;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import fr.seynox.saejinaapp.services.BroadcastService;
 import fr.seynox.saejinaapp.services.DiscordService;
 import fr.seynox.saejinaapp.services.MemberAccessService;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,16 +19,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,12 +49,17 @@ class MessageControllerTests {
     @MockBean
     private MemberAccessService accessService;
 
+    @MockBean
+    private BroadcastService broadcastService;
+
     private String userId;
     private long serverId;
     private long channelId;
 
     private Member member;
     private TextChannel channel;
+    private OutboundRequest<Message> outboundRequest;
+    private Message sentMessage;
 
     @BeforeEach
     void initTest() {
@@ -56,6 +69,8 @@ class MessageControllerTests {
 
         member = Mockito.mock(Member.class);
         channel = Mockito.mock(TextChannel.class);
+        outboundRequest = Mockito.mock(OutboundRequest.class);
+        sentMessage = Mockito.mock(Message.class);
     }
 
     @Test
@@ -68,17 +83,17 @@ class MessageControllerTests {
         RequestBuilder request = get(requestUri)
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("message"))
                 .andExpect(model().attribute("channelName", channelName));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(channel).getName();
     }
@@ -89,30 +104,60 @@ class MessageControllerTests {
         Guild guild = Mockito.mock(Guild.class);
 
         List<Selectable> roles = List.of(new SelectableImpl("<@123456789>", "My role"));
-        List<Selectable> users = List.of(new SelectableImpl("<@123456789>", "User One"));
 
         String requestUri = "/panel/%s/%s/send_message"
                 .formatted(serverId, channelId);
         RequestBuilder request = get(requestUri)
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         when(channel.getGuild()).thenReturn(guild);
         when(service.getMentionableRoles(any(Guild.class))).thenReturn(roles);
-        when(service.getMentionableUsers(any(Guild.class))).thenReturn(users);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("message"))
                 .andExpect(model().attribute("mentionableRoles", roles))
-                .andExpect(model().attribute("mentionableUsers", users));
+                .andExpect(model().attributeDoesNotExist("mentionableUsers"));
 
         // THEN
-        verify(service).getMentionableUsers(guild);
         verify(service).getMentionableRoles(guild);
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(accessService).getWritableServerTextChannel(member, channelId);
+    }
+
+    @Test
+    void searchMentionableUsersTest() throws Exception {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+
+        SelectablePage page = new SelectablePage(List.of(new SelectableImpl("<@123456789>", "User One")), 1, true);
+
+        String requestUri = "/panel/%s/%s/send_message/mentions"
+                .formatted(serverId, channelId);
+        RequestBuilder request = get(requestUri)
+                .param("query", "user")
+                .param("page", "1")
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+        when(channel.getGuild()).thenReturn(guild);
+        when(service.searchMentionableUsers(guild, "user", 1)).thenReturn(page);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[0].id").value("<@123456789>"))
+                .andExpect(jsonPath("$.content[0].name").value("User One"))
+                .andExpect(jsonPath("$.page").value(1))
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        // THEN
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
+        verify(service).searchMentionableUsers(guild, "user", 1);
     }
 
     @Test
@@ -127,7 +172,7 @@ class MessageControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(any(), any());
+        verify(accessService, never()).getServerMemberAsync(any(), any());
         verify(accessService, never()).getWritableServerTextChannel(any(), any());
         verify(service, never()).sendMessageInChannel(any(), any(), any());
     }
@@ -148,17 +193,54 @@ class MessageControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+        when(service.sendMessageInChannel(member, channel, content)).thenReturn(outboundRequest);
+        when(outboundRequest.isQueued()).thenReturn(false);
+        when(outboundRequest.getResult()).thenReturn(CompletableFuture.completedFuture(sentMessage));
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("?success"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(accessService).getWritableServerTextChannel(member, channelId);
+        verify(service).sendMessageInChannel(member, channel, content);
+    }
+
+    @Test
+    void sendQueuedMessageInChannelTest() throws Exception {
+        // GIVEN
+        String content = "Hello world !";
+        String body = "content=%s"
+                .formatted(URLEncoder.encode(content, StandardCharsets.UTF_8));
+
+        String requestUri = "/panel/%s/%s/send_message"
+                .formatted(serverId, channelId);
+
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .content(body)
+                .with(csrf());
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+        when(service.sendMessageInChannel(member, channel, content)).thenReturn(outboundRequest);
+        when(outboundRequest.isQueued()).thenReturn(true);
+        when(outboundRequest.getResult()).thenReturn(new CompletableFuture<>());
+        when(broadcastService.trackMessage(member, channel, outboundRequest)).thenReturn("abcd");
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/panel/%s/broadcast/abcd/".formatted(serverId)));
+
+        // THEN
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service).sendMessageInChannel(member, channel, content);
+        verify(broadcastService).trackMessage(member, channel, outboundRequest);
     }
 
     @Test
@@ -181,7 +263,7 @@ class MessageControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(any(), any());
+        verify(accessService, never()).getServerMemberAsync(any(), any());
         verify(accessService, never()).getWritableServerTextChannel(any(), any());
         verify(service, never()).sendMessageInChannel(any(), any(), any());
     }
@@ -204,11 +286,11 @@ class MessageControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("message"))
                 .andExpect(model().attribute("channelName", channelName))
@@ -216,7 +298,7 @@ class MessageControllerTests {
                 .andExpect(model().attributeHasFieldErrorCode("message", "content", "NotBlank"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendMessageInChannel(any(), any(), any());
     }
@@ -239,11 +321,11 @@ class MessageControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("message"))
                 .andExpect(model().attribute("channelName", channelName))
@@ -251,9 +333,17 @@ class MessageControllerTests {
                 .andExpect(model().attributeHasFieldErrorCode("message", "content", "Size"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendMessageInChannel(any(), any(), any());
     }
 
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
 }
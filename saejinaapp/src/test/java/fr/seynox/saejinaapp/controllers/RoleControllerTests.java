@@ -1,9 +1,11 @@
 package fr.seynox.saejinaapp.controllers;
 
+import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.SelectableImpl;
 import fr.seynox.saejinaapp.services.MemberAccessService;
 import fr.seynox.saejinaapp.services.RoleService;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -15,15 +17,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.seynox.saejinaapp.models.ViewTemplateConsts.CHANNEL_NAME_ATTRIBUTE;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -66,6 +74,7 @@ class RoleControllerTests {
                 new SelectableImpl(1L, "Role One"),
                 new SelectableImpl(2L, "Role Two")
         );
+        Map<Long, Long> roleCounts = Map.of(1L, 3L, 2L, 0L);
 
         String requestUri = "/panel/%s/%s/send_role_button"
                 .formatted(serverId, channelId);
@@ -74,22 +83,53 @@ class RoleControllerTests {
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
 
         when(channel.getName()).thenReturn(channelName);
-        when(accessService.getServerMember(anyString(), anyLong())).thenReturn(member);
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
         when(service.getAssignableRolesForMember(any(Member.class))).thenReturn(roles);
+        when(service.getRoleMemberCounts(any(), anyList())).thenReturn(roleCounts);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("roles", roles))
-                .andExpect(model().attributeExists("roleId"))
+                .andExpect(model().attribute("roleCounts", roleCounts))
+                .andExpect(content().string(containsString("(3 members)")))
+                .andExpect(model().attributeExists("rolePanel"))
                 .andExpect(model().attribute(CHANNEL_NAME_ATTRIBUTE, channelName));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service).getAssignableRolesForMember(member);
     }
 
+    @Test
+    void getRoleMemberCountsTest() throws Exception {
+        // GIVEN
+        List<Selectable> roles = List.of(new SelectableImpl(1L, "Role One"));
+        Guild guild = Mockito.mock(Guild.class);
+
+        String requestUri = "/panel/%s/%s/send_role_button/counts"
+                .formatted(serverId, channelId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(channel.getGuild()).thenReturn(guild);
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
+        when(service.getAssignableRolesForMember(any(Member.class))).thenReturn(roles);
+        when(service.getRoleMemberCounts(any(Guild.class), anyList())).thenReturn(Map.of(1L, 3L));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.1").value(3));
+
+        // THEN
+        verify(accessService).getWritableServerTextChannel(member, channelId);
+        verify(service).getRoleMemberCounts(guild, roles);
+    }
+
     @Test
     void refuseRoleButtonUnauthenticatedTest() throws Exception {
         // GIVEN
@@ -103,7 +143,7 @@ class RoleControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(anyString(), anyLong());
+        verify(accessService, never()).getServerMemberAsync(anyString(), anyLong());
         verify(service, never()).getAssignableRolesForMember(any());
     }
 
@@ -115,7 +155,7 @@ class RoleControllerTests {
         long roleId = 123456789;
         Role role = Mockito.mock(Role.class);
 
-        String body = "id=%s".formatted(roleId);
+        String body = "roleIds=%s".formatted(roleId);
 
         String requestUri = "/panel/%s/%s/send_role_button"
                 .formatted(serverId, channelId);
@@ -126,17 +166,18 @@ class RoleControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(anyString(), anyLong())).thenReturn(member);
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         when(accessService.getAssignableServerRole(any(Member.class), anyLong())).thenReturn(role);
+        when(service.sendRoleButtonInChannel(member, channel, role)).thenReturn(CompletableFuture.completedFuture(null));
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("?success"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(accessService).getAssignableServerRole(member, roleId);
         verify(service).sendRoleButtonInChannel(member, channel, role);
@@ -156,7 +197,7 @@ class RoleControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(anyString(), anyLong());
+        verify(accessService, never()).getServerMemberAsync(anyString(), anyLong());
         verify(service, never()).sendRoleButtonInChannel(any(), any(), any());
     }
 
@@ -172,21 +213,84 @@ class RoleControllerTests {
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
                 .with(csrf());
 
-        when(accessService.getServerMember(anyString(), anyLong())).thenReturn(member);
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
-                .andExpect(model().attributeExists("roleId"))
+                .andExpect(model().attributeExists("rolePanel"))
                 .andExpect(model().attribute(CHANNEL_NAME_ATTRIBUTE, channelName))
                 .andExpect(model().errorCount(1))
-                .andExpect(model().attributeHasFieldErrorCode("roleId", "id", "NotNull"));
+                .andExpect(model().attributeHasFieldErrorCode("rolePanel", "roleIds", "NotEmpty"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendRoleButtonInChannel(any(), any(), any());
+        verify(service, never()).sendRolePanelInChannel(any(), any(), any());
+    }
+
+    @Test
+    void sendRolePanelTest() throws Exception {
+        // GIVEN
+        Role firstRole = Mockito.mock(Role.class);
+        Role secondRole = Mockito.mock(Role.class);
+
+        String requestUri = "/panel/%s/%s/send_role_button"
+                .formatted(serverId, channelId);
+
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("roleIds", "1", "2", "1")
+                .with(csrf());
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
+        when(accessService.getAssignableServerRole(member, 1L)).thenReturn(firstRole);
+        when(accessService.getAssignableServerRole(member, 2L)).thenReturn(secondRole);
+        when(service.sendRolePanelInChannel(member, channel, List.of(firstRole, secondRole))).thenReturn(CompletableFuture.completedFuture(List.of()));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("?success"));
+
+        // THEN
+        verify(service).sendRolePanelInChannel(member, channel, List.of(firstRole, secondRole));
+        verify(service, never()).sendRoleButtonInChannel(any(), any(), any());
+    }
+
+    @Test
+    void refuseRolePanelWithUnassignableRoleTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/send_role_button"
+                .formatted(serverId, channelId);
+
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("roleIds", "1", "2")
+                .with(csrf());
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(any(Member.class), anyLong())).thenReturn(channel);
+        when(accessService.getAssignableServerRole(member, 1L)).thenReturn(Mockito.mock(Role.class));
+        when(accessService.getAssignableServerRole(member, 2L)).thenThrow(new PermissionException("You do not have the permission to assign this role"));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isInternalServerError());
+
+        // THEN
+        verify(service, never()).sendRolePanelInChannel(any(), any(), any());
+    }
+
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
     }
 
 }
@@ -0,0 +1,245 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import fr.seynox.saejinaapp.scheduling.MessageScheduler;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ScheduleMessageController.class)
+class ScheduleMessageControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MessageScheduler scheduler;
+
+    @MockBean
+    private MemberAccessService accessService;
+
+    private String userId;
+    private long serverId;
+    private long channelId;
+    private String content;
+
+    private Member member;
+    private TextChannel channel;
+
+    @BeforeEach
+    void initTest() {
+        userId = "456123";
+        serverId = 123456;
+        channelId = 654321;
+        content = "Scrim in one hour !";
+
+        member = Mockito.mock(Member.class);
+        channel = Mockito.mock(TextChannel.class);
+
+        when(channel.getIdLong()).thenReturn(channelId);
+        when(channel.getName()).thenReturn("scrims");
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+    }
+
+    @Test
+    void showScheduleFormTest() throws Exception {
+        // GIVEN
+        ScheduledMessage message = new ScheduledMessage("message-1", serverId, channelId, 42L, content, null, "0 0 20 * * FRI", "UTC");
+        Instant nextSend = Instant.parse("2026-05-01T20:00:30Z");
+
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        when(scheduler.getChannelMessages(channelId)).thenReturn(List.of(message));
+        when(scheduler.getNextSend("message-1")).thenReturn(nextSend);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("schedule"))
+                .andExpect(model().attribute("scheduledMessages", List.of(message)))
+                .andExpect(model().attribute("channelName", "scrims"));
+
+        // THEN
+        verify(accessService).getWritableServerTextChannel(member, channelId);
+        verify(scheduler).getChannelMessages(channelId);
+    }
+
+    @Test
+    void scheduleMessageOnceTest() throws Exception {
+        // GIVEN
+        LocalDateTime sendAt = LocalDateTime.of(2099, 5, 1, 20, 0);
+        Instant expectedSendAt = sendAt.atZone(ZoneId.systemDefault()).toInstant();
+
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .param("sendAt", "2099-05-01T20:00")
+                .with(csrf());
+
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("?success"));
+
+        // THEN
+        verify(scheduler).schedule(member, channel, content, expectedSendAt);
+    }
+
+    @Test
+    void scheduleRecurringMessageTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .param("cron", "0 0 20 * * FRI")
+                .with(csrf());
+
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("?success"));
+
+        // THEN
+        verify(scheduler).scheduleRecurring(member, channel, content, "0 0 20 * * FRI");
+    }
+
+    @Test
+    void refuseScheduleWithoutTimeTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .with(csrf());
+
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attributeHasErrors("schedule"));
+
+        // THEN
+        verify(scheduler, never()).schedule(any(), any(), any(), any());
+        verify(scheduler, never()).scheduleRecurring(any(), any(), any(), any());
+    }
+
+    @Test
+    void refuseInvalidCronTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .param("cron", "every friday")
+                .with(csrf());
+
+        when(scheduler.scheduleRecurring(member, channel, content, "every friday"))
+                .thenThrow(new IllegalArgumentException("Cron expression must consist of 6 fields"));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(model().attributeHasFieldErrors("schedule", "cron"));
+
+        // THEN
+        verify(scheduler).scheduleRecurring(member, channel, content, "every friday");
+    }
+
+    @Test
+    void cancelScheduledMessageTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message/message-1/cancel".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .with(csrf());
+
+        // WHEN
+        performAsync(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/panel/%s/%s/schedule_message/?cancelled".formatted(serverId, channelId)));
+
+        // THEN
+        verify(scheduler).cancel(member, channel, "message-1");
+    }
+
+    @Test
+    void refuseCancelOfOtherMemberMessageTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message/message-1/cancel".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
+                .with(csrf());
+
+        doThrow(new PermissionException("You do not have the permission to cancel this message"))
+                .when(scheduler).cancel(member, channel, "message-1");
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isInternalServerError())
+                .andExpect(model().attributeExists("message"));
+
+        // THEN
+        verify(scheduler).cancel(eq(member), eq(channel), anyString());
+    }
+
+    @Test
+    void refuseScheduleUnauthenticatedTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/%s/schedule_message".formatted(serverId, channelId);
+        RequestBuilder request = post(requestUri)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("content", content)
+                .param("cron", "0 0 20 * * FRI")
+                .with(csrf());
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(accessService, never()).getServerMemberAsync(any(), any());
+        verify(scheduler, never()).scheduleRecurring(any(), any(), any(), any());
+    }
+
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
@@ -14,13 +14,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -91,15 +95,50 @@ class SelectionControllerTests {
 
         Member member = Mockito.mock(Member.class);
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getServerTextChannels(member)).thenReturn(channels);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("selectableList", channels));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(accessService).getServerTextChannels(member);
+    }
+
+    @Test
+    void releaseRequestThreadWhileMemberIsRetrievedTest() throws Exception {
+        // GIVEN
+        String userId = "456123";
+        long serverId = 123456;
+
+        String requestUri = "/panel/" + serverId;
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        List<Selectable> channels = List.of(new SelectableImpl(123456L, "Channel One"));
+
+        Member member = Mockito.mock(Member.class);
+        CompletableFuture<Member> pendingMember = new CompletableFuture<>();
+
+        MvcResult result;
+
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(pendingMember);
+        when(accessService.getServerTextChannels(member)).thenReturn(channels);
+        // WHEN
+        result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        verify(accessService, never()).getServerTextChannels(any());
+        pendingMember.complete(member);
+
+        // THEN
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("selectableList", channels))
+                .andExpect(model().attribute("ticketsAvailable", false));
         verify(accessService).getServerTextChannels(member);
     }
 
@@ -113,14 +152,14 @@ class SelectionControllerTests {
         RequestBuilder request = get(requestUri)
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
 
-        when(accessService.getServerMember(userId, serverId)).thenThrow(new ResourceNotAccessibleException());
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.failedFuture(new ResourceNotAccessibleException()));
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isInternalServerError())
                 .andExpect(view().name("error"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService, never()).getServerTextChannels(any());
     }
 
@@ -137,7 +176,7 @@ class SelectionControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(any(), any());
+        verify(accessService, never()).getServerMemberAsync(any(), any());
         verify(accessService, never()).getServerTextChannels(any());
     }
 
@@ -158,17 +197,17 @@ class SelectionControllerTests {
 
         List<TextChannelAction> actions = Arrays.asList(TextChannelAction.values());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getServerTextChannel(member, channelId)).thenReturn(channel);
         when(service.getPossibleActionsForChannel(member, channel)).thenReturn(actions);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(view().name("selection/select"))
                 .andExpect(model().attribute("selectableList", actions));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getServerTextChannel(member, channelId);
         verify(service).getPossibleActionsForChannel(member, channel);
     }
@@ -187,9 +226,17 @@ class SelectionControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(any(), any());
+        verify(accessService, never()).getServerMemberAsync(any(), any());
         verify(accessService, never()).getServerTextChannel(any(), any());
         verify(service, never()).getPossibleActionsForChannel(any(), any());
     }
 
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
 }
@@ -0,0 +1,103 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.models.InteractionStats;
+import fr.seynox.saejinaapp.models.OutboundStats;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.utils.InteractionExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StatusController.class)
+class StatusControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OutboundQueue outboundQueue;
+
+    @MockBean
+    private InteractionExecutor interactionExecutor;
+
+    @Test
+    void showOutboundStatsTest() throws Exception {
+        // GIVEN
+        String userId = "123456789";
+
+        RequestBuilder request = get("/status/outbound")
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
+
+        OutboundStats stats = new OutboundStats(3, 120, 4, 1, 12.5, 250.0, Map.of("channel:1234", 3));
+
+        when(outboundQueue.getStats()).thenReturn(stats);
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pending").value(3))
+                .andExpect(jsonPath("$.rateLimited").value(1))
+                .andExpect(jsonPath("$.pendingByBucket['channel:1234']").value(3));
+
+        // THEN
+        verify(outboundQueue).getStats();
+    }
+
+    @Test
+    void refuseOutboundStatsUnauthenticatedTest() throws Exception {
+        // GIVEN
+        RequestBuilder request = get("/status/outbound");
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(outboundQueue, never()).getStats();
+    }
+
+    @Test
+    void showInteractionStatsTest() throws Exception {
+        // GIVEN
+        String userId = "123456789";
+
+        RequestBuilder request = get("/status/interactions")
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        InteractionStats stats = new InteractionStats(12, 4, 50, 340, 2, false);
+
+        when(interactionExecutor.getStats()).thenReturn(stats);
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queued").value(12))
+                .andExpect(jsonPath("$.active").value(4))
+                .andExpect(jsonPath("$.rejected").value(2));
+
+        // THEN
+        verify(interactionExecutor).getStats();
+    }
+
+    @Test
+    void refuseInteractionStatsUnauthenticatedTest() throws Exception {
+        // GIVEN
+        RequestBuilder request = get("/status/interactions");
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(interactionExecutor, never()).getStats();
+    }
+
+}
@@ -12,15 +12,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -66,18 +70,18 @@ class TicketControllerTests {
         RequestBuilder request = get(requestUri)
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))); // "sub" is the default nameAttributeKey
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         when(channel.getName()).thenReturn(channelName);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("buttonLabel"))
                 .andExpect(model().attribute("channelName", channelName))
                 .andExpect(view().name("action/ticket_button"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
     }
 
@@ -94,7 +98,7 @@ class TicketControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(any(), any());
+        verify(accessService, never()).getServerMemberAsync(any(), any());
         verify(accessService, never()).getWritableServerTextChannel(any(), any());
     }
 
@@ -114,15 +118,16 @@ class TicketControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+        when(service.sendTicketButtonInChannel(member, channel, content)).thenReturn(CompletableFuture.completedFuture(null));
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("?success"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service).sendTicketButtonInChannel(member, channel, content);
     }
@@ -141,7 +146,7 @@ class TicketControllerTests {
                 .andExpect(status().isUnauthorized());
 
         // THEN
-        verify(accessService, never()).getServerMember(userId, serverId);
+        verify(accessService, never()).getServerMemberAsync(userId, serverId);
         verify(service, never()).sendTicketButtonInChannel(any(), any(), any());
     }
 
@@ -155,16 +160,16 @@ class TicketControllerTests {
                 .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId))) // "sub" is the default nameAttributeKey
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().errorCount(1))
                 .andExpect(model().attributeHasFieldErrorCode("buttonLabel", "content", "NotBlank"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendTicketButtonInChannel(any(), any(), any());
     }
@@ -185,16 +190,16 @@ class TicketControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().errorCount(1))
                 .andExpect(model().attributeHasFieldErrorCode("buttonLabel", "content", "Size"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendTicketButtonInChannel(any(), any(), any());
     }
@@ -215,19 +220,26 @@ class TicketControllerTests {
                 .content(body)
                 .with(csrf());
 
-        when(accessService.getServerMember(userId, serverId)).thenReturn(member);
+        when(accessService.getServerMemberAsync(userId, serverId)).thenReturn(CompletableFuture.completedFuture(member));
         when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
         // WHEN
-        mockMvc.perform(request)
+        performAsync(request)
                 .andExpect(status().isOk())
                 .andExpect(model().errorCount(1))
                 .andExpect(model().attributeHasFieldErrorCode("buttonLabel", "content", "NotBlank"));
 
         // THEN
-        verify(accessService).getServerMember(userId, serverId);
+        verify(accessService).getServerMemberAsync(userId, serverId);
         verify(accessService).getWritableServerTextChannel(member, channelId);
         verify(service, never()).sendTicketButtonInChannel(any(), any(), any());
     }
 
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
 
 }
@@ -0,0 +1,163 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import fr.seynox.saejinaapp.services.TicketService;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TicketDashboardController.class)
+class TicketDashboardControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TicketService service;
+
+    @MockBean
+    private MemberAccessService accessService;
+
+    private String userId;
+    private long serverId;
+
+    private Member member;
+
+    @BeforeEach
+    void initTest() {
+        userId = "456123";
+        serverId = 123456;
+
+        member = Mockito.mock(Member.class);
+    }
+
+    @Test
+    void showOpenTicketsTest() throws Exception {
+        // GIVEN
+        OpenTicket ticket = new OpenTicket(serverId, 1234L, "ticket-7", "Refund request", "1001", "Alice", System.currentTimeMillis(), null);
+        OpenTicket closingTicket = new OpenTicket(serverId, 5678L, "ticket-8", null, null, null, System.currentTimeMillis(), System.currentTimeMillis());
+        List<OpenTicket> tickets = List.of(ticket, closingTicket);
+
+        String requestUri = "/panel/%s/tickets".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getOpenTickets(any(Member.class))).thenReturn(tickets);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(view().name("action/open_tickets"))
+                .andExpect(model().attribute("tickets", tickets))
+                .andExpect(model().attributeExists("openDates", "ages"))
+                .andExpect(content().string(containsString("Refund request")))
+                .andExpect(content().string(containsString("Alice (@1001)")))
+                .andExpect(content().string(containsString("Closing")));
+
+        // THEN
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(service).getOpenTickets(member);
+    }
+
+    @Test
+    void showNoOpenTicketTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/tickets".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getOpenTickets(any(Member.class))).thenReturn(List.of());
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("No open ticket")));
+
+        // THEN
+        verify(service).getOpenTickets(member);
+    }
+
+    @Test
+    void refuseUnauthorizedOpenTicketsTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/tickets".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.getOpenTickets(any(Member.class))).thenThrow(new PermissionException("You do not have the permission to list tickets."));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isInternalServerError())
+                .andExpect(model().attribute("message", "You do not have the permission to list tickets."));
+
+        // THEN
+        verify(service).getOpenTickets(member);
+    }
+
+    @Test
+    void refuseOpenTicketsUnauthenticatedTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/tickets".formatted(serverId);
+
+        RequestBuilder request = get(requestUri);
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(accessService, never()).getServerMemberAsync(anyString(), anyLong());
+        verify(service, never()).getOpenTickets(any());
+    }
+
+    @Test
+    void formatTicketAgeTest() {
+        // GIVEN
+
+        // WHEN
+        String days = TicketDashboardController.formatAge(Duration.ofDays(3).plusHours(4).plusMinutes(20));
+        String hours = TicketDashboardController.formatAge(Duration.ofHours(2).plusMinutes(15));
+        String minutes = TicketDashboardController.formatAge(Duration.ofMinutes(12).plusSeconds(30));
+
+        // THEN
+        assertThat(days).isEqualTo("3d 4h");
+        assertThat(hours).isEqualTo("2h 15min");
+        assertThat(minutes).isEqualTo("12min");
+    }
+
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
@@ -0,0 +1,148 @@
+package fr.seynox.saejinaapp.controllers;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import fr.seynox.saejinaapp.services.TicketService;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TicketSearchController.class)
+class TicketSearchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TicketService service;
+
+    @MockBean
+    private MemberAccessService accessService;
+
+    private String userId;
+    private long serverId;
+
+    private Member member;
+
+    @BeforeEach
+    void initTest() {
+        userId = "456123";
+        serverId = 123456;
+
+        member = Mockito.mock(Member.class);
+    }
+
+    @Test
+    void searchTicketsTest() throws Exception {
+        // GIVEN
+        TicketTranscript transcript = new TicketTranscript(serverId, 1234L, "ticket-7", "Refund request", "1001", "Alice", 12L, 1654084800000L);
+        TicketTranscriptPage results = new TicketTranscriptPage(List.of(transcript), 1, true);
+
+        String requestUri = "/panel/%s/ticket_search".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .param("query", "refund")
+                .param("page", "1")
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.searchTranscripts(any(Member.class), anyString(), anyInt())).thenReturn(results);
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(view().name("action/ticket_search"))
+                .andExpect(model().attribute("query", "refund"))
+                .andExpect(model().attribute("results", results))
+                .andExpect(model().attributeExists("closeDates"))
+                .andExpect(content().string(containsString("Refund request")))
+                .andExpect(content().string(containsString("Alice (@1001)")));
+
+        // THEN
+        verify(accessService).getServerMemberAsync(userId, serverId);
+        verify(service).searchTranscripts(member, "refund", 1);
+    }
+
+    @Test
+    void listAllTicketsByDefaultTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/ticket_search".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.searchTranscripts(any(Member.class), anyString(), anyInt())).thenReturn(new TicketTranscriptPage(List.of(), 0, false));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("No ticket found")));
+
+        // THEN
+        verify(service).searchTranscripts(member, "", 0);
+    }
+
+    @Test
+    void refuseUnauthorizedTicketSearchTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/ticket_search".formatted(serverId);
+
+        RequestBuilder request = get(requestUri)
+                .with(oauth2Login().attributes(attrs -> attrs.put("sub", userId)));
+
+        when(accessService.getServerMemberAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(member));
+        when(service.searchTranscripts(any(Member.class), anyString(), anyInt())).thenThrow(new PermissionException("You do not have the permission to search tickets."));
+        // WHEN
+        performAsync(request)
+                .andExpect(status().isInternalServerError())
+                .andExpect(model().attribute("message", "You do not have the permission to search tickets."));
+
+        // THEN
+        verify(service).searchTranscripts(member, "", 0);
+    }
+
+    @Test
+    void refuseTicketSearchUnauthenticatedTest() throws Exception {
+        // GIVEN
+        String requestUri = "/panel/%s/ticket_search".formatted(serverId);
+
+        RequestBuilder request = get(requestUri);
+
+        // WHEN
+        mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+
+        // THEN
+        verify(accessService, never()).getServerMemberAsync(anyString(), anyLong());
+        verify(service, never()).searchTranscripts(any(), anyString(), anyInt());
+    }
+
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
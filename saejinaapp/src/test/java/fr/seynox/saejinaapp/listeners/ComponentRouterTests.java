@@ -0,0 +1,152 @@
+package fr.seynox.saejinaapp.listeners;
+
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static fr.seynox.saejinaapp.listeners.ComponentRouter.NO_ARGUMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ComponentRouterTests {
+
+    private ComponentRouter router;
+    private ButtonHandler handler;
+    private ButtonInteractionEvent event;
+
+    @BeforeEach
+    void initTest() {
+        router = new ComponentRouter();
+        handler = Mockito.mock(ButtonHandler.class);
+        event = Mockito.mock(ButtonInteractionEvent.class);
+    }
+
+    @Test
+    void dispatchButtonWithoutArgumentTest() {
+        // GIVEN
+        router.register("ticket-close", handler);
+        when(event.getComponentId()).thenReturn("ticket-close");
+
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(handler).onButtonPress(event, NO_ARGUMENT);
+    }
+
+    @Test
+    void dispatchButtonWithArgumentTest() {
+        // GIVEN
+        long roleId = 984562318759264287L;
+        router.register("role-assign", handler);
+        when(event.getComponentId()).thenReturn("role-assign#" + roleId);
+
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(handler).onButtonPress(event, roleId);
+    }
+
+    @Test
+    void dispatchToExactPrefixOnlyTest() {
+        // GIVEN
+        ButtonHandler confirmHandler = Mockito.mock(ButtonHandler.class);
+        router.register("ticket-close", handler);
+        router.register("ticket-close-confirm", confirmHandler);
+        when(event.getComponentId()).thenReturn("ticket-close-confirm");
+
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(confirmHandler).onButtonPress(event, NO_ARGUMENT);
+        verify(handler, never()).onButtonPress(any(), anyLong());
+    }
+
+    @Test
+    void ignoreUnknownButtonTest() {
+        // GIVEN
+        router.register("role-assign", handler);
+        when(event.getComponentId()).thenReturn("role-assignment#123");
+
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(handler, never()).onButtonPress(any(), anyLong());
+    }
+
+    @Test
+    void ignoreMalformedArgumentTest() {
+        // GIVEN
+        router.register("role-assign", handler);
+
+        // WHEN
+        for(String buttonId : new String[] {"role-assign#", "role-assign#12a", "role-assign#-12", "role-assign#99999999999999999999"}) {
+            when(event.getComponentId()).thenReturn(buttonId);
+            router.onButtonPress(event);
+        }
+
+        // THEN
+        verify(handler, never()).onButtonPress(any(), anyLong());
+    }
+
+    @Test
+    void dispatchAfterManyRegistrationsTest() {
+        // GIVEN
+        int handlerCount = 100;
+        ButtonHandler[] handlers = new ButtonHandler[handlerCount];
+        for(int i = 0; i < handlerCount; i++) {
+            handlers[i] = Mockito.mock(ButtonHandler.class);
+            router.register("button-" + i, handlers[i]);
+        }
+
+        // WHEN
+        for(int i = 0; i < handlerCount; i++) {
+            when(event.getComponentId()).thenReturn("button-%s#%s".formatted(i, i));
+            router.onButtonPress(event);
+        }
+
+        // THEN
+        for(int i = 0; i < handlerCount; i++) {
+            verify(handlers[i]).onButtonPress(event, i);
+        }
+    }
+
+    @Test
+    void refuseDuplicatePrefixTest() {
+        // GIVEN
+        router.register("ticket-close", handler);
+
+        // WHEN
+        // THEN
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> router.register("ticket-close", handler));
+    }
+
+    @Test
+    void refusePrefixWithSeparatorTest() {
+        // WHEN
+        // THEN
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> router.register("role-assign#", handler));
+    }
+
+    @Test
+    void parseArgumentTest() {
+        // WHEN
+        long maxValue = ComponentRouter.parseArgument("a#" + Long.MAX_VALUE, 2);
+        long zero = ComponentRouter.parseArgument("a#0", 2);
+        long overflow = ComponentRouter.parseArgument("a#9223372036854775808", 2);
+
+        // THEN
+        assertThat(maxValue).isEqualTo(Long.MAX_VALUE);
+        assertThat(zero).isZero();
+        assertThat(overflow).isEqualTo(NO_ARGUMENT);
+    }
+
+}
@@ -17,6 +17,7 @@ import static org.mockito.Mockito.*;
 class RoleEventsListenerTests {
 
     private RoleEventsListener listener;
+    private ComponentRouter router;
     private RoleService service;
 
     private long roleId;
@@ -27,7 +28,8 @@ class RoleEventsListenerTests {
     @BeforeEach
     void initTest() {
         service = Mockito.mock(RoleService.class);
-        listener = new RoleEventsListener(service);
+        router = new ComponentRouter();
+        listener = new RoleEventsListener(service, router);
 
         roleId = 123456789;
         member = Mockito.mock(Member.class);
@@ -44,16 +46,16 @@ class RoleEventsListenerTests {
         ButtonInteractionEvent event = Mockito.mock(ButtonInteractionEvent.class);
 
         when(event.getComponentId()).thenReturn(buttonId);
-        when(replyCallback.getMember()).thenReturn(member);
+        when(event.getMember()).thenReturn(member);
         when(service.toggleRoleForMember(any(Member.class), anyLong())).thenReturn(true);
-        when(replyCallback.reply(anyString())).thenReturn(action);
+        when(event.reply(anyString())).thenReturn(action);
         when(action.setEphemeral(anyBoolean())).thenReturn(action);
         // WHEN
-        listener.toggleRole(roleId, replyCallback);
+        router.onButtonPress(event);
 
         // THEN
         verify(service).toggleRoleForMember(member, roleId);
-        verify(replyCallback).reply(expectedMessage);
+        verify(event).reply(expectedMessage);
         verify(action).setEphemeral(true);
     }
 
@@ -66,7 +68,7 @@ class RoleEventsListenerTests {
 
         when(event.getComponentId()).thenReturn(buttonId);
         // WHEN
-        listener.onButtonPress(event);
+        router.onButtonPress(event);
 
         // THEN
         verify(service, never()).toggleRoleForMember(any(), any());
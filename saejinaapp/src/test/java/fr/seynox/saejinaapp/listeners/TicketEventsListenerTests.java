@@ -1,37 +1,60 @@
 package fr.seynox.saejinaapp.listeners;
 
+import fr.seynox.saejinaapp.caches.TicketRegistry;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.scheduling.DelayedActionScheduler;
 import fr.seynox.saejinaapp.services.TicketService;
+import fr.seynox.saejinaapp.utils.InteractionExecutor;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.components.Modal;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageUpdateAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.MessageEditCallbackAction;
 import net.dv8tion.jda.api.requests.restaction.interactions.ModalCallbackAction;
 import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
 import static fr.seynox.saejinaapp.services.TicketService.*;
 import static org.mockito.Mockito.*;
 
 class TicketEventsListenerTests {
 
     private TicketEventsListener listener;
+    private ComponentRouter router;
     private TicketService service;
+    private InteractionExecutor executor;
+    private DelayedActionScheduler scheduler;
+    private TicketRegistry ticketRegistry;
 
     private Button button;
 
     @BeforeEach
     void initTest() {
         service = Mockito.mock(TicketService.class);
-        listener = new TicketEventsListener(service);
+        executor = Mockito.mock(InteractionExecutor.class);
+        scheduler = Mockito.mock(DelayedActionScheduler.class);
+        ticketRegistry = Mockito.mock(TicketRegistry.class);
+        router = new ComponentRouter();
+        listener = new TicketEventsListener(service, executor, scheduler, ticketRegistry, router);
 
         button = Mockito.mock(Button.class);
     }
@@ -50,7 +73,7 @@ class TicketEventsListenerTests {
         when(service.getTicketCreationForm(any(Member.class), any(Button.class))).thenReturn(modal);
         when(event.replyModal(any(Modal.class))).thenReturn(action);
         // WHEN
-        listener.onButtonPress(event);
+        router.onButtonPress(event);
 
         // THEN
         verify(service).getTicketCreationForm(member, button);
@@ -70,7 +93,7 @@ class TicketEventsListenerTests {
         when(event.getComponentId()).thenReturn(TICKET_CLOSE_ID);
         when(event.editButton(confirmationButton)).thenReturn(action);
         // WHEN
-        listener.onButtonPress(event);
+        router.onButtonPress(event);
 
         // THEN
         verify(event).editButton(confirmationButton);
@@ -81,18 +104,125 @@ class TicketEventsListenerTests {
     void onCloseConfirmButtonPressTest() {
         // GIVEN
         ButtonInteractionEvent event = Mockito.mock(ButtonInteractionEvent.class);
+        TextChannel channel = Mockito.mock(TextChannel.class);
         ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
 
         String message = "Closing the ticket ! Deleting channel in 30sec...";
+        Button cancelButton = Button.of(ButtonStyle.SECONDARY, TICKET_CLOSE_CANCEL_ID, "Cancel");
+        long channelId = 1234L;
+        DelayedAction delayedAction = new DelayedAction("id", TICKET_CLOSE, channelId, 5678L);
 
         when(event.getButton()).thenReturn(button);
         when(event.getComponentId()).thenReturn(TICKET_CLOSE_CONFIRM_ID);
+        when(event.getTextChannel()).thenReturn(channel);
+        when(channel.getIdLong()).thenReturn(channelId);
+        when(scheduler.schedule(TICKET_CLOSE, channelId, TICKET_CLOSE_DELAY)).thenReturn(delayedAction);
+        when(event.reply(message)).thenReturn(action);
+        when(action.addActionRow(cancelButton)).thenReturn(action);
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(scheduler).schedule(TICKET_CLOSE, channelId, TICKET_CLOSE_DELAY);
+        verify(ticketRegistry).setClosingAt(channel, 5678L);
+        verify(event).reply(message);
+        verify(action).addActionRow(cancelButton);
+        verify(action).queue();
+    }
+
+    @Test
+    void onCloseCancelButtonPressTest() {
+        // GIVEN
+        ButtonInteractionEvent event = Mockito.mock(ButtonInteractionEvent.class);
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        MessageEditCallbackAction action = Mockito.mock(MessageEditCallbackAction.class);
+
+        String message = "Ticket closing cancelled !";
+        long channelId = 1234L;
+
+        when(event.getButton()).thenReturn(button);
+        when(event.getComponentId()).thenReturn(TICKET_CLOSE_CANCEL_ID);
+        when(event.getTextChannel()).thenReturn(channel);
+        when(channel.getIdLong()).thenReturn(channelId);
+        when(scheduler.cancel(TICKET_CLOSE, channelId)).thenReturn(true);
+        when(event.editMessage(message)).thenReturn(action);
+        when(action.setActionRows()).thenReturn(action);
+        // WHEN
+        router.onButtonPress(event);
+
+        // THEN
+        verify(scheduler).cancel(TICKET_CLOSE, channelId);
+        verify(ticketRegistry).setClosingAt(channel, null);
+        verify(event).editMessage(message);
+        verify(action).setActionRows();
+        verify(action).queue();
+    }
+
+    @Test
+    void onCloseCancelButtonPressWhenNotClosingTest() {
+        // GIVEN
+        ButtonInteractionEvent event = Mockito.mock(ButtonInteractionEvent.class);
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
+
+        String message = "Error ! The ticket is not being closed";
+        long channelId = 1234L;
+
+        when(event.getButton()).thenReturn(button);
+        when(event.getComponentId()).thenReturn(TICKET_CLOSE_CANCEL_ID);
+        when(event.getTextChannel()).thenReturn(channel);
+        when(channel.getIdLong()).thenReturn(channelId);
+        when(scheduler.cancel(TICKET_CLOSE, channelId)).thenReturn(false);
         when(event.reply(message)).thenReturn(action);
+        when(action.setEphemeral(true)).thenReturn(action);
         // WHEN
-        listener.onButtonPress(event);
+        router.onButtonPress(event);
 
         // THEN
+        verify(event, never()).editMessage(anyString());
+        verify(ticketRegistry, never()).setClosingAt(any(), any());
         verify(event).reply(message);
+        verify(action).setEphemeral(true);
+        verify(action).queue();
+    }
+
+    @Test
+    void submitTicketInBackgroundTest() {
+        // GIVEN
+        ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
+        ReplyCallbackAction deferAction = Mockito.mock(ReplyCallbackAction.class);
+
+        when(event.getModalId()).thenReturn(TICKET_CREATION_ID);
+        when(event.deferReply(true)).thenReturn(deferAction);
+        // WHEN
+        listener.onModalSubmit(event);
+
+        // THEN
+        InOrder inOrder = inOrder(deferAction, executor);
+        inOrder.verify(deferAction).queue();
+        inOrder.verify(executor).runAsync(any(Runnable.class));
+        verify(service, never()).createTicketChannel(any());
+    }
+
+    @Test
+    void refuseTicketWhenExecutorIsSaturatedTest() {
+        // GIVEN
+        ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
+        ReplyCallbackAction deferAction = Mockito.mock(ReplyCallbackAction.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
+
+        String expectedMessage = "I am busy creating other tickets ! Please try again in a few seconds";
+
+        when(event.getModalId()).thenReturn(TICKET_CREATION_ID);
+        when(event.deferReply(true)).thenReturn(deferAction);
+        when(executor.runAsync(any(Runnable.class))).thenThrow(new RejectedExecutionException());
+        // WHEN
+        listener.onModalSubmit(event);
+
+        // THEN
+        verify(service, never()).createTicketChannel(any());
+        verify(deferAction).queue();
+        verify(event.getHook()).editOriginal(expectedMessage);
         verify(action).queue();
     }
 
@@ -113,11 +243,12 @@ class TicketEventsListenerTests {
         when(event.getComponentId()).thenReturn(buttonId);
         when(event.getButton()).thenReturn(button);
         when(event.getTextChannel()).thenReturn(channel);
+        when(service.inviteUserToTicketChannel(userId, channel)).thenReturn(CompletableFuture.completedFuture(null));
         when(event.reply(anyString())).thenReturn(replyCallback);
         when(event.editButton(disabledButton)).thenReturn(action);
         when(button.asDisabled()).thenReturn(disabledButton);
         // WHEN
-        listener.onButtonPress(event);
+        router.onButtonPress(event);
 
         // THEN
         verify(service).inviteUserToTicketChannel(userId, channel);
@@ -188,6 +319,7 @@ class TicketEventsListenerTests {
 
         when(event.getButton()).thenReturn(button);
         when(event.getTextChannel()).thenReturn(channel);
+        when(service.inviteUserToTicketChannel(userId, channel)).thenReturn(CompletableFuture.completedFuture(null));
         when(event.reply(anyString())).thenReturn(replyCallback);
         when(event.editButton(disabledButton)).thenReturn(action);
         when(button.asDisabled()).thenReturn(disabledButton);
@@ -214,7 +346,8 @@ class TicketEventsListenerTests {
 
         when(event.getButton()).thenReturn(button);
         when(event.getTextChannel()).thenReturn(channel);
-        doThrow(new DiscordInteractionException(errorMessage)).when(service).inviteUserToTicketChannel(anyString(), any(TextChannel.class));
+        when(service.inviteUserToTicketChannel(anyString(), any(TextChannel.class)))
+                .thenReturn(CompletableFuture.failedFuture(new DiscordInteractionException(errorMessage)));
         when(event.reply(anyString())).thenReturn(replyCallback);
         when(replyCallback.setEphemeral(anyBoolean())).thenReturn(replyCallback);
         // WHEN
@@ -228,6 +361,31 @@ class TicketEventsListenerTests {
         verify(event, never()).editButton(any());
     }
 
+    @Test
+    void answerInviteOnUnexpectedErrorTest() {
+        // GIVEN
+        ButtonInteractionEvent event = Mockito.mock(ButtonInteractionEvent.class);
+        ReplyCallbackAction replyCallback = Mockito.mock(ReplyCallbackAction.class);
+
+        String userId = "123456789";
+        TextChannel channel = Mockito.mock(TextChannel.class);
+
+        when(event.getButton()).thenReturn(button);
+        when(event.getTextChannel()).thenReturn(channel);
+        when(service.inviteUserToTicketChannel(anyString(), any(TextChannel.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Discord is unavailable")));
+        when(event.reply(anyString())).thenReturn(replyCallback);
+        when(replyCallback.setEphemeral(anyBoolean())).thenReturn(replyCallback);
+        // WHEN
+        listener.inviteMemberToChannel(userId, event);
+
+        // THEN
+        verify(event).reply("Error ! The user could not be invited. Please try again later");
+        verify(replyCallback).setEphemeral(true);
+        verify(replyCallback).queue();
+        verify(event, never()).editButton(any());
+    }
+
     @Test
     void submitTicketToServerTest() {
         // GIVEN
@@ -235,22 +393,19 @@ class TicketEventsListenerTests {
         Member member = Mockito.mock(Member.class);
         Guild guild = Mockito.mock(Guild.class);
         TextChannel channel = Mockito.mock(TextChannel.class);
-        ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
 
         String successMessage = "Your ticket was submitted !";
 
         when(event.getMember()).thenReturn(member);
         when(member.getGuild()).thenReturn(guild);
         when(service.createTicketChannel(guild)).thenReturn(channel);
-        when(event.reply(anyString())).thenReturn(action);
-        when(action.setEphemeral(anyBoolean())).thenReturn(action);
         // WHEN
         listener.submitTicketToServer(event);
 
         // THEN
         verify(service).sendTicketToChannel(member, channel, event);
-        verify(event).reply(successMessage);
-        verify(action).setEphemeral(true);
+        verify(event.getHook()).editOriginal(successMessage);
         verify(action).queue();
     }
 
@@ -258,20 +413,17 @@ class TicketEventsListenerTests {
     void refuseTicketSubmitInDMTest() {
         // GIVEN
         ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
-        ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
 
         String expectedErrorMessage = "Error ! Tickets can only be submitted in servers";
 
         when(event.getMember()).thenReturn(null);
-        when(event.reply(expectedErrorMessage)).thenReturn(action);
-        when(action.setEphemeral(true)).thenReturn(action);
         // WHEN
         listener.submitTicketToServer(event);
 
         // THEN
         verify(service, never()).sendTicketToChannel(any(), any(), any());
-        verify(event).reply(expectedErrorMessage);
-        verify(action).setEphemeral(true);
+        verify(event.getHook()).editOriginal(expectedErrorMessage);
         verify(action).queue();
     }
 
@@ -279,7 +431,7 @@ class TicketEventsListenerTests {
     void refuseTicketSubmitWithoutPermissionsTest() {
         // GIVEN
         ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
-        ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
 
         Member member = Mockito.mock(Member.class);
         Guild guild = Mockito.mock(Guild.class);
@@ -289,15 +441,12 @@ class TicketEventsListenerTests {
         when(event.getMember()).thenReturn(member);
         when(member.getGuild()).thenReturn(guild);
         when(service.createTicketChannel(guild)).thenThrow(InsufficientPermissionException.class);
-        when(event.reply(expectedErrorMessage)).thenReturn(action);
-        when(action.setEphemeral(true)).thenReturn(action);
         // WHEN
         listener.submitTicketToServer(event);
 
         // THEN
         verify(service, never()).sendTicketToChannel(any(), any(), any());
-        verify(event).reply(expectedErrorMessage);
-        verify(action).setEphemeral(true);
+        verify(event.getHook()).editOriginal(expectedErrorMessage);
         verify(action).queue();
     }
 
@@ -305,7 +454,7 @@ class TicketEventsListenerTests {
     void refuseInvalidTicketSubmitTest() {
         // GIVEN
         ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
-        ReplyCallbackAction action = Mockito.mock(ReplyCallbackAction.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
 
         Member member = Mockito.mock(Member.class);
         Guild guild = Mockito.mock(Guild.class);
@@ -317,17 +466,45 @@ class TicketEventsListenerTests {
         when(member.getGuild()).thenReturn(guild);
         when(service.createTicketChannel(guild)).thenReturn(channel);
         doThrow(NullPointerException.class).when(service).sendTicketToChannel(member, channel, event);
-        when(event.reply(expectedErrorMessage)).thenReturn(action);
-        when(action.setEphemeral(true)).thenReturn(action);
         // WHEN
         listener.submitTicketToServer(event);
 
         // THEN
         verify(service).sendTicketToChannel(member, channel, event);
-        verify(event).reply(expectedErrorMessage);
-        verify(action).setEphemeral(true);
+        verify(event.getHook()).editOriginal(expectedErrorMessage);
         verify(action).queue();
     }
 
+    @Test
+    void answerTicketSubmitOnUnexpectedErrorTest() {
+        // GIVEN
+        ModalInteractionEvent event = Mockito.mock(ModalInteractionEvent.class);
+        WebhookMessageUpdateAction<Message> action = mockHookEdit(event);
+
+        Member member = Mockito.mock(Member.class);
+        Guild guild = Mockito.mock(Guild.class);
+
+        String expectedErrorMessage = "Error ! Your ticket could not be created. Please try again later";
+
+        when(event.getMember()).thenReturn(member);
+        when(member.getGuild()).thenReturn(guild);
+        when(service.createTicketChannel(guild)).thenThrow(new UncheckedIOException(new IOException("Disk full")));
+        // WHEN
+        listener.submitTicketToServer(event);
+
+        // THEN
+        verify(service, never()).sendTicketToChannel(any(), any(), any());
+        verify(event.getHook()).editOriginal(expectedErrorMessage);
+        verify(action).queue();
+    }
+
+    private WebhookMessageUpdateAction<Message> mockHookEdit(ModalInteractionEvent event) {
+        InteractionHook hook = Mockito.mock(InteractionHook.class);
+        WebhookMessageUpdateAction<Message> action = Mockito.mock(WebhookMessageUpdateAction.class);
+        when(event.getHook()).thenReturn(hook);
+        when(hook.editOriginal(anyString())).thenReturn(action);
+
+        return action;
+    }
 
 }
@@ -0,0 +1,194 @@
+package fr.seynox.saejinaapp.outbound;
+
+import fr.seynox.saejinaapp.models.OutboundStats;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class OutboundQueueTests {
+
+    private AtomicLong clock;
+    private OutboundQueue queue;
+
+    private String bucket;
+
+    @BeforeEach
+    void initTest() {
+        clock = new AtomicLong();
+        queue = new OutboundQueue(clock::get);
+
+        bucket = OutboundQueue.channelBucket(1234L);
+    }
+
+    @Test
+    void sendRequestRightAwayWhenBucketIsIdleTest() {
+        // GIVEN
+        RestAction<String> action = Mockito.mock(RestAction.class);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture("sent"));
+
+        // WHEN
+        OutboundRequest<String> result = queue.submit(bucket, () -> action);
+
+        // THEN
+        verify(action).submit();
+        assertThat(result.isQueued()).isFalse();
+        assertThat(result.getResult()).isCompletedWithValue("sent");
+    }
+
+    @Test
+    void queueRequestsUntilPreviousResponseTest() {
+        // GIVEN
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        RestAction<String> firstAction = Mockito.mock(RestAction.class);
+        RestAction<String> secondAction = Mockito.mock(RestAction.class);
+        when(firstAction.submit()).thenReturn(firstResponse);
+        when(secondAction.submit()).thenReturn(CompletableFuture.completedFuture("second"));
+
+        // WHEN
+        queue.submit(bucket, () -> firstAction);
+        OutboundRequest<String> second = queue.submit(bucket, () -> secondAction);
+
+        // THEN
+        assertThat(second.isQueued()).isTrue();
+        verify(secondAction, never()).submit();
+        assertThat(queue.getStats().getPending()).isEqualTo(1);
+        assertThat(queue.getStats().getPendingByBucket()).containsEntry(bucket, 1);
+
+        firstResponse.complete("first");
+        verify(secondAction).submit();
+        assertThat(second.getResult()).isCompletedWithValue("second");
+        assertThat(queue.getStats().getPending()).isZero();
+    }
+
+    @Test
+    void sendNextRequestWhenResponseTimesOutTest() {
+        // GIVEN
+        queue = new OutboundQueue(clock::get, Duration.ofMillis(50));
+        RestAction<String> lostAction = Mockito.mock(RestAction.class);
+        RestAction<String> nextAction = Mockito.mock(RestAction.class);
+        when(lostAction.submit()).thenReturn(new CompletableFuture<>());
+        when(nextAction.submit()).thenReturn(CompletableFuture.completedFuture("next"));
+
+        // WHEN
+        OutboundRequest<String> lost = queue.submit(bucket, () -> lostAction);
+        OutboundRequest<String> next = queue.submit(bucket, () -> nextAction);
+
+        // THEN
+        assertThat(lost.getResult()).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(TimeoutException.class);
+        assertThat(next.getResult()).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("next");
+    }
+
+    @Test
+    void doNotQueueRequestsOfOtherBucketsTest() {
+        // GIVEN
+        RestAction<String> firstAction = Mockito.mock(RestAction.class);
+        RestAction<String> secondAction = Mockito.mock(RestAction.class);
+        when(firstAction.submit()).thenReturn(new CompletableFuture<>());
+        when(secondAction.submit()).thenReturn(new CompletableFuture<>());
+
+        // WHEN
+        queue.submit(bucket, () -> firstAction);
+        OutboundRequest<String> second = queue.submit(OutboundQueue.channelBucket(5678L), () -> secondAction);
+
+        // THEN
+        assertThat(second.isQueued()).isFalse();
+        verify(secondAction).submit();
+    }
+
+    @Test
+    void mergePendingEditsOfSameMessageTest() {
+        // GIVEN
+        long messageId = 42L;
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        RestAction<String> firstEdit = Mockito.mock(RestAction.class);
+        RestAction<String> secondEdit = Mockito.mock(RestAction.class);
+        RestAction<String> thirdEdit = Mockito.mock(RestAction.class);
+        when(firstEdit.submit()).thenReturn(firstResponse);
+        when(thirdEdit.submit()).thenReturn(CompletableFuture.completedFuture("third"));
+
+        // WHEN
+        queue.submitEdit(bucket, messageId, () -> firstEdit);
+        OutboundRequest<String> second = queue.submitEdit(bucket, messageId, () -> secondEdit);
+        OutboundRequest<String> third = queue.submitEdit(bucket, messageId, () -> thirdEdit);
+        firstResponse.complete("first");
+
+        // THEN
+        verify(secondEdit, never()).submit();
+        verify(thirdEdit).submit();
+        assertThat(second.getResult()).isCompletedWithValue("third");
+        assertThat(third.getResult()).isCompletedWithValue("third");
+        assertThat(queue.getStats().getCoalesced()).isEqualTo(1);
+        assertThat(queue.getStats().getSent()).isEqualTo(2);
+    }
+
+    @Test
+    void continueAfterFailedRequestTest() {
+        // GIVEN
+        RuntimeException error = new IllegalStateException("Missing permission");
+        RestAction<String> action = Mockito.mock(RestAction.class);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture("sent"));
+
+        // WHEN
+        OutboundRequest<String> failed = queue.submit(bucket, () -> {
+            throw error;
+        });
+        OutboundRequest<String> next = queue.submit(bucket, () -> action);
+
+        // THEN
+        assertThat(failed.getResult()).isCompletedExceptionally();
+        assertThat(next.getResult()).isCompletedWithValue("sent");
+        assertThat(queue.getStats().getSent()).isEqualTo(1);
+    }
+
+    @Test
+    void measureWaitTimesTest() {
+        // GIVEN
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        RestAction<String> firstAction = Mockito.mock(RestAction.class);
+        RestAction<String> secondAction = Mockito.mock(RestAction.class);
+        when(firstAction.submit()).thenReturn(firstResponse);
+        when(secondAction.submit()).thenReturn(CompletableFuture.completedFuture("second"));
+
+        // WHEN
+        queue.submit(bucket, () -> firstAction);
+        queue.submit(bucket, () -> secondAction);
+        clock.set(4_000_000L);
+        firstResponse.complete("first");
+        OutboundStats stats = queue.getStats();
+
+        // THEN
+        assertThat(stats.getMaxWaitMillis()).isEqualTo(4.0);
+        assertThat(stats.getAverageWaitMillis()).isEqualTo(2.0);
+        assertThat(stats.getPendingByBucket()).isEmpty();
+    }
+
+    @Test
+    void countRateLimitedResponsesTest() {
+        // GIVEN
+        HttpRequestEvent rateLimited = Mockito.mock(HttpRequestEvent.class);
+        HttpRequestEvent successful = Mockito.mock(HttpRequestEvent.class);
+        when(rateLimited.isRateLimit()).thenReturn(true);
+        when(successful.isRateLimit()).thenReturn(false);
+
+        // WHEN
+        queue.onHttpRequest(rateLimited);
+        queue.onHttpRequest(successful);
+
+        // THEN
+        assertThat(queue.getStats().getRateLimited()).isEqualTo(1);
+    }
+
+}
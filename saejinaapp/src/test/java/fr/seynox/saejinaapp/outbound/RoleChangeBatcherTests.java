@@ -0,0 +1,193 @@
+package fr.seynox.saejinaapp.outbound;
+
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class RoleChangeBatcherTests {
+
+    private static final Duration WINDOW = Duration.ofMillis(1500);
+
+    private TimerWheel wheel;
+    private RoleChangeBatcher batcher;
+
+    private Guild guild;
+    private Member member;
+    private Role heldRole;
+    private Role firstRole;
+    private Role secondRole;
+    private AuditableRestAction<Void> action;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void initTest() {
+        wheel = Mockito.mock(TimerWheel.class);
+        batcher = new RoleChangeBatcher(new OutboundQueue(), wheel, WINDOW);
+
+        guild = Mockito.mock(Guild.class);
+        member = Mockito.mock(Member.class);
+        heldRole = mockRole(1L);
+        firstRole = mockRole(2L);
+        secondRole = mockRole(3L);
+        action = Mockito.mock(AuditableRestAction.class);
+
+        when(guild.getIdLong()).thenReturn(1000L);
+        when(member.getGuild()).thenReturn(guild);
+        when(member.getIdLong()).thenReturn(42L);
+        when(member.getRoles()).thenReturn(List.of(heldRole));
+        when(guild.modifyMemberRoles(any(Member.class), anyCollection(), anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void mergeTogglesOfMemberTest() {
+        // WHEN
+        boolean firstAdded = batcher.toggleRole(member, firstRole);
+        boolean secondAdded = batcher.toggleRole(member, secondRole);
+        boolean heldAdded = batcher.toggleRole(member, heldRole);
+        runWindows();
+
+        // THEN
+        assertThat(firstAdded).isTrue();
+        assertThat(secondAdded).isTrue();
+        assertThat(heldAdded).isFalse();
+        verify(wheel, times(1)).schedule(any(Runnable.class), eq(WINDOW));
+        verify(guild, times(1)).modifyMemberRoles(member, List.of(firstRole, secondRole), List.of(heldRole));
+    }
+
+    @Test
+    void cancelOutRepeatedTogglesTest() {
+        // WHEN
+        boolean firstClick = batcher.toggleRole(member, firstRole);
+        boolean secondClick = batcher.toggleRole(member, firstRole);
+        boolean thirdClick = batcher.toggleRole(member, firstRole);
+        runWindows();
+
+        // THEN
+        assertThat(firstClick).isTrue();
+        assertThat(secondClick).isFalse();
+        assertThat(thirdClick).isTrue();
+        verify(guild).modifyMemberRoles(member, List.of(firstRole), List.of());
+    }
+
+    @Test
+    void sendNothingWhenTogglesCancelOutTest() {
+        // WHEN
+        batcher.toggleRole(member, heldRole);
+        batcher.toggleRole(member, heldRole);
+        runWindows();
+
+        // THEN
+        verify(guild, never()).modifyMemberRoles(any(Member.class), anyCollection(), anyCollection());
+    }
+
+    @Test
+    void separateMembersTest() {
+        // GIVEN
+        Member otherMember = Mockito.mock(Member.class);
+        when(otherMember.getGuild()).thenReturn(guild);
+        when(otherMember.getIdLong()).thenReturn(43L);
+        when(otherMember.getRoles()).thenReturn(List.of());
+
+        // WHEN
+        batcher.toggleRole(member, firstRole);
+        batcher.toggleRole(otherMember, firstRole);
+        runWindows();
+
+        // THEN
+        verify(wheel, times(2)).schedule(any(Runnable.class), eq(WINDOW));
+        verify(guild).modifyMemberRoles(member, List.of(firstRole), List.of());
+        verify(guild).modifyMemberRoles(otherMember, List.of(firstRole), List.of());
+    }
+
+    @Test
+    void openNewWindowAfterSendTest() {
+        // GIVEN
+        batcher.toggleRole(member, firstRole);
+        runWindows();
+
+        // WHEN
+        batcher.toggleRole(member, secondRole);
+
+        // THEN
+        verify(wheel, times(2)).schedule(any(Runnable.class), eq(WINDOW));
+    }
+
+    @Test
+    void startFromUpdateInFlightTest() {
+        // GIVEN
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        when(action.submit()).thenReturn(response);
+        batcher.toggleRole(member, firstRole);
+        runWindows();
+
+        // WHEN
+        boolean removedDuringRequest = batcher.toggleRole(member, firstRole);
+        response.complete(null);
+        boolean addedAfterResponse = batcher.toggleRole(member, secondRole);
+
+        // THEN
+        assertThat(removedDuringRequest).isFalse();
+        assertThat(addedAfterResponse).isTrue();
+    }
+
+    @Test
+    void forgetFailedUpdateTest() {
+        // GIVEN
+        when(action.submit()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Missing permissions")));
+        batcher.toggleRole(member, firstRole);
+        runWindows();
+
+        // WHEN
+        boolean added = batcher.toggleRole(member, firstRole);
+
+        // THEN
+        assertThat(added).isTrue();
+    }
+
+    @Test
+    void ignoreRoleDeletedDuringWindowTest() {
+        // GIVEN
+        when(guild.getRoleById(3L)).thenReturn(null);
+
+        // WHEN
+        batcher.toggleRole(member, firstRole);
+        batcher.toggleRole(member, secondRole);
+        runWindows();
+
+        // THEN
+        verify(guild).modifyMemberRoles(member, List.of(firstRole), List.of());
+    }
+
+    /**
+     * Close the windows scheduled on the timer wheel
+     */
+    private void runWindows() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(wheel, atLeastOnce()).schedule(captor.capture(), any(Duration.class));
+        captor.getAllValues().forEach(Runnable::run);
+    }
+
+    private Role mockRole(long roleId) {
+        Role role = Mockito.mock(Role.class);
+        when(role.getIdLong()).thenReturn(roleId);
+        when(guild.getRoleById(roleId)).thenReturn(role);
+        return role;
+    }
+
+}
@@ -0,0 +1,218 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import fr.seynox.saejinaapp.services.TicketTranscriptArchiver;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DelayedActionSchedulerTests {
+
+    @TempDir
+    Path directory;
+
+    private DelayedActionStore store;
+    private TimerWheel wheel;
+    private TicketTranscriptArchiver transcriptArchiver;
+    private DelayedActionScheduler scheduler;
+
+    private JDA jda;
+    private ReadyEvent event;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        store = new DelayedActionStore(directory.toString());
+        wheel = Mockito.mock(TimerWheel.class);
+        transcriptArchiver = Mockito.mock(TicketTranscriptArchiver.class);
+        scheduler = new DelayedActionScheduler(store, wheel, transcriptArchiver);
+
+        jda = Mockito.mock(JDA.class);
+        event = Mockito.mock(ReadyEvent.class);
+        when(event.getJDA()).thenReturn(jda);
+    }
+
+    @Test
+    void scheduleActionTest() {
+        // GIVEN
+        long channelId = 1234L;
+
+        // WHEN
+        DelayedAction result = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // THEN
+        assertThat(result.getType()).isEqualTo(TICKET_CLOSE);
+        assertThat(result.getTargetId()).isEqualTo(channelId);
+        assertThat(store.getPendingActions()).containsExactly(result);
+        assertThat(scheduler.getPendingActions()).containsExactly(result);
+        verify(wheel).schedule(any(Runnable.class), any(Duration.class));
+    }
+
+    @Test
+    void keepAlreadyPendingActionTest() {
+        // GIVEN
+        long channelId = 1234L;
+        DelayedAction pendingAction = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        DelayedAction result = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // THEN
+        assertThat(result).isEqualTo(pendingAction);
+        assertThat(store.getPendingActions()).hasSize(1);
+        verify(wheel, times(1)).schedule(any(Runnable.class), any(Duration.class));
+    }
+
+    @Test
+    void cancelActionTest() {
+        // GIVEN
+        long channelId = 1234L;
+        TimerWheel.Timeout timeout = new TimerWheel(Duration.ofMillis(100)).schedule(() -> {}, Duration.ZERO);
+
+        when(wheel.schedule(any(Runnable.class), any(Duration.class))).thenReturn(timeout);
+        when(wheel.cancel(timeout)).thenReturn(true);
+        scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        boolean result = scheduler.cancel(TICKET_CLOSE, channelId);
+
+        // THEN
+        assertThat(result).isTrue();
+        assertThat(store.getPendingActions()).isEmpty();
+        assertThat(scheduler.getPendingActions()).isEmpty();
+    }
+
+    @Test
+    void cancelRunningActionTest() {
+        // GIVEN
+        long channelId = 1234L;
+        TimerWheel.Timeout timeout = new TimerWheel(Duration.ofMillis(100)).schedule(() -> {}, Duration.ZERO);
+
+        when(wheel.schedule(any(Runnable.class), any(Duration.class))).thenReturn(timeout);
+        when(wheel.cancel(timeout)).thenReturn(false);
+        scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        boolean result = scheduler.cancel(TICKET_CLOSE, channelId);
+
+        // THEN
+        assertThat(result).isFalse();
+        assertThat(store.getPendingActions()).hasSize(1);
+    }
+
+    @Test
+    void cancelMissingActionTest() {
+        // WHEN
+        boolean result = scheduler.cancel(TICKET_CLOSE, 1234L);
+
+        // THEN
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    void recoverPendingActionsOnReadyTest() throws IOException {
+        // GIVEN
+        DelayedAction action = new DelayedAction("action-1", TICKET_CLOSE, 1234L, System.currentTimeMillis() + 10_000L);
+        store.add(action);
+        store.close();
+
+        DelayedActionStore reopenedStore = new DelayedActionStore(directory.toString());
+        DelayedActionScheduler recoveredScheduler = new DelayedActionScheduler(reopenedStore, wheel, transcriptArchiver);
+
+        // WHEN
+        recoveredScheduler.onReady(event);
+
+        // THEN
+        assertThat(recoveredScheduler.getPendingActions()).containsExactly(action);
+        verify(wheel).schedule(any(Runnable.class), any(Duration.class));
+        verify(wheel).start();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void executeTicketCloseTest() {
+        // GIVEN
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        AuditableRestAction<Void> deleteAction = Mockito.mock(AuditableRestAction.class);
+        ArgumentCaptor<Consumer<Void>> successCaptor = ArgumentCaptor.forClass(Consumer.class);
+        long channelId = 1234L;
+
+        when(jda.getTextChannelById(channelId)).thenReturn(channel);
+        when(channel.delete()).thenReturn(deleteAction);
+        when(transcriptArchiver.archive(channel)).thenReturn(CompletableFuture.completedFuture(directory.resolve("transcript.jsonl.gz")));
+        scheduler.onReady(event);
+        DelayedAction action = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        scheduler.execute(action);
+        verify(deleteAction).queue(successCaptor.capture(), any());
+        successCaptor.getValue().accept(null);
+
+        // THEN
+        InOrder inOrder = inOrder(transcriptArchiver, channel);
+        inOrder.verify(transcriptArchiver).archive(channel);
+        inOrder.verify(channel).delete();
+        assertThat(scheduler.getPendingActions()).isEmpty();
+        assertThat(store.getPendingActions()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitForTranscriptBeforeDeleteTest() {
+        // GIVEN
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        AuditableRestAction<Void> deleteAction = Mockito.mock(AuditableRestAction.class);
+        CompletableFuture<Path> transcript = new CompletableFuture<>();
+        long channelId = 1234L;
+
+        when(jda.getTextChannelById(channelId)).thenReturn(channel);
+        when(channel.delete()).thenReturn(deleteAction);
+        when(transcriptArchiver.archive(channel)).thenReturn(transcript);
+        scheduler.onReady(event);
+        DelayedAction action = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        scheduler.execute(action);
+        verify(channel, never()).delete();
+        transcript.completeExceptionally(new IOException("Disk full"));
+
+        // THEN
+        verify(channel).delete();
+        verify(deleteAction).queue(any(), any());
+    }
+
+    @Test
+    void executeTicketCloseOnDeletedChannelTest() {
+        // GIVEN
+        long channelId = 1234L;
+
+        when(jda.getTextChannelById(channelId)).thenReturn(null);
+        scheduler.onReady(event);
+        DelayedAction action = scheduler.schedule(TICKET_CLOSE, channelId, Duration.ofSeconds(30));
+
+        // WHEN
+        scheduler.execute(action);
+
+        // THEN
+        assertThat(scheduler.getPendingActions()).isEmpty();
+        assertThat(store.getPendingActions()).isEmpty();
+    }
+
+}
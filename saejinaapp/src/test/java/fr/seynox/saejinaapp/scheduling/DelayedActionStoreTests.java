@@ -0,0 +1,96 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.DelayedAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static fr.seynox.saejinaapp.models.DelayedActionType.TICKET_CLOSE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelayedActionStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverPendingActionsTest() throws IOException {
+        // GIVEN
+        DelayedAction action = new DelayedAction("action-1", TICKET_CLOSE, 1234L, 5000L);
+        DelayedActionStore store = new DelayedActionStore(directory.toString());
+        store.add(action);
+        store.close();
+
+        // WHEN
+        List<DelayedAction> result = new DelayedActionStore(directory.toString()).getPendingActions();
+
+        // THEN
+        assertThat(result).containsExactly(action);
+    }
+
+    @Test
+    void doNotRecoverRemovedActionsTest() throws IOException {
+        // GIVEN
+        DelayedAction removedAction = new DelayedAction("action-1", TICKET_CLOSE, 1234L, 5000L);
+        DelayedAction pendingAction = new DelayedAction("action-2", TICKET_CLOSE, 5678L, 6000L);
+        DelayedActionStore store = new DelayedActionStore(directory.toString());
+        store.add(removedAction);
+        store.add(pendingAction);
+        store.remove(removedAction.getId());
+        store.close();
+
+        // WHEN
+        List<DelayedAction> result = new DelayedActionStore(directory.toString()).getPendingActions();
+
+        // THEN
+        assertThat(result).containsExactly(pendingAction);
+    }
+
+    @Test
+    void ignorePartiallyWrittenLineTest() throws IOException {
+        // GIVEN
+        DelayedAction action = new DelayedAction("action-1", TICKET_CLOSE, 1234L, 5000L);
+        DelayedActionStore store = new DelayedActionStore(directory.toString());
+        store.add(action);
+        store.close();
+
+        Path file = directory.resolve(DelayedActionStore.FILE_NAME);
+        Files.writeString(file, "{\"op\":\"DONE\",\"id\":\"act", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // WHEN
+        List<DelayedAction> result = new DelayedActionStore(directory.toString()).getPendingActions();
+
+        // THEN
+        assertThat(result).containsExactly(action);
+    }
+
+    @Test
+    void compactLogTest() throws IOException {
+        // GIVEN
+        DelayedAction pendingAction = new DelayedAction("pending", TICKET_CLOSE, 1L, 5000L);
+        DelayedActionStore store = new DelayedActionStore(directory.toString());
+        store.add(pendingAction);
+
+        for(int i = 0; i < 1000; i++) {
+            String id = "action-" + i;
+            store.add(new DelayedAction(id, TICKET_CLOSE, i, 5000L));
+            store.remove(id);
+        }
+        store.close();
+
+        // WHEN
+        List<String> lines = Files.readAllLines(directory.resolve(DelayedActionStore.FILE_NAME));
+        List<DelayedAction> result = new DelayedActionStore(directory.toString()).getPendingActions();
+
+        // THEN
+        assertThat(lines).hasSizeLessThan(1000);
+        assertThat(result).containsExactly(pendingAction);
+    }
+
+}
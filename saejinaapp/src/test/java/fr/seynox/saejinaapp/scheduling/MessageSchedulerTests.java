@@ -0,0 +1,345 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.SaejinaAppException;
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import fr.seynox.saejinaapp.services.DiscordService;
+import fr.seynox.saejinaapp.services.MemberAccessService;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MessageSchedulerTests {
+
+    private static final Duration MAX_JITTER = Duration.ofSeconds(60);
+    private static final Instant NOW = Instant.parse("2026-05-01T19:00:00Z");
+    private static final String CONTENT = "Scrim in one hour !";
+
+    @TempDir
+    Path directory;
+
+    private ScheduledMessageStore store;
+    private TimerWheel wheel;
+    private MemberAccessService accessService;
+    private DiscordService discordService;
+    private MutableClock clock;
+    private MessageScheduler scheduler;
+
+    private Member member;
+    private TextChannel channel;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        store = new ScheduledMessageStore(directory.toString());
+        wheel = Mockito.mock(TimerWheel.class);
+        accessService = Mockito.mock(MemberAccessService.class);
+        discordService = Mockito.mock(DiscordService.class);
+        clock = new MutableClock(NOW);
+        scheduler = new MessageScheduler(store, wheel, accessService, discordService, MAX_JITTER, clock);
+
+        member = Mockito.mock(Member.class);
+        channel = Mockito.mock(TextChannel.class);
+        Guild guild = Mockito.mock(Guild.class);
+
+        when(member.getIdLong()).thenReturn(42L);
+        when(channel.getIdLong()).thenReturn(1234L);
+        when(channel.getGuild()).thenReturn(guild);
+        when(guild.getIdLong()).thenReturn(1000L);
+        when(accessService.getServerMemberAsync("42", 1000L)).thenReturn(CompletableFuture.completedFuture(member));
+        when(accessService.getWritableServerTextChannel(member, 1234L)).thenReturn(channel);
+    }
+
+    @Test
+    void scheduleMessageTest() {
+        // GIVEN
+        Instant sendAt = NOW.plus(Duration.ofHours(1));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+
+        // WHEN
+        ScheduledMessage result = scheduler.schedule(member, channel, CONTENT, sendAt);
+
+        // THEN
+        assertThat(result.getSendAt()).isEqualTo(sendAt.toEpochMilli());
+        assertThat(result.isRecurring()).isFalse();
+        assertThat(store.getScheduledMessages()).containsExactly(result);
+        assertThat(scheduler.getChannelMessages(1234L)).containsExactly(result);
+        verify(discordService).checkMessagePermissions(member, CONTENT);
+
+        Instant nextSend = scheduler.getNextSend(result.getId());
+        assertThat(nextSend).isBetween(sendAt, sendAt.plus(MAX_JITTER));
+        verify(wheel).schedule(any(Runnable.class), eq(Duration.between(NOW, nextSend)));
+    }
+
+    @Test
+    void armScheduledMessagesOnReadyTest() throws IOException {
+        // GIVEN
+        ScheduledMessage message = scheduler.schedule(member, channel, CONTENT, NOW.plus(Duration.ofHours(1)));
+        store.close();
+
+        ScheduledMessageStore reopenedStore = new ScheduledMessageStore(directory.toString());
+        MessageScheduler recoveredScheduler = new MessageScheduler(reopenedStore, wheel, accessService, discordService, MAX_JITTER, clock);
+
+        // WHEN
+        recoveredScheduler.onReady(Mockito.mock(ReadyEvent.class));
+
+        // THEN
+        assertThat(recoveredScheduler.getNextSend(message.getId())).isNotNull();
+        verify(wheel, times(1)).schedule(any(Runnable.class), any(Duration.class));
+        verify(wheel).start();
+    }
+
+    @Test
+    void refuseMessageInThePastTest() {
+        // WHEN
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> scheduler.schedule(member, channel, CONTENT, NOW.minusSeconds(1)));
+
+        // THEN
+        assertThat(store.getScheduledMessages()).isEmpty();
+    }
+
+    @Test
+    void refuseMessageWithoutPermissionTest() {
+        // GIVEN
+        doThrow(new PermissionException("You do not have the permission to mention everyone"))
+                .when(discordService).checkMessagePermissions(member, "@everyone");
+
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> scheduler.schedule(member, channel, "@everyone", NOW.plusSeconds(60)));
+
+        // THEN
+        assertThat(store.getScheduledMessages()).isEmpty();
+    }
+
+    @Test
+    void refuseTooManyMessagesInChannelTest() {
+        // GIVEN
+        for(int i = 0; i < MessageScheduler.MAX_MESSAGES_PER_CHANNEL; i++) {
+            scheduler.schedule(member, channel, CONTENT, NOW.plusSeconds(60));
+        }
+
+        // WHEN
+        assertThatExceptionOfType(SaejinaAppException.class)
+                .isThrownBy(() -> scheduler.schedule(member, channel, CONTENT, NOW.plusSeconds(60)));
+
+        // THEN
+        assertThat(store.getScheduledMessages()).hasSize(MessageScheduler.MAX_MESSAGES_PER_CHANNEL);
+    }
+
+    @Test
+    void refuseInvalidCronTest() {
+        // WHEN
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> scheduler.scheduleRecurring(member, channel, CONTENT, "not a cron"));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> scheduler.scheduleRecurring(member, channel, CONTENT, "*/10 * * * * *"));
+
+        // THEN
+        assertThat(store.getScheduledMessages()).isEmpty();
+    }
+
+    @Test
+    void sendMessageOnceTest() {
+        // GIVEN
+        mockSend(CompletableFuture.completedFuture(null));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.schedule(member, channel, CONTENT, NOW.plusSeconds(60));
+        clock.setInstant(scheduler.getNextSend(message.getId()));
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        verify(discordService).sendMessageInChannel(member, channel, CONTENT);
+        assertThat(store.getScheduledMessages()).isEmpty();
+        assertThat(scheduler.getNextSend(message.getId())).isNull();
+    }
+
+    @Test
+    void rearmRecurringMessageTest() {
+        // GIVEN
+        mockSend(CompletableFuture.completedFuture(null));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.scheduleRecurring(member, channel, CONTENT, "0 0 20 * * *");
+        Instant firstSend = scheduler.getNextSend(message.getId());
+        clock.setInstant(firstSend);
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        verify(discordService).sendMessageInChannel(member, channel, CONTENT);
+        assertThat(store.getScheduledMessages()).containsExactly(message);
+        assertThat(scheduler.getNextSend(message.getId())).isEqualTo(firstSend.plus(Duration.ofDays(1)));
+    }
+
+    @Test
+    void rearmWhenFiredEarlyTest() {
+        // GIVEN
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.schedule(member, channel, CONTENT, NOW.plus(Duration.ofHours(1)));
+        Instant nextSend = scheduler.getNextSend(message.getId());
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        verify(discordService, never()).sendMessageInChannel(any(), any(), any());
+        assertThat(scheduler.getNextSend(message.getId())).isEqualTo(nextSend);
+        verify(wheel, times(2)).schedule(any(Runnable.class), eq(Duration.between(NOW, nextSend)));
+    }
+
+    @Test
+    void cancelMessageWhenAuthorLostAccessTest() {
+        // GIVEN
+        when(accessService.getWritableServerTextChannel(member, 1234L))
+                .thenThrow(new PermissionException("You do not have the permission to talk in this channel"));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.scheduleRecurring(member, channel, CONTENT, "0 0 20 * * *");
+        clock.setInstant(scheduler.getNextSend(message.getId()));
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        verify(discordService, never()).sendMessageInChannel(any(), any(), any());
+        assertThat(store.getScheduledMessages()).isEmpty();
+        assertThat(scheduler.getNextSend(message.getId())).isNull();
+    }
+
+    @Test
+    void cancelMessageWhenAuthorLeftTest() {
+        // GIVEN
+        mockSend(CompletableFuture.failedFuture(mockErrorResponse(ErrorResponse.UNKNOWN_MEMBER)));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.scheduleRecurring(member, channel, CONTENT, "0 0 20 * * *");
+        clock.setInstant(scheduler.getNextSend(message.getId()));
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        assertThat(store.getScheduledMessages()).isEmpty();
+        assertThat(scheduler.getNextSend(message.getId())).isNull();
+    }
+
+    @Test
+    void keepMessageOnDiscordErrorTest() {
+        // GIVEN
+        mockSend(CompletableFuture.failedFuture(mockErrorResponse(ErrorResponse.SERVER_ERROR)));
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.scheduleRecurring(member, channel, CONTENT, "0 0 20 * * *");
+        Instant firstSend = scheduler.getNextSend(message.getId());
+        clock.setInstant(firstSend);
+
+        // WHEN
+        scheduler.fire(message.getId());
+
+        // THEN
+        verify(discordService).sendMessageInChannel(member, channel, CONTENT);
+        assertThat(store.getScheduledMessages()).containsExactly(message);
+        assertThat(scheduler.getNextSend(message.getId())).isEqualTo(firstSend.plus(Duration.ofDays(1)));
+    }
+
+    @Test
+    void cancelMessageTest() {
+        // GIVEN
+        TimerWheel.Timeout timeout = new TimerWheel(Duration.ofMillis(100)).schedule(() -> {}, Duration.ZERO);
+        when(wheel.schedule(any(Runnable.class), any(Duration.class))).thenReturn(timeout);
+        scheduler.onReady(Mockito.mock(ReadyEvent.class));
+        ScheduledMessage message = scheduler.schedule(member, channel, CONTENT, NOW.plusSeconds(60));
+
+        // WHEN
+        scheduler.cancel(member, channel, message.getId());
+
+        // THEN
+        verify(wheel).cancel(timeout);
+        assertThat(store.getScheduledMessages()).isEmpty();
+        assertThat(scheduler.getNextSend(message.getId())).isNull();
+    }
+
+    @Test
+    void refuseCancelByOtherMemberTest() {
+        // GIVEN
+        Member otherMember = Mockito.mock(Member.class);
+        when(otherMember.getIdLong()).thenReturn(43L);
+        when(otherMember.hasPermission(channel, Permission.MESSAGE_MANAGE)).thenReturn(false);
+        ScheduledMessage message = scheduler.schedule(member, channel, CONTENT, NOW.plusSeconds(60));
+
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> scheduler.cancel(otherMember, channel, message.getId()));
+
+        // THEN
+        assertThat(store.getScheduledMessages()).containsExactly(message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockSend(CompletableFuture<Message> result) {
+        OutboundRequest<Message> request = Mockito.mock(OutboundRequest.class);
+        when(request.getResult()).thenReturn(result);
+        when(discordService.sendMessageInChannel(member, channel, CONTENT)).thenReturn(request);
+    }
+
+    private static ErrorResponseException mockErrorResponse(ErrorResponse response) {
+        ErrorResponseException exception = Mockito.mock(ErrorResponseException.class);
+        when(exception.getErrorResponse()).thenReturn(response);
+
+        return exception;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void setInstant(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+}
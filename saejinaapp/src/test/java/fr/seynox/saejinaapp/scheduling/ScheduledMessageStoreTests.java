@@ -0,0 +1,52 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import fr.seynox.saejinaapp.models.ScheduledMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduledMessageStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverScheduledMessagesTest() throws IOException {
+        // GIVEN
+        ScheduledMessage onceMessage = new ScheduledMessage("message-1", 1000L, 1234L, 42L, "Hello", 5000L, null, null);
+        ScheduledMessage recurringMessage = new ScheduledMessage("message-2", 1000L, 1234L, 42L, "Hello again", null, "0 0 20 * * FRI", "Europe/Paris");
+        ScheduledMessageStore store = new ScheduledMessageStore(directory.toString());
+        store.add(onceMessage);
+        store.add(recurringMessage);
+        store.close();
+
+        // WHEN
+        List<ScheduledMessage> result = new ScheduledMessageStore(directory.toString()).getScheduledMessages();
+
+        // THEN
+        assertThat(result).containsExactly(onceMessage, recurringMessage);
+        assertThat(result.get(1).isRecurring()).isTrue();
+    }
+
+    @Test
+    void doNotRecoverRemovedMessagesTest() throws IOException {
+        // GIVEN
+        ScheduledMessage message = new ScheduledMessage("message-1", 1000L, 1234L, 42L, "Hello", 5000L, null, null);
+        ScheduledMessageStore store = new ScheduledMessageStore(directory.toString());
+        store.add(message);
+        store.remove(message.getId());
+        store.close();
+
+        // WHEN
+        List<ScheduledMessage> result = new ScheduledMessageStore(directory.toString()).getScheduledMessages();
+
+        // THEN
+        assertThat(result).isEmpty();
+    }
+
+}
@@ -0,0 +1,180 @@
+package fr.seynox.saejinaapp.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTests {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    private AtomicLong clock;
+    private TimerWheel wheel;
+
+    @BeforeEach
+    void initTest() {
+        clock = new AtomicLong(1_000_000L);
+        wheel = new TimerWheel(TICK, clock::get);
+    }
+
+    @Test
+    void runTaskOnceDelayIsElapsedTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        wheel.schedule(runCount::incrementAndGet, Duration.ofMillis(500));
+
+        // WHEN
+        moveClock(Duration.ofMillis(400));
+        int countBeforeDeadline = runCount.get();
+        moveClock(Duration.ofMillis(100));
+
+        // THEN
+        assertThat(countBeforeDeadline).isZero();
+        assertThat(runCount.get()).isOne();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void runTaskWithNegativeDelayOnNextTickTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        wheel.schedule(runCount::incrementAndGet, Duration.ofSeconds(-10));
+
+        // WHEN
+        moveClock(TICK);
+
+        // THEN
+        assertThat(runCount.get()).isOne();
+    }
+
+    @Test
+    void cancelTaskTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(runCount::incrementAndGet, Duration.ofSeconds(1));
+
+        // WHEN
+        boolean isCancelled = wheel.cancel(timeout);
+        moveClock(Duration.ofSeconds(2));
+
+        // THEN
+        assertThat(isCancelled).isTrue();
+        assertThat(timeout.isCancelled()).isTrue();
+        assertThat(runCount.get()).isZero();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelAlreadyRunTaskTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(runCount::incrementAndGet, Duration.ofSeconds(1));
+        moveClock(Duration.ofSeconds(1));
+
+        // WHEN
+        boolean isCancelled = wheel.cancel(timeout);
+
+        // THEN
+        assertThat(isCancelled).isFalse();
+        assertThat(runCount.get()).isOne();
+    }
+
+    @Test
+    void runTasksFromUpperLevelsAtTheirDeadlineTest() {
+        // GIVEN
+        List<Long> runTicks = new ArrayList<>();
+        long[] delays = {63, 64, 65, 4095, 4096, 4097, 300_000};
+
+        for(long delay : delays) {
+            wheel.schedule(() -> runTicks.add(delay), TICK.multipliedBy(delay));
+        }
+
+        // WHEN
+        List<Long> expectedTicks = new ArrayList<>();
+        boolean runEarly = false;
+        for(long delay : delays) {
+            // One tick before the deadline
+            moveClockTo(TICK.multipliedBy(delay - 1));
+            runEarly |= runTicks.contains(delay);
+
+            moveClockTo(TICK.multipliedBy(delay));
+            expectedTicks.add(delay);
+        }
+
+        // THEN
+        assertThat(runEarly).isFalse();
+        assertThat(runTicks).isEqualTo(expectedTicks);
+    }
+
+    @Test
+    void runTaskEvenWhenTheWheelIsLateTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        wheel.schedule(runCount::incrementAndGet, Duration.ofMinutes(30));
+
+        // WHEN
+        moveClock(Duration.ofHours(2));
+
+        // THEN
+        assertThat(runCount.get()).isOne();
+    }
+
+    @Test
+    void runManyTasksTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        int taskCount = 10_000;
+        for(int i = 0; i < taskCount; i++) {
+            wheel.schedule(runCount::incrementAndGet, Duration.ofMillis(i * 37L));
+        }
+        int scheduledCount = wheel.size();
+
+        // WHEN
+        moveClock(Duration.ofMillis(taskCount * 37L));
+
+        // THEN
+        assertThat(scheduledCount).isEqualTo(taskCount);
+        assertThat(runCount.get()).isEqualTo(taskCount);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void keepRunningTasksAfterFailureTest() {
+        // GIVEN
+        AtomicInteger runCount = new AtomicInteger();
+        wheel.schedule(() -> {
+            throw new IllegalStateException("Failing task");
+        }, TICK);
+        wheel.schedule(runCount::incrementAndGet, TICK);
+
+        // WHEN
+        moveClock(TICK);
+
+        // THEN
+        assertThat(runCount.get()).isOne();
+    }
+
+    /**
+     * Move the fake clock tick by tick, like the wheel thread would
+     */
+    private void moveClock(Duration duration) {
+        long ticks = duration.toNanos() / TICK.toNanos();
+        for(long tick = 0; tick < ticks; tick++) {
+            clock.addAndGet(TICK.toNanos());
+            wheel.advance();
+        }
+    }
+
+    private void moveClockTo(Duration sinceStart) {
+        long target = 1_000_000L + sinceStart.toNanos();
+        moveClock(Duration.ofNanos(target - clock.get()));
+    }
+
+}
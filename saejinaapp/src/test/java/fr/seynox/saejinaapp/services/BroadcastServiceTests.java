@@ -0,0 +1,212 @@
+package fr.seynox.saejinaapp.services;
+
+import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
+import fr.seynox.saejinaapp.models.BroadcastChannelStatus;
+import fr.seynox.saejinaapp.models.BroadcastProgress;
+import fr.seynox.saejinaapp.models.BroadcastState;
+import fr.seynox.saejinaapp.outbound.OutboundRequest;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BroadcastServiceTests {
+
+    private static final int CONCURRENCY = 2;
+    private static final String CONTENT = "The match starts in 10 minutes !";
+
+    private MemberAccessService accessService;
+    private DiscordService discordService;
+    private BroadcastService service;
+
+    private Member member;
+    private Guild guild;
+    private List<CompletableFuture<Message>> sends;
+
+    @BeforeEach
+    void initTest() {
+        accessService = Mockito.mock(MemberAccessService.class);
+        discordService = Mockito.mock(DiscordService.class);
+        service = new BroadcastService(accessService, discordService, CONCURRENCY);
+
+        member = Mockito.mock(Member.class);
+        guild = Mockito.mock(Guild.class);
+        sends = new ArrayList<>();
+
+        when(member.getIdLong()).thenReturn(42L);
+        when(member.getGuild()).thenReturn(guild);
+        when(guild.getIdLong()).thenReturn(1000L);
+        when(discordService.sendMessageInChannel(any(), any(), any())).thenAnswer(invocation -> {
+            CompletableFuture<Message> sent = new CompletableFuture<>();
+            sends.add(sent);
+
+            OutboundRequest<Message> request = Mockito.mock(OutboundRequest.class);
+            when(request.getResult()).thenReturn(sent);
+            return request;
+        });
+    }
+
+    @Test
+    void limitConcurrentSendsTest() {
+        // GIVEN
+        List<TextChannel> channels = mockChannels(5);
+
+        // WHEN
+        service.startBroadcast(member, List.of(1L, 2L, 3L, 4L, 5L), CONTENT);
+
+        // THEN
+        assertThat(sends).hasSize(CONCURRENCY);
+        verify(discordService).sendMessageInChannel(member, channels.get(0), CONTENT);
+        verify(discordService).sendMessageInChannel(member, channels.get(1), CONTENT);
+
+        sends.get(0).complete(null);
+        assertThat(sends).hasSize(CONCURRENCY + 1);
+        verify(discordService).sendMessageInChannel(member, channels.get(2), CONTENT);
+    }
+
+    @Test
+    void reportProgressPerChannelTest() {
+        // GIVEN
+        mockChannels(3);
+
+        // WHEN
+        String broadcastId = service.startBroadcast(member, List.of(1L, 2L, 3L), CONTENT);
+        sends.get(0).complete(null);
+        sends.get(1).completeExceptionally(new IllegalStateException("Missing permission"));
+        BroadcastProgress progress = service.getProgress(member, broadcastId);
+
+        // THEN
+        assertThat(progress.getTotal()).isEqualTo(3);
+        assertThat(progress.getSent()).isEqualTo(1);
+        assertThat(progress.getFailed()).isEqualTo(1);
+        assertThat(progress.isDone()).isFalse();
+        assertThat(progress.getChannels())
+                .extracting(BroadcastChannelStatus::getState)
+                .containsExactly(BroadcastState.SENT, BroadcastState.FAILED, BroadcastState.PENDING);
+        assertThat(progress.getChannels().get(1).getError()).isEqualTo("Missing permission");
+
+        sends.get(2).complete(null);
+        assertThat(service.getProgress(member, broadcastId).isDone()).isTrue();
+    }
+
+    @Test
+    void reportRejectedChannelsWithoutSendingTest() {
+        // GIVEN
+        mockChannels(1);
+        when(accessService.getWritableServerTextChannel(member, 2L))
+                .thenThrow(new PermissionException("You do not have the permission to talk in this channel"));
+
+        // WHEN
+        String broadcastId = service.startBroadcast(member, List.of(1L, 2L), CONTENT);
+        BroadcastProgress progress = service.getProgress(member, broadcastId);
+
+        // THEN
+        verify(discordService, times(1)).sendMessageInChannel(any(), any(), any());
+        BroadcastChannelStatus rejected = progress.getChannels().get(1);
+        assertThat(rejected.getChannelId()).isEqualTo("2");
+        assertThat(rejected.getState()).isEqualTo(BroadcastState.FAILED);
+        assertThat(rejected.getError()).isEqualTo("You do not have the permission to talk in this channel");
+    }
+
+    @Test
+    void continueAfterImmediateFailuresTest() {
+        // GIVEN
+        mockChannels(4);
+        reset(discordService);
+        when(discordService.sendMessageInChannel(any(), any(), any()))
+                .thenThrow(new PermissionException("You do not have the permission to mention everyone"));
+
+        // WHEN
+        String broadcastId = service.startBroadcast(member, List.of(1L, 2L, 3L, 4L), CONTENT);
+        BroadcastProgress progress = service.getProgress(member, broadcastId);
+
+        // THEN
+        verify(discordService, times(4)).sendMessageInChannel(any(), any(), any());
+        assertThat(progress.getFailed()).isEqualTo(4);
+        assertThat(progress.isDone()).isTrue();
+    }
+
+    @Test
+    void ignoreDuplicateChannelsTest() {
+        // GIVEN
+        mockChannels(1);
+
+        // WHEN
+        String broadcastId = service.startBroadcast(member, List.of(1L, 1L), CONTENT);
+
+        // THEN
+        assertThat(service.getProgress(member, broadcastId).getTotal()).isEqualTo(1);
+        verify(discordService, times(1)).sendMessageInChannel(any(), any(), any());
+    }
+
+    @Test
+    void trackQueuedMessageTest() {
+        // GIVEN
+        TextChannel channel = mockChannels(1).get(0);
+        CompletableFuture<Message> sent = new CompletableFuture<>();
+        OutboundRequest<Message> request = Mockito.mock(OutboundRequest.class);
+        when(request.isQueued()).thenReturn(true);
+        when(request.getResult()).thenReturn(sent);
+
+        // WHEN
+        String broadcastId = service.trackMessage(member, channel, request);
+        BroadcastProgress queuedProgress = service.getProgress(member, broadcastId);
+        sent.completeExceptionally(new IllegalStateException("Unknown channel"));
+        BroadcastProgress failedProgress = service.getProgress(member, broadcastId);
+
+        // THEN
+        verify(discordService, never()).sendMessageInChannel(any(), any(), any());
+        assertThat(queuedProgress.getChannels()).extracting(BroadcastChannelStatus::getState).containsExactly(BroadcastState.QUEUED);
+        assertThat(queuedProgress.isDone()).isFalse();
+        assertThat(failedProgress.getFailed()).isEqualTo(1);
+        assertThat(failedProgress.getChannels().get(0).getError()).isEqualTo("Unknown channel");
+        assertThat(failedProgress.isDone()).isTrue();
+    }
+
+    @Test
+    void refuseProgressOfOtherMemberTest() {
+        // GIVEN
+        mockChannels(1);
+        Member otherMember = Mockito.mock(Member.class);
+        when(otherMember.getIdLong()).thenReturn(43L);
+        when(otherMember.getGuild()).thenReturn(guild);
+
+        String broadcastId = service.startBroadcast(member, List.of(1L), CONTENT);
+
+        // WHEN
+        assertThatExceptionOfType(ResourceNotAccessibleException.class)
+                .isThrownBy(() -> service.getProgress(otherMember, broadcastId));
+        assertThatExceptionOfType(ResourceNotAccessibleException.class)
+                .isThrownBy(() -> service.getProgress(member, "unknown"));
+    }
+
+    /**
+     * Mock the writable channels 1 to count
+     */
+    private List<TextChannel> mockChannels(int count) {
+        List<TextChannel> channels = new ArrayList<>();
+        for(long channelId = 1; channelId <= count; channelId++) {
+            TextChannel channel = Mockito.mock(TextChannel.class);
+            when(channel.getId()).thenReturn(Long.toString(channelId));
+            when(channel.getName()).thenReturn("team-" + channelId);
+            when(accessService.getWritableServerTextChannel(member, channelId)).thenReturn(channel);
+            channels.add(channel);
+        }
+
+        return channels;
+    }
+
+}
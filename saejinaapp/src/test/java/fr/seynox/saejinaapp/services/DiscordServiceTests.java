@@ -1,21 +1,27 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.MemberNameIndex;
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.caches.UserGuildIndex;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.models.SelectablePage;
 import fr.seynox.saejinaapp.models.TextChannelAction;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.internal.JDAImpl;
 import net.dv8tion.jda.internal.entities.GuildImpl;
-import net.dv8tion.jda.internal.requests.CompletedRestAction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -24,6 +30,9 @@ import static org.mockito.Mockito.*;
 class DiscordServiceTests {
 
     private JDAImpl jda;
+    private UserGuildIndex guildIndex;
+    private MemberNameIndex nameIndex;
+    private RoleListCache roleListCache;
     private DiscordService service;
 
     private Member member;
@@ -32,7 +41,10 @@ class DiscordServiceTests {
     @BeforeEach
     void initTest() {
         jda = Mockito.mock(JDAImpl.class);
-        service = new DiscordService(jda);
+        guildIndex = Mockito.mock(UserGuildIndex.class);
+        nameIndex = Mockito.mock(MemberNameIndex.class);
+        roleListCache = Mockito.mock(RoleListCache.class);
+        service = new DiscordService(jda, guildIndex, nameIndex, roleListCache, new OutboundQueue());
 
         member = Mockito.mock(Member.class);
         channel = Mockito.mock(TextChannel.class);
@@ -45,12 +57,8 @@ class DiscordServiceTests {
         // GIVEN
         String userId = "123456";
 
-        User user = Mockito.mock(User.class);
-
-        List<Guild> guilds = List.of(
-                new GuildImpl(jda, 1L).setName("Guild One"),
-                new GuildImpl(jda, 2L).setName("Guild Two")
-        );
+        GuildImpl guildOne = new GuildImpl(jda, 1L).setName("Guild One");
+        GuildImpl guildTwo = new GuildImpl(jda, 2L).setName("Guild Two");
 
         List<Selectable> expected = List.of(
                 new SelectableImpl(1L, null, "Guild One"),
@@ -59,38 +67,60 @@ class DiscordServiceTests {
 
         List<Selectable> result;
 
-        when(jda.retrieveUserById(userId)).thenReturn(new CompletedRestAction<>(null, user));
-        when(user.getMutualGuilds()).thenReturn(guilds);
+        when(guildIndex.getGuildIds(123456L)).thenReturn(new long[] {1L, 2L});
+        when(jda.getGuildById(1L)).thenReturn(guildOne);
+        when(jda.getGuildById(2L)).thenReturn(guildTwo);
         // WHEN
         result = service.getUserServers(userId);
 
         // THEN
-        verify(jda).retrieveUserById(userId);
-        verify(user).getMutualGuilds();
+        verify(guildIndex).getGuildIds(123456L);
+        verify(jda, never()).retrieveUserById(anyString());
         assertThat(result).containsExactlyElementsOf(expected);
     }
 
     @Test
-    void getNullUserServersTest() {
+    void getUnknownUserServersTest() {
         // GIVEN
         String userId = "123456";
 
         List<Selectable> result;
 
-        when(jda.retrieveUserById(userId)).thenReturn(new CompletedRestAction<>(null, null));
+        when(guildIndex.getGuildIds(123456L)).thenReturn(new long[0]);
         // WHEN
         result = service.getUserServers(userId);
 
         // THEN
-        verify(jda).retrieveUserById(userId);
+        verify(guildIndex).getGuildIds(123456L);
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void skipUncachedUserServersTest() {
+        // GIVEN
+        String userId = "123456";
+
+        GuildImpl guild = new GuildImpl(jda, 1L).setName("Guild One");
+
+        List<Selectable> expected = List.of(new SelectableImpl(1L, null, "Guild One"));
+
+        List<Selectable> result;
+
+        when(guildIndex.getGuildIds(123456L)).thenReturn(new long[] {1L, 2L});
+        when(jda.getGuildById(1L)).thenReturn(guild);
+        when(jda.getGuildById(2L)).thenReturn(null);
+        // WHEN
+        result = service.getUserServers(userId);
+
+        // THEN
+        assertThat(result).containsExactlyElementsOf(expected);
+    }
+
     @Test
     void getPossibleActionsForChannelTest() {
         // GIVEN
 
-        List<TextChannelAction> expected = List.of(TextChannelAction.SEND_MESSAGE);
+        List<TextChannelAction> expected = List.of(TextChannelAction.SEND_MESSAGE, TextChannelAction.SCHEDULE_MESSAGE);
 
         List<TextChannelAction> result;
 
@@ -108,16 +138,18 @@ class DiscordServiceTests {
         // GIVEN
         String message = "Hello world";
 
-        MessageAction action = Mockito.mock(MessageAction.class);
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
 
         when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
         // WHEN
         service.sendMessageInChannel(member, channel, message);
 
         // THEN
         verify(member, never()).hasPermission(any(Permission.class));
         verify(channel).sendMessage(message);
-        verify(action).queue();
+        verify(action).allowedMentions(EnumSet.noneOf(Message.MentionType.class));
+        verify(action).submit();
     }
 
     @Test
@@ -125,9 +157,10 @@ class DiscordServiceTests {
         // GIVEN
         String message = "Hello @everyone !";
 
-        MessageAction action = Mockito.mock(MessageAction.class);
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
 
         when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
         when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(true);
         // WHEN
         service.sendMessageInChannel(member, channel, message);
@@ -135,7 +168,78 @@ class DiscordServiceTests {
         // THEN
         verify(member).hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
         verify(channel).sendMessage(message);
-        verify(action).queue();
+        verify(action).allowedMentions(EnumSet.of(Message.MentionType.EVERYONE));
+        verify(action).submit();
+    }
+
+    @Test
+    void sendMessageWithUserMentionsInChannelTest() {
+        // GIVEN
+        String message = "Hello <@1234> and <@!5678> !";
+
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
+
+        when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
+        // WHEN
+        service.sendMessageInChannel(member, channel, message);
+
+        // THEN
+        verify(member, never()).hasPermission(any(Permission.class));
+        verify(action).allowedMentions(EnumSet.noneOf(Message.MentionType.class));
+        verify(action).mentionUsers(1234L, 5678L);
+        verify(action).mentionRoles(new long[0]);
+        verify(action).submit();
+    }
+
+    @Test
+    void sendMessageWithRoleMentionsInChannelTest() {
+        // GIVEN
+        String message = "Hello <@&1> and <@&2> !";
+
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
+        Guild guild = Mockito.mock(Guild.class);
+        Role mentionableRole = Mockito.mock(Role.class);
+        Role protectedRole = Mockito.mock(Role.class);
+
+        when(channel.getGuild()).thenReturn(guild);
+        when(guild.getRoleById(1L)).thenReturn(mentionableRole);
+        when(guild.getRoleById(2L)).thenReturn(protectedRole);
+        when(mentionableRole.isMentionable()).thenReturn(true);
+        when(protectedRole.isMentionable()).thenReturn(false);
+        when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(false);
+        when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
+        // WHEN
+        service.sendMessageInChannel(member, channel, message);
+
+        // THEN
+        verify(member).hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
+        verify(action).mentionRoles(new long[] {1L});
+        verify(action).submit();
+    }
+
+    @Test
+    void sendMessageWithProtectedRoleMentionInChannelTest() {
+        // GIVEN
+        String message = "Hello <@&2> !";
+
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
+        Guild guild = Mockito.mock(Guild.class);
+        Role protectedRole = Mockito.mock(Role.class);
+
+        when(channel.getGuild()).thenReturn(guild);
+        when(guild.getRoleById(2L)).thenReturn(protectedRole);
+        when(protectedRole.isMentionable()).thenReturn(false);
+        when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(true);
+        when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
+        // WHEN
+        service.sendMessageInChannel(member, channel, message);
+
+        // THEN
+        verify(action).mentionRoles(new long[] {2L});
+        verify(action).submit();
     }
 
     @Test
@@ -143,9 +247,10 @@ class DiscordServiceTests {
         // GIVEN
         String message = "Hello @everyone !";
 
-        MessageAction action = Mockito.mock(MessageAction.class);
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
 
         when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
         when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(false);
         // WHEN
         assertThatExceptionOfType(PermissionException.class)
@@ -155,7 +260,7 @@ class DiscordServiceTests {
         // THEN
         verify(member).hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
         verify(channel, never()).sendMessage(any(String.class));
-        verify(action, never()).queue();
+        verify(action, never()).submit();
     }
 
     @Test
@@ -163,9 +268,10 @@ class DiscordServiceTests {
         // GIVEN
         String message = "Hello @here !";
 
-        MessageAction action = Mockito.mock(MessageAction.class);
+        MessageAction action = Mockito.mock(MessageAction.class, RETURNS_SELF);
 
         when(channel.sendMessage(message)).thenReturn(action);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
         when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(false);
         // WHEN
         assertThatExceptionOfType(PermissionException.class)
@@ -175,69 +281,62 @@ class DiscordServiceTests {
         // THEN
         verify(member).hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
         verify(channel, never()).sendMessage(any(String.class));
-        verify(action, never()).queue();
+        verify(action, never()).submit();
     }
 
     @Test
-    void getMentionableRolesTest() {
+    void refuseUnauthorizedEveryoneMessageCheckTest() {
         // GIVEN
-        String roleName = "My role !";
-        String roleMention = "<@&123456789>";
+        String message = "Hello @everyone !";
 
-        Guild guild = Mockito.mock(Guild.class);
+        when(member.hasPermission(Permission.MESSAGE_MENTION_EVERYONE)).thenReturn(false);
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> service.checkMessagePermissions(member, message))
+                .withMessage("You do not have the permission to mention everyone");
+
+        // THEN
+        verify(member).hasPermission(Permission.MESSAGE_MENTION_EVERYONE);
+        verify(channel, never()).sendMessage(any(String.class));
+    }
 
-        Role role = Mockito.mock(Role.class);
-        Role nonMentionableRole = Mockito.mock(Role.class);
-        List<Role> roles = List.of(role, nonMentionableRole);
+    @Test
+    void getMentionableRolesTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
 
         List<Selectable> expected = List.of(
-                new SelectableImpl(roleMention, roleName)
+                new SelectableImpl("<@&123456789>", "My role !")
         );
 
         List<Selectable> result;
 
-        when(nonMentionableRole.isMentionable()).thenReturn(false);
-        when(role.isMentionable()).thenReturn(true);
-
-        when(role.getName()).thenReturn(roleName);
-        when(role.getAsMention()).thenReturn(roleMention);
-
-        when(guild.getRoles()).thenReturn(roles);
+        when(roleListCache.getMentionableRoles(guild)).thenReturn(expected);
         // WHEN
         result = service.getMentionableRoles(guild);
 
         // THEN
         assertThat(result).containsExactlyElementsOf(expected);
-        verify(guild).getRoles();
+        verify(roleListCache).getMentionableRoles(guild);
     }
 
     @Test
-    void getMentionableUsersTest() {
+    void searchMentionableUsersTest() {
         // GIVEN
-        String username = "Bob1234";
-        String userMention = "<@123456789>";
-
         Guild guild = Mockito.mock(Guild.class);
 
-        Member member = Mockito.mock(Member.class);
-        List<Member> members = List.of(member);
-
-        List<Selectable> expected = List.of(
-                new SelectableImpl(userMention, username)
-        );
+        SelectablePage expected = new SelectablePage(List.of(new SelectableImpl("<@123456789>", "Bob1234")), 0, false);
 
-        List<Selectable> result;
+        SelectablePage result;
 
-        when(member.getEffectiveName()).thenReturn(username);
-        when(member.getAsMention()).thenReturn(userMention);
-
-        when(guild.getMembers()).thenReturn(members);
+        when(nameIndex.search(guild, "bob", 0)).thenReturn(expected);
         // WHEN
-        result = service.getMentionableUsers(guild);
+        result = service.searchMentionableUsers(guild, "bob", 0);
 
         // THEN
-        assertThat(result).containsExactlyElementsOf(expected);
-        verify(guild).getMembers();
+        assertThat(result).isEqualTo(expected);
+        verify(nameIndex).search(guild, "bob", 0);
+        verify(guild, never()).getMembers();
     }
 
 }
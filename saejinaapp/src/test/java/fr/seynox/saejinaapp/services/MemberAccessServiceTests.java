@@ -1,5 +1,7 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.ChannelVisibilityIndex;
+import fr.seynox.saejinaapp.caches.MemberCache;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.exceptions.ResourceNotAccessibleException;
 import fr.seynox.saejinaapp.models.SelectableImpl;
@@ -9,12 +11,17 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.requests.RestAction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
@@ -23,6 +30,8 @@ import static org.mockito.Mockito.*;
 class MemberAccessServiceTests {
 
     private JDA jda;
+    private MemberCache memberCache;
+    private ChannelVisibilityIndex visibilityIndex;
     private MemberAccessService service;
 
     private Member member;
@@ -31,66 +40,189 @@ class MemberAccessServiceTests {
     @BeforeEach
     void initTest() {
         jda = Mockito.mock(JDA.class);
-        service = new MemberAccessService(jda);
+        memberCache = new MemberCache(100);
+        visibilityIndex = Mockito.mock(ChannelVisibilityIndex.class);
+        service = new MemberAccessService(jda, memberCache, visibilityIndex);
 
         member = Mockito.mock(Member.class);
         guild = Mockito.mock(Guild.class);
     }
 
     @Test
-    void getServerMemberTest() {
+    void getServerMemberAsyncTest() {
         // GIVEN
         String userId = "123456";
         long serverId = 6543214;
 
         RestAction<Member> action = Mockito.mock(RestAction.class);
 
+        CompletableFuture<Member> result;
+
         when(jda.getGuildById(serverId)).thenReturn(guild);
         when(guild.retrieveMemberById(userId)).thenReturn(action);
-        when(action.complete()).thenReturn(member);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(member));
         // WHEN
-        service.getServerMember(userId, serverId);
+        result = service.getServerMemberAsync(userId, serverId);
 
         // THEN
-        verify(jda).getGuildById(serverId);
-        verify(guild).retrieveMemberById(userId);
+        verify(action).submit();
+        verify(action, never()).complete();
+        assertThat(result).isCompletedWithValue(member);
+        assertThat(memberCache.get(serverId, 123456L)).isEqualTo(member);
     }
 
     @Test
-    void getNullServerMemberTest() {
+    void getCachedServerMemberAsyncTest() {
         // GIVEN
         String userId = "123456";
         long serverId = 6543214;
 
+        CompletableFuture<Member> result;
+
+        when(jda.getGuildById(serverId)).thenReturn(guild);
+        memberCache.put(serverId, 123456L, member);
+        // WHEN
+        result = service.getServerMemberAsync(userId, serverId);
+
+        // THEN
+        verify(guild, never()).retrieveMemberById(anyString());
+        assertThat(result).isCompletedWithValue(member);
+    }
+
+    @Test
+    void getServerMemberAsyncTwiceTest() {
+        // GIVEN
+        String userId = "123456";
+        long serverId = 6543214;
+
+        RestAction<Member> action = Mockito.mock(RestAction.class);
+
+        CompletableFuture<Member> result;
+
+        when(jda.getGuildById(serverId)).thenReturn(guild);
+        when(guild.retrieveMemberById(userId)).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(member));
+        // WHEN
+        service.getServerMemberAsync(userId, serverId);
+        result = service.getServerMemberAsync(userId, serverId);
+
+        // THEN
+        verify(guild, times(1)).retrieveMemberById(userId);
+        assertThat(result).isCompletedWithValue(member);
+        assertThat(memberCache.getHitCount()).isEqualTo(1);
+        assertThat(memberCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getServerMemberAsyncOnNullServerTest() {
+        // GIVEN
+        String userId = "123456";
+        long serverId = 6543214;
+
+        CompletableFuture<Member> result;
+
         when(jda.getGuildById(serverId)).thenReturn(null);
         // WHEN
-        assertThatExceptionOfType(ResourceNotAccessibleException.class)
-                .isThrownBy(() -> service.getServerMember(userId, serverId));
+        result = service.getServerMemberAsync(userId, serverId);
+
+        // THEN
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ResourceNotAccessibleException.class);
+    }
+
+    @Test
+    void getServerMemberAsyncOnUnavailableServerTest() {
+        // GIVEN
+        String userId = "123456";
+        long serverId = 6543214;
+
+        CompletableFuture<Member> result;
+
+        when(jda.getGuildById(serverId)).thenReturn(null);
+        when(jda.isUnavailable(serverId)).thenReturn(true);
+        // WHEN
+        result = service.getServerMemberAsync(userId, serverId);
 
         // THEN
-        verify(jda).getGuildById(serverId);
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
     }
 
     @Test
-    void getServerNullMemberTest() {
+    void getServerNullMemberAsyncTest() {
         // GIVEN
         String userId = "123456";
         long serverId = 6543214;
 
         RestAction<Member> action = Mockito.mock(RestAction.class);
 
+        CompletableFuture<Member> result;
+
         when(jda.getGuildById(serverId)).thenReturn(guild);
         when(guild.retrieveMemberById(userId)).thenReturn(action);
-        when(action.complete()).thenReturn(null);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(null));
         // WHEN
-        assertThatExceptionOfType(ResourceNotAccessibleException.class)
-                .isThrownBy(() -> service.getServerMember(userId, serverId));
+        result = service.getServerMemberAsync(userId, serverId);
 
         // THEN
-        verify(jda).getGuildById(serverId);
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ResourceNotAccessibleException.class);
         verify(guild).retrieveMemberById(userId);
     }
 
+    @Test
+    void getUnknownServerMemberAsyncTest() {
+        // GIVEN
+        String userId = "123456";
+        long serverId = 6543214;
+
+        RestAction<Member> action = Mockito.mock(RestAction.class);
+        ErrorResponseException unknownMember = Mockito.mock(ErrorResponseException.class);
+
+        CompletableFuture<Member> result;
+
+        when(jda.getGuildById(serverId)).thenReturn(guild);
+        when(guild.retrieveMemberById(userId)).thenReturn(action);
+        when(unknownMember.getErrorResponse()).thenReturn(ErrorResponse.UNKNOWN_MEMBER);
+        when(action.submit()).thenReturn(CompletableFuture.failedFuture(unknownMember));
+        // WHEN
+        result = service.getServerMemberAsync(userId, serverId);
+
+        // THEN
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ResourceNotAccessibleException.class);
+        assertThat(memberCache.size()).isZero();
+    }
+
+    @Test
+    void passDiscordErrorOfServerMemberAsyncTest() {
+        // GIVEN
+        String userId = "123456";
+        long serverId = 6543214;
+
+        RestAction<Member> action = Mockito.mock(RestAction.class);
+        ErrorResponseException serverError = Mockito.mock(ErrorResponseException.class);
+
+        CompletableFuture<Member> result;
+
+        when(jda.getGuildById(serverId)).thenReturn(guild);
+        when(guild.retrieveMemberById(userId)).thenReturn(action);
+        when(serverError.getErrorResponse()).thenReturn(ErrorResponse.SERVER_ERROR);
+        when(action.submit()).thenReturn(CompletableFuture.failedFuture(serverError));
+        // WHEN
+        result = service.getServerMemberAsync(userId, serverId);
+
+        // THEN
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(serverError);
+        assertThat(memberCache.size()).isZero();
+    }
+
     @Test
     void getServerTextChannelTest() {
         // GIVEN
@@ -150,80 +282,52 @@ class MemberAccessServiceTests {
     @Test
     void getVisibleServerTextChannelsTest() {
         // GIVEN
-        TextChannel channelOne = Mockito.mock(TextChannel.class);
-        TextChannel channelTwo = Mockito.mock(TextChannel.class);
-
-        List<TextChannel> channels = List.of(channelOne, channelTwo);
-
-        List<SelectableImpl> expected = List.of(
+        List<Selectable> expected = List.of(
                 new SelectableImpl(1L, "Channel One"),
                 new SelectableImpl(2L, "Channel Two")
         );
 
         List<Selectable> result;
 
-        when(channelOne.getName()).thenReturn("Channel One");
-        when(channelOne.getIdLong()).thenReturn(1L);
-        when(channelTwo.getName()).thenReturn("Channel Two");
-        when(channelTwo.getIdLong()).thenReturn(2L);
-
-        when(member.getGuild()).thenReturn(guild);
-        when(guild.getTextChannels()).thenReturn(channels);
-        when(member.hasAccess(any())).thenReturn(true);
+        when(visibilityIndex.getVisibleChannels(member)).thenReturn(expected);
         // WHEN
         result = service.getServerTextChannels(member);
 
         // THEN
-        verify(member).getGuild();
-        verify(guild).getTextChannels();
-        verify(member, times(2)).hasAccess(any());
+        verify(visibilityIndex).getVisibleChannels(member);
+        verify(member, never()).hasAccess(any());
         assertThat(result).containsExactlyElementsOf(expected);
     }
 
     @Test
-    void getVisibleServerTextChannelsWithNoChannelTest() {
-        // GIVEN
-        List<Selectable> result;
-
-        when(member.getGuild()).thenReturn(guild);
-        when(guild.getTextChannels()).thenReturn(List.of());
-        // WHEN
-        result = service.getServerTextChannels(member);
-
-        // THEN
-        verify(member).getGuild();
-        verify(guild).getTextChannels();
-        assertThat(result).isEmpty();
-    }
-
-    @Test
-    void filterInvisibleChannelsTest() {
+    void getWritableServerTextChannelsTest() {
         // GIVEN
-        TextChannel visibleChannel = Mockito.mock(TextChannel.class);
-        TextChannel invisibleChannel = Mockito.mock(TextChannel.class);
-
-        List<TextChannel> channels = List.of(visibleChannel, invisibleChannel);
+        TextChannel writableChannel = Mockito.mock(TextChannel.class);
+        TextChannel readOnlyChannel = Mockito.mock(TextChannel.class);
+        TextChannel botReadOnlyChannel = Mockito.mock(TextChannel.class);
 
-        List<SelectableImpl> expected = List.of(new SelectableImpl(1L, "Channel One"));
+        Selectable writable = new SelectableImpl(1L, "writable");
+        Selectable readOnly = new SelectableImpl(2L, "read-only");
+        Selectable botReadOnly = new SelectableImpl(3L, "bot-read-only");
 
         List<Selectable> result;
 
-        when(visibleChannel.getName()).thenReturn("Channel One");
-        when(visibleChannel.getIdLong()).thenReturn(1L);
-        when(invisibleChannel.getName()).thenReturn("Invisible Channel");
-        when(invisibleChannel.getIdLong()).thenReturn(2L);
-
         when(member.getGuild()).thenReturn(guild);
-        when(guild.getTextChannels()).thenReturn(channels);
-        when(member.hasAccess(invisibleChannel)).thenReturn(false);
-        when(member.hasAccess(visibleChannel)).thenReturn(true);
+        when(visibilityIndex.getVisibleChannels(member)).thenReturn(List.of(writable, readOnly, botReadOnly));
+        when(guild.getTextChannelById(1L)).thenReturn(writableChannel);
+        when(guild.getTextChannelById(2L)).thenReturn(readOnlyChannel);
+        when(guild.getTextChannelById(3L)).thenReturn(botReadOnlyChannel);
+        when(writableChannel.canTalk(member)).thenReturn(true);
+        when(writableChannel.canTalk()).thenReturn(true);
+        when(readOnlyChannel.canTalk(member)).thenReturn(false);
+        when(botReadOnlyChannel.canTalk(member)).thenReturn(true);
+        when(botReadOnlyChannel.canTalk()).thenReturn(false);
         // WHEN
-        result = service.getServerTextChannels(member);
+        result = service.getWritableServerTextChannels(member);
 
         // THEN
-        verify(member).getGuild();
-        verify(guild).getTextChannels();
-        assertThat(result).containsExactlyElementsOf(expected);
+        verify(visibilityIndex).getVisibleChannels(member);
+        assertThat(result).containsExactly(writable);
     }
 
     @Test
@@ -1,9 +1,14 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.RoleListCache;
+import fr.seynox.saejinaapp.caches.RoleMemberCounter;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
 import fr.seynox.saejinaapp.models.Selectable;
 import fr.seynox.saejinaapp.models.SelectableImpl;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.outbound.RoleChangeBatcher;
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
 import fr.seynox.saejinaapp.utils.ButtonUtils;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
@@ -17,7 +22,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -27,6 +35,9 @@ class RoleServiceTests {
 
     private RoleService service;
     private ButtonUtils buttonUtils;
+    private RoleListCache roleListCache;
+    private RoleMemberCounter roleMemberCounter;
+    private TimerWheel wheel;
 
     private Member member;
     private Guild guild;
@@ -35,7 +46,11 @@ class RoleServiceTests {
     @BeforeEach
     void initTest() {
         buttonUtils = Mockito.mock(ButtonUtils.class);
-        service = new RoleService(buttonUtils);
+        roleListCache = Mockito.mock(RoleListCache.class);
+        roleMemberCounter = Mockito.mock(RoleMemberCounter.class);
+        wheel = Mockito.mock(TimerWheel.class);
+        RoleChangeBatcher roleChangeBatcher = new RoleChangeBatcher(new OutboundQueue(), wheel, Duration.ofMillis(1500));
+        service = new RoleService(buttonUtils, roleListCache, roleMemberCounter, roleChangeBatcher);
 
         member = Mockito.mock(Member.class);
         guild = Mockito.mock(Guild.class);
@@ -45,74 +60,36 @@ class RoleServiceTests {
     @Test
     void getAssignableRolesForMemberTest() {
         // GIVEN
-        long roleId = 123456789;
-        String roleName = "My role";
-
-        Role nonAssignableRole = Mockito.mock(Role.class);
-        List<Role> roles = List.of(role, nonAssignableRole);
-
-        List<Selectable> expectedRoles = List.of(new SelectableImpl(roleId, roleName));
+        List<Selectable> expectedRoles = List.of(new SelectableImpl(123456789L, "My role"));
         List<Selectable> result;
 
-        when(member.getGuild()).thenReturn(guild);
-        when(guild.getRoles()).thenReturn(roles);
-        when(member.canInteract(nonAssignableRole)).thenReturn(false);
-        when(member.canInteract(role)).thenReturn(true);
-        when(role.getName()).thenReturn(roleName);
-        when(role.getIdLong()).thenReturn(roleId);
+        when(roleListCache.getAssignableRoles(member)).thenReturn(expectedRoles);
         // WHEN
         result = service.getAssignableRolesForMember(member);
 
         // THEN
         assertThat(result).containsExactlyElementsOf(expectedRoles);
-        verify(member, times(2)).canInteract(any(Role.class));
+        verify(roleListCache).getAssignableRoles(member);
+        verify(member, never()).canInteract(any(Role.class));
     }
 
     @Test
-    void getEmptyAssignableRolesForMemberTest() {
+    void getRoleMemberCountsTest() {
         // GIVEN
-        Role nonAssignableRole = Mockito.mock(Role.class);
-        List<Role> roles = List.of(role, nonAssignableRole);
-
-        List<Selectable> result;
-
-        when(member.getGuild()).thenReturn(guild);
-        when(guild.getRoles()).thenReturn(roles);
-        when(member.canInteract(any(Role.class))).thenReturn(false);
+        List<Selectable> roles = List.of(
+                new SelectableImpl(222L, "Second role"),
+                new SelectableImpl(111L, "First role")
+        );
+        Map<Long, Long> result;
+
+        when(guild.getIdLong()).thenReturn(42L);
+        when(roleMemberCounter.getMemberCount(42L, 222L)).thenReturn(3L);
+        when(roleMemberCounter.getMemberCount(42L, 111L)).thenReturn(0L);
         // WHEN
-        result = service.getAssignableRolesForMember(member);
+        result = service.getRoleMemberCounts(guild, roles);
 
         // THEN
-        assertThat(result).isEmpty();
-        verify(member, times(2)).canInteract(any(Role.class));
-    }
-
-    @Test
-    void filterPublicRoleTest() {
-        // GIVEN
-        long roleId = 123456789;
-        String roleName = "My role";
-
-        Role publicRole = Mockito.mock(Role.class);
-        List<Role> roles = List.of(role, publicRole);
-
-        List<Selectable> expectedRoles = List.of(new SelectableImpl(roleId, roleName));
-        List<Selectable> result;
-
-        when(member.getGuild()).thenReturn(guild);
-        when(guild.getRoles()).thenReturn(roles);
-        when(member.canInteract(publicRole)).thenReturn(true);
-        when(role.isPublicRole()).thenReturn(false);
-        when(publicRole.isPublicRole()).thenReturn(true);
-        when(member.canInteract(role)).thenReturn(true);
-        when(role.getName()).thenReturn(roleName);
-        when(role.getIdLong()).thenReturn(roleId);
-        // WHEN
-        result = service.getAssignableRolesForMember(member);
-
-        // THEN
-        assertThat(result).containsExactlyElementsOf(expectedRoles);
-        verify(member, times(2)).canInteract(any(Role.class));
+        assertThat(result).containsExactly(Map.entry(222L, 3L), Map.entry(111L, 0L));
     }
 
     @Test
@@ -145,6 +122,49 @@ class RoleServiceTests {
         assertThat(button.getLabel()).isEqualTo(roleName);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendRolePanelInChannelTest() {
+        // GIVEN
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        Role secondRole = Mockito.mock(Role.class);
+
+        ArgumentCaptor<List<Button>> captor = ArgumentCaptor.forClass(List.class);
+
+        when(channel.canTalk(any(Member.class))).thenReturn(true);
+        when(member.hasPermission(any(Permission.class))).thenReturn(true);
+
+        when(role.getIdLong()).thenReturn(1L);
+        when(role.getName()).thenReturn("Role One");
+        when(secondRole.getIdLong()).thenReturn(2L);
+        when(secondRole.getName()).thenReturn("Role Two");
+        // WHEN
+        service.sendRolePanelInChannel(member, channel, List.of(role, secondRole));
+
+        // THEN
+        verify(buttonUtils).sendButtons(eq(channel), captor.capture());
+        verify(buttonUtils, never()).sendOrAppendButton(any(), any());
+
+        assertThat(captor.getValue())
+                .extracting(Button::getId)
+                .containsExactly("role-assign#1", "role-assign#2");
+    }
+
+    @Test
+    void refuseUnauthorizedRolePanelSendInChannelTest() {
+        // GIVEN
+        TextChannel channel = Mockito.mock(TextChannel.class);
+
+        when(channel.canTalk(any(Member.class))).thenReturn(true);
+        when(member.hasPermission(any(Permission.class))).thenReturn(false);
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> service.sendRolePanelInChannel(member, channel, List.of(role)));
+
+        // THEN
+        verify(buttonUtils, never()).sendButtons(any(), any());
+    }
+
     @Test
     void refuseToSendButtonInUnauthorizedChannelTest() {
         // GIVEN
@@ -194,14 +214,17 @@ class RoleServiceTests {
         when(guild.getRoleById(anyLong())).thenReturn(role);
         when(member.getRoles()).thenReturn(currentRoles);
         when(placeholderRole.getIdLong()).thenReturn(placeholderRoleId);
-        when(guild.addRoleToMember(any(Member.class), any(Role.class))).thenReturn(action);
+        when(role.getIdLong()).thenReturn(roleId);
+        when(guild.modifyMemberRoles(any(Member.class), anyCollection(), anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(null));
         // WHEN
         wasRoleAdded = service.toggleRoleForMember(member, roleId);
+        runRoleUpdate();
 
         // THEN
-        verify(guild).getRoleById(roleId);
-        verify(guild).addRoleToMember(member, role);
-        verify(guild, never()).removeRoleFromMember(any(), any());
+        verify(guild, atLeastOnce()).getRoleById(roleId);
+        verify(guild).modifyMemberRoles(member, List.of(role), List.of());
+        verify(action).submit();
         assertThat(wasRoleAdded).isTrue();
     }
 
@@ -220,14 +243,16 @@ class RoleServiceTests {
         when(guild.getRoleById(anyLong())).thenReturn(role);
         when(member.getRoles()).thenReturn(currentRoles);
         when(role.getIdLong()).thenReturn(roleId);
-        when(guild.removeRoleFromMember(any(Member.class), any(Role.class))).thenReturn(action);
+        when(guild.modifyMemberRoles(any(Member.class), anyCollection(), anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(null));
         // WHEN
         wasRoleAdded = service.toggleRoleForMember(member, roleId);
+        runRoleUpdate();
 
         // THEN
-        verify(guild).getRoleById(roleId);
-        verify(guild, never()).addRoleToMember(any(), any());
-        verify(guild).removeRoleFromMember(member, role);
+        verify(guild, atLeastOnce()).getRoleById(roleId);
+        verify(guild).modifyMemberRoles(member, List.of(), List.of(role));
+        verify(action).submit();
         assertThat(wasRoleAdded).isFalse();
     }
 
@@ -256,4 +281,13 @@ class RoleServiceTests {
         verify(guild).getRoleById(roleId);
     }
 
+    /**
+     * Run the role update scheduled on the timer wheel
+     */
+    private void runRoleUpdate() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(wheel).schedule(captor.capture(), any(Duration.class));
+        captor.getValue().run();
+    }
+
 }
@@ -0,0 +1,158 @@
+package fr.seynox.saejinaapp.services;
+
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TicketCounterTests {
+
+    private static final long GUILD_ID = 42L;
+    private static final Duration FLUSH_DELAY = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    private TimerWheel wheel;
+    private Category category;
+
+    @BeforeEach
+    void initTest() {
+        wheel = Mockito.mock(TimerWheel.class);
+        category = Mockito.mock(Category.class);
+    }
+
+    @Test
+    void startAfterHighestTicketChannelTest() throws IOException {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+        List<TextChannel> channels = List.of(mockChannel("ticket-3"), mockChannel("ticket-12"), mockChannel("ticket-old"), mockChannel("rules"));
+
+        when(category.getTextChannels()).thenReturn(channels);
+        // WHEN
+        long result = counter.nextTicketNumber(GUILD_ID, List.of(category));
+
+        // THEN
+        assertThat(result).isEqualTo(13);
+    }
+
+    @Test
+    void countServersSeparatelyTest() throws IOException {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+
+        when(category.getTextChannels()).thenReturn(List.of());
+        // WHEN
+        long first = counter.nextTicketNumber(GUILD_ID, List.of(category));
+        long second = counter.nextTicketNumber(GUILD_ID, List.of(category));
+        long otherServer = counter.nextTicketNumber(43L, List.of(category));
+
+        // THEN
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(2);
+        assertThat(otherServer).isEqualTo(1);
+    }
+
+    @Test
+    void scheduleOneFlushPerDelayTest() throws IOException {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+        when(category.getTextChannels()).thenReturn(List.of());
+        // WHEN
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+        verify(wheel, times(1)).schedule(flushCaptor.capture(), eq(FLUSH_DELAY));
+        flushCaptor.getValue().run();
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+
+        // THEN
+        assertThat(Files.exists(directory.resolve(TicketCounter.FILE_NAME))).isTrue();
+        verify(wheel, times(2)).schedule(any(Runnable.class), eq(FLUSH_DELAY));
+    }
+
+    @Test
+    void recoverCountersAfterRestartTest() throws IOException {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+
+        when(category.getTextChannels()).thenReturn(List.of());
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+        counter.flush();
+
+        // WHEN
+        long result = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY).nextTicketNumber(GUILD_ID, List.of(category));
+
+        // THEN
+        assertThat(result).isEqualTo(3);
+    }
+
+    @Test
+    void keepSavedCountersOfUnusedServersTest() throws IOException {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+
+        when(category.getTextChannels()).thenReturn(List.of());
+        counter.nextTicketNumber(GUILD_ID, List.of(category));
+        counter.flush();
+
+        TicketCounter restartedCounter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+        restartedCounter.nextTicketNumber(43L, List.of(category));
+        restartedCounter.flush();
+
+        // WHEN
+        long result = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY).nextTicketNumber(GUILD_ID, List.of(category));
+
+        // THEN
+        assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    void giveUniqueNumbersConcurrentlyTest() throws Exception {
+        // GIVEN
+        TicketCounter counter = new TicketCounter(directory.toString(), wheel, FLUSH_DELAY);
+        Set<Long> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        when(category.getTextChannels()).thenReturn(List.of());
+        // WHEN
+        for(int i = 0; i < 1000; i++) {
+            executor.execute(() -> numbers.add(counter.nextTicketNumber(GUILD_ID, List.of(category))));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertThat(numbers).hasSize(1000);
+        assertThat(numbers).allMatch(number -> number >= 1 && number <= 1000);
+    }
+
+    private static TextChannel mockChannel(String name) {
+        TextChannel channel = Mockito.mock(TextChannel.class);
+        when(channel.getName()).thenReturn(name);
+
+        return channel;
+    }
+
+}
@@ -0,0 +1,145 @@
+package fr.seynox.saejinaapp.services;
+
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TicketSearchIndexTests {
+
+    private static final long GUILD_ID = 42L;
+
+    @TempDir
+    Path directory;
+
+    private TicketSearchIndex index;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        index = new TicketSearchIndex(directory.toString());
+    }
+
+    @Test
+    void findTranscriptsContainingEveryWordTest() {
+        // GIVEN
+        TicketTranscript refund = addTranscript(1L, "Refund request", "I want a refund for my order");
+        addTranscript(2L, "Order lost", "My order never arrived");
+        addTranscript(3L, "Refund again", "Still waiting");
+
+        // WHEN
+        TicketTranscriptPage result = index.search(GUILD_ID, "ORDER refund", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(refund);
+        assertThat(result.isHasNext()).isFalse();
+    }
+
+    @Test
+    void listLatestTranscriptsFirstTest() {
+        // GIVEN
+        TicketTranscript first = addTranscript(1L, "First ticket", "Hello");
+        TicketTranscript second = addTranscript(2L, "Second ticket", "Hello");
+
+        // WHEN
+        TicketTranscriptPage matching = index.search(GUILD_ID, "hello", 0);
+        TicketTranscriptPage all = index.search(GUILD_ID, "", 0);
+
+        // THEN
+        assertThat(matching.getContent()).containsExactly(second, first);
+        assertThat(all.getContent()).containsExactly(second, first);
+    }
+
+    @Test
+    void paginateResultsTest() {
+        // GIVEN
+        int transcriptCount = TicketSearchIndex.PAGE_SIZE + 5;
+        for(long channelId = 1; channelId <= transcriptCount; channelId++) {
+            addTranscript(channelId, "Ticket " + channelId, "Common words");
+        }
+
+        // WHEN
+        TicketTranscriptPage firstPage = index.search(GUILD_ID, "common", 0);
+        TicketTranscriptPage secondPage = index.search(GUILD_ID, "common", 1);
+
+        // THEN
+        assertThat(firstPage.getContent()).hasSize(TicketSearchIndex.PAGE_SIZE);
+        assertThat(firstPage.getContent().get(0).getChannelId()).isEqualTo(transcriptCount);
+        assertThat(firstPage.isHasNext()).isTrue();
+        assertThat(secondPage.getContent()).hasSize(5);
+        assertThat(secondPage.getContent().get(4).getChannelId()).isEqualTo(1L);
+        assertThat(secondPage.isHasNext()).isFalse();
+    }
+
+    @Test
+    void replaceTranscriptArchivedAgainTest() {
+        // GIVEN
+        addTranscript(1L, "Broken ticket", "Partial history");
+        TicketTranscript archivedAgain = addTranscript(1L, "Broken ticket", "Complete history");
+
+        // WHEN
+        TicketTranscriptPage oldWords = index.search(GUILD_ID, "partial", 0);
+        TicketTranscriptPage all = index.search(GUILD_ID, "broken", 0);
+
+        // THEN
+        assertThat(oldWords.getContent()).isEmpty();
+        assertThat(all.getContent()).containsExactly(archivedAgain);
+    }
+
+    @Test
+    void onlySearchServerTranscriptsTest() {
+        // GIVEN
+        addTranscript(1L, "Refund request", "Hello");
+
+        // WHEN
+        TicketTranscriptPage result = index.search(43L, "refund", 0);
+
+        // THEN
+        assertThat(result.getContent()).isEmpty();
+    }
+
+    @Test
+    void rebuildIndexAfterRestartTest() throws IOException {
+        // GIVEN
+        TicketTranscript transcript = addTranscript(1L, "Refund request", "Hello");
+        index.close();
+
+        // WHEN
+        TicketTranscriptPage result = new TicketSearchIndex(directory.toString()).search(GUILD_ID, "refund", 0);
+
+        // THEN
+        assertThat(result.getContent()).containsExactly(transcript);
+    }
+
+    @Test
+    void splitTextIntoTermsTest() {
+        // GIVEN
+        Set<String> terms = new LinkedHashSet<>();
+
+        // WHEN
+        TicketSearchIndex.addTerms("Hello, World! Ça marche à 100% (@1234)", terms);
+
+        // THEN
+        assertThat(terms).containsExactly("hello", "world", "ça", "marche", "100", "1234");
+    }
+
+    private TicketTranscript addTranscript(long channelId, String subject, String content) {
+        TicketTranscript transcript = new TicketTranscript(GUILD_ID, channelId, "ticket-" + channelId, subject, "99", "Bob", 2L, 1000L + channelId);
+
+        Set<String> terms = new LinkedHashSet<>();
+        TicketSearchIndex.addTerms(subject, terms);
+        TicketSearchIndex.addTerms(content, terms);
+        index.add(transcript, List.copyOf(terms));
+
+        return transcript;
+    }
+
+}
@@ -1,10 +1,17 @@
 package fr.seynox.saejinaapp.services;
 
+import fr.seynox.saejinaapp.caches.TicketCategoryCache;
+import fr.seynox.saejinaapp.caches.TicketRegistry;
 import fr.seynox.saejinaapp.exceptions.DiscordInteractionException;
 import fr.seynox.saejinaapp.exceptions.PermissionException;
+import fr.seynox.saejinaapp.models.OpenTicket;
+import fr.seynox.saejinaapp.models.TicketTranscriptPage;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
+import fr.seynox.saejinaapp.scheduling.TimerWheel;
 import fr.seynox.saejinaapp.utils.ButtonUtils;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.interactions.ModalInteraction;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.Modal;
@@ -12,35 +19,61 @@ import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import net.dv8tion.jda.api.interactions.modals.ModalMapping;
 import net.dv8tion.jda.api.managers.channel.concrete.TextChannelManager;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.requests.restaction.ChannelAction;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static fr.seynox.saejinaapp.services.TicketService.TICKETS_CATEGORY_NAME;
 import static fr.seynox.saejinaapp.services.TicketService.TICKET_CREATION_ID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class TicketServiceTests {
 
+    @TempDir
+    Path directory;
+
     private TicketService service;
     private ButtonUtils buttonUtils;
+    private TicketCategoryCache categoryCache;
+    private TicketSearchIndex searchIndex;
+    private TicketRegistry ticketRegistry;
 
     private Member member;
     private TextChannel channel;
 
     @BeforeEach
-    void initTest() {
+    void initTest() throws IOException {
         buttonUtils = Mockito.mock(ButtonUtils.class);
-        service = new TicketService(buttonUtils);
+        TicketCounter ticketCounter = new TicketCounter(directory.toString(), Mockito.mock(TimerWheel.class), Duration.ofSeconds(5));
+        categoryCache = Mockito.mock(TicketCategoryCache.class);
+        searchIndex = Mockito.mock(TicketSearchIndex.class);
+        ticketRegistry = Mockito.mock(TicketRegistry.class);
+        service = new TicketService(buttonUtils, new OutboundQueue(), ticketCounter, categoryCache, searchIndex, ticketRegistry);
 
         member = Mockito.mock(Member.class);
         channel = Mockito.mock(TextChannel.class);
@@ -119,20 +152,44 @@ class TicketServiceTests {
 
         String expectedTicketChannelName = "ticket-2";
 
+        when(placeholderChannel.getName()).thenReturn("ticket-1");
         when(guild.getPublicRole()).thenReturn(everyoneRole);
-        when(guild.getCategoriesByName(TICKETS_CATEGORY_NAME, false)).thenReturn(List.of(category));
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(category));
         when(category.getTextChannels()).thenReturn(channels);
         when(category.createTextChannel(expectedTicketChannelName)).thenReturn(action);
         // WHEN
         service.createTicketChannel(guild);
 
         // THEN
-        verify(guild).getPublicRole();
-        verify(guild, never()).createCategory(TICKETS_CATEGORY_NAME);
+        verify(categoryCache).getTicketCategories(guild);
+        verify(guild, never()).createCategory(anyString());
         verify(category).createTextChannel(expectedTicketChannelName);
         verify(action).complete();
     }
 
+    @Test
+    void doNotReuseTicketNumbersTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category category = Mockito.mock(Category.class);
+        ChannelAction<TextChannel> action = Mockito.mock(ChannelAction.class);
+
+        TextChannel remainingChannel = Mockito.mock(TextChannel.class);
+
+        when(remainingChannel.getName()).thenReturn("ticket-7");
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(category));
+        when(category.getTextChannels()).thenReturn(List.of(remainingChannel));
+        when(category.createTextChannel(anyString())).thenReturn(action);
+        // WHEN
+        service.createTicketChannel(guild);
+        service.createTicketChannel(guild);
+
+        // THEN
+        verify(category).createTextChannel("ticket-8");
+        verify(category).createTextChannel("ticket-9");
+        verify(category, times(1)).getTextChannels();
+    }
+
     @Test
     void createTicketChannelTest() {
         // GIVEN
@@ -145,20 +202,166 @@ class TicketServiceTests {
         String expectedTicketChannelName = "ticket-1";
 
         when(guild.getPublicRole()).thenReturn(everyoneRole);
-        when(guild.getCategoriesByName(TICKETS_CATEGORY_NAME, false)).thenReturn(List.of());
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of());
         when(guild.createCategory(TICKETS_CATEGORY_NAME)).thenReturn(categoryAction);
         when(categoryAction.addPermissionOverride(any(), any(), any())).thenReturn(categoryAction);
         when(categoryAction.complete()).thenReturn(category);
         when(category.createTextChannel(expectedTicketChannelName)).thenReturn(channelAction);
+        when(channelAction.complete()).thenReturn(channel);
         // WHEN
-        service.createTicketChannel(guild);
+        TextChannel result = service.createTicketChannel(guild);
 
         // THEN
         verify(guild).getPublicRole();
         verify(guild).createCategory(TICKETS_CATEGORY_NAME);
         verify(categoryAction).addPermissionOverride(everyoneRole, List.of(), List.of(Permission.VIEW_CHANNEL));
         verify(categoryAction).complete();
+        verify(categoryCache).addTicketCategory(guild, category);
         verify(category).createTextChannel(expectedTicketChannelName);
+        verify(ticketRegistry).open(channel);
+        assertThat(result).isSameAs(channel);
+    }
+
+    @Test
+    void useCategoryWithRoomForTicketTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category fullCategory = Mockito.mock(Category.class);
+        Category category = Mockito.mock(Category.class);
+        ChannelAction<TextChannel> action = Mockito.mock(ChannelAction.class);
+
+        List<GuildChannel> fullChannels = Collections.nCopies(TicketService.MAX_CHANNELS_PER_CATEGORY, Mockito.mock(GuildChannel.class));
+
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(fullCategory, category));
+        when(fullCategory.getChannels()).thenReturn(fullChannels);
+        when(category.createTextChannel(anyString())).thenReturn(action);
+        // WHEN
+        service.createTicketChannel(guild);
+
+        // THEN
+        verify(fullCategory, never()).createTextChannel(anyString());
+        verify(category).createTextChannel("ticket-1");
+        verify(guild, never()).createCategory(anyString());
+    }
+
+    @Test
+    void createOverflowCategoryTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category fullCategory = Mockito.mock(Category.class);
+        Category overflowCategory = Mockito.mock(Category.class);
+        ChannelAction<Category> categoryAction = Mockito.mock(ChannelAction.class);
+        ChannelAction<TextChannel> channelAction = Mockito.mock(ChannelAction.class);
+
+        List<GuildChannel> fullChannels = Collections.nCopies(TicketService.MAX_CHANNELS_PER_CATEGORY, Mockito.mock(GuildChannel.class));
+        String expectedCategoryName = TICKETS_CATEGORY_NAME + " 2";
+
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(fullCategory));
+        when(fullCategory.getChannels()).thenReturn(fullChannels);
+        when(guild.createCategory(expectedCategoryName)).thenReturn(categoryAction);
+        when(categoryAction.addPermissionOverride(any(), any(), any())).thenReturn(categoryAction);
+        when(categoryAction.complete()).thenReturn(overflowCategory);
+        when(overflowCategory.createTextChannel(anyString())).thenReturn(channelAction);
+        // WHEN
+        service.createTicketChannel(guild);
+
+        // THEN
+        verify(guild).createCategory(expectedCategoryName);
+        verify(categoryCache).addTicketCategory(guild, overflowCategory);
+        verify(overflowCategory).createTextChannel("ticket-1");
+        verify(fullCategory, never()).createTextChannel(anyString());
+    }
+
+    @Test
+    void doNotOverfillCategoryWithConcurrentTicketsTest() throws Exception {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category category = Mockito.mock(Category.class);
+        Category overflowCategory = Mockito.mock(Category.class);
+        ChannelAction<TextChannel> channelAction = Mockito.mock(ChannelAction.class);
+        ChannelAction<Category> categoryAction = Mockito.mock(ChannelAction.class);
+        ChannelAction<TextChannel> overflowChannelAction = Mockito.mock(ChannelAction.class);
+
+        GuildChannel existingChannel = Mockito.mock(GuildChannel.class);
+        List<GuildChannel> channels = new CopyOnWriteArrayList<>(Collections.nCopies(TicketService.MAX_CHANNELS_PER_CATEGORY - 1, existingChannel));
+
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(category));
+        when(category.getChannels()).thenAnswer(invocation -> List.copyOf(channels));
+        when(category.createTextChannel(anyString())).thenReturn(channelAction);
+        when(channelAction.complete()).thenAnswer(invocation -> {
+            // Slow answer, the other ticket is created meanwhile
+            Thread.sleep(100);
+            channels.add(existingChannel);
+            return channel;
+        });
+        when(guild.createCategory(anyString())).thenReturn(categoryAction);
+        when(categoryAction.addPermissionOverride(any(), any(), any())).thenReturn(categoryAction);
+        when(categoryAction.complete()).thenReturn(overflowCategory);
+        when(overflowCategory.createTextChannel(anyString())).thenReturn(overflowChannelAction);
+        when(overflowChannelAction.complete()).thenReturn(channel);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        // WHEN
+        try {
+            Future<TextChannel> first = executor.submit(() -> service.createTicketChannel(guild));
+            Future<TextChannel> second = executor.submit(() -> service.createTicketChannel(guild));
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // THEN
+        verify(category, times(1)).createTextChannel(anyString());
+        verify(guild).createCategory(TICKETS_CATEGORY_NAME + " 2");
+        verify(overflowCategory, times(1)).createTextChannel(anyString());
+    }
+
+    @Test
+    void skipCategoryReportedFullTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category fullCategory = Mockito.mock(Category.class);
+        Category category = Mockito.mock(Category.class);
+        ChannelAction<TextChannel> refusedAction = Mockito.mock(ChannelAction.class);
+        ChannelAction<TextChannel> action = Mockito.mock(ChannelAction.class);
+        ErrorResponseException maxChannels = Mockito.mock(ErrorResponseException.class);
+
+        when(maxChannels.getErrorResponse()).thenReturn(ErrorResponse.MAX_CHANNELS);
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(fullCategory, category));
+        when(fullCategory.createTextChannel(anyString())).thenReturn(refusedAction);
+        when(refusedAction.complete()).thenThrow(maxChannels);
+        when(category.createTextChannel(anyString())).thenReturn(action);
+        when(action.complete()).thenReturn(channel);
+        // WHEN
+        TextChannel result = service.createTicketChannel(guild);
+
+        // THEN
+        assertThat(result).isSameAs(channel);
+        verify(category).createTextChannel("ticket-1");
+        verify(guild, never()).createCategory(anyString());
+    }
+
+    @Test
+    void rethrowOtherChannelCreationErrorsTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        Category category = Mockito.mock(Category.class);
+        Category otherCategory = Mockito.mock(Category.class);
+        ChannelAction<TextChannel> action = Mockito.mock(ChannelAction.class);
+        ErrorResponseException missingAccess = Mockito.mock(ErrorResponseException.class);
+
+        when(missingAccess.getErrorResponse()).thenReturn(ErrorResponse.MISSING_ACCESS);
+        when(categoryCache.getTicketCategories(guild)).thenReturn(List.of(category, otherCategory));
+        when(category.createTextChannel(anyString())).thenReturn(action);
+        when(action.complete()).thenThrow(missingAccess);
+        // WHEN
+        assertThatExceptionOfType(ErrorResponseException.class)
+                .isThrownBy(() -> service.createTicketChannel(guild));
+
+        // THEN
+        verify(otherCategory, never()).createTextChannel(anyString());
+        verify(ticketRegistry, never()).open(any());
     }
 
     @Test
@@ -191,13 +394,15 @@ class TicketServiceTests {
         when(bodyMapping.getAsString()).thenReturn(body);
         when(channel.sendMessageEmbeds(any(MessageEmbed.class))).thenReturn(messageAction);
         when(messageAction.setActionRows(any(ActionRow.class))).thenReturn(messageAction);
+        when(messageAction.submit()).thenReturn(new CompletableFuture<>());
         // WHEN
         service.sendTicketToChannel(member, channel, interaction);
 
         // THEN
         verify(channel).sendMessageEmbeds(embedCaptor.capture());
         verify(messageAction).setActionRows(actionCaptor.capture());
-        verify(messageAction).queue();
+        verify(messageAction).submit();
+        verify(ticketRegistry).setOwner(channel, member, subject);
 
         ActionRow actionRow = actionCaptor.getValue();
         assertThat(actionRow.getComponents()).hasSize(2);
@@ -212,7 +417,7 @@ class TicketServiceTests {
     }
 
     @Test
-    void inviteUserToTicketChannelTest() throws DiscordInteractionException {
+    void inviteUserToTicketChannelTest() {
         // GIVEN
         Guild guild = Mockito.mock(Guild.class);
         RestAction<Member> memberAction = Mockito.mock(RestAction.class);
@@ -223,17 +428,19 @@ class TicketServiceTests {
 
         when(channel.getGuild()).thenReturn(guild);
         when(guild.retrieveMemberById(anyString())).thenReturn(memberAction);
-        when(memberAction.complete()).thenReturn(member);
+        when(memberAction.submit()).thenReturn(CompletableFuture.completedFuture(member));
 
         when(channel.getManager()).thenReturn(manager);
         when(manager.putMemberPermissionOverride(anyLong(), anyList(), anyList())).thenReturn(manager);
 
         when(member.getIdLong()).thenReturn(userId);
         // WHEN
-        service.inviteUserToTicketChannel(userIdString, channel);
+        CompletableFuture<Void> result = service.inviteUserToTicketChannel(userIdString, channel);
 
         // THEN
+        assertThat(result).isCompleted().isNotCompletedExceptionally();
         verify(guild).retrieveMemberById(userIdString);
+        verify(memberAction, never()).complete();
         verify(manager).putMemberPermissionOverride(userId, List.of(Permission.VIEW_CHANNEL), List.of());
         verify(manager).queue();
     }
@@ -245,16 +452,80 @@ class TicketServiceTests {
         Guild guild = Mockito.mock(Guild.class);
 
         RestAction<Member> action = Mockito.mock(RestAction.class);
+        ErrorResponseException unknownMember = Mockito.mock(ErrorResponseException.class);
 
         when(channel.getGuild()).thenReturn(guild);
         when(guild.retrieveMemberById(userId)).thenReturn(action);
-        when(action.complete()).thenReturn(null);
+        when(unknownMember.getErrorResponse()).thenReturn(ErrorResponse.UNKNOWN_MEMBER);
+        when(action.submit()).thenReturn(CompletableFuture.failedFuture(unknownMember));
         // WHEN
-        assertThatExceptionOfType(DiscordInteractionException.class)
-                .isThrownBy(() -> service.inviteUserToTicketChannel(userId, channel));
+        CompletableFuture<Void> result = service.inviteUserToTicketChannel(userId, channel);
 
         // THEN
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(DiscordInteractionException.class);
         verify(channel, never()).getManager();
     }
 
+    @Test
+    void searchTranscriptsTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        TicketTranscriptPage expectedPage = new TicketTranscriptPage(List.of(), 1, false);
+
+        when(member.hasPermission(Permission.MANAGE_CHANNEL)).thenReturn(true);
+        when(member.getGuild()).thenReturn(guild);
+        when(guild.getIdLong()).thenReturn(42L);
+        when(searchIndex.search(42L, "refund", 1)).thenReturn(expectedPage);
+        // WHEN
+        TicketTranscriptPage result = service.searchTranscripts(member, "refund", 1);
+
+        // THEN
+        assertThat(result).isSameAs(expectedPage);
+    }
+
+    @Test
+    void refuseUnauthorizedTranscriptSearchTest() {
+        // GIVEN
+        when(member.hasPermission(Permission.MANAGE_CHANNEL)).thenReturn(false);
+
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> service.searchTranscripts(member, "refund", 0));
+
+        // THEN
+        verify(searchIndex, never()).search(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    void getOpenTicketsTest() {
+        // GIVEN
+        Guild guild = Mockito.mock(Guild.class);
+        List<OpenTicket> expectedTickets = List.of(new OpenTicket(42L, 1L, "ticket-1", "Refund", "123", "Bob", 1000L, null));
+
+        when(member.hasPermission(Permission.MANAGE_CHANNEL)).thenReturn(true);
+        when(member.getGuild()).thenReturn(guild);
+        when(guild.getIdLong()).thenReturn(42L);
+        when(ticketRegistry.getOpenTickets(42L)).thenReturn(expectedTickets);
+        // WHEN
+        List<OpenTicket> result = service.getOpenTickets(member);
+
+        // THEN
+        assertThat(result).isSameAs(expectedTickets);
+    }
+
+    @Test
+    void refuseUnauthorizedOpenTicketsTest() {
+        // GIVEN
+        when(member.hasPermission(Permission.MANAGE_CHANNEL)).thenReturn(false);
+
+        // WHEN
+        assertThatExceptionOfType(PermissionException.class)
+                .isThrownBy(() -> service.getOpenTickets(member));
+
+        // THEN
+        verify(ticketRegistry, never()).getOpenTickets(anyLong());
+    }
+
 }
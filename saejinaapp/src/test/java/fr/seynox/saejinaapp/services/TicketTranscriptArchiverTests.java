@@ -0,0 +1,182 @@
+package fr.seynox.saejinaapp.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.seynox.saejinaapp.models.TicketTranscript;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.requests.restaction.pagination.MessagePaginationAction;
+import net.dv8tion.jda.api.utils.Procedure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TicketTranscriptArchiverTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private TicketTranscriptArchiver archiver;
+    private TicketSearchIndex searchIndex;
+
+    private TextChannel channel;
+    private MessagePaginationAction history;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        searchIndex = Mockito.mock(TicketSearchIndex.class);
+        archiver = new TicketTranscriptArchiver(directory.toString(), searchIndex);
+
+        Guild guild = Mockito.mock(Guild.class);
+        channel = Mockito.mock(TextChannel.class);
+        history = Mockito.mock(MessagePaginationAction.class);
+
+        when(guild.getId()).thenReturn("42");
+        when(guild.getIdLong()).thenReturn(42L);
+        when(channel.getGuild()).thenReturn(guild);
+        when(channel.getId()).thenReturn("1234");
+        when(channel.getIdLong()).thenReturn(1234L);
+        when(channel.getName()).thenReturn("ticket-7");
+        when(channel.getIterableHistory()).thenReturn(history);
+        when(history.cache(anyBoolean())).thenReturn(history);
+        when(history.limit(anyInt())).thenReturn(history);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveChannelHistoryTest() throws Exception {
+        // GIVEN
+        List<Message> messages = List.of(
+                mockMessage("2", "Thanks, it works now"),
+                mockMessage("1", "My ticket")
+        );
+        Path expectedFile = directory.resolve("transcripts").resolve("42").resolve("ticket-7-1234.jsonl.gz");
+
+        when(history.forEachAsync(any(Procedure.class))).thenAnswer(invocation -> {
+            Procedure<Message> procedure = invocation.getArgument(0);
+            messages.forEach(procedure::execute);
+            return CompletableFuture.completedFuture(null);
+        });
+        // WHEN
+        Path result = archiver.archive(channel).get();
+
+        // THEN
+        List<JsonNode> lines = readTranscript(result);
+        assertThat(result).isEqualTo(expectedFile);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).get("id").asText()).isEqualTo("2");
+        assertThat(lines.get(0).get("content").asText()).isEqualTo("Thanks, it works now");
+        assertThat(lines.get(1).get("author").asText()).isEqualTo("Bob#0001");
+        assertThat(Files.exists(expectedFile.resolveSibling("ticket-7-1234.jsonl.gz.tmp"))).isFalse();
+        verify(history).cache(false);
+        verify(history).limit(100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void indexArchivedTicketTest() throws Exception {
+        // GIVEN
+        Message ticketMessage = mockMessage("1", "");
+        MessageEmbed ticketEmbed = new EmbedBuilder()
+                .setTitle("Refund request")
+                .setDescription("I want a refund for my order")
+                .setAuthor("Alice (@1001)")
+                .build();
+        List<Message> messages = List.of(mockMessage("2", "Your order was refunded"), ticketMessage);
+
+        ArgumentCaptor<TicketTranscript> transcriptCaptor = ArgumentCaptor.forClass(TicketTranscript.class);
+        ArgumentCaptor<Collection<String>> termsCaptor = ArgumentCaptor.forClass(Collection.class);
+
+        when(ticketMessage.getEmbeds()).thenReturn(List.of(ticketEmbed));
+        when(history.forEachAsync(any(Procedure.class))).thenAnswer(invocation -> {
+            Procedure<Message> procedure = invocation.getArgument(0);
+            messages.forEach(procedure::execute);
+            return CompletableFuture.completedFuture(null);
+        });
+        // WHEN
+        archiver.archive(channel).get();
+
+        // THEN
+        verify(searchIndex).add(transcriptCaptor.capture(), termsCaptor.capture());
+        TicketTranscript transcript = transcriptCaptor.getValue();
+        assertThat(transcript.getGuildId()).isEqualTo(42L);
+        assertThat(transcript.getChannelId()).isEqualTo(1234L);
+        assertThat(transcript.getChannelName()).isEqualTo("ticket-7");
+        assertThat(transcript.getSubject()).isEqualTo("Refund request");
+        assertThat(transcript.getAuthorId()).isEqualTo("1001");
+        assertThat(transcript.getAuthorName()).isEqualTo("Alice");
+        assertThat(transcript.getMessageCount()).isEqualTo(2);
+        assertThat(termsCaptor.getValue()).contains("refund", "order", "refunded", "alice", "1001", "bob", "99");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failWhenHistoryCannotBeReadTest() {
+        // GIVEN
+        Path transcriptDirectory = directory.resolve("transcripts").resolve("42");
+
+        when(history.forEachAsync(any(Procedure.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Missing access")));
+        // WHEN
+        CompletableFuture<Path> result = archiver.archive(channel);
+
+        // THEN
+        assertThat(result).isCompletedExceptionally();
+        assertThat(transcriptDirectory).isEmptyDirectory();
+        verify(searchIndex, never()).add(any(), any());
+    }
+
+    private static List<JsonNode> readTranscript(Path file) throws IOException {
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(line -> {
+                        try {
+                            return MAPPER.readTree(line);
+                        } catch(IOException exception) {
+                            throw new IllegalStateException(exception);
+                        }
+                    })
+                    .toList();
+        }
+    }
+
+    private static Message mockMessage(String messageId, String content) {
+        Message message = Mockito.mock(Message.class);
+        User author = Mockito.mock(User.class);
+
+        when(author.getId()).thenReturn("99");
+        when(author.getAsTag()).thenReturn("Bob#0001");
+        when(message.getId()).thenReturn(messageId);
+        when(message.getAuthor()).thenReturn(author);
+        when(message.getTimeCreated()).thenReturn(OffsetDateTime.of(2022, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC));
+        when(message.getContentRaw()).thenReturn(content);
+        when(message.getAttachments()).thenReturn(List.of());
+
+        return message;
+    }
+
+}
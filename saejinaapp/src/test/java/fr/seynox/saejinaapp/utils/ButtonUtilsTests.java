@@ -1,5 +1,7 @@
 package fr.seynox.saejinaapp.utils;
 
+import fr.seynox.saejinaapp.caches.LastMessageCache;
+import fr.seynox.saejinaapp.outbound.OutboundQueue;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.SelfUser;
@@ -15,8 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyCollection;
@@ -24,6 +28,7 @@ import static org.mockito.Mockito.*;
 
 class ButtonUtilsTests {
 
+    private LastMessageCache lastMessageCache;
     private ButtonUtils utils;
 
     private TextChannel channel;
@@ -33,7 +38,8 @@ class ButtonUtilsTests {
 
     @BeforeEach
     void initTest() {
-        utils = new ButtonUtils();
+        lastMessageCache = new LastMessageCache();
+        utils = new ButtonUtils(new OutboundQueue(), lastMessageCache);
 
         channel = Mockito.mock(TextChannel.class);
         button = Mockito.mock(Button.class);
@@ -41,6 +47,8 @@ class ButtonUtilsTests {
         action = Mockito.mock(MessageAction.class);
 
         when(button.getType()).thenReturn(Component.Type.BUTTON);
+        when(message.getChannel()).thenReturn(channel);
+        when(action.submit()).thenReturn(new CompletableFuture<>());
     }
 
     @Test
@@ -60,7 +68,7 @@ class ButtonUtilsTests {
 
         when(channel.getLatestMessageIdLong()).thenReturn(messageId);
         when(channel.retrieveMessageById(anyLong())).thenReturn(latestMessageAction);
-        when(latestMessageAction.complete()).thenReturn(message);
+        when(latestMessageAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
 
         when(message.getAuthor()).thenReturn(author);
         when(author.getIdLong()).thenReturn(authorId);
@@ -79,7 +87,7 @@ class ButtonUtilsTests {
         verify(message, never()).editMessageComponents(anyCollection());
         verify(channel).sendMessage(messageContent);
         verify(action).setActionRows(expected);
-        verify(action).queue();
+        verify(action).submit();
     }
 
     @Test
@@ -99,7 +107,7 @@ class ButtonUtilsTests {
 
         when(channel.getLatestMessageIdLong()).thenReturn(messageId);
         when(channel.retrieveMessageById(anyLong())).thenReturn(latestMessageAction);
-        when(latestMessageAction.complete()).thenReturn(message);
+        when(latestMessageAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
 
         when(message.getAuthor()).thenReturn(author);
         when(author.getIdLong()).thenReturn(authorId);
@@ -122,7 +130,7 @@ class ButtonUtilsTests {
         verify(message, never()).editMessageComponents(anyCollection());
         verify(channel).sendMessage(messageContent);
         verify(action).setActionRows(expected);
-        verify(action).queue();
+        verify(action).submit();
     }
 
     @Test
@@ -139,7 +147,7 @@ class ButtonUtilsTests {
 
         when(channel.getLatestMessageIdLong()).thenReturn(messageId);
         when(channel.retrieveMessageById(anyLong())).thenReturn(latestMessageAction);
-        when(latestMessageAction.complete()).thenReturn(message);
+        when(latestMessageAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
 
         when(message.getAuthor()).thenReturn(author);
         when(author.getIdLong()).thenReturn(authorId);
@@ -157,7 +165,7 @@ class ButtonUtilsTests {
         verify(channel).retrieveMessageById(messageId);
         verify(channel, never()).sendMessage(anyString());
         verify(message).editMessageComponents(captor.capture());
-        verify(action).queue();
+        verify(action).submit();
 
         Collection<ActionRow> result = captor.getValue();
         assertThat(result).hasSize(1);
@@ -165,6 +173,102 @@ class ButtonUtilsTests {
         assertThat(actionRow.getComponents()).containsExactly(button);
     }
 
+    @Test
+    void appendButtonToCachedMessageTest() {
+        // GIVEN
+        long messageId = 123456789;
+        long selfId = 987654321;
+
+        SelfUser selfUser = Mockito.mock(SelfUser.class);
+        JDA jda = Mockito.mock(JDA.class);
+        User author = Mockito.mock(User.class);
+
+        when(channel.getLatestMessageIdLong()).thenReturn(messageId);
+        when(channel.getJDA()).thenReturn(jda);
+        when(jda.getSelfUser()).thenReturn(selfUser);
+        when(selfUser.getIdLong()).thenReturn(selfId);
+
+        when(message.getIdLong()).thenReturn(messageId);
+        when(message.getAuthor()).thenReturn(author);
+        when(author.getIdLong()).thenReturn(selfId);
+        when(message.getActionRows()).thenReturn(List.of());
+        when(message.editMessageComponents(anyCollection())).thenReturn(action);
+
+        lastMessageCache.put(message, selfId);
+        // WHEN
+        utils.sendOrAppendButton(channel, button);
+
+        // THEN
+        verify(channel, never()).retrieveMessageById(anyLong());
+        verify(channel, never()).sendMessage(anyString());
+        verify(message).editMessageComponents(anyCollection());
+    }
+
+    @Test
+    void fetchLastMessageOnlyOnceTest() {
+        // GIVEN
+        long messageId = 123456789;
+        long authorId = 987654321;
+        long selfId = 789123456;
+
+        SelfUser selfUser = Mockito.mock(SelfUser.class);
+        JDA jda = Mockito.mock(JDA.class);
+        User author = Mockito.mock(User.class);
+        RestAction<Message> latestMessageAction = Mockito.mock(RestAction.class);
+
+        when(channel.getLatestMessageIdLong()).thenReturn(messageId);
+        when(channel.retrieveMessageById(anyLong())).thenReturn(latestMessageAction);
+        when(latestMessageAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
+        when(channel.getJDA()).thenReturn(jda);
+        when(jda.getSelfUser()).thenReturn(selfUser);
+        when(selfUser.getIdLong()).thenReturn(selfId);
+
+        when(message.getIdLong()).thenReturn(messageId);
+        when(message.getAuthor()).thenReturn(author);
+        when(author.getIdLong()).thenReturn(authorId);
+
+        when(channel.sendMessage(anyString())).thenReturn(action);
+        when(action.setActionRows(any(ActionRow.class))).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(message));
+        // WHEN
+        utils.sendOrAppendButton(channel, button);
+        utils.sendOrAppendButton(channel, button);
+
+        // THEN
+        verify(channel, times(1)).retrieveMessageById(messageId);
+        verify(channel, times(2)).sendMessage("** **");
+    }
+
+    @Test
+    void sendButtonsInAsFewMessagesAsPossibleTest() {
+        // GIVEN
+        List<Button> buttons = new ArrayList<>();
+        for(int i = 0; i < 30; i++) {
+            Button panelButton = Mockito.mock(Button.class);
+            when(panelButton.getType()).thenReturn(Component.Type.BUTTON);
+            buttons.add(panelButton);
+        }
+
+        MessageAction panelAction = Mockito.mock(MessageAction.class, RETURNS_SELF);
+        ArgumentCaptor<Collection<ActionRow>> captor = ArgumentCaptor.forClass(Collection.class);
+
+        when(channel.sendMessage("** **")).thenReturn(panelAction);
+        when(panelAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
+        // WHEN
+        CompletableFuture<List<Message>> result = utils.sendButtons(channel, buttons);
+
+        // THEN
+        verify(channel, times(2)).sendMessage("** **");
+        verify(panelAction, times(2)).setActionRows(captor.capture());
+        verify(channel, never()).retrieveMessageById(anyLong());
+        assertThat(result).isCompletedWithValue(List.of(message, message));
+
+        List<Collection<ActionRow>> messageRows = captor.getAllValues();
+        assertThat(messageRows.get(0)).hasSize(ButtonUtils.MAX_ACTION_ROWS);
+        assertThat(messageRows.get(1)).hasSize(1);
+        assertThat(messageRows.get(1).iterator().next().getComponents()).containsExactlyElementsOf(buttons.subList(25, 30));
+    }
+
     @Test
     void appendButtonToMessageTest() {
         // GIVEN
@@ -177,7 +281,7 @@ class ButtonUtilsTests {
 
         // THEN
         verify(message).editMessageComponents(captor.capture());
-        verify(action).queue();
+        verify(action).submit();
 
         Collection<ActionRow> result = captor.getValue();
         assertThat(result).hasSize(1);
@@ -204,7 +308,7 @@ class ButtonUtilsTests {
 
         // THEN
         verify(message).editMessageComponents(captor.capture());
-        verify(action).queue();
+        verify(action).submit();
 
         Collection<ActionRow> result = captor.getValue();
         assertThat(result).hasSize(1);
@@ -212,4 +316,99 @@ class ButtonUtilsTests {
         assertThat(actionRow.getComponents()).containsExactlyElementsOf(expected);
     }
 
+    @Test
+    void mergeButtonsAppendedWhileEditIsPendingTest() {
+        // GIVEN
+        Button secondButton = Mockito.mock(Button.class);
+        Button thirdButton = Mockito.mock(Button.class);
+        when(secondButton.getType()).thenReturn(Component.Type.BUTTON);
+        when(thirdButton.getType()).thenReturn(Component.Type.BUTTON);
+
+        CompletableFuture<Message> firstEdit = new CompletableFuture<>();
+        MessageAction secondAction = Mockito.mock(MessageAction.class);
+        ArgumentCaptor<Collection<ActionRow>> captor = ArgumentCaptor.forClass(Collection.class);
+
+        when(message.getActionRows()).thenReturn(List.of());
+        when(message.editMessageComponents(anyCollection())).thenReturn(action, secondAction);
+        when(action.submit()).thenReturn(firstEdit);
+        when(secondAction.submit()).thenReturn(new CompletableFuture<>());
+        // WHEN
+        utils.appendButtonToMessage(button, message);
+        CompletableFuture<Message> secondResult = utils.appendButtonToMessage(secondButton, message);
+        CompletableFuture<Message> thirdResult = utils.appendButtonToMessage(thirdButton, message);
+        firstEdit.complete(message);
+
+        // THEN
+        verify(message, times(2)).editMessageComponents(captor.capture());
+        verify(secondAction).submit();
+        assertThat(secondResult).isSameAs(thirdResult);
+
+        Collection<ActionRow> mergedEdit = captor.getAllValues().get(1);
+        ActionRow actionRow = mergedEdit.stream().findFirst().orElseThrow();
+        assertThat(actionRow.getComponents()).containsExactly(secondButton, thirdButton);
+    }
+
+    @Test
+    void keepButtonsOfSentEditTest() {
+        // GIVEN
+        Button secondButton = Mockito.mock(Button.class);
+        when(secondButton.getType()).thenReturn(Component.Type.BUTTON);
+
+        Message editedMessage = Mockito.mock(Message.class);
+        CompletableFuture<Message> firstEdit = new CompletableFuture<>();
+        MessageAction secondAction = Mockito.mock(MessageAction.class);
+        List<ActionRow> editedButtons = List.of(ActionRow.of(button));
+        ArgumentCaptor<Collection<ActionRow>> captor = ArgumentCaptor.forClass(Collection.class);
+
+        when(message.getActionRows()).thenReturn(List.of());
+        when(message.editMessageComponents(anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(firstEdit);
+        when(editedMessage.getChannel()).thenReturn(channel);
+        when(editedMessage.getActionRows()).thenReturn(editedButtons);
+        when(editedMessage.editMessageComponents(anyCollection())).thenReturn(secondAction);
+        when(secondAction.submit()).thenReturn(new CompletableFuture<>());
+        // WHEN
+        utils.appendButtonToMessage(button, message);
+        // The first edit is in flight, the second one cannot be merged into it
+        utils.appendButtonToMessage(secondButton, message);
+        firstEdit.complete(editedMessage);
+
+        // THEN
+        verify(message, times(1)).editMessageComponents(anyCollection());
+        verify(editedMessage).editMessageComponents(captor.capture());
+        verify(secondAction).submit();
+
+        ActionRow actionRow = captor.getValue().stream().findFirst().orElseThrow();
+        assertThat(actionRow.getComponents()).containsExactly(button, secondButton);
+    }
+
+    @Test
+    void startFromCachedMessageOnceEditsAreAnsweredTest() {
+        // GIVEN
+        long selfId = 789123456;
+        User self = Mockito.mock(User.class);
+        Message editedMessage = Mockito.mock(Message.class);
+        MessageAction secondAction = Mockito.mock(MessageAction.class);
+
+        when(self.getIdLong()).thenReturn(selfId);
+        when(message.getAuthor()).thenReturn(self);
+        when(message.getActionRows()).thenReturn(List.of());
+        when(message.editMessageComponents(anyCollection())).thenReturn(action);
+        when(action.submit()).thenReturn(CompletableFuture.completedFuture(editedMessage));
+        when(editedMessage.getChannel()).thenReturn(channel);
+        when(editedMessage.getActionRows()).thenReturn(List.of());
+        when(editedMessage.editMessageComponents(anyCollection())).thenReturn(secondAction);
+        when(secondAction.submit()).thenReturn(new CompletableFuture<>());
+
+        lastMessageCache.put(message, selfId);
+        // WHEN
+        utils.appendButtonToMessage(button, message);
+        // Appended to the message read before the first edit
+        utils.appendButtonToMessage(button, message);
+
+        // THEN
+        verify(message, times(1)).editMessageComponents(anyCollection());
+        verify(editedMessage).editMessageComponents(anyCollection());
+    }
+
 }
@@ -0,0 +1,77 @@
+package fr.seynox.saejinaapp.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class InteractionExecutorTests {
+
+    private InteractionExecutor executor;
+
+    @BeforeEach
+    void initTest() {
+        executor = new InteractionExecutor(false, 1, 1);
+    }
+
+    @AfterEach
+    void endTest() {
+        executor.shutdown();
+    }
+
+    @Test
+    void runTaskOnNamedThreadTest() throws Exception {
+        // GIVEN
+        AtomicReference<String> threadName = new AtomicReference<>();
+
+        // WHEN
+        executor.runAsync(() -> threadName.set(Thread.currentThread().getName())).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertThat(threadName.get()).startsWith("interaction-");
+        assertThat(executor.isVirtual()).isFalse();
+    }
+
+    @Test
+    void rejectTaskWhenSaturatedTest() throws InterruptedException {
+        // GIVEN
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.runAsync(() -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        executor.runAsync(() -> {});
+
+        // WHEN
+        assertThatExceptionOfType(RejectedExecutionException.class)
+                .isThrownBy(() -> executor.runAsync(() -> {}));
+
+        // THEN
+        assertThat(executor.getRejectedCount()).isEqualTo(1);
+        assertThat(executor.getQueueDepth()).isEqualTo(1);
+        assertThat(executor.getActiveCount()).isEqualTo(1);
+        assertThat(executor.getStats().getQueued()).isEqualTo(1);
+        assertThat(executor.getStats().getRejected()).isEqualTo(1);
+        assertThat(executor.getStats().getQueueCapacity()).isEqualTo(1);
+        blocker.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
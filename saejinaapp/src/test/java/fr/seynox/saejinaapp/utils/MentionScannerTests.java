@@ -0,0 +1,81 @@
+package fr.seynox.saejinaapp.utils;
+
+import fr.seynox.saejinaapp.utils.MentionScanner.Mentions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MentionScannerTests {
+
+    @Test
+    void scanMessageWithoutMentionsTest() {
+        // GIVEN
+        String content = "Hello world ! <not a mention> @ someone <@> <#>";
+
+        // WHEN
+        Mentions result = MentionScanner.scan(content);
+
+        // THEN
+        assertThat(result.mentionsEveryone()).isFalse();
+        assertThat(result.mentionsHere()).isFalse();
+        assertThat(result.getUserIds()).isEmpty();
+        assertThat(result.getRoleIds()).isEmpty();
+        assertThat(result.getChannelIds()).isEmpty();
+    }
+
+    @Test
+    void scanEveryoneAndHereTest() {
+        // GIVEN
+        String content = "@everyone the tournament starts ! @here";
+
+        // WHEN
+        Mentions result = MentionScanner.scan(content);
+
+        // THEN
+        assertThat(result.mentionsEveryone()).isTrue();
+        assertThat(result.mentionsHere()).isTrue();
+    }
+
+    @Test
+    void scanEntityMentionsTest() {
+        // GIVEN
+        String content = "<@1234> <@!5678> <@&91011> see <#121314>, again <@1234>";
+
+        // WHEN
+        Mentions result = MentionScanner.scan(content);
+
+        // THEN
+        assertThat(result.getUserIds()).containsExactly(1234L, 5678L);
+        assertThat(result.getRoleIds()).containsExactly(91011L);
+        assertThat(result.getChannelIds()).containsExactly(121314L);
+        assertThat(result.mentionsEveryone()).isFalse();
+    }
+
+    @Test
+    void ignoreMalformedMentionsTest() {
+        // GIVEN
+        String content = "<@12a> <@&> <@!> <#12 <@99999999999999999999> <@&123";
+
+        // WHEN
+        Mentions result = MentionScanner.scan(content);
+
+        // THEN
+        assertThat(result.getUserIds()).isEmpty();
+        assertThat(result.getRoleIds()).isEmpty();
+        assertThat(result.getChannelIds()).isEmpty();
+    }
+
+    @Test
+    void scanSnowflakeMentionTest() {
+        // GIVEN
+        long userId = 984562318759264287L;
+        String content = "<@%s>".formatted(userId);
+
+        // WHEN
+        Mentions result = MentionScanner.scan(content);
+
+        // THEN
+        assertThat(result.getUserIds()).containsExactly(userId);
+    }
+
+}
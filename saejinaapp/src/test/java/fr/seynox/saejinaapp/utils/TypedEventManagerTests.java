@@ -0,0 +1,150 @@
+package fr.seynox.saejinaapp.utils;
+
+import net.dv8tion.jda.api.events.Event;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class TypedEventManagerTests {
+
+    private TypedEventManager manager;
+
+    @BeforeEach
+    void initTest() {
+        manager = new TypedEventManager();
+    }
+
+    @Test
+    void dispatchEventToMatchingMethodsTest() {
+        // GIVEN
+        RecordingListener listener = new RecordingListener();
+        manager.register(listener);
+
+        ParentEvent parentEvent = new ParentEvent();
+        ChildEvent childEvent = new ChildEvent();
+        OtherEvent otherEvent = new OtherEvent();
+
+        // WHEN
+        manager.handle(parentEvent);
+        manager.handle(childEvent);
+        manager.handle(otherEvent);
+
+        // THEN
+        assertThat(listener.parentEvents).containsExactly(parentEvent, childEvent);
+        assertThat(listener.childEvents).containsExactly(childEvent);
+    }
+
+    @Test
+    void unregisterListenerTest() {
+        // GIVEN
+        RecordingListener listener = new RecordingListener();
+        manager.register(listener);
+        manager.handle(new ChildEvent());
+
+        // WHEN
+        manager.unregister(listener);
+        manager.handle(new ChildEvent());
+
+        // THEN
+        assertThat(listener.childEvents).hasSize(1);
+        assertThat(manager.getRegisteredListeners()).isEmpty();
+    }
+
+    @Test
+    void dispatchToListenerRegisteredAfterFirstEventTest() {
+        // GIVEN
+        RecordingListener firstListener = new RecordingListener();
+        RecordingListener secondListener = new RecordingListener();
+        manager.register(firstListener);
+        manager.handle(new ChildEvent());
+
+        // WHEN
+        manager.register(secondListener);
+        manager.handle(new ChildEvent());
+
+        // THEN
+        assertThat(firstListener.childEvents).hasSize(2);
+        assertThat(secondListener.childEvents).hasSize(1);
+        assertThat(manager.getRegisteredListeners()).containsExactly(firstListener, secondListener);
+    }
+
+    @Test
+    void keepDispatchingAfterListenerFailureTest() {
+        // GIVEN
+        RecordingListener listener = new RecordingListener();
+        manager.register(new FailingListener());
+        manager.register(listener);
+
+        // WHEN
+        manager.handle(new ChildEvent());
+
+        // THEN
+        assertThat(listener.childEvents).hasSize(1);
+    }
+
+    @Test
+    void refuseMethodWithoutEventTest() {
+        // WHEN
+        // THEN
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> manager.register(new InvalidListener()));
+    }
+
+    public static class ParentEvent extends Event {
+        public ParentEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class ChildEvent extends ParentEvent {}
+
+    public static class OtherEvent extends Event {
+        public OtherEvent() {
+            super(null, 0);
+        }
+    }
+
+    public static class RecordingListener {
+
+        private final List<GenericEvent> parentEvents = new ArrayList<>();
+        private final List<GenericEvent> childEvents = new ArrayList<>();
+
+        @SubscribeEvent
+        public void onParent(ParentEvent event) {
+            parentEvents.add(event);
+        }
+
+        @SubscribeEvent
+        public void onChild(ChildEvent event) {
+            childEvents.add(event);
+        }
+
+        public void onOther(OtherEvent event) {
+            throw new IllegalStateException("Not subscribed");
+        }
+    }
+
+    public static class FailingListener {
+
+        @SubscribeEvent
+        public void onChild(ChildEvent event) {
+            throw new IllegalStateException("Failing listener");
+        }
+    }
+
+    public static class InvalidListener {
+
+        @SubscribeEvent
+        public void onNothing() {
+            // Not an event listener
+        }
+    }
+
+}
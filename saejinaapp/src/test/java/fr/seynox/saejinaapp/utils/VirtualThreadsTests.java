@@ -0,0 +1,58 @@
+package fr.seynox.saejinaapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsTests {
+
+    @Test
+    void detectSupportFromJdkVersionTest() {
+        // GIVEN
+        boolean expected = Runtime.version().feature() >= 21;
+
+        boolean result;
+
+        // WHEN
+        result = VirtualThreads.isSupported();
+
+        // THEN
+        assertThat(result).isEqualTo(expected);
+    }
+
+    @Test
+    void refuseExecutorOnUnsupportedJdkTest() {
+        // GIVEN
+        assumeFalse(VirtualThreads.isSupported());
+
+        // WHEN
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+
+        // THEN
+    }
+
+    @Test
+    void runTaskOnNamedVirtualThreadTest() throws Exception {
+        // GIVEN
+        assumeTrue(VirtualThreads.isSupported());
+
+        String threadName;
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        // WHEN
+        Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+        threadName = future.get();
+        executor.shutdown();
+
+        // THEN
+        assertThat(threadName).isEqualTo("test-0");
+    }
+
+}